@@ -34,10 +34,12 @@ import java.util.List;
 import repast.simphony.query.space.grid.GridCell;
 import repast.simphony.query.space.grid.GridCellNgh;
 import repast.simphony.relogo.Utility;
+import repast.simphony.space.SpatialMath;
 import repast.simphony.space.continuous.ContinuousSpace;
 import repast.simphony.space.continuous.NdPoint;
 import repast.simphony.space.grid.Grid;
 import repast.simphony.space.grid.GridPoint;
+import dk.au.bios.porpoise.behavior.RandomSource;
 
 /**
  * Base class for agents.
@@ -47,14 +49,37 @@ public class Agent {
 	private final long id;
 	private final ContinuousSpace<Agent> space;  // FIXME Global object, should not be an instance variable
 	private final Grid<Agent> grid;  // FIXME Global object, should not be an instance variable
+	private NdPoint detachedPosition = null; // The position while detached from the space and grid, see detach()
+	private final double[] moveCoords = new double[2]; // Work arrays of moveByVector(), not to allocate on every step
+	private final double[] moveDisplacement = new double[2];
 
-	private double heading = Globals.getRandomReplaySource() != null ? SimulationParameters.isHomogenous() ? 134 : 134
-			: Globals.getRandomSource().randomInt(0, 360); // 260 is the initial value in NetLogo replays random scenario.
+	private double heading;
 
 	protected Agent(final ContinuousSpace<Agent> space, final Grid<Agent> grid, final long id) {
+		this(space, grid, id, initialHeading(Globals.getRandomSource()));
+	}
+
+	/**
+	 * Creates an agent with the passed heading, for agents drawing their initial heading themselves, see
+	 * {@link #initialHeading(RandomSource)}.
+	 */
+	protected Agent(final ContinuousSpace<Agent> space, final Grid<Agent> grid, final long id, final double heading) {
 		this.space = space;
 		this.grid = grid;
 		this.id = id;
+		this.heading = heading;
+	}
+
+	/**
+	 * Draws the initial heading of an agent, fixed when replaying.
+	 *
+	 * @param random The random source to draw from.
+	 * @return The heading in the range [0;360).
+	 */
+	protected static double initialHeading(final RandomSource random) {
+		// 260 is the initial value in NetLogo replays random scenario.
+		return Globals.getRandomReplaySource() != null ? SimulationParameters.isHomogenous() ? 134 : 134
+				: random.randomInt(0, 360);
 	}
 
 	/**
@@ -63,6 +88,9 @@ public class Agent {
 	 * @return The position of the agent.
 	 */
 	public NdPoint getPosition() {
+		if (detachedPosition != null) {
+			return detachedPosition; // NdPoint is immutable, so the point itself is returned
+		}
 		return space.getLocation(this);
 	}
 
@@ -72,10 +100,36 @@ public class Agent {
 	 * @param newPos the new position for the agent.
 	 */
 	public void setPosition(final NdPoint newPos) {
+		if (detachedPosition != null) {
+			detachedPosition = newPos;
+			return;
+		}
 		space.moveTo(this, newPos.getX(), newPos.getY());
+		grid.moveTo(this, toGridX(newPos.getX()), toGridY(newPos.getY()));
+	}
 
-		final GridPoint p = ndPointToGridPoint(newPos);
-		grid.moveTo(this, p.getX(), p.getY());
+	/**
+	 * Detaches the agent from the space and grid. Until {@link #attach()} is called the agent moves without updating
+	 * the space and grid, which other agents and threads keep seeing at the position from before.
+	 */
+	public void detach() {
+		detachedPosition = space.getLocation(this);
+	}
+
+	/**
+	 * Returns whether the agent is detached from the space and grid, see {@link #detach()}.
+	 */
+	public boolean isDetached() {
+		return detachedPosition != null;
+	}
+
+	/**
+	 * Moves the agent in the space and grid to the position it moved to while detached.
+	 */
+	public void attach() {
+		final NdPoint position = detachedPosition;
+		detachedPosition = null;
+		setPosition(position);
 	}
 
 	/**
@@ -86,18 +140,38 @@ public class Agent {
 	 * @return The GridPoint coordinates for the passed point.
 	 */
 	public static GridPoint ndPointToGridPoint(final NdPoint point) {
-		int x = (int) Math.round(point.getX());
-		int y = (int) Math.round(point.getY());
+		return new GridPoint(toGridX(point.getX()), toGridY(point.getY()));
+	}
 
-		if (y == Globals.getWorldHeight()) {
-			y--;
-		}
+	/**
+	 * Changes a space x coordinate to a grid x coordinate, rounding like {@link #ndPointToGridPoint(NdPoint)}.
+	 *
+	 * @param x The space x coordinate.
+	 * @return The grid x coordinate.
+	 */
+	public static int toGridX(final double x) {
+		final int gridX = (int) Math.round(x);
+		return gridX == Globals.getWorldWidth() ? gridX - 1 : gridX;
+	}
 
-		if (x == Globals.getWorldWidth()) {
-			x--;
-		}
+	/**
+	 * Changes a space y coordinate to a grid y coordinate, rounding like {@link #ndPointToGridPoint(NdPoint)}.
+	 *
+	 * @param y The space y coordinate.
+	 * @return The grid y coordinate.
+	 */
+	public static int toGridY(final double y) {
+		final int gridY = (int) Math.round(y);
+		return gridY == Globals.getWorldHeight() ? gridY - 1 : gridY;
+	}
 
-		return new GridPoint(x, y);
+	/**
+	 * Gets the random source the agent draws from.
+	 *
+	 * @return The random source.
+	 */
+	protected RandomSource getRandomSource() {
+		return Globals.getRandomSource();
 	}
 
 	/**
@@ -106,7 +180,8 @@ public class Agent {
 	 * @return A list of the neighboring cells.
 	 */
 	protected List<GridPoint> getNeighbors() {
-		final GridPoint currentLocation = grid.getLocation(this);
+		final GridPoint currentLocation = detachedPosition != null ? ndPointToGridPoint(getPosition()) : grid
+				.getLocation(this);
 
 		// Look one cell in each direction, this is similar to the NetLogo neighborhood
 		final GridCellNgh<Object> nghCreator = new GridCellNgh<Object>(grid, currentLocation, Object.class, 1, 1);
@@ -118,7 +193,16 @@ public class Agent {
 			list.add(g.getPoint());
 		}
 
-		Collections.shuffle(list);
+		// Collections.shuffle draws from its own unseeded generator, detached agents shuffle with their own random
+		// source to move the same way on any thread.
+		if (detachedPosition == null) {
+			Collections.shuffle(list);
+		} else {
+			final RandomSource random = getRandomSource();
+			for (int i = list.size() - 1; i > 0; i--) {
+				Collections.swap(list, i, random.randomInt(0, i + 1));
+			}
+		}
 
 		return list;
 	}
@@ -129,9 +213,25 @@ public class Agent {
 	 * @param point The point to turn the agent towards.
 	 */
 	public void facePoint(final NdPoint point) {
-		if (!point.equals(getPosition())) {
-			final double[] displacement = space.getDisplacement(getPosition(), point);
-			setHeading(normHeading(Utility.angleFromDisplacement(displacement[0], displacement[1])));
+		facePoint(point.getX(), point.getY());
+	}
+
+	/**
+	 * Set the agents heading to point in the direction of the passed coordinates. Unless the borders wrap around, the
+	 * displacement is computed without allocating.
+	 *
+	 * @param x The x coordinate to turn the agent towards.
+	 * @param y The y coordinate to turn the agent towards.
+	 */
+	public void facePoint(final double x, final double y) {
+		final NdPoint position = getPosition();
+		if (x != position.getX() || y != position.getY()) {
+			if (space.getPointTranslator().isPeriodic()) {
+				final double[] displacement = space.getDisplacement(position, new NdPoint(x, y));
+				setHeading(normHeading(Utility.angleFromDisplacement(displacement[0], displacement[1])));
+			} else {
+				setHeading(normHeading(Utility.angleFromDisplacement(x - position.getX(), y - position.getY())));
+			}
 		}
 		// else - We cannot face the current point, do nothing (NetLogo compatible)
 	}
@@ -151,12 +251,40 @@ public class Agent {
 	 * @param distance The distance to move forward.
 	 */
 	public void forward(final double distance) {
-		final double[] anglesForMoveByVector = { (Math.PI / 2) - getHeadingInRads(), 0.0 };
-
-		final NdPoint newPos = space.moveByVector(this, distance, anglesForMoveByVector);
+		final NdPoint newPos = moveByVector(distance, (Math.PI / 2) - getHeadingInRads());
 		this.setPosition(newPos); // update the grid as well.
 	}
 
+	/**
+	 * Returns the position the agent moves to by a vector in the space, like
+	 * {@link ContinuousSpace#moveByVector(Object, double, double...)} without moving it. The caller sets the position.
+	 *
+	 * @param distance The length of the vector.
+	 * @param angleInRadians The angle of the vector.
+	 * @return The new position.
+	 */
+	protected NdPoint moveByVector(final double distance, final double angleInRadians) {
+		getDisplacement(distance, angleInRadians, moveDisplacement);
+		getPosition().toDoubleArray(moveCoords);
+		space.getPointTranslator().translate(moveCoords, moveDisplacement);
+		return new NdPoint(moveCoords[0], moveCoords[1]);
+	}
+
+	/**
+	 * Stores the displacement of a vector in the plane in displacement. This is what
+	 * {@link SpatialMath#getDisplacement} computes in two dimensions, without allocating
+	 * the angles and the displacement on every step.
+	 *
+	 * @param distance The length of the vector.
+	 * @param angleInRadians The angle of the vector.
+	 * @param displacement The array to store the x and y displacement in.
+	 */
+	protected static void getDisplacement(final double distance, final double angleInRadians,
+			final double[] displacement) {
+		displacement[0] = distance * Math.cos(angleInRadians);
+		displacement[1] = distance * Math.sin(angleInRadians);
+	}
+
 	/**
 	 * Gets the heading of the agent. The heading is a degree in the range (-180;180].
 	 *
@@ -47,6 +47,7 @@ public final class AgentPriority {
 	public static final double FOOD = 1700;
 
 	public static final double FIRST_EVERY_TICK = 9999;
+	public static final double CLOCK = 10000; // Before all other tasks, see ClockTask
 	public static final double YEARLY = 1600;
 	public static final double DAILY = 1500;
 	public static final double MONTHLY = 1400;
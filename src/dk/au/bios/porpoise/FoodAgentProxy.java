@@ -29,6 +29,7 @@ package dk.au.bios.porpoise;
 
 import repast.simphony.space.continuous.ContinuousSpace;
 import repast.simphony.space.grid.Grid;
+import dk.au.bios.porpoise.landscape.MonthlyDataFile;
 import dk.au.bios.porpoise.tasks.FoodTask;
 import dk.au.bios.porpoise.util.Pair;
 
@@ -58,4 +59,11 @@ public class FoodAgentProxy extends Agent {
 		return FoodTask.getExtraGrowthCount();
 	}
 
+	/**
+	 * The number of times a monthly data file was not prefetched in time and the simulation had to wait for it.
+	 */
+	public int getPrefetchMissCount() {
+		return MonthlyDataFile.getPrefetchMissCount();
+	}
+
 }
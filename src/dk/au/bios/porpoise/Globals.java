@@ -28,6 +28,7 @@
 package dk.au.bios.porpoise;
 
 import java.util.LinkedList;
+import java.util.function.LongFunction;
 
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
@@ -54,6 +55,9 @@ public final class Globals {
 	private static RandomSource randomSource = null; // Defines the source of random numbers. Either generated or
 	// replayed.
 
+	// The random sources of the porpoises by id, null if the porpoises share the random source above.
+	private static LongFunction<RandomSource> porpoiseRandomSources = null;
+
 	private static PorpoiseStatistics monthlyStats = null;
 
 	// Age of death for all animals that die. Reset every year
@@ -70,6 +74,8 @@ public final class Globals {
 
 	private static Integer simYears = null; // Limit simulation to number of years.
 
+	private static PopulationStore populationStore = null; // Null unless populationStore is enabled
+
 	public static RandomSource getRandomSource() {
 		return randomSource;
 	}
@@ -78,6 +84,20 @@ public final class Globals {
 		Globals.randomSource = randomSource;
 	}
 
+	/**
+	 * Returns the random source of a porpoise, the shared random source unless the porpoises have their own.
+	 *
+	 * @param porpoiseId The id of the porpoise.
+	 * @return The random source.
+	 */
+	public static RandomSource getRandomSource(final long porpoiseId) {
+		return porpoiseRandomSources != null ? porpoiseRandomSources.apply(porpoiseId) : randomSource;
+	}
+
+	public static void setPorpoiseRandomSources(final LongFunction<RandomSource> porpoiseRandomSources) {
+		Globals.porpoiseRandomSources = porpoiseRandomSources;
+	}
+
 	public static String getRandomReplaySource() {
 		return randomReplaySource;
 	}
@@ -106,6 +126,10 @@ public final class Globals {
 		return meanMaxEntInQuarters[quarter];
 	}
 
+	public static DataFileMetaData getLandscapeMetadata() {
+		return Globals.landscapeMetaData;
+	}
+
 	public static void setLandscapeMetadata(DataFileMetaData metadata) {
 		Globals.landscapeMetaData = metadata;
 	}
@@ -146,4 +170,12 @@ public final class Globals {
 		Globals.cellData = cellData;
 	}
 
+	public static PopulationStore getPopulationStore() {
+		return populationStore;
+	}
+
+	public static void setPopulationStore(final PopulationStore populationStore) {
+		Globals.populationStore = populationStore;
+	}
+
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise;
+
+import repast.simphony.context.Context;
+import repast.simphony.space.continuous.ContinuousSpace;
+import repast.simphony.space.grid.Grid;
+
+/**
+ * A proxy Agent to enable using statistics over the porpoise population in a Data Source. With the PopulationStore
+ * the statistics are taken in a loop over its arrays, otherwise the porpoises are visited through the context.
+ */
+public class PopulationReportProxy extends Agent {
+
+	private final Context<Agent> context;
+
+	public PopulationReportProxy(final ContinuousSpace<Agent> space, final Grid<Agent> grid, final long id,
+			final Context<Agent> context) {
+		super(space, grid, id);
+		this.context = context;
+	}
+
+	/**
+	 * The sum of the energy levels of the porpoises.
+	 */
+	public double getPorpoiseEnergyLevel() {
+		final PopulationStore store = Globals.getPopulationStore();
+		if (store != null) {
+			return store.getTotalEnergyLevel();
+		}
+
+		double sum = 0.0;
+		for (final Agent a : context.getObjects(Porpoise.class)) {
+			sum += ((Porpoise) a).getEnergyLevel();
+		}
+		return sum;
+	}
+
+	/**
+	 * The mean energy level of the porpoises, 0 if there are none.
+	 */
+	public double getMeanEnergyLevel() {
+		final PopulationStore store = Globals.getPopulationStore();
+		final int count = store != null ? store.size() : context.getObjects(Porpoise.class).size();
+		return count > 0 ? getPorpoiseEnergyLevel() / count : 0.0;
+	}
+
+	/**
+	 * The number of porpoises currently deterred.
+	 */
+	public int getDeterredCount() {
+		final PopulationStore store = Globals.getPopulationStore();
+		if (store != null) {
+			return store.getDeterredCount();
+		}
+
+		int count = 0;
+		for (final Agent a : context.getObjects(Porpoise.class)) {
+			if (((Porpoise) a).getDeterStrength() > 0.0) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+}
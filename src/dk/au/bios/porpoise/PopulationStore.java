@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+package dk.au.bios.porpoise;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the frequently updated state of the living porpoises in parallel arrays, indexed by a slot assigned to each
+ * porpoise. The slots are kept dense, when a porpoise is released the last porpoise is moved into its slot, so the
+ * population can be visited with a loop over the arrays instead of through the context. The Porpoise reads and
+ * writes its energy, age, deterrence and movement (previous turning angle and step length, attraction vector) state
+ * here while it holds a slot. In parameters.xml: populationStore
+ */
+public class PopulationStore {
+
+	private static final int MIN_CAPACITY = 16;
+
+	private Porpoise[] porpoises;
+	private int size = 0;
+
+	double[] energyLevel;
+	double[] energyLevelSum;
+	double[] age;
+	double[] deterStrength;
+	int[] deterTimeLeft;
+	double[] deterVtX;
+	double[] deterVtY;
+	double[] prevAngle;
+	double[] prevLogMov;
+	double[] vtX;
+	double[] vtY;
+	double[] dailyEnergyMean;
+
+	public PopulationStore(final int initialCapacity) {
+		final int capacity = Math.max(initialCapacity, MIN_CAPACITY);
+		this.porpoises = new Porpoise[capacity];
+		this.energyLevel = new double[capacity];
+		this.energyLevelSum = new double[capacity];
+		this.age = new double[capacity];
+		this.deterStrength = new double[capacity];
+		this.deterTimeLeft = new int[capacity];
+		this.deterVtX = new double[capacity];
+		this.deterVtY = new double[capacity];
+		this.prevAngle = new double[capacity];
+		this.prevLogMov = new double[capacity];
+		this.vtX = new double[capacity];
+		this.vtY = new double[capacity];
+		this.dailyEnergyMean = new double[capacity];
+	}
+
+	/**
+	 * Assigns the next free slot to the porpoise. The state of the slot is cleared.
+	 *
+	 * @param p The porpoise.
+	 * @return The slot of the porpoise.
+	 */
+	synchronized int allocate(final Porpoise p) {
+		if (size == porpoises.length) {
+			grow(size * 2);
+		}
+
+		final int slot = size++;
+		porpoises[slot] = p;
+		energyLevel[slot] = 0.0;
+		energyLevelSum[slot] = 0.0;
+		age[slot] = 0.0;
+		deterStrength[slot] = 0.0;
+		deterTimeLeft[slot] = 0;
+		deterVtX[slot] = 0.0;
+		deterVtY[slot] = 0.0;
+		prevAngle[slot] = 0.0;
+		prevLogMov[slot] = 0.0;
+		vtX[slot] = 0.0;
+		vtY[slot] = 0.0;
+		dailyEnergyMean[slot] = 0.0;
+		return slot;
+	}
+
+	/**
+	 * Frees the slot. The porpoise in the last slot is moved into the freed slot and told about its new slot.
+	 *
+	 * @param slot The slot to free.
+	 */
+	synchronized void release(final int slot) {
+		final int last = --size;
+		if (slot != last) {
+			porpoises[slot] = porpoises[last];
+			energyLevel[slot] = energyLevel[last];
+			energyLevelSum[slot] = energyLevelSum[last];
+			age[slot] = age[last];
+			deterStrength[slot] = deterStrength[last];
+			deterTimeLeft[slot] = deterTimeLeft[last];
+			deterVtX[slot] = deterVtX[last];
+			deterVtY[slot] = deterVtY[last];
+			prevAngle[slot] = prevAngle[last];
+			prevLogMov[slot] = prevLogMov[last];
+			vtX[slot] = vtX[last];
+			vtY[slot] = vtY[last];
+			dailyEnergyMean[slot] = dailyEnergyMean[last];
+			porpoises[slot].setSlot(slot);
+		}
+		porpoises[last] = null;
+	}
+
+	private void grow(final int capacity) {
+		porpoises = Arrays.copyOf(porpoises, capacity);
+		energyLevel = Arrays.copyOf(energyLevel, capacity);
+		energyLevelSum = Arrays.copyOf(energyLevelSum, capacity);
+		age = Arrays.copyOf(age, capacity);
+		deterStrength = Arrays.copyOf(deterStrength, capacity);
+		deterTimeLeft = Arrays.copyOf(deterTimeLeft, capacity);
+		deterVtX = Arrays.copyOf(deterVtX, capacity);
+		deterVtY = Arrays.copyOf(deterVtY, capacity);
+		prevAngle = Arrays.copyOf(prevAngle, capacity);
+		prevLogMov = Arrays.copyOf(prevLogMov, capacity);
+		vtX = Arrays.copyOf(vtX, capacity);
+		vtY = Arrays.copyOf(vtY, capacity);
+		dailyEnergyMean = Arrays.copyOf(dailyEnergyMean, capacity);
+	}
+
+	/**
+	 * The number of porpoises holding a slot.
+	 */
+	public int size() {
+		return size;
+	}
+
+	public Porpoise getPorpoise(final int slot) {
+		return porpoises[slot];
+	}
+
+	/**
+	 * Decays the deterrence of all porpoises, the same as Porpoise.updateDeterence() on each porpoise.
+	 */
+	public void updateDeterence() {
+		final double decay = (100 - SimulationParameters.getDeterDecay()) * 0.01;
+		for (int i = 0; i < size; i++) {
+			if (deterTimeLeft[i] <= 0) {
+				deterStrength[i] = 0;
+				deterVtX[i] = 0;
+				deterVtY[i] = 0;
+			} else {
+				deterTimeLeft[i]--;
+				deterStrength[i] *= decay;
+				deterVtX[i] /= 2.0;
+				deterVtY[i] /= 2.0;
+			}
+		}
+	}
+
+	/**
+	 * Advances the age of all porpoises by a day and takes the mean of their energy levels over the day, resetting the
+	 * sum, the same as the start of Porpoise.performDailyStep() on each porpoise. The rest of the daily step is then
+	 * done by Porpoise.performDailyStepInStore().
+	 */
+	public void updateDailyEnergetics() {
+		for (int i = 0; i < size; i++) {
+			age[i] = age[i] + 1.0 / 360;
+			dailyEnergyMean[i] = energyLevelSum[i] / 48.0;
+			energyLevelSum[i] = 0;
+		}
+	}
+
+	/**
+	 * The sum of the energy levels of the porpoises.
+	 */
+	public double getTotalEnergyLevel() {
+		double sum = 0.0;
+		for (int i = 0; i < size; i++) {
+			sum += energyLevel[i];
+		}
+		return sum;
+	}
+
+	/**
+	 * The number of porpoises currently deterred.
+	 */
+	public int getDeterredCount() {
+		int count = 0;
+		for (int i = 0; i < size; i++) {
+			if (deterStrength[i] > 0.0) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+}
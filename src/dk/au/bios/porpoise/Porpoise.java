@@ -35,11 +35,15 @@ import dk.au.bios.porpoise.agents.misc.TrackingDisplayAgent;
 import dk.au.bios.porpoise.behavior.Dispersal;
 import dk.au.bios.porpoise.behavior.DispersalFactory;
 import dk.au.bios.porpoise.behavior.PersistentSpatialMemory;
+import dk.au.bios.porpoise.behavior.RandomSource;
 import dk.au.bios.porpoise.behavior.RefMem;
 import dk.au.bios.porpoise.behavior.RefMemTurnCalculator;
+import dk.au.bios.porpoise.landscape.DepthPath;
+import dk.au.bios.porpoise.landscape.MovementCovariates;
 import dk.au.bios.porpoise.tasks.YearlyTask;
 import dk.au.bios.porpoise.util.CircularBuffer;
 import dk.au.bios.porpoise.util.DebugLog;
+import dk.au.bios.porpoise.util.FastMath;
 import dk.au.bios.porpoise.util.PSMVerificationLog;
 import dk.au.bios.porpoise.util.ReplayHelper;
 import dk.au.bios.porpoise.util.SimulationTime;
@@ -49,7 +53,6 @@ import repast.simphony.engine.environment.RunEnvironment;
 import repast.simphony.engine.schedule.ScheduledMethod;
 import repast.simphony.random.RandomHelper;
 import repast.simphony.space.Dimensions;
-import repast.simphony.space.SpatialMath;
 import repast.simphony.space.continuous.ContinuousSpace;
 import repast.simphony.space.continuous.NdPoint;
 import repast.simphony.space.continuous.PointTranslator;
@@ -64,6 +67,7 @@ public class Porpoise extends Agent {
 	public static final AtomicLong PORPOISE_ID = new AtomicLong();
 
 	private final Context<Agent> context;
+	private final RandomSource randomSource; // Shared by all porpoises unless randomStreams or moveThreads is set
 
 	private double energyConsumedDailyTemp; // The energy spent today by the porpoise - At the end of the day it becomes
 	// "energyConsumedDaily"
@@ -101,11 +105,19 @@ public class Porpoise extends Agent {
 	// Remembered feeding success (after memory decay)
 	private final CircularBuffer<Double> storedUtilList = new CircularBuffer<Double>(SimulationConstants.MEMORY_MAX);
 
-	private double[] vt = new double[] { 0.0, 0.0 }; // resultant attraction vector, resulting from reference memory of
-	// food availability (model >=2)
+	private final double[] vt = new double[] { 0.0, 0.0 }; // resultant attraction vector, resulting from reference
+	// memory of food availability (model >=2)
 
 	private final double[] deterVt = new double[] { 0.0, 0.0 }; // Vector (= list) determining which direction a porp is
 	// deterred from wind turbines and ships, and how much
+
+	// Coordinates of the points looked at ahead, reused to avoid allocating in every step
+	private final double[] pointAhead = new double[2];
+	private final double[] pointLeft = new double[2];
+	private final double[] pointRight = new double[2];
+	private final double[] pathStep = new double[2];
+	private final double[] displacement = new double[2];
+
 	private double deterStrength; // The strength of the deterrence, is adjusted based on Psi_deter every step while the
 	// porpoise is deterred.
 	private int deterTimeLeft; // The number of steps remaining while the porpoise is deterred.
@@ -127,11 +139,15 @@ public class Porpoise extends Agent {
 
 	/** Track whether the porpoise is alive. */
 	private boolean alive = true;
+	private StringBuilder verificationRecords; // The PSM verification records of the step while detached
 
 	private final PersistentSpatialMemory psm; // Always enabled for now.
 	private PersistentSpatialMemory calfPsm = null; // If the porpoise is with calf, then this is the PSM it will use.
 	private boolean trackVisitedCells = false;
 	private boolean writePsmSteps = false;
+	private final PopulationStore store; // Holds the energy, age, deterrence and movement state while slot >= 0,
+	// otherwise the fields above are used. Null unless populationStore is enabled.
+	private int slot = -1;
 
 	/**
 	 * Constructor for a newborn porpoised.
@@ -139,8 +155,8 @@ public class Porpoise extends Agent {
 	 * @param parent
 	 */
 	public Porpoise(final Porpoise parent) {
-		this(parent.getSpace(), parent.getGrid(), parent.context, 0, parent.refMemTurnCalculator, parent
-				.getCalfPersistentSpatialMemory());
+		this(parent.getSpace(), parent.getGrid(), parent.context, 0, parent.refMemTurnCalculator,
+				Porpoise.PORPOISE_ID.getAndIncrement(), parent.getCalfPersistentSpatialMemory());
 	}
 
 	/**
@@ -156,8 +172,7 @@ public class Porpoise extends Agent {
 	 */
 	public Porpoise(final ContinuousSpace<Agent> space, final Grid<Agent> grid, final Context<Agent> context,
 			final double age, final RefMemTurnCalculator refMemTurnCalculator) {
-		this(space, grid, context, age, refMemTurnCalculator, new PersistentSpatialMemory(Globals.getWorldWidth(),
-				Globals.getWorldHeight(), PersistentSpatialMemory.generatedPreferredDistance()));
+		this(space, grid, context, age, refMemTurnCalculator, Porpoise.PORPOISE_ID.getAndIncrement(), null);
 
 		if (age > 0) {
 			// This is the model setup, there is a probability that the porpoise is with a lactating calf.
@@ -166,10 +181,10 @@ public class Porpoise extends Agent {
 			this.pregnancyStatus = 2;
 			// become pregnanat with prob. taken from Read & Hohn 1995
 			if (this.pregnancyStatus == 2
-					&& Globals.getRandomSource().nextPregnancyStatusConceive(0, 1) < SimulationParameters
+					&& this.randomSource.nextPregnancyStatusConceive(0, 1) < SimulationParameters
 					.getConceiveProb()) {
 				this.pregnancyStatus = 1;
-				this.daysSinceMating = Globals.getRandomSource().getInitialDaysSinceMating();
+				this.daysSinceMating = this.randomSource.getInitialDaysSinceMating();
 			} else {
 				this.pregnancyStatus = 0;
 			}
@@ -177,8 +192,15 @@ public class Porpoise extends Agent {
 	}
 
 	private Porpoise(final ContinuousSpace<Agent> space, final Grid<Agent> grid, final Context<Agent> context,
-			final double age, final RefMemTurnCalculator refMemTurnCalculator, final PersistentSpatialMemory psm) {
-		super(space, grid, Porpoise.PORPOISE_ID.getAndIncrement());
+			final double age, final RefMemTurnCalculator refMemTurnCalculator, final long id,
+			final PersistentSpatialMemory psm) {
+		super(space, grid, id, 0); // The heading is drawn below
+		this.randomSource = Globals.getRandomSource(id);
+		// A new memory draws its preferred distance before the heading, keeping the order of the draws from the
+		// shared random source.
+		this.psm = psm != null ? psm : new PersistentSpatialMemory(Globals.getWorldWidth(), Globals.getWorldHeight(),
+				PersistentSpatialMemory.generatedPreferredDistance(this.randomSource));
+		setHeading(initialHeading(this.randomSource));
 		this.posList = new CircularBuffer<NdPoint>(SimulationConstants.MEMORY_MAX);
 		this.posListDaily = new CircularBuffer<NdPoint>(10);
 		for (int i = 0; i < 10; i++) {
@@ -192,19 +214,39 @@ public class Porpoise extends Agent {
 
 		this.refMemTurnCalculator = refMemTurnCalculator;
 		this.context = context;
-		this.psm = psm;
 		this.dispersalBehaviour = DispersalFactory.getPSMDispersal(this);
+		this.store = Globals.getPopulationStore();
+		if (this.store != null) {
+			this.slot = this.store.allocate(this);
+		}
 
 		// Setup
 		this.ageOfMaturity = SimulationParameters.getMaturityAge(); // FIXME This is not really variable per instance
-		this.energyLevel = Globals.getRandomSource().nextEnergyNormal();
-		this.prevLogMov = 0.8;
-		this.prevAngle = 10;
-		this.age = age;
+		setEnergyLevel(this.randomSource.nextEnergyNormal());
+		setPrevLogMov(0.8);
+		setPrevAngle(10);
+		setAge(age);
 	}
 
+	/**
+	 * Moves the porpoise one step. Unless moveThreads is set, the porpoises are moved one by one from here. Otherwise
+	 * MoveTask moves them with {@link #startMove()}, {@link #moveStep()} and {@link #finishMove()}.
+	 */
 	@ScheduledMethod(start = 0, interval = 1, priority = AgentPriority.PORP_MOVE)
 	public void move() {
+		if (SimulationParameters.getMoveThreads() > 0) {
+			return;
+		}
+
+		startMove();
+		moveStep();
+		finishMove();
+	}
+
+	/**
+	 * The part of the step changing the context, it is run for one porpoise at a time.
+	 */
+	public void startMove() {
 		if (Globals.getRandomReplaySource() != null) {
 			final DecimalFormat fmt = new DecimalFormat("0.###");
 
@@ -212,12 +254,12 @@ public class Porpoise extends Agent {
 
 			final int tick = (int) SimulationTime.getTick();
 			System.out.println("pos#" + tick + "#" + fmt.format(p.getX()) + "#" + fmt.format(p.getY()) + "#E"
-					+ fmt.format(this.energyLevel) + "#H" + fmt.format(getHeading()) + "#D"
-					+ fmt.format(this.deterVt[0]) + ";" + fmt.format(this.deterVt[1]));
+					+ fmt.format(getEnergyLevel()) + "#H" + fmt.format(getHeading()) + "#D"
+					+ fmt.format(getDeterVtX()) + ";" + fmt.format(getDeterVtY()));
 			System.out.println("disp#" + tick + "#" + this.dispersalBehaviour.getDispersalType());
 			ReplayHelper.print("pos#" + tick + "#" + fmt.format(p.getX()) + "#" + fmt.format(p.getY()) + "#E"
-					+ fmt.format(this.energyLevel) + "#H" + fmt.format(getHeading()) + "#D"
-					+ fmt.format(this.deterVt[0]) + ";" + fmt.format(this.deterVt[1]));
+					+ fmt.format(getEnergyLevel()) + "#H" + fmt.format(getHeading()) + "#D"
+					+ fmt.format(getDeterVtX()) + ";" + fmt.format(getDeterVtY()));
 		}
 
 		if (this.soundSourceDistance != -1) {
@@ -225,13 +267,20 @@ public class Porpoise extends Agent {
 					this.soundSourceDistance, this.soundSourceImpact);
 			this.soundSourceDistance = -1;
 		}
+	}
 
+	/**
+	 * The movement of the step. It changes only the state of this porpoise, and reads the landscape and food as they
+	 * were when the step started. While the porpoise is detached, see {@link #detach()}, the steps of several
+	 * porpoises can be run in parallel.
+	 */
+	public void moveStep() {
 		this.tickMoveAdjustMultiplier = 1.0;
 
 		// Dispersal step (before actual stdMove())
 		if (isAlive()) {
-			if (Globals.getCellData().getDepth(ndPointToGridPoint(getPosition())) <= 0) {
-				System.out.println("No water : " + Globals.getCellData().getDepth(ndPointToGridPoint(getPosition())));
+			if (getDepth() <= 0) {
+				System.out.println("No water : " + getDepth());
 			}
 
 			// Track the number of ticks dispersed
@@ -260,7 +309,7 @@ public class Porpoise extends Agent {
 				final double[] temp = this.refMemTurnCalculator.refMemTurn(this, Globals.getCellData(), storedUtilList,
 						posList);
 				if (temp != null) {
-					vt = temp;
+					setVt(temp[0], temp[1]);
 				}
 
 				getExpFoodVal(); // determines the tendency to move following CRW behaviour based on foraging success in
@@ -271,10 +320,6 @@ public class Porpoise extends Agent {
 				// update position list:
 				final NdPoint pos = getPosition();
 				this.posList.add(pos);
-
-				updEnergeticStatus(); // food level increases in 'go' -- affect the landscape and energetic status of
-				// the porpoise
-
 			} else if (SimulationParameters.getModel() >= 3) {
 				final boolean useExpFoodVal = true;
 
@@ -283,7 +328,7 @@ public class Porpoise extends Agent {
 				final double[] temp = this.refMemTurnCalculator.refMemTurn(this, Globals.getCellData(), storedUtilList,
 						posList);
 				if (temp != null) {
-					vt = temp;
+					setVt(temp[0], temp[1]);
 				}
 
 				getExpFoodVal(); // determines the tendency to move following CRW behaviour based on foraging success in
@@ -295,7 +340,20 @@ public class Porpoise extends Agent {
 				// update position list:
 				final NdPoint pos = getPosition();
 				this.posList.add(pos);
+			}
+		}
+	}
 
+	/**
+	 * The eating and energetics of the step, changing the food of the landscape. It is run for one porpoise at a time,
+	 * after the porpoise is attached again.
+	 */
+	public void finishMove() {
+		if (isAlive()) {
+			if (SimulationParameters.getModel() == 2) {
+				updEnergeticStatus(); // food level increases in 'go' -- affect the landscape and energetic status of
+				// the porpoise
+			} else if (SimulationParameters.getModel() >= 3) {
 				updEnergeticStatus(); // transform food to energy and spend energy based on step length. Food level in
 				// patches increases in 'go'
 				// mortality and pregnancy status is set in class DailyTask for models > 4
@@ -305,6 +363,24 @@ public class Porpoise extends Agent {
 		}
 
 		trackCellVisit();
+
+		if (verificationRecords != null && verificationRecords.length() > 0) {
+			PSMVerificationLog.write(verificationRecords.toString());
+			verificationRecords.setLength(0);
+		}
+	}
+
+	/**
+	 * Keeps a PSM verification record of the step while the porpoise is detached. The records are written at the end
+	 * of the step, in the order of the porpoise ids.
+	 *
+	 * @param record The record.
+	 */
+	public void addVerificationRecord(final CharSequence record) {
+		if (verificationRecords == null) {
+			verificationRecords = new StringBuilder();
+		}
+		verificationRecords.append(record);
 	}
 
 	/**
@@ -317,26 +393,28 @@ public class Porpoise extends Agent {
 		// int startUtmY = getUtmY(); // PSM Verification
 		// double startHeading = getHeading(); // PSM Verification
 
-		final double prevMov = Math.pow(10, this.prevLogMov); // Consider saving prevMov instead of calculating.
+		final double prevMov = pow10(getPrevLogMov()); // Consider saving prevMov instead of calculating.
 		final double presHeading = getHeading();
 		final NdPoint presPosition = getPosition();
 
+		// The depth and salinity terms are the same in all iterations, looked up once for the cell
+		final MovementCovariates covariates = Globals.getCellData().getMovementCovariates();
+		final int covariatesIndex = covariates.indexOf(toGridX(presPosition.getX()), toGridY(presPosition.getY()));
+
 		this.presAngle = 999;
 		int j = 1;
 
 		while (Math.abs(this.presAngle) > 180) {
-			final double ran = Globals.getRandomSource().nextCrwAngle();
-			ReplayHelper.print("normal-0-38:{0}", ran);
+			final double ran = this.randomSource.nextCrwAngle();
+			if (ReplayHelper.isPrintEnabled()) {
+				ReplayHelper.print("normal-0-38:{0}", ran);
+			}
 
-			final double presAngleBase = SimulationParameters.getCorrAngleBase() * this.prevAngle;
-			final double presAngleBathy = SimulationParameters.getCorrAngleBathy()
-					* Globals.getCellData().getDepth(presPosition);
-			final double presAngleSalinity = SimulationParameters.getCorrAngleSalinity()
-					* Globals.getCellData().getSalinity(presPosition);
+			final double presAngleBase = SimulationParameters.getCorrAngleBase() * getPrevAngle();
 
 			final double angleTmp = presAngleBase + ran;
 			// Autoreg can't be used for estimating parameter as estimated turns are changed if on shallow water.
-			this.presAngle = angleTmp * (presAngleBathy + presAngleSalinity + SimulationParameters.getCorrAngleBaseSD());
+			this.presAngle = angleTmp * covariates.getAngleFactor(covariatesIndex);
 
 			j++;
 			if (j == 200) {
@@ -348,9 +426,11 @@ public class Porpoise extends Agent {
 			}
 		}
 
-		ReplayHelper.print("std-move-1 pres-angle:{0} pres-heading: {1} prev-angle: {2} heading:{3}", this.presAngle,
-				presHeading, this.prevAngle, getHeading());
-		ReplayHelper.print("std-move-1 deter-vt:[{0} {1}]", this.deterVt[0], this.deterVt[1]);
+		if (ReplayHelper.isPrintEnabled()) {
+			ReplayHelper.print("std-move-1 pres-angle:{0} pres-heading: {1} prev-angle: {2} heading:{3}",
+					this.presAngle, presHeading, getPrevAngle(), getHeading());
+			ReplayHelper.print("std-move-1 deter-vt:[{0} {1}]", getDeterVtX(), getDeterVtY());
+		}
 		final double sign = this.presAngle < 0 ? -1.0 : 1.0;
 
 		this.presAngle = Math.abs(this.presAngle);
@@ -361,8 +441,10 @@ public class Porpoise extends Agent {
 		double rnd = 0;
 
 		while (goOn) {
-			rnd = Globals.getRandomSource().nextCrwAngleWithM(); // draws the number to be added to presAngle
-			ReplayHelper.print("normal-96-28:{0}", rnd);
+			rnd = this.randomSource.nextCrwAngleWithM(); // draws the number to be added to presAngle
+			if (ReplayHelper.isPrintEnabled()) {
+				ReplayHelper.print("normal-96-28:{0}", rnd);
+			}
 			if (prevMov <= SimulationParameters.getM()) {
 				this.presAngle = this.presAngle + rnd - (rnd * prevMov / SimulationParameters.getM());
 			}
@@ -372,7 +454,7 @@ public class Porpoise extends Agent {
 
 			j++;
 			if (j == 200) {
-				presAngle = Globals.getRandomSource().nextStdMove(0, 20) + 90;
+				presAngle = this.randomSource.nextStdMove(0, 20) + 90;
 				goOn = false;
 
 				if (DebugLog.isEnabledFor(3)) {
@@ -381,8 +463,10 @@ public class Porpoise extends Agent {
 			}
 		}
 
-		ReplayHelper.print("std-move-2 pres-angle:{0} pres-heading: {1} prev-angle: {2} heading:{3}", this.presAngle,
-				presHeading, this.prevAngle, getHeading());
+		if (ReplayHelper.isPrintEnabled()) {
+			ReplayHelper.print("std-move-2 pres-angle:{0} pres-heading: {1} prev-angle: {2} heading:{3}",
+					this.presAngle, presHeading, getPrevAngle(), getHeading());
+		}
 		this.presAngle = this.presAngle * sign;
 
 		final double angleBeforeAvoidLand = this.presAngle; // for printing later using debug 2
@@ -390,9 +474,11 @@ public class Porpoise extends Agent {
 
 		double angleTurnedRight = this.presAngle; // for updating prevAngle at end of stdMove()
 		this.presAngle = 0;
-		ReplayHelper.print(
-				"std-move-3 pres-angle:{0} pres-heading: {1} prev-angle: {2} heading:{3} angle-turned-right: {4}",
-				presAngle, presHeading, this.prevAngle, getHeading(), angleTurnedRight);
+		if (ReplayHelper.isPrintEnabled()) {
+			ReplayHelper.print(
+					"std-move-3 pres-angle:{0} pres-heading: {1} prev-angle: {2} heading:{3} angle-turned-right: {4}",
+					presAngle, presHeading, getPrevAngle(), getHeading(), angleTurnedRight);
+		}
 
 		this.presLogMov = 999;
 		// double porpMaxDist = Globals.MAX_MOV;
@@ -402,14 +488,14 @@ public class Porpoise extends Agent {
 		double presLogMovMin = Double.MAX_VALUE;
 		double presLogMovMax = Double.MIN_VALUE;
 		while (this.presLogMov > SimulationParameters.getMaxMov()) {
-			final double ran = Globals.getRandomSource().nextCrwStepLength();
-			ReplayHelper.print("normal-042-048:{0}", ran);
-
-			final double presLogMovLength = SimulationParameters.getCorrLogmovLength() * this.prevLogMov;
-			final double presLogMovBathy = SimulationParameters.getCorrLogmovBathy()
-					* Globals.getCellData().getDepth(presPosition);
-			final double presLogMovSalinity = SimulationParameters.getCorrLogmovSalinity()
-					* Globals.getCellData().getSalinity(presPosition);
+			final double ran = this.randomSource.nextCrwStepLength();
+			if (ReplayHelper.isPrintEnabled()) {
+				ReplayHelper.print("normal-042-048:{0}", ran);
+			}
+
+			final double presLogMovLength = SimulationParameters.getCorrLogmovLength() * getPrevLogMov();
+			final double presLogMovBathy = covariates.getLogMovBathy(covariatesIndex);
+			final double presLogMovSalinity = covariates.getLogMovSalinity(covariatesIndex);
 			this.presLogMov = presLogMovLength + presLogMovBathy + presLogMovSalinity + ran;
 
 			/*
@@ -445,7 +531,7 @@ public class Porpoise extends Agent {
 			}
 		}
 
-		double presMov = Math.pow(10, this.presLogMov);
+		double presMov = pow10(this.presLogMov);
 
 		// Turn to avoid swimming on land if necessary:
 		this.enoughWaterAhead = false;
@@ -453,16 +539,20 @@ public class Porpoise extends Agent {
 		int countI = 0;
 
 		while (!this.enoughWaterAhead) {
-			ReplayHelper.print("std-move-4 pres-angle:{0} pres-heading: {1} prev-angle: {2} heading:{3}"
-					+ " enoughW: {4} angle-turned-right: {5}", presAngle, presHeading, this.prevAngle, getHeading(),
-					enoughWaterAhead, angleTurnedRight);
+			if (ReplayHelper.isPrintEnabled()) {
+				ReplayHelper.print("std-move-4 pres-angle:{0} pres-heading: {1} prev-angle: {2} heading:{3}"
+						+ " enoughW: {4} angle-turned-right: {5}", presAngle, presHeading, getPrevAngle(), getHeading(),
+						enoughWaterAhead, angleTurnedRight);
+			}
 			checkDepth();
-			ReplayHelper.print("std-move-5 enough-water-ahead {0}", enoughWaterAhead);
+			if (ReplayHelper.isPrintEnabled()) {
+				ReplayHelper.print("std-move-5 enough-water-ahead {0}", enoughWaterAhead);
+			}
 
 			if (!this.enoughWaterAhead) {
 				avoidLand();
 			}
-			presMov = Math.pow(10, this.presLogMov); // because presLogMov may have changed in avoidLand()
+			presMov = pow10(this.presLogMov); // because presLogMov may have changed in avoidLand()
 
 			incHeading(presAngle); // angle to turn -- presAngle -- is changed in avoidLand()
 
@@ -498,7 +588,7 @@ public class Porpoise extends Agent {
 				}
 			}
 
-			facePoint(new NdPoint(max.getX(), max.getY()));
+			facePoint(max.getX(), max.getY());
 
 			angleTurnedRight += presAngle;
 			if (angleTurnedRight > 180) {
@@ -521,44 +611,50 @@ public class Porpoise extends Agent {
 		NdPoint pos = getPosition();
 
 		if (!useExpFoodVal) {
-			totalDX = getDx() * presMov + this.vt[0]; // VT isn't used in stdMove() till here
-			totalDY = getDy() * presMov + this.vt[1]; // note that dx is change in x if taking ONE step forward
+			totalDX = getDx() * presMov + getVtX(); // VT isn't used in stdMove() till here
+			totalDY = getDy() * presMov + getVtY(); // note that dx is change in x if taking ONE step forward
 
-			facePoint(new NdPoint(pos.getX() + totalDX, pos.getY() + totalDY)); // really not needed, it already points
+			facePoint(pos.getX() + totalDX, pos.getY() + totalDY); // really not needed, it already points
 			// that way
 		} else if (SimulationParameters.getModel() < 3) {
 			// length of vector pointing in direction predicted by CRW (VE-total and pres-mov are porp variables)
 			// Used to use Globals.CRW_CONTRIB instead of this.crwContrib
 			final double crwContrib = SimulationParameters.getInertiaConst() + presMov * this.veTotal;
-			totalDX = getDx() * crwContrib + this.vt[0];
-			totalDY = getDy() * crwContrib + this.vt[1];
+			totalDX = getDx() * crwContrib + getVtX();
+			totalDY = getDy() * crwContrib + getVtY();
 
-			facePoint(new NdPoint(pos.getX() + totalDX, pos.getY() + totalDY));
+			facePoint(pos.getX() + totalDX, pos.getY() + totalDY);
 		} else if (SimulationParameters.getModel() >= 3) {
 			// Used to use Globals.CRW_CONTRIB instead of this.crwContrib
 			final double crwContrib = SimulationParameters.getInertiaConst() + presMov * this.veTotal;
-			ReplayHelper
-			.print("std-move-4 pres-angle:{0} presheading: {1} prev-angle: {2} heading:{3} crwcontrib: {4} VT: [{5} {6}]",
-					presAngle, presHeading, this.prevAngle, getHeading(), crwContrib, this.vt[0], this.vt[1]);
+			if (ReplayHelper.isPrintEnabled()) {
+				ReplayHelper.print("std-move-4 pres-angle:{0} presheading: {1} prev-angle: {2} heading:{3}"
+						+ " crwcontrib: {4} VT: [{5} {6}]", presAngle, presHeading, getPrevAngle(), getHeading(),
+						crwContrib, getVtX(), getVtY());
+			}
 
 			// deterrence behaviour -- get scared away from ships and wind turbines
 			checkDeterrence();
 
 			if (this.ignoreDeterrence <= 0) {
-				totalDX = getDx() * crwContrib + this.vt[0] + this.deterVt[0]
+				totalDX = getDx() * crwContrib + getVtX() + getDeterVtX()
 						* SimulationParameters.getDeterrenceCoeff();
-				totalDY = getDy() * crwContrib + this.vt[1] + this.deterVt[1]
+				totalDY = getDy() * crwContrib + getVtY() + getDeterVtY()
 						* SimulationParameters.getDeterrenceCoeff();
 			} else {
 				// We are ignoring deterrence, don't apply
-				totalDX = getDx() * crwContrib + this.vt[0];
-				totalDY = getDy() * crwContrib + this.vt[1];
+				totalDX = getDx() * crwContrib + getVtX();
+				totalDY = getDy() * crwContrib + getVtY();
 
 				this.ignoreDeterrence--;
 			}
-			ReplayHelper.print("facexy:{0}:{1}", (pos.getX() + totalDX), (pos.getY() + totalDY));
-			facePoint(new NdPoint(pos.getX() + totalDX, pos.getY() + totalDY));
-			ReplayHelper.print("heading after facexy:{0}", getHeading());
+			if (ReplayHelper.isPrintEnabled()) {
+				ReplayHelper.print("facexy:{0}:{1}", (pos.getX() + totalDX), (pos.getY() + totalDY));
+			}
+			facePoint(pos.getX() + totalDX, pos.getY() + totalDY);
+			if (ReplayHelper.isPrintEnabled()) {
+				ReplayHelper.print("heading after facexy:{0}", getHeading());
+			}
 		}
 
 		// Store turn for calc of turning angle in next step:
@@ -575,13 +671,17 @@ public class Porpoise extends Agent {
 		// presence
 		// of food
 		tickMoveAdjustMultiplier = 0.0; // using up all the distance allowed left
-		ReplayHelper.print("std-move-4 total-turn:{0} pres-mov:{1}", totalTurn, prevMov);
-		ReplayHelper.print("std-move-4 posA:{0} heading:{1}", pos, getHeading());
-		ReplayHelper.print("std-move-4 forward{0}:", moveDistance);
+		if (ReplayHelper.isPrintEnabled()) {
+			ReplayHelper.print("std-move-4 total-turn:{0} pres-mov:{1}", totalTurn, prevMov);
+			ReplayHelper.print("std-move-4 posA:{0} heading:{1}", pos, getHeading());
+			ReplayHelper.print("std-move-4 forward{0}:", moveDistance);
+		}
 		forward(moveDistance);
 		// REMOVED - PSM distance tracking changed to only track distance in dispersal, excluding standard move
 		// psm.addDistanceTravelled(moveDistance);
-		ReplayHelper.print("std-move-4 posB:{0} heading:{1}", getPosition(), getHeading());
+		if (ReplayHelper.isPrintEnabled()) {
+			ReplayHelper.print("std-move-4 posB:{0} heading:{1}", getPosition(), getHeading());
+		}
 
 		if (DebugLog.isEnabledFor(2)) {
 			if (SimulationTime.getTick() == 0) {
@@ -590,7 +690,7 @@ public class Porpoise extends Agent {
 				DebugLog.print("dist angle-before-avoid-land angle-turned-right x y");
 
 				final StringBuilder sb = new StringBuilder();
-				sb.append(Math.round(Math.pow(10, prevLogMov) * 100) / 100); // THIS IS IMPORTANT -- the porp turns
+				sb.append(Math.round(Math.pow(10, getPrevLogMov()) * 100) / 100); // THIS IS IMPORTANT -- the porp turns
 				// before it moves, so turning angle is
 				// affected by previous moving dist
 				sb.append(" ");
@@ -609,7 +709,7 @@ public class Porpoise extends Agent {
 					* (SimulationParameters.getInertiaConst() + presMov * this.veTotal), pos.getY()
 					* (SimulationParameters.getInertiaConst() + presMov * this.veTotal));
 			// Not sure how the list function in NETLOGO works..
-			DebugLog.print("MR-Contrib: [{},{}]", this.vt[0], this.vt[1]);
+			DebugLog.print("MR-Contrib: [{},{}]", getVtX(), getVtY());
 			DebugLog.print("dx, dy (after): [{},{}] ", totalDX, totalDY);
 			DebugLog.print("heading (after): {}", getHeading());
 			DebugLog.print("total-turn: {}", getHeading()); // ??!
@@ -617,9 +717,9 @@ public class Porpoise extends Agent {
 
 		// Remember current moves for the next iteration
 		// if attraction to food alters the movement angle (i.e. VT != 0), this isn't remembered for next step
-		this.prevAngle = totalTurn; // so the additional turn due to attraction to food DOES influence turning angle in
+		setPrevAngle(totalTurn); // so the additional turn due to attraction to food DOES influence turning angle in
 		// next step
-		this.prevLogMov = Math.log10(presMov); // total steplength, resulting from VT + presMov
+		setPrevLogMov(log10(presMov)); // total steplength, resulting from VT + presMov
 
 		// test depth one last time, avoid-beh = 6 - move back on same track:
 		if (!(getDepth() > 0)) {
@@ -701,22 +801,26 @@ public class Porpoise extends Agent {
 		double foodEaten = 0;
 		double fractOfFoodToEat = 0;
 
-		if (this.energyLevel < 20) {
-			fractOfFoodToEat = (20.0 - energyLevel) / 10.0;
+		if (getEnergyLevel() < 20) {
+			fractOfFoodToEat = (20.0 - getEnergyLevel()) / 10.0;
 		}
 		if (fractOfFoodToEat > 0.99) {
 			fractOfFoodToEat = 0.99;
 		}
 
-		foodEaten += Globals.getCellData().eatFood(ndPointToGridPoint(this.posList.get(1)), fractOfFoodToEat);
+		final NdPoint eatPosition = this.posList.get(1);
+		foodEaten += Globals.getCellData().eatFood(toGridX(eatPosition.getX()), toGridY(eatPosition.getY()),
+				fractOfFoodToEat);
 
 		this.foodEatenDailyTemp += foodEaten;
-		ReplayHelper.print("energy before eat food {0} eaten {1}", energyLevel, foodEaten);
+		if (ReplayHelper.isPrintEnabled()) {
+			ReplayHelper.print("energy before eat food {0} eaten {1}", getEnergyLevel(), foodEaten);
+		}
 		psm.updateMemory(getPosition(), foodEaten);
 		if (calfPsm != null && this.getDispersalBehaviour().calfHasPSM()) {
 			calfPsm.updateMemory(getPosition(), foodEaten);
 		}
-		this.energyLevel += foodEaten;
+		setEnergyLevel(getEnergyLevel() + foodEaten);
 
 		// Scale e-use depending on season and lactation
 		double scalingFactor = 1;
@@ -725,9 +829,10 @@ public class Porpoise extends Agent {
 		// 15% lower energy consumption in Oct+Apr (Lockyer et al 2003. Monitoring growth and energy utilization
 		// of the harbour porpoise (Phocoena phocoena) in human care. Harbour porpoises in the North Atlantic
 		// 5:143-175.)
-		if (SimulationTime.getMonthOfYearWithOffset() == 4 || SimulationTime.getMonthOfYearWithOffset() == 10) {
+		final int month = SimulationTime.getMonthOfYearWithOffset();
+		if (month == 4 || month == 10) {
 			scalingFactor = 1.15;
-		} else if (SimulationTime.getMonthOfYearWithOffset() > 4 && SimulationTime.getMonthOfYearWithOffset() < 10) {
+		} else if (month > 4 && month < 10) {
 			scalingFactor = SimulationParameters.getEWarm();
 		}
 
@@ -737,20 +842,23 @@ public class Porpoise extends Agent {
 			scalingFactor *= SimulationParameters.getELact();
 		}
 
-		// Probability of dying increases with decreasing energy level
-		final double yearlySurvProb = 1 - (SimulationConstants.M_MORT_PROB_CONST * Math.exp(-this.energyLevel
+		// Probability of dying increases with decreasing energy level. Exact even with fastMath, as an approximation
+		// error here biases the mortality compounded over all steps of the year.
+		final double yearlySurvProb = 1 - (SimulationConstants.M_MORT_PROB_CONST * Math.exp(-getEnergyLevel()
 				* SimulationParameters.getXSurvivalProbConst()));
 		double stepSurvProb = 0;
 
-		if (this.energyLevel > 0) {
+		if (getEnergyLevel() > 0) {
 			stepSurvProb = Math.exp(Math.log(yearlySurvProb) / (360 * 48));
 		}
 
-		final double ran = Globals.getRandomSource().nextEnergeticUpdate(0, 1);
-		ReplayHelper.print("porp-upd-energetic-status:{0}", ran);
+		final double ran = this.randomSource.nextEnergeticUpdate(0, 1);
+		if (ReplayHelper.isPrintEnabled()) {
+			ReplayHelper.print("porp-upd-energetic-status:{0}", ran);
+		}
 		if (ran > stepSurvProb) {
-			if (!this.withLactCalf || this.energyLevel <= 0) {
-				Globals.getListOfDeadAge().addLast((int) this.age);
+			if (!this.withLactCalf || getEnergyLevel() <= 0) {
+				Globals.getListOfDeadAge().addLast((int) getAge());
 				Globals.getListOfDeadDay().addLast(SimulationTime.getDayOfSimulation());
 				die(CauseOfDeath.Starvation);
 			}
@@ -761,32 +869,45 @@ public class Porpoise extends Agent {
 			}
 		}
 
-		final double consumed = (0.001 * scalingFactor * SimulationParameters.getEUsePer30Min() + (Math.pow(10,
-				this.prevLogMov) * 0.001 * scalingFactor * SimulationConstants.E_USE_PER_KM / 0.4));
-		ReplayHelper.print("energy before consume food {0} consumed  {1} prev-logmov {2} scaling-factor {3}"
-				+ " month {4} with-lact-calf {5}", energyLevel, consumed, prevLogMov, scalingFactor,
-				SimulationTime.getMonthOfYearWithOffset(), withLactCalf);
+		final double consumed = (0.001 * scalingFactor * SimulationParameters.getEUsePer30Min()
+				+ (pow10(getPrevLogMov()) * 0.001 * scalingFactor * SimulationConstants.E_USE_PER_KM / 0.4));
+		if (ReplayHelper.isPrintEnabled()) {
+			ReplayHelper.print("energy before consume food {0} consumed  {1} prev-logmov {2} scaling-factor {3}"
+					+ " month {4} with-lact-calf {5}", getEnergyLevel(), consumed, getPrevLogMov(), scalingFactor,
+					SimulationTime.getMonthOfYearWithOffset(), withLactCalf);
+		}
 		consumeEnergy(consumed);
 
-		this.energyLevelSum += this.energyLevel;
+		setEnergyLevelSum(getEnergyLevelSum() + getEnergyLevel());
 	}
 
 	@Override
 	public String toString() {
 		final DecimalFormat df = new DecimalFormat("#.00");
-		return "[" + df.format(getHeading()) + ":" + df.format(this.energyLevel) + "]";
+		return "[" + df.format(getHeading()) + ":" + df.format(getEnergyLevel()) + "]";
 	}
 
 	private void checkDepth() {
 		// Check that there is enough water at all steplengths ahead, set enough-water-ahead to false if < min-depth
 		this.enoughWaterAhead = true;
 
-		final double presMov = Math.pow(10, this.presLogMov);
+		final double presMov = pow10(this.presLogMov);
 		final double dd = Math.ceil(presMov / 0.1);
 
-		final GridPoint pointAhead = Agent.ndPointToGridPoint(getPointAhead(presMov));
+		// The path ahead stays within (dd + 1) * 0.1 of the position, and within one more cell once rounded to cells.
+		// When all cells a further cell out are deeper than 0, so are the cells checked below, and as cells off the
+		// grid count as shallow, the path does not reach the borders. Only the replay output is then needed.
+		final NdPoint position = getPosition();
+		final int reach = (int) Math.floor((dd + 1) * 0.1) + 2;
+		if (Globals.getCellData().getShallowWaterField(0, false).getDistance(toGridX(position.getX()),
+				toGridY(position.getY())) > reach) {
+			ReplayHelper.print("porp-check-depth depth-list [NA NA] patch ahead (patch NA NA) bath NA");
+			return;
+		}
+
+		getPointAhead(presMov, this.pointAhead);
 
-		if (Globals.getCellData().getDepth(pointAhead) < 0) {
+		if (getDepth(this.pointAhead) < 0) {
 			// Globals.replayPrint("porp-check-depth enough-water-ahead false . depth-list " depth-list " depth-path "
 			// depth-path);
 			ReplayHelper.print("porp-check-depth enough-water-ahead false . depth-list [NA NA] depth-path [NA]");
@@ -794,26 +915,20 @@ public class Porpoise extends Agent {
 			return;
 		}
 
-		final double[] vector = getVector(0.1);
-
-		final GridPoint[] points = new GridPoint[(int) dd + 1];
+		getDisplacement(0.1, (Math.PI / 2) - getHeadingInRads(), this.displacement);
 
 		// Globals.replayPrint("porp-check-depth depth-list " depth-list " patch ahead " patch-ahead pres-mov " bath " [
 		// bathymetry ] of patch-ahead pres-mov);
 		ReplayHelper.print("porp-check-depth depth-list [NA NA] patch ahead (patch NA NA) bath NA");
 
-		for (int i = 0; i < dd; i++) {
-			final GridPoint p = Agent.ndPointToGridPoint(getPointFromVector(vector, i + 1));
-
-			points[i] = p;
-
-			if (!isPointGood(p, 0, false)) {
-				// Globals.replayPrint("porp-check-depth enough-water-ahead false . depth-list " depth-list
-				// " depth-path " depth-path);
-				ReplayHelper.print("porp-check-depth enough-water-ahead false . depth-list [NA NA] depth-path [NA]");
-				this.enoughWaterAhead = false;
-				break;
-			}
+		// The points at 0.1, 0.2, ..., dd * 0.1 ahead are probed, looking up the depth of each cell once
+		final PointTranslator translator = this.getSpace().getPointTranslator();
+		if (!DepthPath.isDeep(Globals.getCellData().getDepthLayer(), translator, position.getX(), position.getY(),
+				this.displacement[0], this.displacement[1], (int) dd, this.pointAhead, this.pathStep)) {
+			// Globals.replayPrint("porp-check-depth enough-water-ahead false . depth-list " depth-list
+			// " depth-path " depth-path);
+			ReplayHelper.print("porp-check-depth enough-water-ahead false . depth-list [NA NA] depth-path [NA]");
+			this.enoughWaterAhead = false;
 		}
 	}
 
@@ -825,52 +940,82 @@ public class Porpoise extends Agent {
 		return getPointAtHeadingAndDist(angleOffset + getHeading(), dist);
 	}
 
-	public NdPoint getPointAtHeadingAndDist(final double heading, final double distance) {
-		final double headingNormalized = normHeading(heading);
-
-		final double[] anglesInRadians = { (Math.PI / 2) - getHeadingInRads(headingNormalized), 0.0 };
-		final double[] displacement = SpatialMath.getDisplacement(2, 0, distance, anglesInRadians);
+	/**
+	 * Stores the coordinates of the point at a distance ahead in coords, instead of allocating a point.
+	 *
+	 * @param dist The distance ahead.
+	 * @param coords The array to store the x and y coordinates in.
+	 */
+	public void getPointAhead(final double dist, final double[] coords) {
+		getPointAtHeadingAndDist(getHeading(), dist, coords);
+	}
 
+	public NdPoint getPointAtHeadingAndDist(final double heading, final double distance) {
 		final double[] movedCoords = new double[2];
-		getPosition().toDoubleArray(movedCoords);
-		final PointTranslator trans = this.getSpace().getPointTranslator();
-		trans.translate(movedCoords, displacement);
-
+		getPointAtHeadingAndDist(heading, distance, movedCoords);
 		return new NdPoint(movedCoords);
 	}
 
-	public NdPoint getPointAtHeadingAndDistNoBorder(final double heading, final double distance) {
+	/**
+	 * Stores the coordinates of the point at a heading and distance in coords, within the borders of the space.
+	 *
+	 * @param heading The heading to the point.
+	 * @param distance The distance to the point.
+	 * @param coords The array to store the x and y coordinates in.
+	 */
+	public void getPointAtHeadingAndDist(final double heading, final double distance, final double[] coords) {
 		final double headingNormalized = normHeading(heading);
+		getDisplacement(distance, (Math.PI / 2) - getHeadingInRads(headingNormalized), this.displacement);
 
-		final double[] anglesInRadians = { (Math.PI / 2) - getHeadingInRads(headingNormalized), 0.0 };
-		final double[] displacement = SpatialMath.getDisplacement(2, 0, distance, anglesInRadians);
+		getPosition().toDoubleArray(coords);
+		final PointTranslator trans = this.getSpace().getPointTranslator();
+		trans.translate(coords, this.displacement);
+	}
 
+	public NdPoint getPointAtHeadingAndDistNoBorder(final double heading, final double distance) {
 		final double[] movedCoords = new double[2];
-		getPosition().toDoubleArray(movedCoords);
-		movedCoords[0] += displacement[0];
-		movedCoords[1] += displacement[1];
-
+		getPointAtHeadingAndDistNoBorder(heading, distance, movedCoords);
 		return new NdPoint(movedCoords);
 	}
 
-	private double[] getVector(final double distance) {
-		final double[] anglesInRadians = { (Math.PI / 2) - getHeadingInRads(), 0.0 };
-		return SpatialMath.getDisplacement(2, 0, distance, anglesInRadians);
-	}
+	/**
+	 * Stores the coordinates of the point at a heading and distance in coords, which may be off the space.
+	 *
+	 * @param heading The heading to the point.
+	 * @param distance The distance to the point.
+	 * @param coords The array to store the x and y coordinates in.
+	 */
+	public void getPointAtHeadingAndDistNoBorder(final double heading, final double distance, final double[] coords) {
+		final double headingNormalized = normHeading(heading);
+		getDisplacement(distance, (Math.PI / 2) - getHeadingInRads(headingNormalized), this.displacement);
 
-	private NdPoint getPointFromVector(final double[] vector, final int scale) {
-		final double[] movedCoords = new double[2];
-		getPosition().toDoubleArray(movedCoords);
-		final PointTranslator trans = this.getSpace().getPointTranslator();
-		trans.translate(movedCoords, vector[0] * scale, vector[1] * scale);
+		getPosition().toDoubleArray(coords);
+		coords[0] += this.displacement[0];
+		coords[1] += this.displacement[1];
+	}
 
-		return new NdPoint(movedCoords);
+	/**
+	 * Turns to the right or left if the point at the angle given plus the random angle is good on either side.
+	 *
+	 * @param degrees The angle to turn.
+	 * @param randAng The random angle to turn.
+	 * @param presMov The distance to the points.
+	 * @return Whether turned.
+	 */
+	private boolean avoidLandTurn(final int degrees, final double randAng, final double presMov) {
+		getPointAtHeadingAndDist(getHeading() - (degrees + randAng), presMov, this.pointLeft);
+		getPointAtHeadingAndDist(getHeading() + (degrees + randAng), presMov, this.pointRight);
+		if (isPointGood(this.pointRight) || isPointGood(this.pointLeft)) {
+			avoidLandTurn(this.pointRight, this.pointLeft, randAng, degrees);
+			return true;
+		}
+		return false;
 	}
 
-	private void avoidLandTurn(final GridPoint r, final GridPoint l, final double randAng, final int degrees) {
+	private void avoidLandTurn(final double[] r, final double[] l, final double randAng, final int degrees) {
 		if (isPointGood(r) && isPointGood(l)) {
-			final double bathR = Globals.getCellData().getDepth(r);
-			final double bathL = Globals.getCellData().getDepth(l);
+			final double bathR = getDepth(r);
+			final double bathL = getDepth(l);
 
 			// comparison can be true only if neither bath-r or bath-l are NaN, i.e. if both are > min-depth
 			// both points are good, pick the deepest
@@ -888,16 +1033,8 @@ public class Porpoise extends Agent {
 		}
 	}
 
-	private boolean isPointGood(final GridPoint p, final double minDepth, final boolean allowEqual) {
-		if (allowEqual) {
-			return Globals.getCellData().getDepth(p) >= minDepth;
-		} else {
-			return Globals.getCellData().getDepth(p) > minDepth;
-		}
-	}
-
-	private boolean isPointGood(final GridPoint p) {
-		return isPointGood(p, SimulationParameters.getMinDepth(), true);
+	private boolean isPointGood(final double[] coords) {
+		return getDepth(coords) >= SimulationParameters.getMinDepth();
 	}
 
 	private void avoidLand() {
@@ -906,42 +1043,27 @@ public class Porpoise extends Agent {
 		 * Don't do the turning here, but change angle to be turned in stdMove(). Note that the emergency procedure
 		 * "avoid-beh 5" is found in stdMove().
 		 */
-		final double randAng = Globals.getRandomSource().nextAvoidLand(0, 10);
-		ReplayHelper.print("porp-avoid-land:{0}", randAng);
+		final double randAng = this.randomSource.nextAvoidLand(0, 10);
+		if (ReplayHelper.isPrintEnabled()) {
+			ReplayHelper.print("porp-avoid-land:{0}", randAng);
+		}
 		final NdPoint pos = getPosition();
-		ReplayHelper.print("porp-avoid-land#0 pres angle :{0} x:{1} y:{2}", presAngle, pos.getX(), pos.getY());
+		if (ReplayHelper.isPrintEnabled()) {
+			ReplayHelper.print("porp-avoid-land#0 pres angle :{0} x:{1} y:{2}", presAngle, pos.getX(), pos.getY());
+		}
 		int avoidBeh = 0;
-		final double presMov = Math.pow(10, this.presLogMov); // ?!
-
-		GridPoint leftPoint = ndPointToGridPoint(getPointLeftAndAhead(40 + randAng, presMov));
-		GridPoint rightPoint = ndPointToGridPoint(getPointRightAndAhead(40 + randAng, presMov));
+		final double presMov = pow10(this.presLogMov); // ?!
 
 		// alternative kinds of evasive behaviour:
-		if (isPointGood(rightPoint) || isPointGood(leftPoint)) {
+		if (avoidLandTurn(40, randAng, presMov)) {
 			avoidBeh = 1; // evasive behaviour type 1
-
-			avoidLandTurn(rightPoint, leftPoint, randAng, 40);
 		} else {
 			// try turning more aprubtly ( = 70 deg )
-			rightPoint = ndPointToGridPoint(getPointRightAndAhead(70 + randAng, presMov));
-			leftPoint = ndPointToGridPoint(getPointLeftAndAhead(70 + randAng, presMov));
-
-			if (isPointGood(rightPoint) || isPointGood(leftPoint)) {
+			if (avoidLandTurn(70, randAng, presMov)) {
 				avoidBeh = 2; // evasive behaviour type 2
-
-				if (isPointGood(rightPoint) || isPointGood(leftPoint)) {
-					avoidLandTurn(rightPoint, leftPoint, randAng, 70);
-				}
 			} else {
-				rightPoint = ndPointToGridPoint(getPointRightAndAhead(120 + randAng, presMov));
-				leftPoint = ndPointToGridPoint(getPointLeftAndAhead(120 + randAng, presMov));
-
-				if (isPointGood(rightPoint) || isPointGood(leftPoint)) {
+				if (avoidLandTurn(120, randAng, presMov)) {
 					avoidBeh = 3;
-
-					if (isPointGood(rightPoint) || isPointGood(leftPoint)) {
-						avoidLandTurn(rightPoint, leftPoint, randAng, 120);
-					}
 				} else {
 					// if everything else fails, turn around
 					avoidBeh = 4;
@@ -994,16 +1116,13 @@ public class Porpoise extends Agent {
 		}
 	}
 
-	private NdPoint getPointLeftAndAhead(final double angle, final double distance) {
-		return getPointAhead(distance, -angle);
-	}
-
-	private NdPoint getPointRightAndAhead(final double angle, final double distance) {
-		return getPointAhead(distance, angle);
+	private double getDepth() {
+		final NdPoint position = this.getPosition();
+		return Globals.getCellData().getDepth(toGridX(position.getX()), toGridY(position.getY()));
 	}
 
-	private double getDepth() {
-		return Globals.getCellData().getDepth(Agent.ndPointToGridPoint(this.getPosition()));
+	private static double getDepth(final double[] coords) {
+		return Globals.getCellData().getDepth(toGridX(coords[0]), toGridY(coords[1]));
 	}
 
 	private void setTurtlePosition(final NdPoint pos) {
@@ -1022,9 +1141,34 @@ public class Porpoise extends Agent {
 		return Math.cos(getHeadingInRads());
 	}
 
+	// The functions evaluated in every step, approximated by FastMath when fastMath is set.
+	private static double pow10(final double x) {
+		return SimulationParameters.isFastMath() ? FastMath.pow10(x) : Math.pow(10, x);
+	}
+
+	private static double log10(final double x) {
+		return SimulationParameters.isFastMath() ? FastMath.log10(x) : Math.log10(x);
+	}
+
 	private void die(final CauseOfDeath cause) {
 		// System.out.println("Porpoise " + id + " died of : " + cause);
 		this.alive = false;
+		if (slot >= 0) {
+			// Keep the last state for the report proxy and the rest of this step
+			this.energyLevel = getEnergyLevel();
+			this.energyLevelSum = getEnergyLevelSum();
+			this.age = getAge();
+			this.deterStrength = getDeterStrength();
+			this.deterTimeLeft = getDeterTimeLeft();
+			this.deterVt[0] = getDeterVtX();
+			this.deterVt[1] = getDeterVtY();
+			this.prevAngle = getPrevAngle();
+			this.prevLogMov = getPrevLogMov();
+			this.vt[0] = getVtX();
+			this.vt[1] = getVtY();
+			store.release(slot);
+			slot = -1;
+		}
 		context.remove(this);
 		Globals.getMonthlyStats().addDeath(cause);
 		YearlyTask.recordDeath((int) Math.floor(this.getAge()));
@@ -1042,7 +1186,14 @@ public class Porpoise extends Agent {
 		final Dimensions dim = this.getSpace().getDimensions();
 
 		// Only the space is initialized at this time..
-		while (Globals.getCellData().getDepth(ndPointToGridPoint(getPosition())) <= 0) {
+		if (SimulationParameters.isCellSampling() && getDepth() <= 0) {
+			final NdPoint water = Globals.getCellData().getWaterCellSampler()
+					.sample(() -> RandomHelper.nextDoubleFromTo(0, 1));
+			if (water != null) {
+				this.getSpace().moveTo(this, water.getX(), water.getY());
+			}
+		}
+		while (getDepth() <= 0) {
 			this.getSpace().moveTo(this, RandomHelper.nextDoubleFromTo(0, dim.getWidth() - dim.getOrigin(0)),
 					RandomHelper.nextDoubleFromTo(0, dim.getHeight() - dim.getOrigin(1)));
 		}
@@ -1056,6 +1207,31 @@ public class Porpoise extends Agent {
 	 * removing the DailyTask class.
 	 */
 	public void performDailyStep() {
+		performDailyStep(updDailyEnergetics());
+	}
+
+	/**
+	 * The tasks to perform daily for a porpoise in the PopulationStore, after the store has advanced the age and taken
+	 * the mean energy level of the day for all porpoises (see {@link PopulationStore#updateDailyEnergetics()}).
+	 */
+	public void performDailyStepInStore() {
+		performDailyStep(slot >= 0 ? store.dailyEnergyMean[slot] : updDailyEnergetics());
+	}
+
+	/**
+	 * Advances the age by a day and resets the sum of the energy levels of the day.
+	 *
+	 * @return The mean energy level of the day.
+	 */
+	private double updDailyEnergetics() {
+		setAge(getAge() + 1.0 / 360); // TODO: We can avoid this if we record the born tick.
+
+		final double eMean = getEnergyLevelSum() / 48.0;
+		setEnergyLevelSum(0); // reset daily
+		return eMean;
+	}
+
+	private void performDailyStep(final double eMean) {
 		ReplayHelper.print("perform-daily-step");
 
 		this.foodEatenDaily = this.foodEatenDailyTemp;
@@ -1064,9 +1240,6 @@ public class Porpoise extends Agent {
 		this.energyConsumedDaily = this.energyConsumedDailyTemp;
 		this.energyConsumedDailyTemp = 0;
 
-		this.age += 1.0 / 360; // TODO: We can avoid this if we record the born tick.
-
-		final double eMean = this.energyLevelSum / 48.0;
 		this.energyLevelDaily.add(Math.round(eMean * 1000.0) / 1000.0);
 
 		this.posListDaily.add(getPosition());
@@ -1104,8 +1277,6 @@ public class Porpoise extends Agent {
 			}
 		} // End model >= 3 tasks.
 
-		this.energyLevelSum = 0; // reset daily
-
 		if (SimulationParameters.getModel() >= 4 && SimulationConstants.MORTALITY_ENABLED) {
 			if (updMortality()) {
 				updPregnancyStatus();
@@ -1123,13 +1294,13 @@ public class Porpoise extends Agent {
 		// Ok that only divided by 360, called once per day
 		final double dailySurvivalProb = Math.exp(Math.log(1 - SimulationParameters.getBycatchProb()) / 360);
 
-		final double ran = Globals.getRandomSource().nextMortality(0, 1);
+		final double ran = this.randomSource.nextMortality(0, 1);
 		ReplayHelper.print("porp-upd-mortality:{0}", ran);
 		// Introducing maximum age and Mortality due to by-catch
-		if (ran > dailySurvivalProb || this.age > SimulationParameters.getMaxAge()) {
-			Globals.getListOfDeadAge().addLast((int) this.age);
+		if (ran > dailySurvivalProb || getAge() > SimulationParameters.getMaxAge()) {
+			Globals.getListOfDeadAge().addLast((int) getAge());
 			Globals.getListOfDeadDay().addLast(SimulationTime.getDayOfSimulation());
-			die(this.age > SimulationParameters.getMaxAge() ? CauseOfDeath.OldAge : CauseOfDeath.ByCatch);
+			die(getAge() > SimulationParameters.getMaxAge() ? CauseOfDeath.OldAge : CauseOfDeath.ByCatch);
 			return false;
 		} else {
 			return true;
@@ -1140,14 +1311,14 @@ public class Porpoise extends Agent {
 	private void updPregnancyStatus() {
 		// 0 (unable to mate, young/low energy); 1 (unable to mate, pregnant); 2 (ready to mate)
 		// Become ready to mate:
-		if (this.pregnancyStatus == 0 && this.age >= this.ageOfMaturity) {
+		if (this.pregnancyStatus == 0 && getAge() >= this.ageOfMaturity) {
 			this.pregnancyStatus = 2;
 		}
 
 		// Mate:
 		if (this.pregnancyStatus == 2 && SimulationTime.getDayOfYear() == this.matingDay) {
 			// become pregnanat with prob. taken from Read & Hohn 1995
-			if (Globals.getRandomSource().nextPregnancyStatusConceive(0, 1) < SimulationParameters.getConceiveProb()) {
+			if (this.randomSource.nextPregnancyStatusConceive(0, 1) < SimulationParameters.getConceiveProb()) {
 				this.pregnancyStatus = 1;
 				if (DebugLog.isEnabledFor(9)) {
 					DebugLog.print9("{} pregnant", this.getId());
@@ -1166,7 +1337,7 @@ public class Porpoise extends Agent {
 			if (this.getDispersalBehaviour().calfInheritsPsmDist()) {
 				calfPsmPrefDistance = this.getPersistentSpatialMemory().getPreferredDistance();
 			} else {
-				calfPsmPrefDistance = PersistentSpatialMemory.generatedPreferredDistance();
+				calfPsmPrefDistance = PersistentSpatialMemory.generatedPreferredDistance(this.randomSource);
 			}
 			this.calfPsm = new PersistentSpatialMemory(Globals.getWorldWidth(), Globals.getWorldHeight(),
 					calfPsmPrefDistance);
@@ -1183,7 +1354,7 @@ public class Porpoise extends Agent {
 		if (this.withLactCalf && this.daysSinceGivingBirth == SimulationParameters.getNursingTime()) {
 			int nOffspr = 0;
 
-			if (Globals.getRandomSource().nextPregnancyStatusBoyGirl(0, 1) > 0.5) { // assuming 50 % males and no
+			if (this.randomSource.nextPregnancyStatusBoyGirl(0, 1) > 0.5) { // assuming 50 % males and no
 				// abortions
 				nOffspr = 1;
 			}
@@ -1220,7 +1391,7 @@ public class Porpoise extends Agent {
 	}
 
 	public void setRandomMatingDay() {
-		final double ran = Globals.getRandomSource().nextMatingDayNormal();
+		final double ran = this.randomSource.nextMatingDayNormal();
 		ReplayHelper.print("mating-day:{0}", ran);
 		this.matingDay = (int) Math.round(ran);
 	}
@@ -1230,13 +1401,11 @@ public class Porpoise extends Agent {
 		final NdPoint porpPosition = getPosition();
 
 		// become deterred if not already more scared of other sound source
-		if (this.deterStrength < currentDeterenceStrength) {
-			this.deterStrength = currentDeterenceStrength;
-			// vector pointing away from turbine
-			this.deterVt[0] = currentDeterenceStrength * ((porpPosition.getX() - shipPosition.getX()));
-			this.deterVt[1] = currentDeterenceStrength * ((porpPosition.getY() - shipPosition.getY()));
-
-			this.deterTimeLeft = SimulationParameters.getDeterTime(); // how long to remain affected
+		if (getDeterStrength() < currentDeterenceStrength) {
+			// vector pointing away from turbine, and how long to remain affected
+			setDeterrence(currentDeterenceStrength, SimulationParameters.getDeterTime(),
+					currentDeterenceStrength * ((porpPosition.getX() - shipPosition.getX())),
+					currentDeterenceStrength * ((porpPosition.getY() - shipPosition.getY())));
 		}
 
 		// Porpoises nearby stop dispersing (which could force them to cross over disturbing agents very fast)
@@ -1249,13 +1418,11 @@ public class Porpoise extends Agent {
 		final NdPoint porpPosition = getPosition();
 
 		// become deterred if not already more scared of other wind turbine
-		if (this.deterStrength < currentDeterenceStrength) {
-			this.deterStrength = currentDeterenceStrength;
-			// vector pointing away from turbine
-			this.deterVt[0] = currentDeterenceStrength * ((porpPosition.getX() - turbPosition.getX()));
-			this.deterVt[1] = currentDeterenceStrength * ((porpPosition.getY() - turbPosition.getY()));
-
-			this.deterTimeLeft = SimulationParameters.getDeterTime(); // how long to remain affected
+		if (getDeterStrength() < currentDeterenceStrength) {
+			// vector pointing away from turbine, and how long to remain affected
+			setDeterrence(currentDeterenceStrength, SimulationParameters.getDeterTime(),
+					currentDeterenceStrength * ((porpPosition.getX() - turbPosition.getX())),
+					currentDeterenceStrength * ((porpPosition.getY() - turbPosition.getY())));
 		}
 
 		// Porpoises nearby stop dispersing (which could force them to cross over disturbing agents very fast)
@@ -1263,25 +1430,41 @@ public class Porpoise extends Agent {
 	}
 
 	public void updateDeterence() {
-		if (this.deterTimeLeft <= 0) {
-			this.deterStrength = 0;
-			this.deterVt[0] = 0;
-			this.deterVt[1] = 0;
+		if (getDeterTimeLeft() <= 0) {
+			setDeterrence(0, getDeterTimeLeft(), 0, 0);
 		} else {
-			this.deterTimeLeft--;
-			this.deterStrength *= (100 - SimulationParameters.getDeterDecay()) * 0.01;
-			this.deterVt[0] /= 2.0;
-			this.deterVt[1] /= 2.0;
+			setDeterrence(getDeterStrength() * ((100 - SimulationParameters.getDeterDecay()) * 0.01),
+					getDeterTimeLeft() - 1, getDeterVtX() / 2.0, getDeterVtY() / 2.0);
 		}
 	}
 
 	public void consumeEnergy(final double energyAmount) {
-		this.energyLevel -= energyAmount;
+		setEnergyLevel(getEnergyLevel() - energyAmount);
 		this.energyConsumedDailyTemp += energyAmount;
 	}
 
 	public double getEnergyLevel() {
-		return this.energyLevel;
+		return slot >= 0 ? store.energyLevel[slot] : this.energyLevel;
+	}
+
+	private void setEnergyLevel(final double energyLevel) {
+		if (slot >= 0) {
+			store.energyLevel[slot] = energyLevel;
+		} else {
+			this.energyLevel = energyLevel;
+		}
+	}
+
+	private double getEnergyLevelSum() {
+		return slot >= 0 ? store.energyLevelSum[slot] : this.energyLevelSum;
+	}
+
+	private void setEnergyLevelSum(final double energyLevelSum) {
+		if (slot >= 0) {
+			store.energyLevelSum[slot] = energyLevelSum;
+		} else {
+			this.energyLevelSum = energyLevelSum;
+		}
 	}
 
 	public double getSoundSourceDistance() {
@@ -1309,19 +1492,66 @@ public class Porpoise extends Agent {
 	}
 
 	public double getDeterStrength() {
-		return this.deterStrength;
+		return slot >= 0 ? store.deterStrength[slot] : this.deterStrength;
 	}
 
 	public int getDeterTimeLeft() {
-		return this.deterTimeLeft;
+		return slot >= 0 ? store.deterTimeLeft[slot] : this.deterTimeLeft;
 	}
 
 	public String getDeterVector() {
-		return "[" + this.deterVt[0] + "," + this.deterVt[1] + "]";
+		return "[" + getDeterVtX() + "," + getDeterVtY() + "]";
+	}
+
+	private double getDeterVtX() {
+		return slot >= 0 ? store.deterVtX[slot] : this.deterVt[0];
+	}
+
+	private double getDeterVtY() {
+		return slot >= 0 ? store.deterVtY[slot] : this.deterVt[1];
+	}
+
+	private void setDeterrence(final double strength, final int timeLeft, final double vtX, final double vtY) {
+		if (slot >= 0) {
+			store.deterStrength[slot] = strength;
+			store.deterTimeLeft[slot] = timeLeft;
+			store.deterVtX[slot] = vtX;
+			store.deterVtY[slot] = vtY;
+		} else {
+			this.deterStrength = strength;
+			this.deterTimeLeft = timeLeft;
+			this.deterVt[0] = vtX;
+			this.deterVt[1] = vtY;
+		}
+	}
+
+	/**
+	 * Called by the PopulationStore when the porpoise is moved to another slot.
+	 */
+	void setSlot(final int slot) {
+		this.slot = slot;
 	}
 
 	public String getVT() {
-		return "[" + this.vt[0] + "," + this.vt[1] + "]";
+		return "[" + getVtX() + "," + getVtY() + "]";
+	}
+
+	private double getVtX() {
+		return slot >= 0 ? store.vtX[slot] : this.vt[0];
+	}
+
+	private double getVtY() {
+		return slot >= 0 ? store.vtY[slot] : this.vt[1];
+	}
+
+	private void setVt(final double vtX, final double vtY) {
+		if (slot >= 0) {
+			store.vtX[slot] = vtX;
+			store.vtY[slot] = vtY;
+		} else {
+			this.vt[0] = vtX;
+			this.vt[1] = vtY;
+		}
 	}
 
 	public int getBlock() {
@@ -1344,8 +1574,16 @@ public class Porpoise extends Agent {
 		return (int) Math.round(getPosition().getY() * 400 + Globals.getYllCorner());
 	}
 
+	private double getPrevAngle() {
+		return slot >= 0 ? store.prevAngle[slot] : this.prevAngle;
+	}
+
 	private void setPrevAngle(final double prevAngle) {
-		this.prevAngle = prevAngle;
+		if (slot >= 0) {
+			store.prevAngle[slot] = prevAngle;
+		} else {
+			this.prevAngle = prevAngle;
+		}
 	}
 
 	/**
@@ -1356,7 +1594,7 @@ public class Porpoise extends Agent {
 		// If the porpoise has moved less than IGNORE_DETER_STUCK_TIME, e.g. right after start, then we ignore it for
 		// now.
 		if (ignoreDeterrence == 0 && this.posList.size() > SimulationConstants.IGNORE_DETER_STUCK_TIME
-				&& this.deterStrength > SimulationConstants.IGNORE_DETER_MIN_IMPACT) {
+				&& getDeterStrength() > SimulationConstants.IGNORE_DETER_MIN_IMPACT) {
 			double totalDistance = 0; //
 
 			if (this.posList.size() >= 2) {
@@ -1379,13 +1617,31 @@ public class Porpoise extends Agent {
 		return this.ignoreDeterrence;
 	}
 
+	/**
+	 * Gets the random source the porpoise and its dispersal draw from.
+	 *
+	 * @return The random source.
+	 */
+	@Override
+	public RandomSource getRandomSource() {
+		return randomSource;
+	}
+
 	/**
 	 * Gets the age of the porpoise. The unit is years.
 	 *
 	 * @return The age of the porpoise in years.
 	 */
 	public double getAge() {
-		return age;
+		return slot >= 0 ? store.age[slot] : age;
+	}
+
+	private void setAge(final double age) {
+		if (slot >= 0) {
+			store.age[slot] = age;
+		} else {
+			this.age = age;
+		}
 	}
 
 	/**
@@ -1396,18 +1652,10 @@ public class Porpoise extends Agent {
 	 */
 	protected NdPoint getPositionForward(final double distance) {
 		// TODO: Copy paste from forward, find a way to have only one implementation.
-		final Dimensions d = this.getSpace().getDimensions();
-		final double[] anglesInRadians = { (Math.PI / 2) - getHeadingInRads(), 0.0 };
-		final double[] displacement = SpatialMath.getDisplacement(d.size(), 0, distance, anglesInRadians);
+		getDisplacement(distance, (Math.PI / 2) - getHeadingInRads(), this.displacement);
 
-		final double[] newPos = new double[2];
 		final NdPoint pos = getPosition();
-		pos.toDoubleArray(newPos);
-
-		newPos[0] += displacement[0];
-		newPos[1] += displacement[1];
-
-		return new NdPoint(newPos);
+		return new NdPoint(pos.getX() + this.displacement[0], pos.getY() + this.displacement[1]);
 	}
 
 	/**
@@ -1423,19 +1671,17 @@ public class Porpoise extends Agent {
 		}
 
 		final Dimensions d = this.getSpace().getDimensions();
-		final double[] anglesInRadians = { (Math.PI / 2) - getHeadingInRads(), 0.0 };
-		final double[] displacement = SpatialMath.getDisplacement(d.size(), 0, distance, anglesInRadians);
+		final double angleInRadians = (Math.PI / 2) - getHeadingInRads();
+		final double[] displacement = this.displacement;
+		getDisplacement(distance, angleInRadians, displacement);
 
-		final double[] newPos = new double[2];
 		final NdPoint pos = getPosition();
-		pos.toDoubleArray(newPos);
-
-		newPos[0] += displacement[0];
-		newPos[1] += displacement[1];
+		final double newX = pos.getX() + displacement[0];
+		final double newY = pos.getY() + displacement[1];
 
 		boolean angleChanged = false;
 
-		if (newPos[0] >= d.getWidth() || newPos[0] < 0) {
+		if (newX >= d.getWidth() || newX < 0) {
 			// we are moving off the right most edge or the left most edge
 			// new angle will be {-dx,dy}
 			angleChanged = true;
@@ -1443,7 +1689,7 @@ public class Porpoise extends Agent {
 			displacement[0] = -displacement[0];
 		}
 
-		if (newPos[1] >= d.getHeight() || newPos[1] < 0) {
+		if (newY >= d.getHeight() || newY < 0) {
 			// we are moving off the top or the bottom of the map
 			// new angle will be {dx,-dy}
 			angleChanged = true;
@@ -1458,7 +1704,7 @@ public class Porpoise extends Agent {
 			setPrevAngle(0);
 		}
 
-		final NdPoint temp = this.getSpace().moveByVector(this, distance, anglesInRadians);
+		final NdPoint temp = moveByVector(distance, angleInRadians);
 		this.setPosition(temp); // update the grid as well.
 	}
 
@@ -1487,7 +1733,15 @@ public class Porpoise extends Agent {
 	}
 
 	public double getPrevLogMov() {
-		return this.prevLogMov;
+		return slot >= 0 ? store.prevLogMov[slot] : this.prevLogMov;
+	}
+
+	private void setPrevLogMov(final double prevLogMov) {
+		if (slot >= 0) {
+			store.prevLogMov[slot] = prevLogMov;
+		} else {
+			this.prevLogMov = prevLogMov;
+		}
 	}
 
 	public double getPresLogMov() {
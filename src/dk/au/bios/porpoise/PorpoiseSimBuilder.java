@@ -37,18 +37,24 @@ import dk.au.bios.porpoise.behavior.GeneratedRandomSource;
 import dk.au.bios.porpoise.behavior.RefMem;
 import dk.au.bios.porpoise.behavior.RefMemTurnCalculator;
 import dk.au.bios.porpoise.behavior.ReplayedRandomSource;
+import dk.au.bios.porpoise.behavior.SplittableRandomSource;
 import dk.au.bios.porpoise.landscape.CellData;
 import dk.au.bios.porpoise.landscape.LandscapeLoader;
+import dk.au.bios.porpoise.landscape.MonthlyDataFile;
 import dk.au.bios.porpoise.ships.ShipLoader;
 import dk.au.bios.porpoise.tasks.AddTrackedPorpoisesTask;
 import dk.au.bios.porpoise.tasks.CaptureTestDataTask;
+import dk.au.bios.porpoise.tasks.ClockTask;
 import dk.au.bios.porpoise.tasks.DailyTask;
 import dk.au.bios.porpoise.tasks.DeadPorpoisesReportProxyCleanupTask;
 import dk.au.bios.porpoise.tasks.DeterenceTask;
 import dk.au.bios.porpoise.tasks.FoodTask;
+import dk.au.bios.porpoise.tasks.LayerUsageReportTask;
 import dk.au.bios.porpoise.tasks.MonthlyTasks;
+import dk.au.bios.porpoise.tasks.MoveTask;
 import dk.au.bios.porpoise.tasks.YearlyTask;
 import dk.au.bios.porpoise.util.DebugLog;
+import dk.au.bios.porpoise.util.SimulationTime;
 import dk.au.bios.porpoise.util.test.PorpoiseTestDataCapturer;
 import repast.simphony.context.Context;
 import repast.simphony.context.space.continuous.ContinuousSpaceFactory;
@@ -103,18 +109,34 @@ public class PorpoiseSimBuilder implements ContextBuilder<Agent> {
 		// Disabled, enable to capture replay output
 		// ReplayHelper.setup();
 
+		Globals.setPorpoiseRandomSources(null);
 		if (Globals.getRandomReplaySource() != null) {
+			if (SimulationParameters.getMoveThreads() > 0) {
+				// The replayed numbers are drawn in the order of a run moving the porpoises one by one
+				throw new RuntimeException("Invalid value for moveThreads - " + SimulationParameters.getMoveThreads()
+						+ ", must be 0 when replaying");
+			}
 			Globals.setRandomSource(new ReplayedRandomSource(Globals.getRandomReplaySource()));
+		} else if (SimulationParameters.isRandomStreams() || SimulationParameters.getMoveThreads() > 0) {
+			// The porpoises moving in parallel must each draw from their own stream
+			final SplittableRandomSource randomSource = new SplittableRandomSource(params, params
+					.getInteger("randomSeed"));
+			Globals.setRandomSource(randomSource);
+			Globals.setPorpoiseRandomSources(randomSource::forPorpoise);
 		} else {
 			Globals.setRandomSource(new GeneratedRandomSource(params));
 		}
 
 		Globals.resetMonthlyStats();
+		MonthlyDataFile.resetPrefetchStats();
 
 		DebugLog.initialize(params);
 		// Reset the counter for the porpoise id generator.
 		Porpoise.PORPOISE_ID.set(0);
 
+		if (Globals.getCellData() != null) {
+			Globals.getCellData().close(); // Release the files held open by the landscape of the previous run
+		}
 		Globals.setCellData(null); // This releases the previous CellData allowing it to be garbage collected
 		final String landscape;
 		if (SimulationParameters.isHomogenous()) {
@@ -124,7 +146,10 @@ public class PorpoiseSimBuilder implements ContextBuilder<Agent> {
 		}
 		final CellData cellData;
 		try {
-			final LandscapeLoader dataLoader = new LandscapeLoader(landscape);
+			// Start the clock on the new schedule first, the food is seeded for the first quarter when loading
+			SimulationTime.advance();
+			final LandscapeLoader dataLoader = new LandscapeLoader(landscape,
+					SimulationParameters.getLandscapeWindow(), SimulationParameters.getLayerStorage());
 			cellData = dataLoader.load();
 			Globals.setCellData(cellData);
 		} catch (IOException e) {
@@ -142,6 +167,7 @@ public class PorpoiseSimBuilder implements ContextBuilder<Agent> {
 
 		final FoodAgentProxy foodAgent = new FoodAgentProxy(space, grid, 0);
 		context.add(foodAgent);
+		context.add(new PopulationReportProxy(space, grid, 0, context));
 		context.add(Globals.getMonthlyStats());
 
 		addPorpoises(context, space, grid, cellData);
@@ -228,6 +254,7 @@ public class PorpoiseSimBuilder implements ContextBuilder<Agent> {
 				13, 13, 14, 14, 14, 14, 15, 15, 15, 15, 18, 18, 19, 19, 21, 22 };
 
 		final int numPorpoises = SimulationParameters.getPorpoiseCount();
+		Globals.setPopulationStore(SimulationParameters.isPopulationStore() ? new PopulationStore(numPorpoises) : null);
 		for (int i = 0; i < numPorpoises; i++) {
 			final int nextAgeDistrib = Globals.getRandomSource().nextAgeDistrib(0, ageDistribution.length);
 			final Porpoise p = new Porpoise(space, grid, context, ageDistribution[nextAgeDistrib], refMemTurn);
@@ -299,6 +326,8 @@ public class PorpoiseSimBuilder implements ContextBuilder<Agent> {
 			final Grid<Agent> grid, final CellData cellData) {
 		final ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
 
+		schedule.schedule(ScheduleParameters.createRepeating(0, 1, AgentPriority.CLOCK), new ClockTask());
+
 		final ScheduleParameters foodParams = ScheduleParameters.createRepeating(48, 48, AgentPriority.FOOD);
 
 		final IAction deadPorpoisesTask = new DeadPorpoisesReportProxyCleanupTask(context);
@@ -332,6 +361,8 @@ public class PorpoiseSimBuilder implements ContextBuilder<Agent> {
 		schedule.schedule(yearlyParams, yearlyTask);
 
 		schedule.schedule(foodParams, new FoodTask());
+		schedule.schedule(ScheduleParameters.createAtEnd(ScheduleParameters.LAST_PRIORITY),
+				new LayerUsageReportTask(cellData));
 
 		if (PorpoiseTestDataCapturer.capture) {
 			schedule.schedule(ScheduleParameters.createRepeating(0, 1, ScheduleParameters.LAST_PRIORITY),
@@ -343,6 +374,11 @@ public class PorpoiseSimBuilder implements ContextBuilder<Agent> {
 					AgentPriority.PORP_DETERRENCE);
 			schedule.schedule(deterenceParams, new DeterenceTask(context));
 		}
+
+		if (SimulationParameters.getMoveThreads() > 0) {
+			schedule.schedule(ScheduleParameters.createRepeating(0, 1, AgentPriority.PORP_MOVE), new MoveTask(context,
+					SimulationParameters.getMoveThreads()));
+		}
 	}
 
 	/**
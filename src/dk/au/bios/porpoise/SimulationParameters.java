@@ -44,6 +44,60 @@ public final class SimulationParameters {
 	public static final String LANDSCAPE_HOMOGENOUS_NAME = "Homogeneous";
 
 	private static String landscape;
+
+	/**
+	 * Bounding box (UTM) of the part of the landscape to load, as minX;minY;maxX;maxY, or null to load the whole
+	 * landscape. In parameters.xml: landscapeWindow
+	 */
+	private static String landscapeWindow;
+
+	/**
+	 * The precision, memory layout and halo the landscape layers are held in, see LayerStorage, or null to hold them
+	 * as double values in arrays. In parameters.xml: layerStorage
+	 */
+	private static String layerStorage;
+
+	/**
+	 * The number of landscapes the LandscapeCache keeps loaded for later batch runs in the same JVM. When a run loads
+	 * another landscape, the least recently used landscape is closed. The landscape of the current run is always
+	 * kept. In parameters.xml: landscapeCacheSize
+	 */
+	private static int landscapeCacheSize = 2;
+
+	/**
+	 * Whether porpoises placed on land and the random targets of dispersal are drawn from the cells with water, or with
+	 * water and prey, see CellSampler. The random numbers drawn differ from drawing until a position is found. In
+	 * parameters.xml: cellSampling
+	 */
+	private static boolean cellSampling;
+
+	/**
+	 * Whether the energy, age, deterrence and movement state of the porpoises is kept in a PopulationStore, allowing
+	 * the daily energetics and the deterrence decay to be done in single loops. The results are the same either way.
+	 * In parameters.xml: populationStore
+	 */
+	private static boolean populationStore;
+
+	/**
+	 * The number of threads moving the porpoises, see MoveTask, or 0 to move them one by one in the order of the
+	 * schedule. When set, each porpoise draws from its own random stream as with randomStreams, so the results are the
+	 * same for any number of threads. In parameters.xml: moveThreads
+	 */
+	private static int moveThreads;
+
+	/**
+	 * Whether each porpoise draws from its own random stream derived from the seed and its id, see
+	 * SplittableRandomSource, instead of all drawing from the same distributions. In parameters.xml: randomStreams
+	 */
+	private static boolean randomStreams;
+
+	/**
+	 * Whether the porpoise movement and energetics use the table based approximations in FastMath instead of the
+	 * exact functions in Math. The results differ slightly from the exact mode, see FastMathAccuracyHarness. In
+	 * parameters.xml: fastMath
+	 */
+	private static boolean fastMath;
+
 	private static String turbines;
 	private static boolean shipsEnabled;
 	private static int porpoiseCount;
@@ -212,6 +266,18 @@ public final class SimulationParameters {
 
 	public static void initialize(final Parameters params) {
 		landscape = params.getString("landscape");
+		final String landscapeWindowParam = params.getString("landscapeWindow");
+		landscapeWindow = landscapeWindowParam == null || landscapeWindowParam.trim().isEmpty()
+				|| "off".equals(landscapeWindowParam) ? null : landscapeWindowParam.trim();
+		final String layerStorageParam = params.getString("layerStorage");
+		layerStorage = layerStorageParam == null || layerStorageParam.trim().isEmpty()
+				|| "double".equals(layerStorageParam) ? null : layerStorageParam.trim();
+		landscapeCacheSize = params.getInteger("landscapeCacheSize");
+		cellSampling = params.getBoolean("cellSampling");
+		populationStore = params.getBoolean("populationStore");
+		moveThreads = params.getInteger("moveThreads");
+		randomStreams = params.getBoolean("randomStreams");
+		fastMath = params.getBoolean("fastMath");
 		turbines = params.getString("turbines");
 		porpoiseCount = params.getInteger("porpoiseCount");
 		trackedPorpoiseCount = params.getInteger("trackedPorpoiseCount");
@@ -290,6 +356,18 @@ public final class SimulationParameters {
 		return landscape;
 	}
 
+	public static String getLandscapeWindow() {
+		return landscapeWindow;
+	}
+
+	public static String getLayerStorage() {
+		return layerStorage;
+	}
+
+	public static int getLandscapeCacheSize() {
+		return landscapeCacheSize;
+	}
+
 	public static String getTurbines() {
 		return turbines;
 	}
@@ -454,6 +532,26 @@ public final class SimulationParameters {
 		return wrapBorderHomo;
 	}
 
+	public static boolean isCellSampling() {
+		return cellSampling;
+	}
+
+	public static boolean isPopulationStore() {
+		return populationStore;
+	}
+
+	public static int getMoveThreads() {
+		return moveThreads;
+	}
+
+	public static boolean isRandomStreams() {
+		return randomStreams;
+	}
+
+	public static boolean isFastMath() {
+		return fastMath;
+	}
+
 	public static boolean isShipsEnabled() {
 		return shipsEnabled;
 	}
@@ -98,6 +98,7 @@ public class Turbine extends Agent {
 
 		final File file = new File("data/wind-farms", fileName + ".txt");
 		int numTurbines = 0;
+		int numOutsideWindow = 0;
 
 		try (BufferedReader fr = new BufferedReader(new FileReader(file))) {
 			fr.readLine(); // Header is ignored.
@@ -110,6 +111,11 @@ public class Turbine extends Agent {
 				final String name = cols[0];
 				final double locX = (Double.parseDouble(cols[1]) - Globals.getXllCorner()) / 400;
 				final double locY = (Double.parseDouble(cols[2]) - Globals.getYllCorner()) / 400;
+				if (SimulationParameters.getLandscapeWindow() != null && (locX < 0 || locY < 0
+						|| locX >= Globals.getWorldWidth() || locY >= Globals.getWorldHeight())) {
+					numOutsideWindow++;
+					continue;
+				}
 				final double impact = Double.parseDouble(cols[3]);
 				int startTick = 0;
 				int endTick = Integer.MAX_VALUE;
@@ -133,6 +139,9 @@ public class Turbine extends Agent {
 		}
 
 		System.out.println("Showing wind turbines at: " + fileName);
+		if (numOutsideWindow > 0) {
+			System.out.println(numOutsideWindow + " wind turbines outside the landscape window were ignored");
+		}
 		if (turbineCreateQueue != null) {
 			if (numTurbines < 1) {
 				System.out.println("No wind turbines plotted");
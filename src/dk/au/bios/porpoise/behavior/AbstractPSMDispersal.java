@@ -57,6 +57,9 @@ public abstract class AbstractPSMDispersal implements Dispersal {
 	private NdPoint startPos;
 	private double targetHeading;
 
+	// Coordinates of the points looked at ahead, reused to avoid allocating in every step
+	private final double[] pointAhead = new double[2];
+
 	protected AbstractPSMDispersal(final Porpoise owner) {
 		this.owner = owner;
 	}
@@ -78,20 +81,29 @@ public abstract class AbstractPSMDispersal implements Dispersal {
 		targetMemCell = findMostAttractiveMemCell();
 		if (targetMemCell >= 0) {
 			targetPos = getOwner().getPersistentSpatialMemory().calcMemCellCenterPoint(targetMemCell);
-			final double targetHeadingRadian = Math.atan2(targetPos.getY() - startPos.getY(), targetPos.getX()
-					- startPos.getX());
-			targetHeading = 90.0d - Math.toDegrees(targetHeadingRadian);
-			if (targetHeading < 0.0) {
-				targetHeading += 360.0;
+			targetHeading = headingFromStart(targetPos);
+		} else if (SimulationParameters.isCellSampling()) {
+			// Drawn from the cells with water and food at the distances the random headings below may reach
+			final double preferredDistance = getOwner().getPersistentSpatialMemory().getPreferredDistance();
+			final double tolerance = SimulationParameters.getPsmPreferredDistanceTolerance();
+			final NdPoint newTargetPos = Globals.getCellData().getPreyCellSampler().sampleAnnulus(startPos.getX(),
+					startPos.getY(), (preferredDistance - tolerance) / 0.4, (preferredDistance + tolerance) / 0.4,
+					getOwner().getRandomSource()::nextDouble);
+			if (newTargetPos == null) {
+				// Failed to find a suitable target, deactivate PSM
+				this.active = false;
+				return;
 			}
+			this.targetPos = newTargetPos;
+			this.targetHeading = headingFromStart(newTargetPos);
 		} else {
 			int maxAttempts = 1000;
 			while (maxAttempts > 0) {
 				maxAttempts--;
-				final double newTargetHeading = Globals.getRandomSource().nextDouble() * 360; // Not sure where to go
+				final double newTargetHeading = getOwner().getRandomSource().nextDouble() * 360; // Not sure where to go
 				final double targetHeadingRads = Math.toRadians(newTargetHeading);
-				final double randomToleranceAdjustment = (Globals.getRandomSource().nextDouble() * (SimulationParameters
-						.getPsmPreferredDistanceTolerance() * 2))
+				final double randomToleranceAdjustment = (getOwner().getRandomSource().nextDouble()
+						* (SimulationParameters.getPsmPreferredDistanceTolerance() * 2))
 						- SimulationParameters.getPsmPreferredDistanceTolerance();
 				final double preferredDistance = getOwner().getPersistentSpatialMemory().getPreferredDistance();
 				final double distanceToTravel = (preferredDistance + randomToleranceAdjustment) / 0.4;
@@ -101,7 +113,7 @@ public abstract class AbstractPSMDispersal implements Dispersal {
 				final GridPoint targetGridPoint = Agent.ndPointToGridPoint(newTargetPos);
 
 				if (Globals.getCellData().getDepth(targetGridPoint) > 0) {
-					if (Globals.getCellData().getMaxEnt()[targetGridPoint.getX()][targetGridPoint.getY()] > 0.0f) {
+					if (Globals.getCellData().getMaxEnt(targetGridPoint) > 0.0f) {
 						this.targetHeading = newTargetHeading;
 						this.targetPos = newTargetPos;
 						break;
@@ -123,6 +135,12 @@ public abstract class AbstractPSMDispersal implements Dispersal {
 		this.active = true;
 	}
 
+	private double headingFromStart(final NdPoint pos) {
+		final double headingRadian = Math.atan2(pos.getY() - startPos.getY(), pos.getX() - startPos.getX());
+		final double heading = 90.0d - Math.toDegrees(headingRadian);
+		return heading < 0.0 ? heading + 360.0 : heading;
+	}
+
 	protected double calculateTargetDistanceAtActivation() {
 		final double startDistX = targetPos.getX() - startPos.getX();
 		final double startDistY = targetPos.getY() - startPos.getY();
@@ -176,11 +194,10 @@ public abstract class AbstractPSMDispersal implements Dispersal {
 		}
 
 		// Stop dispersing if trying to leave landscape
-		final NdPoint directPointAhead = getOwner().getPointAtHeadingAndDistNoBorder(getOwner().getHeading(),
-				SimulationParameters.getMeanDispDist() / 0.4);
-		if (directPointAhead.getX() < 0.0 || directPointAhead.getY() < 0.0
-				|| directPointAhead.getX() >= (Globals.getWorldWidth() - 0.5)
-				|| directPointAhead.getY() >= (Globals.getWorldHeight() - 0.5)) {
+		getOwner().getPointAtHeadingAndDistNoBorder(getOwner().getHeading(),
+				SimulationParameters.getMeanDispDist() / 0.4, pointAhead);
+		if (pointAhead[0] < 0.0 || pointAhead[1] < 0.0 || pointAhead[0] >= (Globals.getWorldWidth() - 0.5)
+				|| pointAhead[1] >= (Globals.getWorldHeight() - 0.5)) {
 			deactivate();
 			getOwner().setHeading(startHeading);
 
@@ -191,10 +208,8 @@ public abstract class AbstractPSMDispersal implements Dispersal {
 			return;
 		}
 
-		final NdPoint pointAhead = getOwner().getPointAhead(SimulationParameters.getMeanDispDist() / 0.4);
-
 		// Stop dispersing if wanting to move to low water
-		if (!(Globals.getCellData().getDepth(pointAhead) > SimulationParameters.getMinDispDepth())) {
+		if (!(getDepthAhead(SimulationParameters.getMeanDispDist() / 0.4) > SimulationParameters.getMinDispDepth())) {
 			deactivate();
 			getOwner().setHeading(startHeading);
 
@@ -222,6 +237,17 @@ public abstract class AbstractPSMDispersal implements Dispersal {
 		}
 	}
 
+	/**
+	 * Returns the depth at a distance ahead of the porpoise, without allocating a point.
+	 *
+	 * @param distance The distance ahead.
+	 * @return The depth.
+	 */
+	protected double getDepthAhead(final double distance) {
+		getOwner().getPointAhead(distance, pointAhead);
+		return Globals.getCellData().getDepth(Agent.toGridX(pointAhead[0]), Agent.toGridY(pointAhead[1]));
+	}
+
 	/**
 	 * Get the heading for the porpoise.
 	 *
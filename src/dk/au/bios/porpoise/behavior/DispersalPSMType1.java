@@ -27,7 +27,6 @@
 
 package dk.au.bios.porpoise.behavior;
 
-import dk.au.bios.porpoise.Globals;
 import dk.au.bios.porpoise.Porpoise;
 import dk.au.bios.porpoise.SimulationConstants;
 import dk.au.bios.porpoise.SimulationParameters;
@@ -95,8 +94,7 @@ public class DispersalPSMType1 extends AbstractPSMDispersal implements Dispersal
 			}
 		}
 
-		final double depthAhead = Globals.getCellData().getDepth(
-				getOwner().getPointAhead(SimulationParameters.getMeanDispDist() / 0.4));
+		final double depthAhead = getDepthAhead(SimulationParameters.getMeanDispDist() / 0.4);
 		if (!(depthAhead > SimulationParameters.getMinDispDepth())) {
 			this.deactivate();
 
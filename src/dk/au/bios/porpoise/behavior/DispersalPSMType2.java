@@ -27,7 +27,6 @@
 
 package dk.au.bios.porpoise.behavior;
 
-import dk.au.bios.porpoise.Globals;
 import dk.au.bios.porpoise.Porpoise;
 import dk.au.bios.porpoise.SimulationParameters;
 
@@ -70,7 +69,7 @@ public class DispersalPSMType2 extends AbstractPSMDispersal implements Dispersal
 			return getOwner().getHeading();
 		}
 
-		double angleDelta = ((SimulationParameters.getPsmType2RandomAngle() * 2) * Globals.getRandomSource()
+		double angleDelta = ((SimulationParameters.getPsmType2RandomAngle() * 2) * getOwner().getRandomSource()
 				.nextDouble()) - (SimulationParameters.getPsmType2RandomAngle());
 
 		final double distPerc = getDistanceTravelled() / getTargetDistanceAtActivation();
@@ -30,7 +30,6 @@ package dk.au.bios.porpoise.behavior;
 import java.util.Map.Entry;
 
 import repast.simphony.space.continuous.NdPoint;
-import dk.au.bios.porpoise.Globals;
 import dk.au.bios.porpoise.Porpoise;
 import dk.au.bios.porpoise.SimulationParameters;
 import dk.au.bios.porpoise.behavior.PersistentSpatialMemory.MemCellData;
@@ -70,7 +69,7 @@ public class DispersalPSMType3 extends AbstractPSMDispersal implements Dispersal
 		final double x0 = getTargetDistanceAtActivation() / 2;
 		final double z = 0 - SimulationParameters.getPsmLog() * (getDistanceTravelled() - x0);
 		double angleDelta = SimulationParameters.getPsmType2RandomAngle() / (1 + Math.exp(z));
-		angleDelta = Globals.getRandomSource().randomPlusMinusOne() * angleDelta;
+		angleDelta = getOwner().getRandomSource().randomPlusMinusOne() * angleDelta;
 		
 		final double newHeading = getOwner().getHeading() + angleDelta;
 
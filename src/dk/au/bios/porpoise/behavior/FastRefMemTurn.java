@@ -28,7 +28,6 @@
 package dk.au.bios.porpoise.behavior;
 
 import repast.simphony.space.continuous.NdPoint;
-import repast.simphony.space.grid.GridPoint;
 import dk.au.bios.porpoise.Agent;
 import dk.au.bios.porpoise.Globals;
 import dk.au.bios.porpoise.Porpoise;
@@ -46,11 +45,11 @@ public class FastRefMemTurn implements RefMemTurnCalculator {
 			final CircularBuffer<NdPoint> posList) {
 		// Move towards places visited previously if food was found there and they aren't too far away or forgotten.
 
-		final GridPoint pos = Agent.ndPointToGridPoint(p.getPosition());
+		final NdPoint position = p.getPosition();
 
 		// Stationary food species. The stored intrisic patch utility for t=0. Initially it is either 0, 1, or -9999,
 		// but grows logistically after food is eaten
-		double bb = cellData.getFoodLevel(pos);
+		double bb = cellData.getFoodLevel(Agent.toGridX(position.getX()), Agent.toGridY(position.getY()));
 
 		if (Double.isNaN(bb)) { // bb = Na ?!
 			// There are errors in food availability -- sometimes Na is calculated even though depth is > 0. Catch error
@@ -58,7 +57,7 @@ public class FastRefMemTurn implements RefMemTurnCalculator {
 			bb = 0;
 
 			DebugLog.print4("Replaced NaN food value with 0");
-			DebugLog.print4("{}", pos);
+			DebugLog.print4("{}", Agent.ndPointToGridPoint(position));
 		}
 
 		storedUtilList.add(bb);
@@ -119,7 +118,9 @@ public class FastRefMemTurn implements RefMemTurnCalculator {
 			ii++;
 		}
 
-		DebugLog.print4("Food here: {}, Attr.v: {},{}", bb, vtX, vtY);
+		if (DebugLog.isEnabledFor(4)) {
+			DebugLog.print4("Food here: {}, Attr.v: {},{}", bb, vtX, vtY);
+		}
 
 		return new double[] { vtX, vtY };
 	}
@@ -83,13 +83,25 @@ public class GeneratedRandomSource implements RandomSource {
 	}
 
 	private Normal createNormalFromParameter(final String paramName, final Parameters params) {
+		final double[] normal = parseNormal(paramName, params);
+		return RandomHelper.createNormal(normal[0], normal[1]);
+	}
+
+	/**
+	 * Reads a normal distribution parameter, written as N(mean;stddev).
+	 *
+	 * @param paramName The name of the parameter.
+	 * @param params The parameters.
+	 * @return The mean and standard deviation.
+	 */
+	static double[] parseNormal(final String paramName, final Parameters params) {
 		final String normalSpec = params.getString(paramName);
 		final Matcher matcher = SPEC_PATTERN.matcher(normalSpec);
 		if (matcher.matches()) {
 			final double mean = Double.parseDouble(matcher.group(1));
 			final double stddev = Double.parseDouble(matcher.group(3));
 
-			return RandomHelper.createNormal(mean, stddev);
+			return new double[] { mean, stddev };
 		} else {
 			throw new IllegalArgumentException("The value of parameter " + paramName
 					+ " is not a valid Random Normal. Value: " + normalSpec);
@@ -543,7 +543,7 @@ public class InnerDanishWatersDispersal implements Dispersal {
 		// select block at random from the twelve blocks with highest quality (where
 		// qual = mean.food / dist)
 		// Make sure that porps far north do not try to disperse west
-		int theNbr = Globals.getRandomSource().nextDispTargetSelect(0, highQualityBlocks.length);
+		int theNbr = owner.getRandomSource().nextDispTargetSelect(0, highQualityBlocks.length);
 		int selBlock = highQualityBlocks[theNbr];
 
 		// find block slightly more to the east if currently far north
@@ -78,8 +78,8 @@ public class PersistentSpatialMemory {
 	private final int cellsPerRow;
 	private final double preferredDistance;
 
-	public static double generatedPreferredDistance() {
-		double prefDistance = Globals.getRandomSource().nextPSMDistanceStddev();
+	public static double generatedPreferredDistance(final RandomSource random) {
+		double prefDistance = random.nextPSMDistanceStddev();
 		prefDistance = Math.max(prefDistance, 1.0); // Just a fail-safe to have at least 1KM
 
 		return prefDistance;
@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+package dk.au.bios.porpoise.behavior;
+
+import java.util.SplittableRandom;
+
+import repast.simphony.parameter.Parameters;
+import repast.simphony.space.continuous.NdPoint;
+
+/**
+ * Implementation of RandomSource drawing from a stream of its own, derived from the run seed and the id of the stream.
+ * The global processes draw from the stream of the source created from the parameters, each porpoise from the stream
+ * returned by {@link #forPorpoise(long)}. The numbers a porpoise draws therefore do not depend on the order the
+ * porpoises are run in, or on the other porpoises. The distributions are the same as in GeneratedRandomSource.
+ */
+public class SplittableRandomSource implements RandomSource {
+
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	/**
+	 * The id of the stream of the global processes. The porpoise streams use the porpoise ids, which are not negative.
+	 */
+	private static final long GLOBAL_STREAM = -1;
+
+	private final long seed;
+	private final double[] matingDayNormal;
+	private final double[] energyNormal;
+	private final double[] crwAngle;
+	private final double[] crwStepLength;
+	private final double[] psmDistStddev;
+	private final SplittableRandom random;
+
+	private double nextGaussian;
+	private boolean haveNextGaussian = false;
+
+	/**
+	 * Creates the source of the global processes.
+	 *
+	 * @param params The parameters of the distributions.
+	 * @param seed The seed of the run.
+	 */
+	public SplittableRandomSource(final Parameters params, final long seed) {
+		this.seed = seed;
+		this.matingDayNormal = GeneratedRandomSource.parseNormal("tmating", params);
+		this.energyNormal = GeneratedRandomSource.parseNormal("Einit", params);
+		this.crwAngle = GeneratedRandomSource.parseNormal("R2", params);
+		this.crwStepLength = GeneratedRandomSource.parseNormal("R1", params);
+		this.psmDistStddev = GeneratedRandomSource.parseNormal("PSM_dist", params);
+		this.random = new SplittableRandom(streamSeed(seed, GLOBAL_STREAM));
+	}
+
+	private SplittableRandomSource(final SplittableRandomSource parent, final long stream) {
+		this.seed = parent.seed;
+		this.matingDayNormal = parent.matingDayNormal;
+		this.energyNormal = parent.energyNormal;
+		this.crwAngle = parent.crwAngle;
+		this.crwStepLength = parent.crwStepLength;
+		this.psmDistStddev = parent.psmDistStddev;
+		this.random = new SplittableRandom(streamSeed(seed, stream));
+	}
+
+	/**
+	 * Returns a new source with the stream of a porpoise. The same porpoise id always gives the same stream for a seed.
+	 *
+	 * @param porpoiseId The id of the porpoise.
+	 * @return The source of the porpoise.
+	 */
+	public SplittableRandomSource forPorpoise(final long porpoiseId) {
+		if (porpoiseId < 0) {
+			throw new IllegalArgumentException("Invalid porpoise id " + porpoiseId);
+		}
+		return new SplittableRandomSource(this, porpoiseId);
+	}
+
+	private static long streamSeed(final long seed, final long stream) {
+		return mix64(mix64(seed) + (stream + 1) * GOLDEN_GAMMA);
+	}
+
+	// The finalizer of SplitMix64
+	private static long mix64(final long z) {
+		long x = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+		return x ^ (x >>> 31);
+	}
+
+	private double nextGaussian() {
+		if (haveNextGaussian) {
+			haveNextGaussian = false;
+			return nextGaussian;
+		}
+
+		// The polar method, as java.util.Random
+		double v1;
+		double v2;
+		double s;
+		do {
+			v1 = 2 * random.nextDouble() - 1;
+			v2 = 2 * random.nextDouble() - 1;
+			s = v1 * v1 + v2 * v2;
+		} while (s >= 1 || s == 0);
+		final double multiplier = StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+		nextGaussian = v2 * multiplier;
+		haveNextGaussian = true;
+		return v1 * multiplier;
+	}
+
+	private double nextNormal(final double[] normal) {
+		return normal[0] + normal[1] * nextGaussian();
+	}
+
+	@Override
+	public double nextEnergeticUpdate(final double from, final double to) {
+		return random.nextDouble();
+	}
+
+	@Override
+	public double nextMortality(final double from, final double to) {
+		return random.nextDouble();
+	}
+
+	@Override
+	public double nextPregnancyStatusConceive(final double from, final double to) {
+		return random.nextDouble();
+	}
+
+	@Override
+	public double nextPregnancyStatusBoyGirl(final double from, final double to) {
+		return random.nextDouble();
+	}
+
+	@Override
+	public double nextDouble() {
+		return random.nextDouble();
+	}
+
+	@Override
+	public int nextAvoidLand(final int from, final int to) {
+		// As the uniform distribution from 0 to 10 of GeneratedRandomSource, 10 included
+		return random.nextInt(0, 11);
+	}
+
+	@Override
+	public int nextDisp3(final int from, final int to) {
+		return this.randomInt(from, to);
+	}
+
+	@Override
+	public int nextDispTargetSelect(final int from, final int to) {
+		return (int) (random.nextDouble() * to);
+	}
+
+	@Override
+	public int nextStdMove(final int from, final int to) {
+		// As the uniform distribution from 0 to 20 of GeneratedRandomSource, 20 included
+		return random.nextInt(0, 21);
+	}
+
+	@Override
+	public int nextAgeDistrib(final int from, final int to) {
+		return this.randomInt(from, to);
+	}
+
+	@Override
+	public double nextEnergyNormal() {
+		return nextNormal(energyNormal);
+	}
+
+	@Override
+	public double nextMatingDayNormal() {
+		return nextNormal(matingDayNormal);
+	}
+
+	@Override
+	public double nextCrwAngle() {
+		return nextNormal(crwAngle);
+	}
+
+	@Override
+	public double nextCrwStepLength() {
+		return nextNormal(crwStepLength);
+	}
+
+	@Override
+	public double nextCrwAngleWithM() {
+		return nextGaussian();
+	}
+
+	@Override
+	public int pastLoc(final String id, final int max) {
+		return this.randomInt(0, max);
+	}
+
+	@Override
+	public NdPoint getInitialPoint() {
+		return null;
+	}
+
+	@Override
+	public Double getInitialHeading() {
+		return null;
+	}
+
+	@Override
+	public double nextPSMDistanceStddev() {
+		return nextNormal(psmDistStddev);
+	}
+
+	@Override
+	public int randomInt(final int from, final int to) {
+		return random.nextInt(from, to);
+	}
+
+	@Override
+	public int getInitialDaysSinceMating() {
+		return (int) (360 - Math.round(7.5 * 360 / 12 + 20 * nextGaussian()));
+	}
+
+	@Override
+	public double randomPlusMinusOne() {
+		return random.nextDouble(-1, 1);
+	}
+
+}
@@ -27,93 +27,402 @@
 
 package dk.au.bios.porpoise.landscape;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
 
 import dk.au.bios.porpoise.Agent;
 import dk.au.bios.porpoise.Globals;
 import dk.au.bios.porpoise.SimulationConstants;
 import dk.au.bios.porpoise.SimulationParameters;
+import dk.au.bios.porpoise.util.DaemonThreadFactory;
 import dk.au.bios.porpoise.util.Pair;
+import dk.au.bios.porpoise.util.SimulationTime;
 import repast.simphony.space.continuous.NdPoint;
 import repast.simphony.space.grid.GridPoint;
 
 /**
  * Encapsulates the data related to the simulation environment.
+ *
+ * The monthly data files are loaded from the sources while the simulation runs, so the sources are kept open until
+ * the CellData is closed. Layers which are only needed by some agents or dispersal types are read the first time they
+ * are accessed. Layers computed by the source, like the constant layers of the homogeneous landscape, are looked up
+ * without holding the data in an array. The precision and layout of the layers are configured by a
+ * {@link LayerStorage}. The layers accessed by a run are recorded and can be reported with {@link #reportLayerUsage()}.
  */
-public class CellData {
+public class CellData implements Closeable {
+
+	/**
+	 * The layers of the landscape.
+	 */
+	public enum Layer {
+		DISTTOCOAST(LandscapeLoader.DISTTOCOAST_FILE), BATHY(LandscapeLoader.BATHY_FILE),
+		PATCHES(LandscapeLoader.PATCHES_FILE), BLOCKS(LandscapeLoader.BLOCKS_FILE),
+		PREY(LandscapeLoader.PREY_FILE_PREFIX), SALINITY(LandscapeLoader.SALINITY_FILE_PREFIX);
+
+		private final String fileName;
+
+		Layer(final String fileName) {
+			this.fileName = fileName;
+		}
+
+		public String getFileName() {
+			return fileName;
+		}
+	}
+
+	private static final ExecutorService loaderPool = Executors.newCachedThreadPool(new DaemonThreadFactory());
+
+	private final List<CellDataSource> sources;
+	private final boolean ownsSources;
+	private final LayerStorage storage;
 
 	private final SimpleDataFile distanceToCoast;
 	private final SimpleDataFile depth;
-	private final int[][] block;
+	private final SimpleDataFile block;
 	private final SimpleDataFile foodProb;
-	private final double[][] foodValue;
+	private final MutableGridLayer foodValue;
 
 	private final MonthlyDataFile entropy;
 	private final MonthlyDataFile salinityMaps;
 
 	private final Pair[] foodProbAboveZeroCells;
 
+	// Only set by this run, so the layers used can be reported also when the loaded layers are shared between runs.
+	private final boolean[] layerUsed = new boolean[Layer.values().length];
+
+	/**
+	 * The shallow water fields computed, by minimum depth. Shared by the runs sharing the depth.
+	 */
+	private final ConcurrentMap<String, ShallowWaterField> shallowWaterFields;
+
+	/**
+	 * The shallow water field returned last. The porpoises ask for the same field on every step, which is returned
+	 * without building the key.
+	 */
+	private volatile ShallowWaterField lastShallowWaterField = null;
+
+	/**
+	 * The movement terms for the current salinity map. Not shared, as the runs may differ in the correlations.
+	 */
+	private volatile MovementCovariates movementCovariates;
+
+	/**
+	 * The index of the cells with water. Shared by the runs sharing the depth.
+	 */
+	private final AtomicReference<CellSampler> waterCellSampler;
+
+	/**
+	 * The index of the cells with water and prey in the current month. Not shared, as the runs may be in different
+	 * months.
+	 */
+	private volatile CellSampler preyCellSampler;
+
+	/**
+	 * Switches the monthly data files to the new month when the clock enters it. Only listening for the data of a run,
+	 * see {@link #CellData(CellData)}, until closed.
+	 */
+	private final SimulationTime.PeriodListener monthListener = this::periodChanged;
+
+	/**
+	 * Loads the landscape. The layers are loaded concurrently, and the first period of the monthly data files is read
+	 * in the background. The distance to coast layer is only checked to be present, it is read on first access.
+	 *
+	 * @param landscape The name of the landscape.
+	 * @param sources The sources to load the data files from.
+	 * @throws IOException Thrown if one or more layers could not be loaded. The message lists each failed layer.
+	 */
 	public CellData(final String landscape, final List<CellDataSource> sources) throws IOException {
-		this.distanceToCoast = new SimpleDataFile(landscape, LandscapeLoader.DISTTOCOAST_FILE, sources);
-		this.depth = new SimpleDataFile(landscape, LandscapeLoader.BATHY_FILE, sources);
-		this.foodProb = new SimpleDataFile(landscape, LandscapeLoader.PATCHES_FILE, sources);
-		this.entropy = new MonthlyDataFile(landscape, LandscapeLoader.PREY_FILE_PREFIX, sources);
-		this.salinityMaps = new MonthlyDataFile(landscape, LandscapeLoader.SALINITY_FILE_PREFIX, sources);
+		this(landscape, sources, LayerStorage.defaults());
+	}
 
-		this.foodValue = new double[this.foodProb.getData().length][this.foodProb.getData()[0].length];
+	/**
+	 * Loads the landscape, holding the layers in the precision configured.
+	 *
+	 * @param landscape The name of the landscape.
+	 * @param sources The sources to load the data files from.
+	 * @param storage The precision of the layers.
+	 * @throws IOException Thrown if one or more layers could not be loaded. The message lists each failed layer.
+	 */
+	public CellData(final String landscape, final List<CellDataSource> sources, final LayerStorage storage)
+			throws IOException {
+		this.sources = sources;
+		this.ownsSources = true;
+		this.storage = storage;
+		this.shallowWaterFields = new ConcurrentHashMap<>();
+		this.waterCellSampler = new AtomicReference<>();
+
+		final Future<SimpleDataFile> distanceToCoastTask = loaderPool.submit(() -> new SimpleDataFile(landscape,
+				LandscapeLoader.DISTTOCOAST_FILE, sources, Layer.DISTTOCOAST, storage));
+		final Future<SimpleDataFile> depthTask = loaderPool.submit(() -> preload(
+				new SimpleDataFile(landscape, LandscapeLoader.BATHY_FILE, sources, Layer.BATHY, storage)));
+		final Future<SimpleDataFile> foodProbTask = loaderPool.submit(() -> preload(
+				new SimpleDataFile(landscape, LandscapeLoader.PATCHES_FILE, sources, Layer.PATCHES, storage)));
+		final Future<SimpleDataFile> blockTask = loaderPool.submit(() -> preload(
+				new SimpleDataFile(landscape, LandscapeLoader.BLOCKS_FILE, sources, Layer.BLOCKS, storage)));
+		final Future<MonthlyDataFile> entropyTask = loaderPool.submit(() -> {
+			final MonthlyDataFile file = new MonthlyDataFile(landscape, LandscapeLoader.PREY_FILE_PREFIX, sources,
+					Layer.PREY, storage);
+			file.prefetchFirstPeriod();
+			return file;
+		});
+		final Future<MonthlyDataFile> salinityMapsTask = loaderPool.submit(() -> {
+			final MonthlyDataFile file = new MonthlyDataFile(landscape, LandscapeLoader.SALINITY_FILE_PREFIX,
+					sources, Layer.SALINITY, storage);
+			file.prefetchFirstPeriod();
+			return file;
+		});
+
+		final List<String> errors = new ArrayList<>();
+		final List<Throwable> causes = new ArrayList<>();
+		this.distanceToCoast = await(distanceToCoastTask, LandscapeLoader.DISTTOCOAST_FILE, errors, causes);
+		this.depth = await(depthTask, LandscapeLoader.BATHY_FILE, errors, causes);
+		this.foodProb = await(foodProbTask, LandscapeLoader.PATCHES_FILE, errors, causes);
+		this.block = await(blockTask, LandscapeLoader.BLOCKS_FILE, errors, causes);
+		this.entropy = await(entropyTask, LandscapeLoader.PREY_FILE_PREFIX, errors, causes);
+		this.salinityMaps = await(salinityMapsTask, LandscapeLoader.SALINITY_FILE_PREFIX, errors, causes);
+
+		if (!errors.isEmpty()) {
+			if (this.entropy != null) {
+				this.entropy.cancelPrefetch();
+			}
+			if (this.salinityMaps != null) {
+				this.salinityMaps.cancelPrefetch();
+			}
+			final IOException e = new IOException("Unable to load landscape " + landscape + ": "
+					+ String.join("; ", errors), causes.get(0));
+			for (int i = 1; i < causes.size(); i++) {
+				e.addSuppressed(causes.get(i));
+			}
+			throw e;
+		}
 
-		final double[][] blockDouble = new SimpleDataFile(landscape, LandscapeLoader.BLOCKS_FILE, sources).getData();
-		this.block = new int[blockDouble.length][blockDouble[0].length];
+		final GridLayer patches = this.foodProb.getLayer();
+		this.foodValue = storage.allocateFood(patches.getWidth(), patches.getHeight());
 
-		for (int i = 0; i < this.block.length; i++) {
-			for (int j = 0; j < this.block[0].length; j++) {
-				this.block[i][j] = (int) blockDouble[i][j];
+		Pair[] precomputedPatches = null;
+		for (CellDataSource src : sources) {
+			if (src.hasData(LandscapeLoader.PATCHES_FILE)) {
+				precomputedPatches = src.getFoodProbAboveZeroCells();
+				break;
 			}
 		}
 
-		final LinkedList<Pair> patches = new LinkedList<Pair>();
-		for (int i = 0; i < this.foodProb.getData().length; i++) {
-			for (int j = 0; j < this.foodProb.getData()[0].length; j++) {
-				if (this.foodProb.getData()[i][j] > 0) {
-					patches.add(new Pair(i, j));
+		if (precomputedPatches != null) {
+			this.foodProbAboveZeroCells = precomputedPatches;
+		} else {
+			final LinkedList<Pair> cells = new LinkedList<Pair>();
+			for (int i = 0; i < patches.getWidth(); i++) {
+				for (int j = 0; j < patches.getHeight(); j++) {
+					if (patches.getValue(i, j) > 0) {
+						cells.add(new Pair(i, j));
+					}
 				}
 			}
+
+			this.foodProbAboveZeroCells = cells.toArray(new Pair[cells.size()]);
 		}
+	}
+
+	/**
+	 * Creates the data for a new run sharing the read-only layers of an already loaded landscape. The run gets its own
+	 * food levels, and the monthly data files are switched back to the first period of the simulation. The sources
+	 * remain owned by the shared instance and are not closed when this instance is closed. The monthly data files are
+	 * switched when the month changes until this instance is closed.
+	 *
+	 * @param shared The loaded landscape.
+	 */
+	public CellData(final CellData shared) {
+		this.sources = shared.sources;
+		this.ownsSources = false;
+		this.storage = shared.storage;
+		this.shallowWaterFields = shared.shallowWaterFields;
+		this.waterCellSampler = shared.waterCellSampler;
+		this.distanceToCoast = shared.distanceToCoast;
+		this.depth = shared.depth;
+		this.block = shared.block;
+		this.foodProb = shared.foodProb;
+		this.entropy = shared.entropy;
+		this.salinityMaps = shared.salinityMaps;
+		this.foodProbAboveZeroCells = shared.foodProbAboveZeroCells;
+		this.foodValue = storage.allocateFood(shared.foodValue.getWidth(), shared.foodValue.getHeight());
+
+		try {
+			this.entropy.rewind();
+			this.salinityMaps.rewind();
+		} catch (IOException e) {
+			throw new RuntimeException("Unable to reuse landscape " + shared.entropy.getLandscape(), e);
+		}
+		SimulationTime.addListener(monthListener);
+	}
+
+	/**
+	 * Reads a data file, unless its values are computed.
+	 */
+	private static SimpleDataFile preload(final SimpleDataFile file) throws IOException {
+		if (!file.isProcedural()) {
+			file.load();
+		}
+		return file;
+	}
+
+	private static <T> T await(final Future<T> task, final String layer, final List<String> errors,
+			final List<Throwable> causes) throws IOException {
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while loading " + layer, e);
+		} catch (ExecutionException e) {
+			errors.add(layer + " (" + e.getCause().getMessage() + ")");
+			causes.add(e.getCause());
+			return null;
+		}
+	}
 
-		this.foodProbAboveZeroCells = patches.toArray(new Pair[patches.size()]);
+	private void markUsed(final Layer layer) {
+		if (!layerUsed[layer.ordinal()]) {
+			layerUsed[layer.ordinal()] = true;
+		}
 	}
 
 	public double getDistanceToCoast(final int x, final int y) {
-		return distanceToCoast.getData()[x][y];
+		markUsed(Layer.DISTTOCOAST);
+		return distanceToCoast.getValue(x, y);
 	}
 
 	public double getDistanceToCoast(final NdPoint point) {
 		final GridPoint p = Agent.ndPointToGridPoint(point);
-		return distanceToCoast.getData()[p.getX()][p.getY()];
+		return getDistanceToCoast(p.getX(), p.getY());
 	}
 
 	public double getDepth(final GridPoint point) {
 		return getDepth(point.getX(), point.getY());
 	}
 
+	/**
+	 * Returns the depth of a cell, or -9999 if the cell is off the grid.
+	 */
 	public double getDepth(final int x, final int y) {
-		try {
-			return depth.getData()[x][y];
-		} catch (final ArrayIndexOutOfBoundsException e) {
-			// TODO: Consider handling this better, i.e. propogate the error.
-			return -9999; // 0;
-		}
+		markUsed(Layer.BATHY);
+		return depth.getValueOrNoData(x, y);
 	}
 
 	public double getDepth(final NdPoint point) {
 		return getDepth(Agent.ndPointToGridPoint(point));
 	}
 
+	/**
+	 * Returns the distance from each cell to the nearest cell with too little water. The field is computed the first
+	 * time it is requested for a minimum depth, and shared by the runs on this landscape.
+	 *
+	 * @param minDepth The minimum depth of cells with enough water.
+	 * @param allowEqual Whether cells of exactly the minimum depth have enough water.
+	 * @return The field.
+	 */
+	public ShallowWaterField getShallowWaterField(final double minDepth, final boolean allowEqual) {
+		markUsed(Layer.BATHY);
+		final ShallowWaterField last = lastShallowWaterField;
+		if (last != null && last.isFor(minDepth, allowEqual)) {
+			return last;
+		}
+		final ShallowWaterField field = shallowWaterFields.computeIfAbsent((allowEqual ? ">=" : ">") + minDepth,
+				k -> ShallowWaterField.compute(depth.getLayer(), minDepth, allowEqual));
+		lastShallowWaterField = field;
+		return field;
+	}
+
+	/**
+	 * Returns the terms of the correlated random walk depending on the depth and salinity of each cell. The terms are
+	 * recomputed when the salinity map of the current month or the correlations differ from those they were computed
+	 * for.
+	 *
+	 * @return The terms.
+	 */
+	public MovementCovariates getMovementCovariates() {
+		markUsed(Layer.BATHY);
+		markUsed(Layer.SALINITY);
+		final GridLayer salinity;
+		try {
+			salinity = salinityMaps.getLayer();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+
+		final double angleBathy = SimulationParameters.getCorrAngleBathy();
+		final double angleSalinity = SimulationParameters.getCorrAngleSalinity();
+		final double angleBaseSD = SimulationParameters.getCorrAngleBaseSD();
+		final double logmovBathy = SimulationParameters.getCorrLogmovBathy();
+		final double logmovSalinity = SimulationParameters.getCorrLogmovSalinity();
+
+		MovementCovariates covariates = movementCovariates;
+		if (covariates == null
+				|| !covariates.isFor(salinity, angleBathy, angleSalinity, angleBaseSD, logmovBathy, logmovSalinity)) {
+			covariates = MovementCovariates.compute(depth.getLayer(), salinity, angleBathy, angleSalinity, angleBaseSD,
+					logmovBathy, logmovSalinity);
+			movementCovariates = covariates;
+		}
+		return covariates;
+	}
+
+	/**
+	 * Returns the index of the cells with water, to draw random positions in water from.
+	 *
+	 * @return The index.
+	 */
+	public CellSampler getWaterCellSampler() {
+		markUsed(Layer.BATHY);
+		CellSampler sampler = waterCellSampler.get();
+		if (sampler == null) {
+			sampler = CellSampler.of(depth.getLayer(), null);
+			if (!waterCellSampler.compareAndSet(null, sampler)) {
+				sampler = waterCellSampler.get();
+			}
+		}
+		return sampler;
+	}
+
+	/**
+	 * Returns the index of the cells with water and prey in the current month, to draw random positions with food
+	 * from. The index is rebuilt when the prey layer of the current month differs from the one it was built for.
+	 *
+	 * @return The index.
+	 */
+	public CellSampler getPreyCellSampler() {
+		markUsed(Layer.BATHY);
+		final GridLayer prey = getMaxEntLayer();
+		CellSampler sampler = preyCellSampler;
+		if (sampler == null || !sampler.isFor(prey)) {
+			sampler = CellSampler.of(depth.getLayer(), prey);
+			preyCellSampler = sampler;
+		}
+		return sampler;
+	}
+
+	private void periodChanged(final SimulationTime.Period period) {
+		if (period == SimulationTime.Period.MONTH) {
+			try {
+				entropy.switchToCurrentPeriod();
+				salinityMaps.switchToCurrentPeriod();
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
 	public double getSalinity(final GridPoint point) {
+		markUsed(Layer.SALINITY);
 		try {
-			final double salinityValue = salinityMaps.getData()[point.getX()][point.getY()];
+			final double salinityValue = salinityMaps.getValue(point.getX(), point.getY());
 			return salinityValue;
 		} catch (IOException e) {
 			throw new RuntimeException(e);
@@ -125,15 +434,27 @@ public class CellData {
 	}
 
 	public int getBlock(final GridPoint point) {
-		return block[point.getX()][point.getY()];
+		markUsed(Layer.BLOCKS);
+		return (int) block.getValue(point.getX(), point.getY());
 	}
 
 	public int getBlock(final NdPoint point) {
 		return getBlock(Agent.ndPointToGridPoint(point));
 	}
 
+	/**
+	 * Returns the blocks of all cells. A new array is created for each call.
+	 */
 	public int[][] getBlock() {
-		return block;
+		markUsed(Layer.BLOCKS);
+		final GridLayer blocks = block.getLayer();
+		final int[][] values = new int[blocks.getWidth()][blocks.getHeight()];
+		for (int i = 0; i < values.length; i++) {
+			for (int j = 0; j < values[i].length; j++) {
+				values[i][j] = (int) blocks.getValue(i, j);
+			}
+		}
+		return values;
 	}
 
 	public double getFoodLevel(final GridPoint p) {
@@ -141,20 +462,24 @@ public class CellData {
 	}
 
 	public double getFoodLevel(final int x, final int y) {
-		return this.foodValue[x][y];
+		return this.foodValue.getValue(x, y);
 	}
 
-	public synchronized double eatFood(final GridPoint point, final double eatFraction) {
-		final double food = getFoodLevel(point.getX(), point.getY());
+	public double eatFood(final GridPoint point, final double eatFraction) {
+		return eatFood(point.getX(), point.getY(), eatFraction);
+	}
+
+	public synchronized double eatFood(final int x, final int y, final double eatFraction) {
+		final double food = getFoodLevel(x, y);
 
 		if (food > 0.0) {
 			final double eaten = food * eatFraction;
 
-			this.foodValue[point.getX()][point.getY()] -= eaten;
+			this.foodValue.setValue(x, y, food - eaten);
 
 			// The minimum food level has a strong impact on how fast food gets back
-			if (SimulationConstants.ADD_ARTIFICIAL_FOOD && this.foodValue[point.getX()][point.getY()] < 0.01) {
-				this.foodValue[point.getX()][point.getY()] = 0.01;
+			if (SimulationConstants.ADD_ARTIFICIAL_FOOD && this.foodValue.getValue(x, y) < 0.01) {
+				this.foodValue.setValue(x, y, 0.01);
 			}
 
 			return eaten;
@@ -163,19 +488,38 @@ public class CellData {
 		}
 	}
 
+	/**
+	 * Returns the patches as an array. Unless the patches are held in the array read, a new array is created for each
+	 * call; use {@link #getFoodProbLayer()} instead.
+	 */
 	public double[][] getFoodProb() {
+		markUsed(Layer.PATCHES);
 		return this.foodProb.getData();
 	}
 
+	public GridLayer getDepthLayer() {
+		markUsed(Layer.BATHY);
+		return this.depth.getLayer();
+	}
+
+	public GridLayer getFoodProbLayer() {
+		markUsed(Layer.PATCHES);
+		return this.foodProb.getLayer();
+	}
+
 	public double getFoodProb(final NdPoint p) {
 		return getFoodProb(Agent.ndPointToGridPoint(p));
 	}
 
 	public double getFoodProb(final GridPoint p) {
-		return this.foodProb.getData()[p.getX()][p.getY()];
+		markUsed(Layer.PATCHES);
+		return this.foodProb.getValue(p.getX(), p.getY());
 	}
 
-	public double[][] getFoodValue() {
+	/**
+	 * Returns the food levels of this run, held in the precision configured for the food.
+	 */
+	public MutableGridLayer getFoodValue() {
 		return this.foodValue;
 	}
 
@@ -184,10 +528,29 @@ public class CellData {
 	}
 
 	public double getMaxEnt(final GridPoint p) {
-		return getMaxEnt()[p.getX()][p.getY()];
+		markUsed(Layer.PREY);
+		try {
+			return entropy.getValue(p.getX(), p.getY());
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Returns the prey layer for the current period. Unlike {@link #getMaxEnt()}, a procedural layer is not turned
+	 * into an array.
+	 */
+	public GridLayer getMaxEntLayer() {
+		markUsed(Layer.PREY);
+		try {
+			return entropy.getLayer();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
 	}
 
 	public double[][] getMaxEnt() {
+		markUsed(Layer.PREY);
 		try {
 			return entropy.getData();
 		} catch (IOException e) {
@@ -206,22 +569,105 @@ public class CellData {
 	 */
 
 	public Pair[] getFoodProbAboveZeroPatches() {
+		markUsed(Layer.PATCHES);
 		return this.foodProbAboveZeroCells;
 	}
 
 	public void initializeFoodPatches() {
-		final double[][] maxEnt = this.getMaxEnt();
-
-		for (int i = 0; i < foodProb.getData().length; i++) {
-			for (int j = 0; j < foodProb.getData()[0].length; j++) {
-				if (foodProb.getData()[i][j] > 0 && maxEnt[i][j] > 0) {
-					foodValue[i][j] = SimulationParameters.getMaxU() * maxEnt[i][j]
-							/ Globals.getMeanMaxEntInCurrentQuarter();
+		markUsed(Layer.PATCHES);
+		final GridLayer maxEnt = this.getMaxEntLayer();
+		final GridLayer patches = foodProb.getLayer();
+
+		for (int i = 0; i < patches.getWidth(); i++) {
+			for (int j = 0; j < patches.getHeight(); j++) {
+				if (patches.getValue(i, j) > 0 && maxEnt.getValue(i, j) > 0) {
+					foodValue.setValue(i, j, SimulationParameters.getMaxU() * maxEnt.getValue(i, j)
+							/ Globals.getMeanMaxEntInCurrentQuarter());
 				} else {
-					foodValue[i][j] = 0;
+					foodValue.setValue(i, j, 0);
 				}
 			}
 		}
 	}
 
+	/**
+	 * Returns the layers accessed by this run so far.
+	 *
+	 * @return The layers used, in the order they are declared in {@link Layer}.
+	 */
+	public List<Layer> getUsedLayers() {
+		final List<Layer> used = new ArrayList<>();
+		for (final Layer layer : Layer.values()) {
+			if (layerUsed[layer.ordinal()]) {
+				used.add(layer);
+			}
+		}
+		return used;
+	}
+
+	/**
+	 * Checks whether the layer has been read from the sources, by this or an earlier run sharing the layers.
+	 *
+	 * @param layer The layer.
+	 * @return true if the data of the layer is held in memory.
+	 */
+	public boolean isLayerLoaded(final Layer layer) {
+		if (layer == Layer.DISTTOCOAST) {
+			return distanceToCoast.isLoaded();
+		}
+		return true;
+	}
+
+	/**
+	 * Prints the layers used and not used by this run.
+	 */
+	public void reportLayerUsage() {
+		final List<String> used = new ArrayList<>();
+		final List<String> unused = new ArrayList<>();
+		for (final Layer layer : Layer.values()) {
+			if (layerUsed[layer.ordinal()]) {
+				used.add(layer.getFileName());
+			} else {
+				unused.add(layer.getFileName() + (isLayerLoaded(layer) ? "" : " (not loaded)"));
+			}
+		}
+		System.out.println("Landscape layers used: " + (used.isEmpty() ? "none" : String.join(", ", used))
+				+ ". Not used: " + (unused.isEmpty() ? "none" : String.join(", ", unused)));
+	}
+
+	public LayerStorage getLayerStorage() {
+		return storage;
+	}
+
+	/**
+	 * Prints the layout and the precision of the layers not held as by default, with the largest difference to the
+	 * values of the data files, see {@link LayerStorage#report()}.
+	 */
+	public void reportLayerStorage() {
+		storage.report();
+	}
+
+	/**
+	 * Closes the sources of the landscape data. Failures are reported but do not prevent the remaining sources from
+	 * being closed. Instances sharing the layers of another instance leave the sources open.
+	 */
+	@Override
+	public void close() {
+		SimulationTime.removeListener(monthListener);
+		if (!ownsSources) {
+			return;
+		}
+
+		entropy.cancelPrefetch();
+		salinityMaps.cancelPrefetch();
+
+		for (final CellDataSource src : sources) {
+			try {
+				src.close();
+			} catch (IOException e) {
+				System.out.println("Unable to close landscape data source: " + e.getMessage());
+			}
+		}
+	}
+
 }
@@ -27,10 +27,17 @@
 
 package dk.au.bios.porpoise.landscape;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.List;
 
-public interface CellDataSource {
+import dk.au.bios.porpoise.util.Pair;
+
+/**
+ * A source of landscape data files. Sources may keep the underlying files open and must be closed when the landscape
+ * is no longer used.
+ */
+public interface CellDataSource extends Closeable {
 
 	boolean hasData(String fileName) throws IOException;
 
@@ -38,6 +45,46 @@ public interface CellDataSource {
 
 	double[][] getData(String fileName) throws IOException;
 
+	/**
+	 * Reads the part of a data file covered by a window of the landscape grid. By default the complete file is read
+	 * and the window copied out of it. Sources able to read only the window should override this.
+	 *
+	 * @param fileName The name of the data file.
+	 * @param window The window to read.
+	 * @return The data of the window indexed as [x][y] with y = 0 being the bottom row of the window.
+	 * @throws IOException Thrown if the data file cannot be read.
+	 */
+	default double[][] getData(final String fileName, final GridWindow window) throws IOException {
+		return window.crop(getData(fileName));
+	}
+
 	DataFileMetaData getMetaData(String fileName) throws IOException;
 
+	/**
+	 * Returns the layer of a data file if the source computes its values rather than reading them, so they can be
+	 * looked up without holding the data in an array.
+	 *
+	 * @param fileName The name of the data file.
+	 * @return The layer, or <code>null</code> if the data must be read with {@link #getData(String)}.
+	 * @throws IOException Thrown if the layer cannot be created.
+	 */
+	default GridLayer getProceduralLayer(final String fileName) throws IOException {
+		return null;
+	}
+
+	/**
+	 * Returns the cells of the patches file with a value above zero, if the source holds a precomputed list of them.
+	 *
+	 * @return The cells, or <code>null</code> if the list must be computed from the patches data.
+	 * @throws IOException Thrown if the list cannot be read.
+	 */
+	default Pair[] getFoodProbAboveZeroCells() throws IOException {
+		return null;
+	}
+
+	@Override
+	default void close() throws IOException {
+		// Nothing to release by default
+	}
+
 }
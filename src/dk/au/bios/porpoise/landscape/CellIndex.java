@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise.landscape;
+
+/**
+ * Maps the cells of a layer held in a single array to their position in the array, see {@link LayerLayout}. Layers
+ * using the same layout and size share the mapping, so the values of a cell are at the same position in the arrays
+ * of all layers.
+ *
+ * The array can hold a halo of cells around the layer. The halo cells hold {@link LayerPrecision#NO_DATA}, so cells
+ * just outside the layer, e.g. probed ahead of porpoises near the border, are looked up like the cells of the layer
+ * (see {@link #inHalo(int, int)}) rather than handled as an error.
+ */
+public final class CellIndex {
+
+	private final int width;
+	private final int height;
+	private final int halo;
+	private final int paddedWidth;
+	private final int paddedHeight;
+
+	private CellIndex(final int width, final int height, final int halo) {
+		if (halo < 0) {
+			throw new IllegalArgumentException("The halo cannot be negative: " + halo);
+		}
+		this.width = width;
+		this.height = height;
+		this.halo = halo;
+		this.paddedWidth = width + 2 * halo;
+		this.paddedHeight = height + 2 * halo;
+	}
+
+	/**
+	 * Creates the mapping of the cells stored column after column, like the arrays indexed [x][y].
+	 */
+	public static CellIndex flat(final int width, final int height) {
+		return flat(width, height, 0);
+	}
+
+	/**
+	 * Creates the mapping of the cells stored column after column, with a halo of cells around the layer.
+	 */
+	public static CellIndex flat(final int width, final int height, final int halo) {
+		return new CellIndex(width, height, halo);
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the number of cells held around each side of the layer.
+	 */
+	public int getHalo() {
+		return halo;
+	}
+
+	/**
+	 * Returns the length of the arrays holding the cells.
+	 */
+	public int size() {
+		return paddedWidth * paddedHeight;
+	}
+
+	/**
+	 * Returns the position of a cell in the array.
+	 *
+	 * @throws ArrayIndexOutOfBoundsException Thrown if the cell is outside the layer, like for the data arrays.
+	 */
+	public int of(final int x, final int y) {
+		if (x < 0 || y < 0 || x >= width || y >= height) {
+			throw new ArrayIndexOutOfBoundsException("Cell " + x + "," + y + " is outside the layer");
+		}
+		return position(x + halo, y + halo);
+	}
+
+	/**
+	 * Returns the position of a cell of the layer or its halo in the array.
+	 *
+	 * @return The position, or -1 if the cell is beyond the halo.
+	 */
+	public int inHalo(final int x, final int y) {
+		final int px = x + halo;
+		final int py = y + halo;
+		if (px < 0 || py < 0 || px >= paddedWidth || py >= paddedHeight) {
+			return -1;
+		}
+		return position(px, py);
+	}
+
+	/**
+	 * Checks whether a cell is in the layer, i.e. not in the halo or beyond.
+	 */
+	public boolean contains(final int x, final int y) {
+		return x >= 0 && y >= 0 && x < width && y < height;
+	}
+
+	private int position(final int px, final int py) {
+		return px * paddedHeight + py;
+	}
+
+}
@@ -0,0 +1,381 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise.landscape;
+
+import java.util.Arrays;
+import java.util.function.DoubleSupplier;
+
+import repast.simphony.space.continuous.NdPoint;
+
+/**
+ * An index of the cells with water, or with water and prey, to draw random positions in those cells from. A position
+ * is drawn from a cell chosen from the index rather than by drawing positions until one lands in such a cell, so the
+ * time taken does not depend on how much of the landscape is land.
+ *
+ * The positions are uniform over the area of the cells indexed, like positions drawn until one lands in such a cell.
+ * A cell covers the positions rounded to it. The space spans from -0.5 to width - 0.5, and the positions are drawn from
+ * 0 like those drawn when moving away from land, so the cells of the first column and row cover half a cell and the
+ * others a whole cell.
+ */
+public final class CellSampler {
+
+	// Headings and distances drawn for a position in an annulus before drawing from the cells in it
+	private static final int DIRECT_DRAWS = 32;
+
+	// Draws allowed for a position from the cells in an annulus, as the cells may only just reach into it
+	private static final int MAX_ANNULUS_DRAWS = 10000;
+
+	private final int width;
+	private final int height;
+
+	/** The cells indexed, x * height + y, in increasing order. */
+	private final int[] cells;
+
+	/** The index of the first cell of each column in cells, and the number of cells last. */
+	private final int[] columnStart;
+
+	/** The largest area covered by a cell indexed, as the cells of the first column and row cover half a cell. */
+	private final double maxArea;
+
+	/** The layer the index was built for, to tell when a monthly layer has changed. */
+	private final GridLayer source;
+
+	private CellSampler(final int width, final int height, final int[] cells, final int[] columnStart,
+			final GridLayer source) {
+		this.width = width;
+		this.height = height;
+		this.cells = cells;
+		this.columnStart = columnStart;
+		this.source = source;
+
+		double largest = 0;
+		for (final int cell : cells) {
+			largest = Math.max(largest, area(cell));
+		}
+		this.maxArea = largest;
+	}
+
+	/**
+	 * Indexes the cells with a depth above 0 and, if a prey layer is given, prey above 0.
+	 *
+	 * @param depth The depth of the landscape.
+	 * @param prey The prey layer, or null to index the cells with water.
+	 * @return The index.
+	 */
+	public static CellSampler of(final GridLayer depth, final GridLayer prey) {
+		final int width = depth.getWidth();
+		final int height = depth.getHeight();
+		final int[] columnStart = new int[width + 1];
+		int[] cells = new int[1024];
+		int count = 0;
+
+		for (int x = 0; x < width; x++) {
+			columnStart[x] = count;
+			for (int y = 0; y < height; y++) {
+				if (depth.getValue(x, y) > 0 && (prey == null || prey.getValue(x, y) > 0)) {
+					if (count == cells.length) {
+						cells = Arrays.copyOf(cells, count * 2);
+					}
+					cells[count++] = x * height + y;
+				}
+			}
+		}
+		columnStart[width] = count;
+		return new CellSampler(width, height, Arrays.copyOf(cells, count), columnStart, prey != null ? prey : depth);
+	}
+
+	/**
+	 * Returns whether the index was built for a layer.
+	 */
+	public boolean isFor(final GridLayer layer) {
+		return source == layer;
+	}
+
+	/**
+	 * Returns the number of cells indexed.
+	 */
+	public int size() {
+		return cells.length;
+	}
+
+	/**
+	 * Draws a position uniformly from the cells indexed.
+	 *
+	 * @param random The uniform random numbers in [0, 1) to draw from.
+	 * @return The position, or null if no cells are indexed.
+	 */
+	public NdPoint sample(final DoubleSupplier random) {
+		if (cells.length == 0) {
+			return null;
+		}
+
+		while (true) {
+			final int cell = cells[Math.min((int) (random.getAsDouble() * cells.length), cells.length - 1)];
+			final NdPoint position = samplePosition(cell, random);
+			if (position != null) {
+				return position;
+			}
+		}
+	}
+
+	/**
+	 * Draws a position in an annulus from the cells indexed, like drawing a uniform heading and a uniform distance
+	 * from a point until the position lands in one of the cells. A few headings and distances are drawn first, which
+	 * mostly succeeds in open water. Otherwise the position is drawn from the cells in the annulus, where positions
+	 * closer than half a cell to the center are drawn as if half a cell away.
+	 *
+	 * @param x The x coordinate of the center.
+	 * @param y The y coordinate of the center.
+	 * @param minDistance The smallest distance from the center.
+	 * @param maxDistance The largest distance from the center.
+	 * @param random The uniform random numbers in [0, 1) to draw from.
+	 * @return The position, or null if no cells indexed reach into the annulus.
+	 */
+	public NdPoint sampleAnnulus(final double x, final double y, final double minDistance, final double maxDistance,
+			final DoubleSupplier random) {
+		final double inner = Math.max(0, minDistance);
+		final double outer = Math.max(inner, maxDistance);
+
+		for (int draw = 0; draw < DIRECT_DRAWS; draw++) {
+			final double heading = random.getAsDouble() * 2 * Math.PI;
+			final double distance = inner + random.getAsDouble() * (outer - inner);
+			final double px = x + distance * Math.sin(heading);
+			final double py = y + distance * Math.cos(heading);
+			if (contains(px, py)) {
+				return new NdPoint(px, py);
+			}
+		}
+
+		final double nearest = Math.max(inner, 0.5);
+		final Runs runs = findRuns(x, y, inner, outer, nearest);
+		if (runs.count == 0) {
+			return null;
+		}
+
+		for (int draw = 0; draw < MAX_ANNULUS_DRAWS; draw++) {
+			final int run = runs.run(random);
+			final int start = runs.starts[run];
+			final int cell = cells[start + Math.min((int) (random.getAsDouble() * (runs.ends[run] - start)),
+					runs.ends[run] - start - 1)];
+			final NdPoint position = samplePosition(cell, random);
+			if (position == null) {
+				continue;
+			}
+
+			// Uniform headings and distances are denser near the center, by one over the distance
+			final double distance = Math.hypot(position.getX() - x, position.getY() - y);
+			if (distance >= inner && distance <= outer
+					&& random.getAsDouble() * Math.max(distance, nearest) < runs.nearest[run]) {
+				return position;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns whether a position rounds to a cell indexed.
+	 */
+	private boolean contains(final double px, final double py) {
+		if (!(px >= 0 && px < width - 0.5 && py >= 0 && py < height - 0.5)) {
+			return false;
+		}
+		final int column = (int) toCell(px, width);
+		final int cell = column * height + (int) toCell(py, height);
+		final int index = lowerBound(columnStart[column], columnStart[column + 1], cell);
+		return index < columnStart[column + 1] && cells[index] == cell;
+	}
+
+	/**
+	 * Finds the runs of cells indexed which may reach into an annulus. The runs are split so that the distance from
+	 * the center varies about twofold along each, to draw from them weighted by one over the nearest distance.
+	 */
+	private Runs findRuns(final double x, final double y, final double inner, final double outer,
+			final double nearest) {
+		final Runs runs = new Runs(nearest);
+		final int fromX = Math.max(0, (int) Math.floor(x - outer - 1));
+		final int toX = Math.min(width - 1, (int) Math.ceil(x + outer + 1));
+
+		for (int column = fromX; column <= toX; column++) {
+			final double x0 = column == 0 ? 0 : column - 0.5;
+			final double x1 = column + 0.5;
+			final double nearX = x < x0 ? x0 - x : x > x1 ? x - x1 : 0;
+			final double farX = Math.max(Math.abs(x - x0), Math.abs(x - x1));
+			if (nearX > outer) {
+				continue;
+			}
+
+			// The rows within the outer circle, less those wholly within the inner circle
+			final double outerY = Math.sqrt(outer * outer - nearX * nearX);
+			final int lowest = Math.max(0, (int) Math.floor(y - outerY - 1));
+			final int highest = Math.min(height - 1, (int) Math.ceil(y + outerY + 1));
+			int holeFrom = highest + 1;
+			int holeTo = highest;
+			if (farX < inner) {
+				final double innerY = Math.sqrt(inner * inner - farX * farX);
+				holeFrom = Math.max(lowest, (int) Math.ceil(y - innerY + 1));
+				holeTo = Math.min(highest, (int) Math.floor(y + innerY - 1));
+			}
+
+			// Outwards from the center row, each split as long as it is distant
+			final int center = Math.max(lowest, Math.min(highest, (int) Math.round(y)));
+			for (int row = center; row <= highest;) {
+				if (row >= holeFrom && row <= holeTo) {
+					row = holeTo + 1;
+					continue;
+				}
+				final int last = Math.min(row <= holeTo ? holeFrom - 1 : highest,
+						row + Math.max(0, (int) (Math.hypot(nearX, row - y) - 1)));
+				runs.add(column, row, last, nearX, y, x0, x1);
+				row = last + 1;
+			}
+			for (int row = center - 1; row >= lowest;) {
+				if (row >= holeFrom && row <= holeTo) {
+					row = holeFrom - 1;
+					continue;
+				}
+				final int first = Math.max(row >= holeFrom ? holeTo + 1 : lowest,
+						row - Math.max(0, (int) (Math.hypot(nearX, y - row) - 1)));
+				runs.add(column, first, row, nearX, y, x0, x1);
+				row = first - 1;
+			}
+		}
+		return runs;
+	}
+
+	private int lowerBound(final int from, final int to, final int cell) {
+		int low = from;
+		int high = to;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (cells[mid] < cell) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Draws a position rounding to a cell, weighted by the area the cell covers. Returns null if the draw is
+	 * rejected, so that the positions are uniform over the area of the cells.
+	 */
+	private NdPoint samplePosition(final int cell, final DoubleSupplier random) {
+		final int x = cell / height;
+		final int y = cell % height;
+		final double x0 = x == 0 ? 0 : x - 0.5;
+		final double x1 = x + 0.5;
+		final double y0 = y == 0 ? 0 : y - 0.5;
+		final double y1 = y + 0.5;
+		final double px = x0 + random.getAsDouble() * (x1 - x0);
+		final double py = y0 + random.getAsDouble() * (y1 - y0);
+		if (random.getAsDouble() * maxArea >= (x1 - x0) * (y1 - y0)) {
+			return null;
+		}
+
+		// The sum may round up to the next cell, or to the border of the space
+		if (px >= x1 || py >= y1 || toCell(px, width) != x || toCell(py, height) != y) {
+			return null;
+		}
+		return new NdPoint(px, py);
+	}
+
+	private double area(final int cell) {
+		final int x = cell / height;
+		final int y = cell % height;
+		final double w = x == 0 ? 0.5 : 1;
+		final double h = y == 0 ? 0.5 : 1;
+		return w * h;
+	}
+
+	/**
+	 * Returns the cell a coordinate rounds to, like Agent.ndPointToGridPoint.
+	 */
+	private static long toCell(final double coordinate, final int size) {
+		final long cell = Math.round(coordinate);
+		return cell == size ? cell - 1 : cell;
+	}
+
+	/**
+	 * Runs of consecutive cells indexed, to draw a cell from weighted by one over the nearest distance of the run.
+	 */
+	private final class Runs {
+
+		private final double minNearest;
+		private int[] starts = new int[64];
+		private int[] ends = new int[64];
+		private double[] nearest = new double[64];
+		private double[] totals = new double[64];
+		private int count;
+
+		private Runs(final double minNearest) {
+			this.minNearest = minNearest;
+		}
+
+		/**
+		 * Adds the cells indexed in rows of a column, if any.
+		 */
+		private void add(final int column, final int fromY, final int toY, final double nearX, final double y,
+				final double x0, final double x1) {
+			final int start = lowerBound(columnStart[column], columnStart[column + 1], column * height + fromY);
+			final int end = lowerBound(start, columnStart[column + 1], column * height + toY + 1);
+			if (end == start) {
+				return;
+			}
+
+			if (count == starts.length) {
+				starts = Arrays.copyOf(starts, count * 2);
+				ends = Arrays.copyOf(ends, count * 2);
+				nearest = Arrays.copyOf(nearest, count * 2);
+				totals = Arrays.copyOf(totals, count * 2);
+			}
+			final double y0 = fromY == 0 ? 0 : fromY - 0.5;
+			final double y1 = toY + 0.5;
+			final double nearY = y < y0 ? y0 - y : y > y1 ? y - y1 : 0;
+			starts[count] = start;
+			ends[count] = end;
+			nearest[count] = Math.max(minNearest, Math.hypot(nearX, nearY));
+			totals[count] = (count == 0 ? 0 : totals[count - 1]) + (end - start) / nearest[count];
+			count++;
+		}
+
+		/**
+		 * Draws a run weighted by the number of cells over the nearest distance.
+		 */
+		private int run(final DoubleSupplier random) {
+			final double total = totals[count - 1];
+			int run = Arrays.binarySearch(totals, 0, count, random.getAsDouble() * total);
+			if (run < 0) {
+				run = -run - 1;
+			}
+			return Math.min(run, count - 1);
+		}
+
+	}
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise.landscape;
+
+import repast.simphony.space.continuous.PointTranslator;
+
+/**
+ * Checks the depth along the path ahead of a porpoise. The path is probed at the points step, 2 * step, ..., samples *
+ * step from the position, translated by the borders of the space, and each point is rounded to its cell like
+ * Agent.toGridX and Agent.toGridY. The path has enough water if all the cells probed are deeper than 0.
+ *
+ * Away from the borders the translation leaves the points unchanged, and the points along each axis are ordered, so
+ * the points in a cell follow each other. The cells are then traversed one at a time, looking up the depth of each
+ * cell once and stepping past the remaining points in the cell, which is found from the distance to the edges of the
+ * cell. Cells which the path only clips between two points are not looked up, as they are not probed. Paths reaching
+ * near the borders are probed point by point through the translator.
+ */
+public final class DepthPath {
+
+	private DepthPath() {
+		// Utility class, prevent instances.
+	}
+
+	/**
+	 * Returns whether all cells probed along the path are deeper than 0.
+	 *
+	 * @param depth The depth of the landscape.
+	 * @param translator The translator of the space, applying its borders.
+	 * @param x The x coordinate of the position.
+	 * @param y The y coordinate of the position.
+	 * @param stepX The x component of the distance between the points probed.
+	 * @param stepY The y component of the distance between the points probed.
+	 * @param samples The number of points probed.
+	 * @param coords An array of length 2 used by the probes through the translator.
+	 * @param step An array of length 2 used by the probes through the translator.
+	 * @return Whether there is enough water along the path.
+	 */
+	public static boolean isDeep(final GridLayer depth, final PointTranslator translator, final double x,
+			final double y, final double stepX, final double stepY, final int samples, final double[] coords,
+			final double[] step) {
+		final int width = depth.getWidth();
+		final int height = depth.getHeight();
+		if (!isInside(x, x + stepX * samples, width) || !isInside(y, y + stepY * samples, height)) {
+			return isDeepSampled(depth, translator, x, y, stepX, stepY, samples, coords, step);
+		}
+
+		int sample = 1;
+		while (sample <= samples) {
+			final int cellX = toCell(x + stepX * sample, width);
+			final int cellY = toCell(y + stepY * sample, height);
+			if (!(depth.getValueOrNoData(cellX, cellY) > 0)) {
+				return false;
+			}
+
+			// The first point past an edge of the cell, estimated and then corrected for rounding
+			int next = (int) Math.max(sample + 1, Math.min(samples + 1, Math.min(exitSample(x, stepX, cellX),
+					exitSample(y, stepY, cellY))));
+			while (next - 1 > sample && !(toCell(x + stepX * (next - 1), width) == cellX && toCell(y + stepY
+					* (next - 1), height) == cellY)) {
+				next--;
+			}
+			while (next <= samples && toCell(x + stepX * next, width) == cellX && toCell(y + stepY * next,
+					height) == cellY) {
+				next++;
+			}
+			sample = next;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns whether all cells probed along the path are deeper than 0, probing the points one at a time through the
+	 * translator. See {@link #isDeep(GridLayer, PointTranslator, double, double, double, double, int, double[],
+	 * double[])} for the parameters.
+	 */
+	public static boolean isDeepSampled(final GridLayer depth, final PointTranslator translator, final double x,
+			final double y, final double stepX, final double stepY, final int samples, final double[] coords,
+			final double[] step) {
+		for (int i = 1; i <= samples; i++) {
+			coords[0] = x;
+			coords[1] = y;
+			step[0] = stepX * i;
+			step[1] = stepY * i;
+			translator.translate(coords, step);
+			if (!(depth.getValueOrNoData(toCell(coords[0], depth.getWidth()), toCell(coords[1],
+					depth.getHeight())) > 0)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// Whether the points between the start and the end are well within the space, which spans -0.5 to size - 0.5
+	private static boolean isInside(final double start, final double end, final int size) {
+		return start > 0 && start < size - 1 && end > 0 && end < size - 1;
+	}
+
+	// The first point past the edge of the cell along one axis, the points are in the cell until the coordinate
+	// rounds to another cell
+	private static double exitSample(final double origin, final double step, final int cell) {
+		if (step > 0) {
+			return Math.ceil((cell + 0.5 - origin) / step);
+		} else if (step < 0) {
+			return Math.floor((cell - 0.5 - origin) / step) + 1;
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
+	private static int toCell(final double coordinate, final int size) {
+		final int cell = (int) Math.round(coordinate);
+		return cell == size ? cell - 1 : cell;
+	}
+
+}
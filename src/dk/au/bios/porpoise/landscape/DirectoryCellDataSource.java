@@ -39,7 +39,7 @@ import java.util.List;
 import java.util.regex.Pattern;
 
 import dk.au.bios.porpoise.Globals;
-import dk.au.bios.porpoise.util.ASCUtil;
+import dk.au.bios.porpoise.util.ASCParser;
 import dk.au.bios.porpoise.util.GeoTiffUtil;
 
 public class DirectoryCellDataSource implements CellDataSource {
@@ -71,14 +71,19 @@ public class DirectoryCellDataSource implements CellDataSource {
 
 	@Override
 	public double[][] getData(final String fileName) throws IOException {
-		try (InputStream in = new FileInputStream(basePath.resolve(fileName).toFile())) {
-			final double[][] data;
-			if (fileName.endsWith(LandscapeLoader.FILE_EXT_ASC)) {
-				data = ASCUtil.loadDoubleAscFile(Globals.getWorldWidth(), Globals.getWorldHeight(), in, false);
-			} else {
-				data = GeoTiffUtil.loadGeotif(Globals.getWorldWidth(), Globals.getWorldHeight(), in, false);
-			}
-			return data;
+		return getData(fileName, GridWindow.full(Globals.getWorldWidth(), Globals.getWorldHeight()));
+	}
+
+	@Override
+	public double[][] getData(final String fileName, final GridWindow window) throws IOException {
+		final Path file = basePath.resolve(fileName);
+		if (fileName.endsWith(LandscapeLoader.FILE_EXT_ASC)) {
+			final byte[] buf = Files.readAllBytes(file);
+			return ASCParser.loadDoubleAscFile(window, buf, buf.length, false);
+		}
+
+		try (InputStream in = new FileInputStream(file.toFile())) {
+			return GeoTiffUtil.loadGeotif(window, in, false);
 		}
 	}
 
@@ -87,7 +92,7 @@ public class DirectoryCellDataSource implements CellDataSource {
 		try (InputStream in = new FileInputStream(basePath.resolve(fileName).toFile())) {
 			DataFileMetaData metaData;
 			if (fileName.endsWith(LandscapeLoader.FILE_EXT_ASC)) {
-				metaData = ASCUtil.loadMetaData(in);
+				metaData = ASCParser.loadMetaData(in);
 			} else {
 				metaData = GeoTiffUtil.loadMetaData(in);
 			}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise.landscape;
+
+/**
+ * The values of a landscape layer, by cell. The cells are indexed like the landscape data, [x][y] with y = 0 being the
+ * bottom row. A layer is either backed by the data read from a file or computed from the cell position, e.g. a
+ * constant layer.
+ */
+public interface GridLayer {
+
+	/**
+	 * Computes the value of a cell in a procedural layer.
+	 */
+	@FunctionalInterface
+	interface CellFunction {
+		double apply(int x, int y);
+	}
+
+	int getWidth();
+
+	int getHeight();
+
+	/**
+	 * Returns the value of a cell.
+	 *
+	 * @throws ArrayIndexOutOfBoundsException Thrown if the cell is outside the layer, like for the data arrays.
+	 */
+	double getValue(int x, int y);
+
+	/**
+	 * Returns the value of a cell, or {@link LayerPrecision#NO_DATA} if the cell is outside the layer, like the depth
+	 * of cells off the grid. Layers held with a halo (see {@link CellIndex}) look up the cells near the layer without
+	 * checking the bounds of the layer.
+	 */
+	default double getValueOrNoData(final int x, final int y) {
+		if (x < 0 || y < 0 || x >= getWidth() || y >= getHeight()) {
+			return LayerPrecision.NO_DATA;
+		}
+		return getValue(x, y);
+	}
+
+	/**
+	 * Returns the values of all cells as an array indexed [x][y]. Array backed layers return their array, procedural
+	 * layers allocate a new one.
+	 */
+	default double[][] toArray() {
+		final double[][] data = new double[getWidth()][getHeight()];
+		for (int x = 0; x < data.length; x++) {
+			for (int y = 0; y < data[x].length; y++) {
+				data[x][y] = getValue(x, y);
+			}
+		}
+		return data;
+	}
+
+	/**
+	 * Returns true if the values are computed rather than held in an array.
+	 */
+	default boolean isProcedural() {
+		return true;
+	}
+
+	/**
+	 * Creates a layer backed by an array.
+	 */
+	static GridLayer of(final double[][] data) {
+		return new GridLayer() {
+			@Override
+			public int getWidth() {
+				return data.length;
+			}
+
+			@Override
+			public int getHeight() {
+				return data[0].length;
+			}
+
+			@Override
+			public double getValue(final int x, final int y) {
+				return data[x][y];
+			}
+
+			@Override
+			public double getValueOrNoData(final int x, final int y) {
+				if (x < 0 || x >= data.length) {
+					return LayerPrecision.NO_DATA;
+				}
+				final double[] column = data[x];
+				return y >= 0 && y < column.length ? column[y] : LayerPrecision.NO_DATA;
+			}
+
+			@Override
+			public double[][] toArray() {
+				return data;
+			}
+
+			@Override
+			public boolean isProcedural() {
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Creates a layer computing the value of each cell.
+	 */
+	static GridLayer procedural(final int width, final int height, final CellFunction function) {
+		return new GridLayer() {
+			@Override
+			public int getWidth() {
+				return width;
+			}
+
+			@Override
+			public int getHeight() {
+				return height;
+			}
+
+			@Override
+			public double getValue(final int x, final int y) {
+				if (x < 0 || y < 0 || x >= width || y >= height) {
+					throw new ArrayIndexOutOfBoundsException("Cell " + x + "," + y + " is outside the layer");
+				}
+				return function.apply(x, y);
+			}
+		};
+	}
+
+	/**
+	 * Creates a layer holding the same value in every cell.
+	 */
+	static GridLayer constant(final int width, final int height, final double value) {
+		return procedural(width, height, (x, y) -> value);
+	}
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise.landscape;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A rectangular part of the landscape grid. Used to load only the region studied by a run. The cells are indexed like
+ * the landscape data, [x][y] with y = 0 being the bottom row.
+ */
+public final class GridWindow {
+
+	private final int x;
+	private final int y;
+	private final int width;
+	private final int height;
+	private final int gridWidth;
+	private final int gridHeight;
+
+	public GridWindow(final int x, final int y, final int width, final int height, final int gridWidth,
+			final int gridHeight) {
+		if (x < 0 || y < 0 || width < 1 || height < 1 || x + width > gridWidth || y + height > gridHeight) {
+			throw new IllegalArgumentException("Window " + width + "x" + height + " at " + x + "," + y
+					+ " is not within the grid " + gridWidth + "x" + gridHeight);
+		}
+		this.x = x;
+		this.y = y;
+		this.width = width;
+		this.height = height;
+		this.gridWidth = gridWidth;
+		this.gridHeight = gridHeight;
+	}
+
+	/**
+	 * Creates a window covering the whole grid.
+	 */
+	public static GridWindow full(final int gridWidth, final int gridHeight) {
+		return new GridWindow(0, 0, gridWidth, gridHeight, gridWidth, gridHeight);
+	}
+
+	/**
+	 * Creates the window covering a bounding box given in the coordinates of the landscape (UTM). The box is expanded
+	 * to whole cells and clipped to the grid.
+	 *
+	 * @param boundingBox The bounding box as "minX;minY;maxX;maxY".
+	 * @param grid The meta data of the complete landscape grid.
+	 * @return The window.
+	 * @throws IOException Thrown if the bounding box is invalid or does not overlap the landscape.
+	 */
+	public static GridWindow fromBoundingBox(final String boundingBox, final DataFileMetaData grid)
+			throws IOException {
+		final String[] parts = boundingBox.split(";");
+		if (parts.length != 4) {
+			throw new IOException("Invalid landscape window " + boundingBox + ", expected minX;minY;maxX;maxY");
+		}
+
+		final double minX;
+		final double minY;
+		final double maxX;
+		final double maxY;
+		try {
+			minX = Double.parseDouble(parts[0].trim());
+			minY = Double.parseDouble(parts[1].trim());
+			maxX = Double.parseDouble(parts[2].trim());
+			maxY = Double.parseDouble(parts[3].trim());
+		} catch (NumberFormatException e) {
+			throw new IOException("Invalid landscape window " + boundingBox + ", expected minX;minY;maxX;maxY", e);
+		}
+		if (minX >= maxX || minY >= maxY) {
+			throw new IOException("Invalid landscape window " + boundingBox + ", min must be less than max");
+		}
+
+		final double cellSize = grid.getCellsize();
+		final int x0 = (int) Math.max(0, Math.floor((minX - grid.getXllcorner()) / cellSize));
+		final int y0 = (int) Math.max(0, Math.floor((minY - grid.getYllcorner()) / cellSize));
+		final int x1 = (int) Math.min(grid.getNcols(), Math.ceil((maxX - grid.getXllcorner()) / cellSize));
+		final int y1 = (int) Math.min(grid.getNrows(), Math.ceil((maxY - grid.getYllcorner()) / cellSize));
+		if (x1 <= x0 || y1 <= y0) {
+			throw new IOException("Landscape window " + boundingBox + " does not overlap the landscape");
+		}
+
+		return new GridWindow(x0, y0, x1 - x0, y1 - y0, grid.getNcols(), grid.getNrows());
+	}
+
+	public int getX() {
+		return x;
+	}
+
+	public int getY() {
+		return y;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getGridWidth() {
+		return gridWidth;
+	}
+
+	public int getGridHeight() {
+		return gridHeight;
+	}
+
+	public boolean isFullGrid() {
+		return width == gridWidth && height == gridHeight;
+	}
+
+	/**
+	 * Returns the meta data of the window of a data file, with the lower left corner moved to the window.
+	 *
+	 * @param metaData The meta data of the complete data file.
+	 * @return The meta data of the window.
+	 */
+	public DataFileMetaData applyTo(final DataFileMetaData metaData) {
+		return new DataFileMetaData(width, height, metaData.getXllcorner() + (double) x * metaData.getCellsize(),
+				metaData.getYllcorner() + (double) y * metaData.getCellsize(), metaData.getCellsize(),
+				metaData.getCoordinateReferenceSystem());
+	}
+
+	/**
+	 * Copies the window out of the data of the complete grid.
+	 *
+	 * @param data The data of the complete grid.
+	 * @return The data of the window.
+	 * @throws IOException Thrown if the data does not have the size of the grid.
+	 */
+	public double[][] crop(final double[][] data) throws IOException {
+		if (data.length != gridWidth || data[0].length != gridHeight) {
+			throw new IOException("Data size " + data.length + "x" + data[0].length + " does not match the grid "
+					+ gridWidth + "x" + gridHeight);
+		}
+		if (isFullGrid()) {
+			return data;
+		}
+
+		final double[][] window = new double[width][];
+		for (int i = 0; i < width; i++) {
+			window[i] = Arrays.copyOfRange(data[x + i], y, y + height);
+		}
+		return window;
+	}
+
+	@Override
+	public String toString() {
+		return width + "x" + height + " cells at " + x + "," + y + " of " + gridWidth + "x" + gridHeight;
+	}
+
+}
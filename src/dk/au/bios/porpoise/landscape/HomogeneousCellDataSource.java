@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise.landscape;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import dk.au.bios.porpoise.util.Pair;
+
+/**
+ * Data source for the homogeneous landscape. The layers holding (almost) the same value in every cell, and the blocks
+ * laid out as a regular grid, are computed instead of read. The values are identical to those of the data files of
+ * the landscape. The food patches are placed at random, so the patches file is still read from the data files, which
+ * also provide the meta data of the landscape.
+ */
+public class HomogeneousCellDataSource implements CellDataSource {
+
+	private static final double DEPTH = 18.18;
+
+	/**
+	 * The top left cell of the bathymetry differs from the rest in the data files.
+	 */
+	private static final double DEPTH_TOP_LEFT = 18.1;
+
+	private static final double DISTANCE_TO_COAST = 100000.0;
+	private static final double PREY = 0.386;
+	private static final double SALINITY = 34.069105813295;
+
+	/**
+	 * The width and height of a block, in cells. The blocks are numbered from 1 row by row, starting at the top left.
+	 */
+	private static final int BLOCK_SIZE = 100;
+
+	private static final String PREY_FILE = LandscapeLoader.PREY_FILE_PREFIX + "0000_XX" + LandscapeLoader.FILE_EXT;
+	private static final String SALINITY_FILE = LandscapeLoader.SALINITY_FILE_PREFIX + "0000_XX"
+			+ LandscapeLoader.FILE_EXT;
+
+	private final List<CellDataSource> sources;
+	private final DataFileMetaData metaData;
+	private final Map<String, GridLayer> layers = new HashMap<>();
+
+	/**
+	 * Creates the source.
+	 *
+	 * @param sources The sources of the data files of the landscape.
+	 * @throws IOException Thrown if the meta data of the landscape cannot be read.
+	 */
+	public HomogeneousCellDataSource(final List<CellDataSource> sources) throws IOException {
+		this.sources = sources;
+		this.metaData = findSource(LandscapeLoader.BATHY_FILE).getMetaData(LandscapeLoader.BATHY_FILE);
+
+		final int width = metaData.getNcols();
+		final int height = metaData.getNrows();
+		final int blocksAcross = (width + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		layers.put(LandscapeLoader.BATHY_FILE, GridLayer.procedural(width, height,
+				(x, y) -> x == 0 && y == height - 1 ? DEPTH_TOP_LEFT : DEPTH));
+		layers.put(LandscapeLoader.DISTTOCOAST_FILE, GridLayer.constant(width, height, DISTANCE_TO_COAST));
+		layers.put(LandscapeLoader.BLOCKS_FILE, GridLayer.procedural(width, height,
+				(x, y) -> ((height - 1 - y) / BLOCK_SIZE) * blocksAcross + x / BLOCK_SIZE + 1));
+		layers.put(PREY_FILE, GridLayer.constant(width, height, PREY));
+		layers.put(SALINITY_FILE, GridLayer.constant(width, height, SALINITY));
+	}
+
+	@Override
+	public boolean hasData(final String fileName) throws IOException {
+		return layers.containsKey(fileName) || findSource(fileName) != null;
+	}
+
+	@Override
+	public List<String> getNamesMatching(final String pattern) throws IOException {
+		final Pattern p = Pattern.compile(pattern);
+		final Set<String> matching = new LinkedHashSet<>();
+		for (final String name : layers.keySet()) {
+			if (p.matcher(name).matches()) {
+				matching.add(name);
+			}
+		}
+		for (final CellDataSource src : sources) {
+			matching.addAll(src.getNamesMatching(pattern));
+		}
+
+		return new ArrayList<>(matching);
+	}
+
+	@Override
+	public double[][] getData(final String fileName) throws IOException {
+		final GridLayer layer = layers.get(fileName);
+		if (layer != null) {
+			return layer.toArray();
+		}
+		return getSource(fileName).getData(fileName);
+	}
+
+	@Override
+	public double[][] getData(final String fileName, final GridWindow window) throws IOException {
+		final GridLayer layer = layers.get(fileName);
+		if (layer != null) {
+			return window.crop(layer.toArray());
+		}
+		return getSource(fileName).getData(fileName, window);
+	}
+
+	@Override
+	public DataFileMetaData getMetaData(final String fileName) throws IOException {
+		if (layers.containsKey(fileName)) {
+			return metaData;
+		}
+		return getSource(fileName).getMetaData(fileName);
+	}
+
+	@Override
+	public GridLayer getProceduralLayer(final String fileName) {
+		return layers.get(fileName);
+	}
+
+	@Override
+	public Pair[] getFoodProbAboveZeroCells() throws IOException {
+		return getSource(LandscapeLoader.PATCHES_FILE).getFoodProbAboveZeroCells();
+	}
+
+	@Override
+	public void close() throws IOException {
+		IOException failure = null;
+		for (final CellDataSource src : sources) {
+			try {
+				src.close();
+			} catch (IOException e) {
+				if (failure == null) {
+					failure = e;
+				} else {
+					failure.addSuppressed(e);
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	private CellDataSource findSource(final String fileName) throws IOException {
+		for (final CellDataSource src : sources) {
+			if (src.hasData(fileName)) {
+				return src;
+			}
+		}
+		return null;
+	}
+
+	private CellDataSource getSource(final String fileName) throws IOException {
+		final CellDataSource src = findSource(fileName);
+		if (src == null) {
+			throw new FileNotFoundException(fileName + " not found in the homogeneous landscape");
+		}
+		return src;
+	}
+
+}
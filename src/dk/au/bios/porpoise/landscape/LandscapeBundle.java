@@ -0,0 +1,533 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise.landscape;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import dk.au.bios.porpoise.util.Pair;
+
+/**
+ * A pre-converted binary landscape. The bundle holds all data files of a landscape in a single file, stored as
+ * primitive arrays together with the header of each file, the precomputed list of food patch cells and a checksum of
+ * the content. The coordinate reference system of GeoTIFF files is not retained in the bundle.
+ *
+ * The layout of the file is:
+ *
+ * <pre>
+ * magic, version, source fingerprint, number of layers
+ * per layer: name, ncols, nrows, xllcorner, yllcorner, cellsize, offset, CRC32 of the layer data
+ * number of food patch cells, offset, CRC32 of the food patch cells
+ * CRC32 of the header
+ * layer data (ncols * nrows doubles per layer, column by column) and food patch cells (x, y int pairs)
+ * </pre>
+ *
+ * An opened bundle keeps the file open until it is closed. The checksum of the header is checked when the bundle is
+ * opened, the checksum of a layer when it is first read.
+ */
+public final class LandscapeBundle implements Closeable {
+
+	private static final byte[] MAGIC = "DEPONSLB".getBytes(StandardCharsets.US_ASCII);
+	private static final int VERSION = 1;
+
+	private final Path bundlePath;
+	private final FileChannel channel;
+	private final long sourceFingerprint;
+	private final Map<String, Entry> entries;
+	private final int foodCellCount;
+	private final long foodCellOffset;
+	private final long foodCellCrc;
+	private volatile boolean foodCellsVerified;
+
+	private LandscapeBundle(final Path bundlePath, final FileChannel channel, final long sourceFingerprint,
+			final Map<String, Entry> entries, final int foodCellCount, final long foodCellOffset,
+			final long foodCellCrc) {
+		this.bundlePath = bundlePath;
+		this.channel = channel;
+		this.sourceFingerprint = sourceFingerprint;
+		this.entries = entries;
+		this.foodCellCount = foodCellCount;
+		this.foodCellOffset = foodCellOffset;
+		this.foodCellCrc = foodCellCrc;
+	}
+
+	/**
+	 * Opens and validates a bundle. The header is checked against the stored checksum, and the layers must lie within
+	 * the file. The content of a layer is checked when it is first read, so opening does not read the layers.
+	 *
+	 * @param bundlePath The bundle to open.
+	 * @return The opened bundle.
+	 * @throws IOException Thrown if the bundle cannot be read or is not valid.
+	 */
+	public static LandscapeBundle open(final Path bundlePath) throws IOException {
+		final FileChannel channel = FileChannel.open(bundlePath, StandardOpenOption.READ);
+		try {
+			final ByteBuffer prefix = ByteBuffer.allocate(MAGIC.length + 4 + 4);
+			readFully(channel, prefix, 0);
+			prefix.flip();
+			final byte[] magic = new byte[MAGIC.length];
+			prefix.get(magic);
+			for (int i = 0; i < MAGIC.length; i++) {
+				if (magic[i] != MAGIC[i]) {
+					throw new IOException(bundlePath + " is not a landscape bundle");
+				}
+			}
+			final int version = prefix.getInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported landscape bundle version " + version + " in " + bundlePath);
+			}
+			final int headerLength = prefix.getInt();
+			if (headerLength <= 0 || headerLength > channel.size()) {
+				throw new IOException("Invalid header length in landscape bundle " + bundlePath);
+			}
+
+			final ByteBuffer header = ByteBuffer.allocate(headerLength);
+			readFully(channel, header, prefix.capacity());
+			final ByteBuffer headerCrcBuf = ByteBuffer.allocate(8);
+			readFully(channel, headerCrcBuf, prefix.capacity() + headerLength);
+			headerCrcBuf.flip();
+			if (crc(header.array(), 0, headerLength) != headerCrcBuf.getLong()) {
+				throw new IOException("Header checksum mismatch in landscape bundle " + bundlePath);
+			}
+
+			final DataInputStream in = new DataInputStream(new ByteArrayInputStream(header.array()));
+			final long sourceFingerprint = in.readLong();
+			final int entryCount = in.readInt();
+			final Map<String, Entry> entries = new LinkedHashMap<>();
+			for (int i = 0; i < entryCount; i++) {
+				final String name = in.readUTF();
+				final int ncols = in.readInt();
+				final int nrows = in.readInt();
+				final double xllcorner = in.readDouble();
+				final double yllcorner = in.readDouble();
+				final int cellsize = in.readInt();
+				final long offset = in.readLong();
+				final long crc = in.readLong();
+				final DataFileMetaData metaData = new DataFileMetaData(ncols, nrows, xllcorner, yllcorner, cellsize,
+						null);
+				entries.put(name, new Entry(metaData, offset, crc));
+			}
+			final int foodCellCount = in.readInt();
+			final long foodCellOffset = in.readLong();
+			final long foodCellCrc = in.readLong();
+
+			for (final Map.Entry<String, Entry> e : entries.entrySet()) {
+				checkWithinFile(channel, e.getValue().offset, layerBytes(e.getKey(), e.getValue().metaData),
+						bundlePath);
+			}
+			if (foodCellCount > Integer.MAX_VALUE / 8) {
+				throw new IOException("Invalid number of food patch cells in landscape bundle " + bundlePath);
+			}
+			checkWithinFile(channel, foodCellOffset, foodCellCount * 8L, bundlePath);
+
+			return new LandscapeBundle(bundlePath, channel, sourceFingerprint, entries, foodCellCount, foodCellOffset,
+					foodCellCrc);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Writes a bundle containing all data files available in the sources. If a file is available in more than one
+	 * source, the first source holding the file is used.
+	 *
+	 * @param bundlePath The bundle file to write. An existing bundle is replaced.
+	 * @param sources The sources to read the data files from.
+	 * @param sourceFingerprint The fingerprint of the sources, used to detect a stale bundle.
+	 * @throws IOException Thrown if the sources cannot be read or the bundle cannot be written.
+	 */
+	public static void write(final Path bundlePath, final List<CellDataSource> sources, final long sourceFingerprint)
+			throws IOException {
+		final Map<String, CellDataSource> files = new LinkedHashMap<>();
+		for (final CellDataSource src : sources) {
+			final List<String> names = new ArrayList<>(src.getNamesMatching(".*(\\" + LandscapeLoader.FILE_EXT_ASC
+					+ "|\\" + LandscapeLoader.FILE_EXT_TIF + ")$"));
+			Collections.sort(names);
+			for (final String name : names) {
+				if (!files.containsKey(name)) {
+					files.put(name, src);
+				}
+			}
+		}
+
+		if (!files.containsKey(LandscapeLoader.PATCHES_FILE)) {
+			throw new IOException("Unable to create landscape bundle, " + LandscapeLoader.PATCHES_FILE + " not found");
+		}
+
+		final Map<String, DataFileMetaData> metaData = new LinkedHashMap<>();
+		for (final Map.Entry<String, CellDataSource> file : files.entrySet()) {
+			metaData.put(file.getKey(), file.getValue().getMetaData(file.getKey()));
+		}
+
+		// The offsets are known once the header size is known. All header fields are of fixed size, so the header is
+		// first serialized with placeholder values to determine its length.
+		final int headerLength = serializeHeader(sourceFingerprint, metaData, new long[metaData.size()],
+				new long[metaData.size()], 0, 0, 0).length;
+		final long dataStart = MAGIC.length + 4 + 4 + headerLength + 8;
+
+		final long[] offsets = new long[metaData.size()];
+		final long[] crcs = new long[metaData.size()];
+		final List<Pair> foodCells = new ArrayList<>();
+		long foodCellOffset = 0;
+		long foodCellCrc = 0;
+
+		final Path tmpPath = bundlePath.resolveSibling(bundlePath.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(tmpPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			long position = dataStart;
+			int i = 0;
+			for (final Map.Entry<String, DataFileMetaData> file : metaData.entrySet()) {
+				final DataFileMetaData md = file.getValue();
+				final double[][] data = files.get(file.getKey()).getData(file.getKey());
+				if (data.length != md.getNcols() || data[0].length != md.getNrows()) {
+					throw new IOException("Dimensions of " + file.getKey() + " do not match its header");
+				}
+
+				final ByteBuffer buf = ByteBuffer.allocate(layerBytes(file.getKey(), md));
+				final DoubleBuffer dBuf = buf.asDoubleBuffer();
+				for (final double[] column : data) {
+					dBuf.put(column);
+				}
+
+				offsets[i] = position;
+				crcs[i] = crc(buf.array(), 0, buf.capacity());
+				writeFully(channel, buf, position);
+				position += buf.capacity();
+
+				if (LandscapeLoader.PATCHES_FILE.equals(file.getKey())) {
+					for (int x = 0; x < data.length; x++) {
+						for (int y = 0; y < data[x].length; y++) {
+							if (data[x][y] > 0) {
+								foodCells.add(new Pair(x, y));
+							}
+						}
+					}
+				}
+				i++;
+			}
+
+			if (foodCells.size() > Integer.MAX_VALUE / 8) {
+				throw new IOException("Unable to create landscape bundle, too many food patch cells: "
+						+ foodCells.size());
+			}
+			final ByteBuffer foodBuf = ByteBuffer.allocate(foodCells.size() * 8);
+			for (final Pair p : foodCells) {
+				foodBuf.putInt(p.getFirst());
+				foodBuf.putInt(p.getSecond());
+			}
+			foodBuf.flip();
+			foodCellOffset = position;
+			foodCellCrc = crc(foodBuf.array(), 0, foodBuf.capacity());
+			writeFully(channel, foodBuf, position);
+
+			final byte[] header = serializeHeader(sourceFingerprint, metaData, offsets, crcs, foodCells.size(),
+					foodCellOffset, foodCellCrc);
+			final ByteBuffer headerBuf = ByteBuffer.allocate(MAGIC.length + 4 + 4 + header.length + 8);
+			headerBuf.put(MAGIC);
+			headerBuf.putInt(VERSION);
+			headerBuf.putInt(header.length);
+			headerBuf.put(header);
+			headerBuf.putLong(crc(header, 0, header.length));
+			headerBuf.flip();
+			writeFully(channel, headerBuf, 0);
+		} catch (final IOException e) {
+			Files.deleteIfExists(tmpPath);
+			throw e;
+		}
+
+		Files.move(tmpPath, bundlePath, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Calculates a fingerprint of the files the bundle is created from. The fingerprint is based on the name, size
+	 * and modification time of the files, not their content.
+	 *
+	 * @param paths The files and directories the landscape is loaded from. Directories are fingerprinted by the files
+	 *        they contain.
+	 * @return The fingerprint.
+	 * @throws IOException Thrown if the files cannot be accessed.
+	 */
+	public static long fingerprint(final List<Path> paths) throws IOException {
+		final CRC32 crc = new CRC32();
+		for (final Path path : paths) {
+			final List<Path> files = new ArrayList<>();
+			if (Files.isDirectory(path)) {
+				try (Stream<Path> list = Files.list(path)) {
+					list.filter(Files::isRegularFile).sorted().forEach(files::add);
+				}
+			} else {
+				files.add(path);
+			}
+
+			for (final Path f : files) {
+				final ByteBuffer buf = ByteBuffer.allocate(16);
+				buf.putLong(Files.size(f));
+				buf.putLong(Files.getLastModifiedTime(f).toMillis());
+				crc.update(f.getFileName().toString().getBytes(StandardCharsets.UTF_8));
+				crc.update(buf.array());
+			}
+		}
+
+		return crc.getValue();
+	}
+
+	public Path getPath() {
+		return bundlePath;
+	}
+
+	public long getSourceFingerprint() {
+		return sourceFingerprint;
+	}
+
+	public boolean hasData(final String fileName) {
+		return entries.containsKey(fileName);
+	}
+
+	public List<String> getNames() {
+		return new ArrayList<>(entries.keySet());
+	}
+
+	public DataFileMetaData getMetaData(final String fileName) throws IOException {
+		return getEntry(fileName).metaData;
+	}
+
+	public double[][] getData(final String fileName) throws IOException {
+		final Entry entry = getEntry(fileName);
+		final int ncols = entry.metaData.getNcols();
+		final int nrows = entry.metaData.getNrows();
+
+		final ByteBuffer buf = ByteBuffer.allocate(layerBytes(fileName, entry.metaData));
+		readFully(channel, buf, entry.offset);
+		buf.flip();
+		if (!entry.verified) {
+			verify(fileName, crc(buf.array(), 0, buf.capacity()) == entry.crc);
+			entry.verified = true;
+		}
+
+		final DoubleBuffer dBuf = buf.asDoubleBuffer();
+		final double[][] data = new double[ncols][nrows];
+		for (final double[] column : data) {
+			dBuf.get(column);
+		}
+
+		return data;
+	}
+
+	/**
+	 * Reads a window of a layer. The layers are stored column by column, so only the part of each column within the
+	 * window is read.
+	 */
+	public double[][] getData(final String fileName, final GridWindow window) throws IOException {
+		final Entry entry = getEntry(fileName);
+		final int nrows = entry.metaData.getNrows();
+		if (entry.metaData.getNcols() != window.getGridWidth() || nrows != window.getGridHeight()) {
+			throw new IOException("Size of " + fileName + " in landscape bundle " + bundlePath
+					+ " does not match the grid of the window " + window);
+		}
+		if (!entry.verified) {
+			// The whole layer is checked, not only the window read
+			verify(fileName, crc(channel, entry.offset, layerBytes(fileName, entry.metaData)) == entry.crc);
+			entry.verified = true;
+		}
+
+		final ByteBuffer buf = ByteBuffer.allocate(window.getHeight() * 8);
+		final double[][] data = new double[window.getWidth()][window.getHeight()];
+		for (int i = 0; i < data.length; i++) {
+			buf.clear();
+			readFully(channel, buf, entry.offset + ((long) (window.getX() + i) * nrows + window.getY()) * 8);
+			buf.flip();
+			buf.asDoubleBuffer().get(data[i]);
+		}
+
+		return data;
+	}
+
+	public Pair[] getFoodProbAboveZeroCells() throws IOException {
+		final ByteBuffer buf = ByteBuffer.allocate(foodCellCount * 8);
+		readFully(channel, buf, foodCellOffset);
+		buf.flip();
+		if (!foodCellsVerified) {
+			verify("food patch cells", crc(buf.array(), 0, buf.capacity()) == foodCellCrc);
+			foodCellsVerified = true;
+		}
+
+		final IntBuffer iBuf = buf.asIntBuffer();
+		final Pair[] cells = new Pair[foodCellCount];
+		for (int i = 0; i < foodCellCount; i++) {
+			cells[i] = new Pair(iBuf.get(), iBuf.get());
+		}
+
+		return cells;
+	}
+
+	private Entry getEntry(final String fileName) throws IOException {
+		final Entry entry = entries.get(fileName);
+		if (entry == null) {
+			throw new IOException("No data for file " + fileName + " in landscape bundle " + bundlePath);
+		}
+		return entry;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private void verify(final String what, final boolean checksumMatches) throws IOException {
+		if (!checksumMatches) {
+			throw new IOException("Checksum mismatch for " + what + " in landscape bundle " + bundlePath
+					+ ", delete it to rebuild it from the data files");
+		}
+	}
+
+	/**
+	 * Returns the size of a layer in bytes, which must fit in a single buffer.
+	 */
+	private static int layerBytes(final String fileName, final DataFileMetaData md) throws IOException {
+		final long bytes = (long) md.getNcols() * md.getNrows() * 8;
+		if (md.getNcols() <= 0 || md.getNrows() <= 0 || bytes > Integer.MAX_VALUE) {
+			throw new IOException("Invalid size of " + fileName + " for a landscape bundle: " + md.getNcols() + "x"
+					+ md.getNrows());
+		}
+		return (int) bytes;
+	}
+
+	private static void checkWithinFile(final FileChannel channel, final long offset, final long length,
+			final Path bundlePath) throws IOException {
+		if (offset < 0 || length < 0 || offset + length > channel.size()) {
+			throw new IOException("Truncated or corrupt landscape bundle " + bundlePath);
+		}
+	}
+
+	private static byte[] serializeHeader(final long sourceFingerprint, final Map<String, DataFileMetaData> metaData,
+			final long[] offsets, final long[] crcs, final int foodCellCount, final long foodCellOffset,
+			final long foodCellCrc) throws IOException {
+		final ByteArrayOutputStream bOut = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bOut)) {
+			out.writeLong(sourceFingerprint);
+			out.writeInt(metaData.size());
+			int i = 0;
+			for (final Map.Entry<String, DataFileMetaData> e : metaData.entrySet()) {
+				final DataFileMetaData md = e.getValue();
+				out.writeUTF(e.getKey());
+				out.writeInt(md.getNcols());
+				out.writeInt(md.getNrows());
+				out.writeDouble(md.getXllcorner());
+				out.writeDouble(md.getYllcorner());
+				out.writeInt(md.getCellsize());
+				out.writeLong(offsets[i]);
+				out.writeLong(crcs[i]);
+				i++;
+			}
+			out.writeInt(foodCellCount);
+			out.writeLong(foodCellOffset);
+			out.writeLong(foodCellCrc);
+		}
+
+		return bOut.toByteArray();
+	}
+
+	private static long crc(final byte[] data, final int offset, final int length) {
+		final CRC32 crc = new CRC32();
+		crc.update(data, offset, length);
+		return crc.getValue();
+	}
+
+	private static long crc(final FileChannel channel, final long offset, final long length) throws IOException {
+		final CRC32 crc = new CRC32();
+		final ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+		long position = offset;
+		final long end = offset + length;
+		while (position < end) {
+			buf.clear();
+			buf.limit((int) Math.min(buf.capacity(), end - position));
+			final int read = channel.read(buf, position);
+			if (read < 0) {
+				throw new IOException("Unexpected end of landscape bundle");
+			}
+			crc.update(buf.array(), 0, read);
+			position += read;
+		}
+		return crc.getValue();
+	}
+
+	private static void readFully(final FileChannel channel, final ByteBuffer buf, final long offset)
+			throws IOException {
+		long position = offset;
+		while (buf.hasRemaining()) {
+			final int read = channel.read(buf, position);
+			if (read < 0) {
+				throw new IOException("Unexpected end of landscape bundle");
+			}
+			position += read;
+		}
+	}
+
+	private static void writeFully(final FileChannel channel, final ByteBuffer buf, final long offset)
+			throws IOException {
+		long position = offset;
+		while (buf.hasRemaining()) {
+			position += channel.write(buf, position);
+		}
+	}
+
+	private static final class Entry {
+		private final DataFileMetaData metaData;
+		private final long offset;
+		private final long crc;
+		private volatile boolean verified; // Whether the checksum of the layer has been checked
+
+		private Entry(final DataFileMetaData metaData, final long offset, final long crc) {
+			this.metaData = metaData;
+			this.offset = offset;
+			this.crc = crc;
+		}
+	}
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise.landscape;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Command line tool converting landscapes to binary landscape bundles. The landscapes to convert are passed as
+ * arguments. Without arguments all landscapes found in the data directory are converted. With the option
+ * <code>--series</code>, the prey and salinity files of the landscapes are converted to layer series archives instead.
+ *
+ * The tool must be run from the model directory, i.e. the directory containing the data directory.
+ */
+public final class LandscapeBundleConverter {
+
+	private LandscapeBundleConverter() {
+		// Utility class, prevent instances.
+	}
+
+	public static void main(final String[] args) throws IOException {
+		final Set<String> landscapes = new TreeSet<>();
+		boolean series = false;
+		for (final String arg : args) {
+			if ("--series".equals(arg)) {
+				series = true;
+			} else {
+				landscapes.add(arg);
+			}
+		}
+		if (landscapes.isEmpty()) {
+			final File[] files = new File("data").listFiles();
+			if (files != null) {
+				for (final File f : files) {
+					if (f.isDirectory() && new File(f, LandscapeLoader.BATHY_FILE).isFile()) {
+						landscapes.add(f.getName());
+					} else if (f.isFile() && f.getName().endsWith(LandscapeLoader.FILE_EXT_ZIP)) {
+						landscapes.add(f.getName().substring(0,
+								f.getName().length() - LandscapeLoader.FILE_EXT_ZIP.length()));
+					}
+				}
+			}
+		}
+
+		int failed = 0;
+		for (final String landscape : landscapes) {
+			try {
+				final long start = System.currentTimeMillis();
+				final LandscapeLoader loader = new LandscapeLoader(landscape);
+				final Path converted = series ? loader.convertToSeries() : loader.convertToBundle();
+				System.out.printf("Converted landscape %s to %s in %d ms%n", landscape, converted,
+						System.currentTimeMillis() - start);
+			} catch (final IOException e) {
+				System.err.println("Unable to convert landscape " + landscape + ": " + e.getMessage());
+				failed++;
+			}
+		}
+
+		if (failed > 0) {
+			System.exit(1);
+		}
+	}
+
+}
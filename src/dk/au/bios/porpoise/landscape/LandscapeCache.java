@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise.landscape;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import dk.au.bios.porpoise.Globals;
+import dk.au.bios.porpoise.SimulationParameters;
+
+/**
+ * Process-wide registry of loaded landscapes. Batch runs in the same JVM using the same landscape share the read-only
+ * layers of the landscape, while each run gets its own food levels (see {@link CellData#CellData(CellData)}).
+ *
+ * A cached landscape is identified by its name, including the window when only part of it is loaded, and the
+ * fingerprint of its data files. When the files change, the cached landscape is closed and loaded again.
+ *
+ * At most {@link SimulationParameters#getLandscapeCacheSize()} landscapes are kept, when another landscape is added
+ * the least recently used landscapes are closed. The runs in a JVM share Globals and therefore run one at a time, so
+ * a landscape closed by a new run is no longer used by an earlier run.
+ */
+public final class LandscapeCache {
+
+	// In access order, the least recently used landscape first
+	private static final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	private LandscapeCache() {
+		// Utility class, prevent instances.
+	}
+
+	/**
+	 * Creates the CellData for a new run from a cached landscape. The landscape meta data in Globals is updated to
+	 * match the landscape.
+	 *
+	 * @param landscape The name of the landscape.
+	 * @param fingerprint The fingerprint of the landscape data files.
+	 * @return The CellData for the run, or null if the landscape is not cached.
+	 */
+	public static synchronized CellData newRunData(final String landscape, final long fingerprint) {
+		final Entry entry = entries.get(landscape);
+		if (entry == null) {
+			return null;
+		}
+
+		if (entry.fingerprint != fingerprint) {
+			System.out.println("Landscape " + landscape + " has changed, reloading");
+			entries.remove(landscape);
+			entry.shared.close();
+			return null;
+		}
+
+		Globals.setLandscapeMetadata(entry.metaData);
+		return new CellData(entry.shared);
+	}
+
+	/**
+	 * Adds a loaded landscape to the cache. The cache takes ownership of the CellData and closes it when it is
+	 * replaced or evicted. The least recently used landscapes are evicted when the cache holds more than
+	 * {@link SimulationParameters#getLandscapeCacheSize()} landscapes, the added landscape is always kept.
+	 *
+	 * @param landscape The name of the landscape.
+	 * @param fingerprint The fingerprint of the landscape data files.
+	 * @param metaData The landscape meta data.
+	 * @param shared The loaded landscape. It must not be used directly by a run.
+	 */
+	public static synchronized void put(final String landscape, final long fingerprint,
+			final DataFileMetaData metaData, final CellData shared) {
+		final Entry previous = entries.put(landscape, new Entry(fingerprint, metaData, shared));
+		if (previous != null && previous.shared != shared) {
+			previous.shared.close();
+		}
+
+		final int maxSize = Math.max(1, SimulationParameters.getLandscapeCacheSize());
+		final Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+		while (entries.size() > maxSize) {
+			final Map.Entry<String, Entry> eldest = it.next();
+			System.out.println("Landscape " + eldest.getKey() + " evicted from the landscape cache");
+			it.remove();
+			eldest.getValue().shared.close();
+		}
+	}
+
+	/**
+	 * Whether a landscape is cached, without counting as a use of it.
+	 *
+	 * @param landscape The name of the landscape.
+	 * @return true if the landscape is cached.
+	 */
+	static synchronized boolean contains(final String landscape) {
+		return entries.containsKey(landscape);
+	}
+
+	/**
+	 * Closes and removes all cached landscapes.
+	 */
+	public static synchronized void clear() {
+		for (final Entry entry : entries.values()) {
+			entry.shared.close();
+		}
+		entries.clear();
+	}
+
+	private static final class Entry {
+		private final long fingerprint;
+		private final DataFileMetaData metaData;
+		private final CellData shared;
+
+		private Entry(final long fingerprint, final DataFileMetaData metaData, final CellData shared) {
+			this.fingerprint = fingerprint;
+			this.metaData = metaData;
+			this.shared = shared;
+		}
+	}
+
+}
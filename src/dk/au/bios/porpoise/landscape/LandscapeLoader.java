@@ -33,9 +33,11 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import dk.au.bios.porpoise.Globals;
+import dk.au.bios.porpoise.SimulationParameters;
 
 /**
  * Loads the landscape data files and returns a CellData instance.
@@ -46,6 +48,8 @@ public class LandscapeLoader {
 	public static final String FILE_EXT_ASC = ".asc";
 	public static final String FILE_EXT_TIF = ".tif";
 	public static final String FILE_EXT_ZIP = ".zip";
+	public static final String FILE_EXT_BUNDLE = ".bundle";
+	public static final String FILE_EXT_SERIES = ".series";
 	public static final String FILE_EXT = FILE_EXT_ASC;
 
 	public static final String BATHY_FILE = "bathy" + FILE_EXT;
@@ -56,29 +60,319 @@ public class LandscapeLoader {
 	public static final String SALINITY_FILE_PREFIX = "salinity";
 
 	private final String landscape;
+	private final String window;
+	private final String storage;
 
 	public LandscapeLoader(final String landscape) {
+		this(landscape, null);
+	}
+
+	/**
+	 * Creates a loader reading only a window of the landscape.
+	 *
+	 * @param landscape The name of the landscape.
+	 * @param window The bounding box of the window in the coordinates of the landscape (UTM), as
+	 *        "minX;minY;maxX;maxY". The whole landscape is loaded if null.
+	 */
+	public LandscapeLoader(final String landscape, final String window) {
+		this(landscape, window, null);
+	}
+
+	/**
+	 * Creates a loader reading only a window of the landscape and holding the layers in the precision configured.
+	 *
+	 * @param landscape The name of the landscape.
+	 * @param window The bounding box of the window in the coordinates of the landscape (UTM), as
+	 *        "minX;minY;maxX;maxY". The whole landscape is loaded if null.
+	 * @param storage The precision of the layers, see {@link LayerStorage}. The layers are held as double values if
+	 *        null.
+	 */
+	public LandscapeLoader(final String landscape, final String window, final String storage) {
 		this.landscape = landscape;
+		this.window = window;
+		this.storage = storage;
 	}
 
+	/**
+	 * Loads the landscape for a simulation run. A landscape already loaded by an earlier run in this JVM is reused
+	 * through the {@link LandscapeCache} as long as its data files are unchanged. When a window is given, only that
+	 * part of each layer is loaded, and the landscape meta data in Globals describes the window.
+	 *
+	 * @return The landscape data for the run.
+	 * @throws IOException Thrown if the landscape cannot be loaded.
+	 */
 	public CellData load() throws IOException {
-		List<CellDataSource> sources = new ArrayList<>(2);
+		final LayerStorage layerStorage = LayerStorage.parse(storage);
+		final long fingerprint = LandscapeBundle.fingerprint(getFingerprintPaths());
+
+		String cacheKey = window != null ? landscape + "[" + window + "]" : landscape;
+		if (!layerStorage.isDefault()) {
+			cacheKey += "{" + layerStorage + "}";
+		}
+		CellData cellData = LandscapeCache.newRunData(cacheKey, fingerprint);
+		if (cellData == null) {
+			final CellData shared = loadShared(layerStorage);
+			// Loading may have rebuilt the landscape bundle, so the fingerprint is taken again
+			LandscapeCache.put(cacheKey, LandscapeBundle.fingerprint(getFingerprintPaths()),
+					Globals.getLandscapeMetadata(), shared);
+			cellData = new CellData(shared);
+		}
+		cellData.initializeFoodPatches();
+
+		return cellData;
+	}
+
+	private CellData loadShared(final LayerStorage layerStorage) throws IOException {
+		final List<CellDataSource> sources = addSeriesSource(createSources());
+
+		try {
+			initLandscape(sources);
+			if (SimulationParameters.LANDSCAPE_HOMOGENOUS_NAME.equals(landscape)) {
+				// The layers of the homogeneous landscape are computed, only the patches are read
+				return new CellData(landscape,
+						applyWindow(Collections.singletonList(new HomogeneousCellDataSource(sources))), layerStorage);
+			}
+			return new CellData(landscape, applyWindow(sources), layerStorage);
+		} catch (IOException | RuntimeException e) {
+			closeSources(sources);
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads a single data file of the landscape outside of a simulation, e.g. for tools and benchmarks. Of the files
+	 * matching the pattern, the first in name order is read, with the window applied. The landscape meta data in
+	 * Globals is set to describe the landscape.
+	 *
+	 * @param pattern Regular expression matching the names of the data files, e.g. "salinity.*\\.asc".
+	 * @return The data of the file indexed as [x][y].
+	 * @throws IOException Thrown if no file matches or the file cannot be read.
+	 */
+	public double[][] readDataFile(final String pattern) throws IOException {
+		final List<CellDataSource> sources = addSeriesSource(createSources());
+		try {
+			initLandscape(sources);
+			CellDataSource fileSource = null;
+			String fileName = null;
+			for (final CellDataSource src : applyWindow(sources)) {
+				for (final String name : src.getNamesMatching(pattern)) {
+					if (fileName == null || name.compareTo(fileName) < 0) {
+						fileSource = src;
+						fileName = name;
+					}
+				}
+			}
+			if (fileSource == null) {
+				throw new FileNotFoundException("No data file matching " + pattern + " in landscape " + landscape);
+			}
+			return fileSource.getData(fileName);
+		} finally {
+			closeSources(sources);
+		}
+	}
+
+	/**
+	 * Converts the landscape data files to a binary landscape bundle, replacing any existing bundle.
+	 *
+	 * @return The path of the bundle written.
+	 * @throws IOException Thrown if the landscape cannot be read or the bundle cannot be written.
+	 */
+	public Path convertToBundle() throws IOException {
+		final List<Path> sourcePaths = getSourcePaths();
+		if (sourcePaths.isEmpty()) {
+			throw new FileNotFoundException("No data files found for landscape " + landscape);
+		}
+
+		final Path bundlePath = Paths.get(DATA_PATH, landscape + FILE_EXT_BUNDLE);
+		writeBundle(bundlePath, sourcePaths).close();
+
+		return bundlePath;
+	}
+
+	/**
+	 * Converts the prey and salinity files of the landscape to a layer series archive, replacing any existing
+	 * archive. Once converted, the monthly files may be removed from the landscape.
+	 *
+	 * @return The path of the archive written.
+	 * @throws IOException Thrown if the landscape cannot be read or the archive cannot be written.
+	 */
+	public Path convertToSeries() throws IOException {
+		final List<Path> sourcePaths = getSourcePaths();
+		if (sourcePaths.isEmpty()) {
+			throw new FileNotFoundException("No data files found for landscape " + landscape);
+		}
+
+		final Path seriesPath = Paths.get(DATA_PATH, landscape + FILE_EXT_SERIES);
+		final List<CellDataSource> fileSources = createFileSources(sourcePaths);
+		try {
+			initLandscape(fileSources);
+			LayerSeriesArchive.write(seriesPath, fileSources);
+		} finally {
+			closeSources(fileSources);
+		}
+
+		return seriesPath;
+	}
+
+	/**
+	 * Adds the layer series archive of the landscape, if any, as the last source. The prey and salinity files are
+	 * then read from the archive, as the last source holding a monthly file is used.
+	 */
+	private List<CellDataSource> addSeriesSource(final List<CellDataSource> sources) throws IOException {
+		final Path seriesPath = Paths.get(DATA_PATH, landscape + FILE_EXT_SERIES);
+		if (!Files.exists(seriesPath)) {
+			return sources;
+		}
+
+		try {
+			final LayerSeriesArchive archive = LayerSeriesArchive.open(seriesPath);
+			System.out.println("Reading prey and salinity data of landscape " + landscape + " from " + seriesPath);
+			final List<CellDataSource> withSeries = new ArrayList<>(sources);
+			withSeries.add(new SeriesCellDataSource(archive));
+			return withSeries;
+		} catch (IOException e) {
+			System.out.println("Layer series archive " + seriesPath + " is not valid: " + e.getMessage());
+			return sources;
+		}
+	}
+
+	/**
+	 * Creates the sources to load the landscape from. A valid landscape bundle is preferred over the data files. If
+	 * the bundle is stale, i.e. the data files have changed since it was created, or its header is damaged, it is
+	 * rebuilt from the data files. A damaged layer is only detected when it is read, see LandscapeBundle.
+	 */
+	private List<CellDataSource> createSources() throws IOException {
+		final List<Path> sourcePaths = getSourcePaths();
+
+		final Path bundlePath = Paths.get(DATA_PATH, landscape + FILE_EXT_BUNDLE);
+		if (Files.exists(bundlePath)) {
+			LandscapeBundle bundle = null;
+			try {
+				bundle = LandscapeBundle.open(bundlePath);
+			} catch (IOException e) {
+				System.out.println("Landscape bundle " + bundlePath + " is not valid: " + e.getMessage());
+			}
+
+			if (bundle != null && (sourcePaths.isEmpty()
+					|| bundle.getSourceFingerprint() == LandscapeBundle.fingerprint(sourcePaths))) {
+				return Collections.singletonList(new BundleCellDataSource(bundle));
+			}
+			if (bundle != null) {
+				bundle.close();
+			}
+
+			if (!sourcePaths.isEmpty()) {
+				System.out.println("Rebuilding landscape bundle " + bundlePath);
+				try {
+					return Collections.singletonList(new BundleCellDataSource(writeBundle(bundlePath, sourcePaths)));
+				} catch (IOException e) {
+					System.out.println("Unable to rebuild landscape bundle " + bundlePath + ", using data files: "
+							+ e.getMessage());
+				}
+			}
+		}
+
+		return createFileSources(sourcePaths);
+	}
+
+	private LandscapeBundle writeBundle(final Path bundlePath, final List<Path> sourcePaths) throws IOException {
+		final List<CellDataSource> fileSources = createFileSources(sourcePaths);
+		try {
+			initLandscape(fileSources);
+			LandscapeBundle.write(bundlePath, fileSources, LandscapeBundle.fingerprint(sourcePaths));
+		} finally {
+			closeSources(fileSources);
+		}
+
+		return LandscapeBundle.open(bundlePath);
+	}
+
+	private List<Path> getSourcePaths() {
+		final List<Path> paths = new ArrayList<>(2);
 
 		Path basePath = Paths.get(DATA_PATH, landscape);
 		if (Files.isDirectory(basePath)) {
-			sources.add(new DirectoryCellDataSource(basePath));
+			paths.add(basePath);
 		}
 
 		Path zipFilePath = Paths.get(DATA_PATH, landscape + FILE_EXT_ZIP);
 		if (Files.exists(zipFilePath)) {
-			sources.add(new ZipFileCellDataSource(zipFilePath));
+			paths.add(zipFilePath);
 		}
 
-		initLandscape(sources);
-		final CellData cellData = new CellData(landscape, sources);
-		cellData.initializeFoodPatches();
+		return paths;
+	}
 
-		return cellData;
+	/**
+	 * The files identifying the current content of the landscape: the data files, the bundle and the layer series
+	 * archive, if any.
+	 */
+	private List<Path> getFingerprintPaths() {
+		final List<Path> paths = getSourcePaths();
+
+		final Path bundlePath = Paths.get(DATA_PATH, landscape + FILE_EXT_BUNDLE);
+		if (Files.exists(bundlePath)) {
+			paths.add(bundlePath);
+		}
+
+		final Path seriesPath = Paths.get(DATA_PATH, landscape + FILE_EXT_SERIES);
+		if (Files.exists(seriesPath)) {
+			paths.add(seriesPath);
+		}
+
+		return paths;
+	}
+
+	private List<CellDataSource> createFileSources(final List<Path> sourcePaths) throws IOException {
+		List<CellDataSource> sources = new ArrayList<>(2);
+
+		try {
+			for (Path path : sourcePaths) {
+				if (Files.isDirectory(path)) {
+					sources.add(new DirectoryCellDataSource(path));
+				} else {
+					sources.add(new ZipFileCellDataSource(path));
+				}
+			}
+		} catch (IOException e) {
+			closeSources(sources);
+			throw e;
+		}
+
+		return sources;
+	}
+
+	/**
+	 * Restricts the sources to the window, or the whole grid if no window is given, and updates the landscape meta
+	 * data in Globals to match. Layers read on first access are thereby read with the grid of this landscape, also
+	 * if Globals has since been changed by another run.
+	 */
+	private List<CellDataSource> applyWindow(final List<CellDataSource> sources) throws IOException {
+		final DataFileMetaData metadata = Globals.getLandscapeMetadata();
+		final GridWindow gridWindow;
+		if (window == null) {
+			gridWindow = GridWindow.full(metadata.getNcols(), metadata.getNrows());
+		} else {
+			gridWindow = GridWindow.fromBoundingBox(window, metadata);
+			System.out.println("Loading window " + gridWindow + " of landscape " + landscape);
+			Globals.setLandscapeMetadata(gridWindow.applyTo(metadata));
+		}
+
+		final List<CellDataSource> windowed = new ArrayList<>(sources.size());
+		for (CellDataSource src : sources) {
+			windowed.add(new WindowedCellDataSource(src, gridWindow));
+		}
+		return windowed;
+	}
+
+	private static void closeSources(final List<CellDataSource> sources) {
+		for (CellDataSource src : sources) {
+			try {
+				src.close();
+			} catch (IOException e) {
+				System.out.println("Unable to close landscape data source: " + e.getMessage());
+			}
+		}
 	}
 
 	/**
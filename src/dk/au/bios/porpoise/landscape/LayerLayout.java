@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise.landscape;
+
+/**
+ * The arrangement of the cells of a landscape layer in memory, configured with the {@link LayerStorage}. The values
+ * are the same in all layouts, only the time taken to look them up differs.
+ * <ul>
+ * <li>ARRAYS: an array per column, indexed [x][y] as the data is read. Layers held as double values in this layout
+ * and without a halo are looked up in the array read directly.</li>
+ * <li>FLAT: a single array per layer, column after column, saving the indirection through the column arrays. As all
+ * layers use the same positions, the depth, salinity and food of a cell are found at the same position in each
+ * array.</li>
+ * </ul>
+ */
+public enum LayerLayout {
+
+	ARRAYS, FLAT;
+
+	/**
+	 * Creates the mapping of cells for layers held in a single array.
+	 */
+	public CellIndex index(final int width, final int height) {
+		return index(width, height, 0);
+	}
+
+	/**
+	 * Creates the mapping of cells for layers held in a single array with a halo around the layer. Layers with a halo
+	 * are held in a single array also in the ARRAYS layout, column after column like FLAT.
+	 */
+	public CellIndex index(final int width, final int height, final int halo) {
+		return CellIndex.flat(width, height, halo);
+	}
+
+}
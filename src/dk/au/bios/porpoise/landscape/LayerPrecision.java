@@ -0,0 +1,448 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise.landscape;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The precision a landscape layer is held in. Layers read from the data files are held as double values unless
+ * configured otherwise, see {@link LayerStorage}. The reduced precisions use less memory:
+ * <ul>
+ * <li>FLOAT: the values rounded to float.</li>
+ * <li>INT and BYTE: the values must be whole numbers within the range of the type.</li>
+ * <li>SHORT: the values are rounded to the multiple of a power of two fitting the largest value of the layer in 15
+ * bits. Whole numbers of layers with values up to 32767 are held exactly, and {@link #NO_DATA} is always kept.</li>
+ * </ul>
+ * Layers in reduced precision are held in a single array, in the {@link LayerLayout} configured and with the halo
+ * configured (see {@link CellIndex}).
+ */
+public enum LayerPrecision {
+
+	DOUBLE(8), FLOAT(4), INT(4), SHORT(2), BYTE(1);
+
+	/**
+	 * The value of cells without data.
+	 */
+	public static final double NO_DATA = -9999.0;
+
+	private static final double FLOAT_NO_DATA_MAGNITUDE = 1E38;
+
+	private final int bytesPerCell;
+
+	LayerPrecision(final int bytesPerCell) {
+		this.bytesPerCell = bytesPerCell;
+	}
+
+	public int getBytesPerCell() {
+		return bytesPerCell;
+	}
+
+	/**
+	 * Creates a layer holding the data in this precision, in arrays indexed [x][y].
+	 *
+	 * @param data The data indexed as [x][y].
+	 * @return The layer. Layers in double precision are backed by the array passed.
+	 * @throws IOException Thrown if the values of the data cannot be held in this precision.
+	 */
+	public GridLayer store(final double[][] data) throws IOException {
+		return store(data, LayerLayout.ARRAYS, 0);
+	}
+
+	/**
+	 * Creates a layer holding the data in this precision and layout, without a halo.
+	 *
+	 * @see #store(double[][], LayerLayout, int)
+	 */
+	public GridLayer store(final double[][] data, final LayerLayout layout) throws IOException {
+		return store(data, layout, 0);
+	}
+
+	/**
+	 * Creates a layer holding the data in this precision and layout.
+	 *
+	 * @param data The data indexed as [x][y].
+	 * @param layout The arrangement of the cells in memory. Only layers in double precision without a halo are held
+	 *        in arrays indexed [x][y], the other layers are always held in a single array.
+	 * @param halo The number of cells held around each side of the layer, see {@link CellIndex}.
+	 * @return The layer. Layers in double precision, the ARRAYS layout and without a halo are backed by the array
+	 *         passed.
+	 * @throws IOException Thrown if the values of the data cannot be held in this precision.
+	 */
+	public GridLayer store(final double[][] data, final LayerLayout layout, final int halo) throws IOException {
+		final int width = data.length;
+		final int height = data[0].length;
+		if (this == DOUBLE && layout == LayerLayout.ARRAYS && halo == 0) {
+			return GridLayer.of(data);
+		}
+
+		final CellIndex index = layout.index(width, height, halo);
+		switch (this) {
+		case DOUBLE: {
+			final double[] values = new double[index.size()];
+			Arrays.fill(values, NO_DATA);
+			for (int x = 0; x < width; x++) {
+				for (int y = 0; y < height; y++) {
+					values[index.of(x, y)] = data[x][y];
+				}
+			}
+			return new DoubleLayer(values, index);
+		}
+		case FLOAT: {
+			final float[] values = new float[index.size()];
+			Arrays.fill(values, (float) NO_DATA);
+			for (int x = 0; x < width; x++) {
+				for (int y = 0; y < height; y++) {
+					values[index.of(x, y)] = (float) data[x][y];
+				}
+			}
+			return new FloatLayer(values, index);
+		}
+		case INT: {
+			final int[] values = new int[index.size()];
+			Arrays.fill(values, (int) NO_DATA);
+			for (int x = 0; x < width; x++) {
+				for (int y = 0; y < height; y++) {
+					values[index.of(x, y)] = (int) checkWhole(data[x][y], Integer.MIN_VALUE, Integer.MAX_VALUE);
+				}
+			}
+			return new IntLayer(values, index);
+		}
+		case SHORT: {
+			double maxAbs = 0;
+			for (final double[] column : data) {
+				for (final double v : column) {
+					if (Double.isNaN(v) || Double.isInfinite(v)) {
+						throw new IOException("Value " + v + " cannot be held as " + this);
+					}
+					if (v != NO_DATA) {
+						maxAbs = Math.max(maxAbs, Math.abs(v));
+					}
+				}
+			}
+			// The smallest power of two step size for which the largest value fits
+			int exponent = maxAbs > 0 ? Math.getExponent(maxAbs / Short.MAX_VALUE) : 0;
+			while (Math.round(Math.scalb(maxAbs, -exponent)) > Short.MAX_VALUE) {
+				exponent++;
+			}
+			final short[] values = new short[index.size()];
+			Arrays.fill(values, Short.MIN_VALUE);
+			for (int x = 0; x < width; x++) {
+				for (int y = 0; y < height; y++) {
+					values[index.of(x, y)] = data[x][y] == NO_DATA ? Short.MIN_VALUE
+							: (short) Math.round(Math.scalb(data[x][y], -exponent));
+				}
+			}
+			return new ShortLayer(values, index, exponent);
+		}
+		case BYTE: {
+			final byte[] values = new byte[index.size()];
+			for (int x = 0; x < width; x++) {
+				for (int y = 0; y < height; y++) {
+					values[index.of(x, y)] = (byte) checkWhole(data[x][y], Byte.MIN_VALUE, Byte.MAX_VALUE);
+				}
+			}
+			return new ByteLayer(values, index);
+		}
+		default:
+			throw new IllegalStateException("Unknown precision " + this);
+		}
+	}
+
+	/**
+	 * Creates a layer for values changing during the simulation, with all cells set to zero, in arrays indexed
+	 * [x][y].
+	 *
+	 * @throws UnsupportedOperationException Thrown for the precisions only holding whole numbers.
+	 */
+	public MutableGridLayer allocate(final int width, final int height) {
+		return allocate(width, height, LayerLayout.ARRAYS, 0);
+	}
+
+	/**
+	 * Creates a layer for values changing during the simulation, with all cells set to zero, without a halo.
+	 *
+	 * @throws UnsupportedOperationException Thrown for the precisions only holding whole numbers.
+	 */
+	public MutableGridLayer allocate(final int width, final int height, final LayerLayout layout) {
+		return allocate(width, height, layout, 0);
+	}
+
+	/**
+	 * Creates a layer for values changing during the simulation, with all cells set to zero and the cells of the halo
+	 * to {@link #NO_DATA}.
+	 *
+	 * @throws UnsupportedOperationException Thrown for the precisions only holding whole numbers.
+	 */
+	public MutableGridLayer allocate(final int width, final int height, final LayerLayout layout, final int halo) {
+		if (this == DOUBLE && layout == LayerLayout.ARRAYS && halo == 0) {
+			return new DoubleMutableLayer(new double[width][height]);
+		}
+
+		final CellIndex index = layout.index(width, height, halo);
+		switch (this) {
+		case DOUBLE: {
+			final double[] values = new double[index.size()];
+			if (halo > 0) {
+				Arrays.fill(values, NO_DATA);
+				for (int x = 0; x < width; x++) {
+					for (int y = 0; y < height; y++) {
+						values[index.of(x, y)] = 0;
+					}
+				}
+			}
+			return new DoubleLayer(values, index);
+		}
+		case FLOAT: {
+			final float[] values = new float[index.size()];
+			if (halo > 0) {
+				Arrays.fill(values, (float) NO_DATA);
+				for (int x = 0; x < width; x++) {
+					for (int y = 0; y < height; y++) {
+						values[index.of(x, y)] = 0;
+					}
+				}
+			}
+			return new FloatLayer(values, index);
+		}
+		default:
+			throw new UnsupportedOperationException("Changing values cannot be held as " + this);
+		}
+	}
+
+	/**
+	 * Returns the largest difference between the data and the values held by a layer created from it. Cells without
+	 * data, i.e. {@link #NO_DATA} or the no data value of float grids (around -3.4E38), are not compared.
+	 */
+	public static double maxDifference(final double[][] data, final GridLayer layer) {
+		double max = 0;
+		for (int x = 0; x < data.length; x++) {
+			for (int y = 0; y < data[x].length; y++) {
+				final double a = data[x][y];
+				final double b = layer.getValue(x, y);
+				if (a != b && a != NO_DATA && Math.abs(a) < FLOAT_NO_DATA_MAGNITUDE
+						&& !(Double.isNaN(a) && Double.isNaN(b))) {
+					max = Math.max(max, Math.abs(a - b));
+				}
+			}
+		}
+		return max;
+	}
+
+	private double checkWhole(final double value, final long min, final long max) throws IOException {
+		if (value != Math.rint(value) || value < min || value > max) {
+			throw new IOException("Value " + value + " cannot be held as " + this);
+		}
+		return value;
+	}
+
+	/**
+	 * A layer held in a single array, see {@link CellIndex}. The lookups are implemented by each precision rather than
+	 * here, so each is compiled for its own array type.
+	 */
+	private abstract static class IndexedLayer implements GridLayer {
+		protected final CellIndex index;
+
+		private IndexedLayer(final CellIndex index) {
+			this.index = index;
+		}
+
+		@Override
+		public int getWidth() {
+			return index.getWidth();
+		}
+
+		@Override
+		public int getHeight() {
+			return index.getHeight();
+		}
+
+		@Override
+		public boolean isProcedural() {
+			return false;
+		}
+	}
+
+	private static final class DoubleLayer extends IndexedLayer implements MutableGridLayer {
+		private final double[] values;
+
+		private DoubleLayer(final double[] values, final CellIndex index) {
+			super(index);
+			this.values = values;
+		}
+
+		@Override
+		public double getValue(final int x, final int y) {
+			return values[index.of(x, y)];
+		}
+
+		@Override
+		public double getValueOrNoData(final int x, final int y) {
+			final int i = index.inHalo(x, y);
+			return i >= 0 ? values[i] : NO_DATA;
+		}
+
+		@Override
+		public void setValue(final int x, final int y, final double value) {
+			values[index.of(x, y)] = value;
+		}
+	}
+
+	private static final class FloatLayer extends IndexedLayer implements MutableGridLayer {
+		private final float[] values;
+
+		private FloatLayer(final float[] values, final CellIndex index) {
+			super(index);
+			this.values = values;
+		}
+
+		@Override
+		public double getValue(final int x, final int y) {
+			return values[index.of(x, y)];
+		}
+
+		@Override
+		public double getValueOrNoData(final int x, final int y) {
+			final int i = index.inHalo(x, y);
+			return i >= 0 ? values[i] : NO_DATA;
+		}
+
+		@Override
+		public void setValue(final int x, final int y, final double value) {
+			values[index.of(x, y)] = (float) value;
+		}
+	}
+
+	private static final class DoubleMutableLayer implements MutableGridLayer {
+		private final double[][] values;
+
+		private DoubleMutableLayer(final double[][] values) {
+			this.values = values;
+		}
+
+		@Override
+		public int getWidth() {
+			return values.length;
+		}
+
+		@Override
+		public int getHeight() {
+			return values[0].length;
+		}
+
+		@Override
+		public double getValue(final int x, final int y) {
+			return values[x][y];
+		}
+
+		@Override
+		public void setValue(final int x, final int y, final double value) {
+			values[x][y] = value;
+		}
+
+		@Override
+		public double[][] toArray() {
+			return values;
+		}
+
+		@Override
+		public boolean isProcedural() {
+			return false;
+		}
+	}
+
+	private static final class IntLayer extends IndexedLayer {
+		private final int[] values;
+
+		private IntLayer(final int[] values, final CellIndex index) {
+			super(index);
+			this.values = values;
+		}
+
+		@Override
+		public double getValue(final int x, final int y) {
+			return values[index.of(x, y)];
+		}
+
+		@Override
+		public double getValueOrNoData(final int x, final int y) {
+			final int i = index.inHalo(x, y);
+			return i >= 0 ? values[i] : NO_DATA;
+		}
+	}
+
+	private static final class ShortLayer extends IndexedLayer {
+		private final short[] values;
+		private final int exponent;
+
+		private ShortLayer(final short[] values, final CellIndex index, final int exponent) {
+			super(index);
+			this.values = values;
+			this.exponent = exponent;
+		}
+
+		@Override
+		public double getValue(final int x, final int y) {
+			return decode(values[index.of(x, y)]);
+		}
+
+		@Override
+		public double getValueOrNoData(final int x, final int y) {
+			final int i = index.inHalo(x, y);
+			return i >= 0 ? decode(values[i]) : NO_DATA;
+		}
+
+		private double decode(final short v) {
+			return v == Short.MIN_VALUE ? NO_DATA : Math.scalb((double) v, exponent);
+		}
+	}
+
+	/**
+	 * A layer of bytes, which cannot hold {@link LayerPrecision#NO_DATA} in the halo, so the cells outside the layer
+	 * are checked.
+	 */
+	private static final class ByteLayer extends IndexedLayer {
+		private final byte[] values;
+
+		private ByteLayer(final byte[] values, final CellIndex index) {
+			super(index);
+			this.values = values;
+		}
+
+		@Override
+		public double getValue(final int x, final int y) {
+			return values[index.of(x, y)];
+		}
+
+		@Override
+		public double getValueOrNoData(final int x, final int y) {
+			return index.contains(x, y) ? values[index.of(x, y)] : NO_DATA;
+		}
+	}
+
+}
@@ -0,0 +1,647 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise.landscape;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A compressed archive of the monthly (or yearly) prey and salinity files of a landscape. The files of each series,
+ * e.g. all prey files, are stored in chronological order. The first file of a series, and every
+ * {@link #KEY_FRAME_INTERVAL}th file after it, is stored as a key frame holding the complete grid. The other files are
+ * stored as the difference to the file before it: the bits of each value XOR'ed with the bits of the value of the
+ * same cell in the previous file. Unchanged cells give zero, and cells changing slightly share the sign, exponent and
+ * leading mantissa bits, so the records compress well. When only few cells change, just the changed cells are stored.
+ * The values are restored exactly.
+ *
+ * The layout of the file is:
+ *
+ * <pre>
+ * magic, version, number of files
+ * per file: name, ncols, nrows, xllcorner, yllcorner, cellsize, series, record type, offset, length, inflated
+ *           length, CRC32
+ * CRC32 of the header
+ * records, deflated:
+ *   key frame or dense difference: ncols * nrows longs, column by column, split into byte planes
+ *   sparse difference: number of changed cells, the distance from the previous changed cell for each changed cell
+ *                      as variable length integer, the XOR'ed values split into byte planes
+ * </pre>
+ *
+ * The header is validated when the archive is opened, each record when it is read. An opened archive keeps the file
+ * open until it is closed.
+ */
+public final class LayerSeriesArchive implements Closeable {
+
+	private static final byte[] MAGIC = "DEPONSLS".getBytes(StandardCharsets.US_ASCII);
+	private static final int VERSION = 1;
+
+	/**
+	 * The maximum number of files between two key frames, bounding the number of records read to restore a file
+	 * when the files are not read in order.
+	 */
+	public static final int KEY_FRAME_INTERVAL = 12;
+
+	private static final byte KEY_FRAME = 0;
+	private static final byte DENSE_DIFFERENCE = 1;
+	private static final byte SPARSE_DIFFERENCE = 2;
+
+	/**
+	 * The differences are stored sparsely when less than one in this number of cells change.
+	 */
+	private static final int SPARSE_FRACTION = 8;
+
+	/**
+	 * The data files stored in an archive. The first group identifies the series.
+	 */
+	public static final Pattern SERIES_FILE_PATTERN = Pattern.compile("^(" + LandscapeLoader.PREY_FILE_PREFIX + "|"
+			+ LandscapeLoader.SALINITY_FILE_PREFIX + ")\\d{4}_(\\d{2}|XX)\\" + LandscapeLoader.FILE_EXT_ASC + "$");
+
+	private final Path archivePath;
+	private final FileChannel channel;
+	private final List<Entry> entries;
+	private final Map<String, Integer> index;
+
+	/**
+	 * The last file restored in each series, the starting point for restoring the files following it. Guarded by
+	 * this.
+	 */
+	private final Map<Integer, Restored> lastRestored = new HashMap<>();
+
+	private LayerSeriesArchive(final Path archivePath, final FileChannel channel, final List<Entry> entries) {
+		this.archivePath = archivePath;
+		this.channel = channel;
+		this.entries = entries;
+		this.index = new HashMap<>();
+		for (int i = 0; i < entries.size(); i++) {
+			index.put(entries.get(i).name, i);
+		}
+	}
+
+	/**
+	 * Opens an archive and validates its header.
+	 *
+	 * @param archivePath The archive to open.
+	 * @return The opened archive.
+	 * @throws IOException Thrown if the archive cannot be read or is not valid.
+	 */
+	public static LayerSeriesArchive open(final Path archivePath) throws IOException {
+		final FileChannel channel = FileChannel.open(archivePath, StandardOpenOption.READ);
+		try {
+			final ByteBuffer prefix = ByteBuffer.allocate(MAGIC.length + 4 + 4);
+			readFully(channel, prefix, 0);
+			prefix.flip();
+			final byte[] magic = new byte[MAGIC.length];
+			prefix.get(magic);
+			for (int i = 0; i < MAGIC.length; i++) {
+				if (magic[i] != MAGIC[i]) {
+					throw new IOException(archivePath + " is not a layer series archive");
+				}
+			}
+			final int version = prefix.getInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported layer series archive version " + version + " in " + archivePath);
+			}
+			final int headerLength = prefix.getInt();
+			if (headerLength <= 0 || headerLength > channel.size()) {
+				throw new IOException("Invalid header length in layer series archive " + archivePath);
+			}
+
+			final ByteBuffer header = ByteBuffer.allocate(headerLength);
+			readFully(channel, header, prefix.capacity());
+			final ByteBuffer headerCrcBuf = ByteBuffer.allocate(8);
+			readFully(channel, headerCrcBuf, prefix.capacity() + headerLength);
+			headerCrcBuf.flip();
+			if (crc(header.array(), 0, headerLength) != headerCrcBuf.getLong()) {
+				throw new IOException("Header checksum mismatch in layer series archive " + archivePath);
+			}
+
+			final DataInputStream in = new DataInputStream(new ByteArrayInputStream(header.array()));
+			final int entryCount = in.readInt();
+			final List<Entry> entries = new ArrayList<>(entryCount);
+			for (int i = 0; i < entryCount; i++) {
+				final String name = in.readUTF();
+				final int ncols = in.readInt();
+				final int nrows = in.readInt();
+				final double xllcorner = in.readDouble();
+				final double yllcorner = in.readDouble();
+				final int cellsize = in.readInt();
+				final int series = in.readInt();
+				final byte type = in.readByte();
+				final long offset = in.readLong();
+				final int length = in.readInt();
+				final int inflatedLength = in.readInt();
+				final long crc = in.readLong();
+				final DataFileMetaData metaData = new DataFileMetaData(ncols, nrows, xllcorner, yllcorner, cellsize,
+						null);
+				if (type < KEY_FRAME || type > SPARSE_DIFFERENCE) {
+					throw new IOException("Invalid record type for " + name + " in layer series archive "
+							+ archivePath);
+				}
+				if (type != KEY_FRAME && (i == 0 || entries.get(i - 1).series != series
+						|| entries.get(i - 1).metaData.getNcols() != ncols
+						|| entries.get(i - 1).metaData.getNrows() != nrows)) {
+					throw new IOException("Missing key frame for " + name + " in layer series archive " + archivePath);
+				}
+				entries.add(new Entry(name, metaData, series, type, offset, length, inflatedLength, crc));
+			}
+
+			return new LayerSeriesArchive(archivePath, channel, entries);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Writes an archive containing the prey and salinity files available in the sources. If a file is available in
+	 * more than one source, the last source holding the file is used, as when the file is loaded during a
+	 * simulation.
+	 *
+	 * @param archivePath The archive file to write. An existing archive is replaced.
+	 * @param sources The sources to read the data files from.
+	 * @return The number of files written to the archive.
+	 * @throws IOException Thrown if the sources cannot be read or the archive cannot be written.
+	 */
+	public static int write(final Path archivePath, final List<CellDataSource> sources) throws IOException {
+		final Map<String, CellDataSource> files = new TreeMap<>();
+		for (final CellDataSource src : sources) {
+			for (final String name : src.getNamesMatching(SERIES_FILE_PATTERN.pattern())) {
+				files.put(name, src);
+			}
+		}
+
+		if (files.isEmpty()) {
+			throw new IOException("Unable to create layer series archive, no prey or salinity files found");
+		}
+
+		// The series of each file, numbered in order of appearance. The files of a series are adjacent as the
+		// file names start with the series name.
+		final Map<String, Integer> seriesIds = new LinkedHashMap<>();
+		final Map<String, DataFileMetaData> metaData = new LinkedHashMap<>();
+		final int[] series = new int[files.size()];
+		int i = 0;
+		for (final Map.Entry<String, CellDataSource> file : files.entrySet()) {
+			final Matcher m = SERIES_FILE_PATTERN.matcher(file.getKey());
+			m.matches();
+			final Integer id = seriesIds.computeIfAbsent(m.group(1), s -> seriesIds.size());
+			series[i++] = id;
+			metaData.put(file.getKey(), file.getValue().getMetaData(file.getKey()));
+		}
+
+		// All header fields are of fixed size, so the header is first serialized with placeholder values to
+		// determine its length.
+		final int n = metaData.size();
+		final int headerLength = serializeHeader(metaData, series, new byte[n], new long[n], new int[n], new int[n],
+				new long[n]).length;
+		final long dataStart = MAGIC.length + 4 + 4 + headerLength + 8;
+
+		final byte[] types = new byte[n];
+		final long[] offsets = new long[n];
+		final int[] lengths = new int[n];
+		final int[] inflatedLengths = new int[n];
+		final long[] crcs = new long[n];
+
+		final Path tmpPath = archivePath.resolveSibling(archivePath.getFileName() + ".tmp");
+		final Deflater deflater = new Deflater();
+		try (FileChannel channel = FileChannel.open(tmpPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			long position = dataStart;
+			long[] previous = null;
+			int sinceKeyFrame = 0;
+			i = 0;
+			for (final Map.Entry<String, DataFileMetaData> file : metaData.entrySet()) {
+				final DataFileMetaData md = file.getValue();
+				final double[][] data = files.get(file.getKey()).getData(file.getKey());
+				if (data.length != md.getNcols() || data[0].length != md.getNrows()) {
+					throw new IOException("Dimensions of " + file.getKey() + " do not match its header");
+				}
+
+				final long[] bits = new long[md.getNcols() * md.getNrows()];
+				int c = 0;
+				for (final double[] column : data) {
+					for (final double v : column) {
+						bits[c++] = Double.doubleToRawLongBits(v);
+					}
+				}
+
+				final byte[] record;
+				if (i == 0 || series[i - 1] != series[i] || sinceKeyFrame + 1 >= KEY_FRAME_INTERVAL
+						|| previous.length != bits.length) {
+					types[i] = KEY_FRAME;
+					record = toBytePlanes(bits, bits.length);
+					sinceKeyFrame = 0;
+				} else {
+					final long[] difference = new long[bits.length];
+					int changed = 0;
+					for (int j = 0; j < bits.length; j++) {
+						difference[j] = bits[j] ^ previous[j];
+						if (difference[j] != 0) {
+							changed++;
+						}
+					}
+					if (changed < bits.length / SPARSE_FRACTION) {
+						types[i] = SPARSE_DIFFERENCE;
+						record = toSparseRecord(difference, changed);
+					} else {
+						types[i] = DENSE_DIFFERENCE;
+						record = toBytePlanes(difference, difference.length);
+					}
+					sinceKeyFrame++;
+				}
+				previous = bits;
+
+				final byte[] compressed = deflate(deflater, record);
+				offsets[i] = position;
+				lengths[i] = compressed.length;
+				inflatedLengths[i] = record.length;
+				crcs[i] = crc(compressed, 0, compressed.length);
+				writeFully(channel, ByteBuffer.wrap(compressed), position);
+				position += compressed.length;
+				i++;
+			}
+
+			final byte[] header = serializeHeader(metaData, series, types, offsets, lengths, inflatedLengths, crcs);
+			final ByteBuffer headerBuf = ByteBuffer.allocate(MAGIC.length + 4 + 4 + header.length + 8);
+			headerBuf.put(MAGIC);
+			headerBuf.putInt(VERSION);
+			headerBuf.putInt(header.length);
+			headerBuf.put(header);
+			headerBuf.putLong(crc(header, 0, header.length));
+			headerBuf.flip();
+			writeFully(channel, headerBuf, 0);
+		} catch (final IOException e) {
+			Files.deleteIfExists(tmpPath);
+			throw e;
+		} finally {
+			deflater.end();
+		}
+
+		Files.move(tmpPath, archivePath, StandardCopyOption.REPLACE_EXISTING);
+
+		return n;
+	}
+
+	public Path getPath() {
+		return archivePath;
+	}
+
+	public boolean hasData(final String fileName) {
+		return index.containsKey(fileName);
+	}
+
+	public List<String> getNames() {
+		final List<String> names = new ArrayList<>(entries.size());
+		for (final Entry e : entries) {
+			names.add(e.name);
+		}
+		return Collections.unmodifiableList(names);
+	}
+
+	public DataFileMetaData getMetaData(final String fileName) throws IOException {
+		return entries.get(getIndex(fileName)).metaData;
+	}
+
+	/**
+	 * Restores a data file. Reading the files of a series in order only reads the record of each file; otherwise the
+	 * records from the closest key frame are read.
+	 */
+	public synchronized double[][] getData(final String fileName) throws IOException {
+		final int target = getIndex(fileName);
+		final Entry entry = entries.get(target);
+
+		final Restored last = lastRestored.get(entry.series);
+		long[] bits;
+		int start = target;
+		if (last != null && last.index == target) {
+			bits = last.bits;
+			start = target + 1;
+		} else {
+			while (entries.get(start).type != KEY_FRAME && (last == null || last.index != start - 1)) {
+				start--;
+			}
+			bits = entries.get(start).type == KEY_FRAME ? null : last.bits.clone();
+		}
+
+		for (int i = start; i <= target; i++) {
+			final Entry e = entries.get(i);
+			final byte[] record = readRecord(e);
+			if (e.type == KEY_FRAME) {
+				bits = new long[e.metaData.getNcols() * e.metaData.getNrows()];
+				xorBytePlanes(record, 0, bits, null, bits.length);
+			} else if (e.type == DENSE_DIFFERENCE) {
+				xorBytePlanes(record, 0, bits, null, bits.length);
+			} else {
+				xorSparseRecord(e, record, bits);
+			}
+		}
+		lastRestored.put(entry.series, new Restored(target, bits));
+
+		final int ncols = entry.metaData.getNcols();
+		final int nrows = entry.metaData.getNrows();
+		final double[][] data = new double[ncols][nrows];
+		int c = 0;
+		for (final double[] column : data) {
+			for (int y = 0; y < nrows; y++) {
+				column[y] = Double.longBitsToDouble(bits[c++]);
+			}
+		}
+
+		return data;
+	}
+
+	private int getIndex(final String fileName) throws IOException {
+		final Integer i = index.get(fileName);
+		if (i == null) {
+			throw new IOException("No data for file " + fileName + " in layer series archive " + archivePath);
+		}
+		return i;
+	}
+
+	private byte[] readRecord(final Entry entry) throws IOException {
+		final ByteBuffer buf = ByteBuffer.allocate(entry.length);
+		readFully(channel, buf, entry.offset);
+		if (crc(buf.array(), 0, entry.length) != entry.crc) {
+			throw new IOException("Checksum mismatch for " + entry.name + " in layer series archive " + archivePath);
+		}
+
+		final int cells = entry.metaData.getNcols() * entry.metaData.getNrows();
+		if (entry.inflatedLength < 0 || (entry.type != SPARSE_DIFFERENCE && entry.inflatedLength != cells * 8)) {
+			throw new IOException("Invalid record length for " + entry.name + " in layer series archive "
+					+ archivePath);
+		}
+
+		final byte[] record = new byte[entry.inflatedLength];
+		final Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(buf.array());
+			int length = 0;
+			while (length < record.length && !inflater.finished()) {
+				final int inflated = inflater.inflate(record, length, record.length - length);
+				if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				length += inflated;
+			}
+			if (length != record.length || !inflater.finished()) {
+				throw new IOException("Invalid record for " + entry.name + " in layer series archive " + archivePath);
+			}
+		} catch (final DataFormatException e) {
+			throw new IOException("Invalid record for " + entry.name + " in layer series archive " + archivePath, e);
+		} finally {
+			inflater.end();
+		}
+
+		return record;
+	}
+
+	private void xorSparseRecord(final Entry entry, final byte[] record, final long[] bits) throws IOException {
+		final ByteBuffer buf = ByteBuffer.wrap(record);
+		final int changed = buf.getInt();
+		final int[] cells = new int[changed];
+		int cell = -1;
+		for (int i = 0; i < changed; i++) {
+			int gap = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = buf.get();
+				gap |= (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			cell += gap;
+			if (cell < 0 || cell >= bits.length) {
+				throw new IOException("Invalid cell in record for " + entry.name + " in layer series archive "
+						+ archivePath);
+			}
+			cells[i] = cell;
+		}
+		if (buf.remaining() != changed * 8) {
+			throw new IOException("Invalid record length for " + entry.name + " in layer series archive "
+					+ archivePath);
+		}
+		xorBytePlanes(record, buf.position(), bits, cells, changed);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Splits values into byte planes, the most significant byte of all values first.
+	 */
+	private static byte[] toBytePlanes(final long[] values, final int count) {
+		final byte[] planes = new byte[count * 8];
+		writeBytePlanes(values, count, planes, 0);
+		return planes;
+	}
+
+	private static void writeBytePlanes(final long[] values, final int count, final byte[] planes, final int offset) {
+		for (int b = 0; b < 8; b++) {
+			final int shift = 56 - b * 8;
+			final int base = offset + b * count;
+			for (int i = 0; i < count; i++) {
+				planes[base + i] = (byte) (values[i] >>> shift);
+			}
+		}
+	}
+
+	/**
+	 * XOR's the values stored as byte planes into the cells given, or the first cells if no cells are given.
+	 */
+	private static void xorBytePlanes(final byte[] planes, final int offset, final long[] bits, final int[] cells,
+			final int count) {
+		for (int b = 0; b < 8; b++) {
+			final int shift = 56 - b * 8;
+			final int base = offset + b * count;
+			if (cells == null) {
+				for (int i = 0; i < count; i++) {
+					bits[i] ^= (planes[base + i] & 0xFFL) << shift;
+				}
+			} else {
+				for (int i = 0; i < count; i++) {
+					bits[cells[i]] ^= (planes[base + i] & 0xFFL) << shift;
+				}
+			}
+		}
+	}
+
+	private static byte[] toSparseRecord(final long[] difference, final int changed) {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(4 + changed * 10);
+		final long[] values = new long[changed];
+		out.write(changed >>> 24);
+		out.write(changed >>> 16);
+		out.write(changed >>> 8);
+		out.write(changed);
+		int previous = -1;
+		int k = 0;
+		for (int i = 0; i < difference.length; i++) {
+			if (difference[i] != 0) {
+				int gap = i - previous;
+				while (gap >= 0x80) {
+					out.write((gap & 0x7F) | 0x80);
+					gap >>>= 7;
+				}
+				out.write(gap);
+				values[k++] = difference[i];
+				previous = i;
+			}
+		}
+
+		final byte[] cells = out.toByteArray();
+		final byte[] record = new byte[cells.length + changed * 8];
+		System.arraycopy(cells, 0, record, 0, cells.length);
+		writeBytePlanes(values, changed, record, cells.length);
+		return record;
+	}
+
+	private static byte[] deflate(final Deflater deflater, final byte[] data) {
+		deflater.reset();
+		deflater.setInput(data);
+		deflater.finish();
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4);
+		final byte[] buf = new byte[64 * 1024];
+		while (!deflater.finished()) {
+			final int length = deflater.deflate(buf);
+			out.write(buf, 0, length);
+		}
+		return out.toByteArray();
+	}
+
+	private static byte[] serializeHeader(final Map<String, DataFileMetaData> metaData, final int[] series,
+			final byte[] types, final long[] offsets, final int[] lengths, final int[] inflatedLengths,
+			final long[] crcs) throws IOException {
+		final ByteArrayOutputStream bOut = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bOut)) {
+			out.writeInt(metaData.size());
+			int i = 0;
+			for (final Map.Entry<String, DataFileMetaData> e : metaData.entrySet()) {
+				final DataFileMetaData md = e.getValue();
+				out.writeUTF(e.getKey());
+				out.writeInt(md.getNcols());
+				out.writeInt(md.getNrows());
+				out.writeDouble(md.getXllcorner());
+				out.writeDouble(md.getYllcorner());
+				out.writeInt(md.getCellsize());
+				out.writeInt(series[i]);
+				out.writeByte(types[i]);
+				out.writeLong(offsets[i]);
+				out.writeInt(lengths[i]);
+				out.writeInt(inflatedLengths[i]);
+				out.writeLong(crcs[i]);
+				i++;
+			}
+		}
+
+		return bOut.toByteArray();
+	}
+
+	private static long crc(final byte[] data, final int offset, final int length) {
+		final CRC32 crc = new CRC32();
+		crc.update(data, offset, length);
+		return crc.getValue();
+	}
+
+	private static void readFully(final FileChannel channel, final ByteBuffer buf, final long offset)
+			throws IOException {
+		long position = offset;
+		while (buf.hasRemaining()) {
+			final int read = channel.read(buf, position);
+			if (read < 0) {
+				throw new IOException("Unexpected end of layer series archive");
+			}
+			position += read;
+		}
+	}
+
+	private static void writeFully(final FileChannel channel, final ByteBuffer buf, final long offset)
+			throws IOException {
+		long position = offset;
+		while (buf.hasRemaining()) {
+			position += channel.write(buf, position);
+		}
+	}
+
+	private static final class Entry {
+		private final String name;
+		private final DataFileMetaData metaData;
+		private final int series;
+		private final byte type;
+		private final long offset;
+		private final int length;
+		private final int inflatedLength;
+		private final long crc;
+
+		private Entry(final String name, final DataFileMetaData metaData, final int series, final byte type,
+				final long offset, final int length, final int inflatedLength, final long crc) {
+			this.name = name;
+			this.metaData = metaData;
+			this.series = series;
+			this.type = type;
+			this.offset = offset;
+			this.length = length;
+			this.inflatedLength = inflatedLength;
+			this.crc = crc;
+		}
+	}
+
+	private static final class Restored {
+		private final int index;
+		private final long[] bits;
+
+		private Restored(final int index, final long[] bits) {
+			this.index = index;
+			this.bits = bits;
+		}
+	}
+
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise.landscape;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import dk.au.bios.porpoise.landscape.CellData.Layer;
+
+/**
+ * The precision each landscape layer and the food levels are held in. By default all layers are held as double
+ * values, except the blocks which are whole numbers held as int values.
+ *
+ * The storage is configured as a list of <code>layer:precision</code> pairs separated by semicolons, e.g.
+ * <code>bathy:short;prey:float</code>. The layers are named disttocoast, bathy, patches, blocks, prey, salinity and
+ * food, the precisions double, float, int, short and byte (see {@link LayerPrecision}). The food levels can only be
+ * held as double or float values. <code>reduced</code> selects float for prey, salinity and food, short for bathy and
+ * byte for blocks and patches, and can be followed by pairs overriding it.
+ *
+ * The pair <code>layout:arrays</code> or <code>layout:flat</code> selects the arrangement of the cells in memory for
+ * all layers and the food levels (see {@link LayerLayout}). The default is arrays. The pair <code>halo:n</code> holds
+ * n cells of {@link LayerPrecision#NO_DATA} around each side of the layers, so the depth of cells off the grid within
+ * n cells of the border is looked up like any other cell (see {@link CellIndex}). The halo should cover the largest
+ * distance probed ahead of a porpoise, in cells. The default is no halo. Layers with a halo are held in a single
+ * array, so the ARRAYS layout is then held like FLAT.
+ *
+ * The largest difference between the values held and the values of the data files is recorded for each layer held in
+ * reduced precision, and reported by {@link #report()}. Layers whose values cannot be held in the precision
+ * configured, e.g. blocks numbered above 127 as byte, are held as double values instead.
+ */
+public final class LayerStorage {
+
+	public static final String FOOD = "food";
+	public static final String REDUCED = "reduced";
+	public static final String LAYOUT = "layout";
+	public static final String HALO = "halo";
+
+	/**
+	 * The largest halo accepted, in cells.
+	 */
+	public static final int MAX_HALO = 1000;
+
+	private final Map<Layer, LayerPrecision> precisions;
+	private final LayerPrecision foodPrecision;
+	private final LayerLayout layout;
+	private final int halo;
+
+	/**
+	 * The largest difference found for each layer held in reduced precision, by layer name. Guarded by this.
+	 */
+	private final Map<String, Double> maxDifferences = new LinkedHashMap<>();
+
+	/**
+	 * The layers held as double values because their values could not be held as configured. Guarded by this.
+	 */
+	private final List<String> fallbacks = new ArrayList<>();
+
+	private LayerStorage(final Map<Layer, LayerPrecision> precisions, final LayerPrecision foodPrecision,
+			final LayerLayout layout, final int halo) {
+		this.precisions = precisions;
+		this.foodPrecision = foodPrecision;
+		this.layout = layout;
+		this.halo = halo;
+	}
+
+	/**
+	 * Returns the default storage, holding the layers as they have always been held.
+	 */
+	public static LayerStorage defaults() {
+		return new LayerStorage(defaultPrecisions(), LayerPrecision.DOUBLE, LayerLayout.ARRAYS, 0);
+	}
+
+	/**
+	 * Parses the storage configuration.
+	 *
+	 * @param spec The configuration, see the description of the class. The default storage is used if null, empty,
+	 *        "off" or "double".
+	 * @return The storage.
+	 * @throws IOException Thrown if the configuration is not valid.
+	 */
+	public static LayerStorage parse(final String spec) throws IOException {
+		final Map<Layer, LayerPrecision> precisions = defaultPrecisions();
+		LayerPrecision foodPrecision = LayerPrecision.DOUBLE;
+		LayerLayout layout = LayerLayout.ARRAYS;
+		int halo = 0;
+		if (spec == null) {
+			return new LayerStorage(precisions, foodPrecision, layout, halo);
+		}
+
+		for (final String part : spec.split("[;,]")) {
+			final String token = part.trim().toLowerCase(Locale.ROOT);
+			if (token.isEmpty() || "off".equals(token) || "double".equals(token)) {
+				continue;
+			} else if (REDUCED.equals(token)) {
+				precisions.put(Layer.PREY, LayerPrecision.FLOAT);
+				precisions.put(Layer.SALINITY, LayerPrecision.FLOAT);
+				precisions.put(Layer.BATHY, LayerPrecision.SHORT);
+				precisions.put(Layer.BLOCKS, LayerPrecision.BYTE);
+				precisions.put(Layer.PATCHES, LayerPrecision.BYTE);
+				foodPrecision = LayerPrecision.FLOAT;
+				continue;
+			}
+
+			final String[] pair = token.split(":");
+			if (pair.length != 2) {
+				throw new IOException("Invalid layer storage '" + part + "', expected layer:precision");
+			}
+			if (LAYOUT.equals(pair[0].trim())) {
+				try {
+					layout = LayerLayout.valueOf(pair[1].trim().toUpperCase(Locale.ROOT));
+				} catch (IllegalArgumentException e) {
+					throw new IOException("Unknown layout '" + pair[1].trim() + "' in layer storage '" + part + "'");
+				}
+				continue;
+			}
+			if (HALO.equals(pair[0].trim())) {
+				try {
+					halo = Integer.parseInt(pair[1].trim());
+				} catch (NumberFormatException e) {
+					halo = -1;
+				}
+				if (halo < 0 || halo > MAX_HALO) {
+					throw new IOException("Invalid halo '" + pair[1].trim() + "' in layer storage '" + part
+							+ "', expected 0 to " + MAX_HALO + " cells");
+				}
+				continue;
+			}
+
+			final LayerPrecision precision;
+			try {
+				precision = LayerPrecision.valueOf(pair[1].trim().toUpperCase(Locale.ROOT));
+			} catch (IllegalArgumentException e) {
+				throw new IOException("Unknown precision '" + pair[1].trim() + "' in layer storage '" + part + "'");
+			}
+
+			final String name = pair[0].trim();
+			if (FOOD.equals(name)) {
+				if (precision != LayerPrecision.DOUBLE && precision != LayerPrecision.FLOAT) {
+					throw new IOException("The food levels can only be held as double or float, not " + pair[1]);
+				}
+				foodPrecision = precision;
+			} else {
+				precisions.put(layerNamed(name, part), precision);
+			}
+		}
+
+		return new LayerStorage(precisions, foodPrecision, layout, halo);
+	}
+
+	private static Map<Layer, LayerPrecision> defaultPrecisions() {
+		final Map<Layer, LayerPrecision> precisions = new EnumMap<>(Layer.class);
+		for (final Layer layer : Layer.values()) {
+			precisions.put(layer, LayerPrecision.DOUBLE);
+		}
+		precisions.put(Layer.BLOCKS, LayerPrecision.INT);
+		return precisions;
+	}
+
+	private static Layer layerNamed(final String name, final String part) throws IOException {
+		for (final Layer layer : Layer.values()) {
+			if (nameOf(layer).equals(name)) {
+				return layer;
+			}
+		}
+		throw new IOException("Unknown layer '" + name + "' in layer storage '" + part + "'");
+	}
+
+	private static String nameOf(final Layer layer) {
+		return layer.name().toLowerCase(Locale.ROOT);
+	}
+
+	public LayerPrecision getPrecision(final Layer layer) {
+		return precisions.get(layer);
+	}
+
+	public LayerPrecision getFoodPrecision() {
+		return foodPrecision;
+	}
+
+	public LayerLayout getLayout() {
+		return layout;
+	}
+
+	public int getHalo() {
+		return halo;
+	}
+
+	/**
+	 * Checks whether a layer is held in the arrays read, allowing its values to be looked up in the array directly.
+	 */
+	public boolean isArrayBacked(final Layer layer) {
+		return precisions.get(layer) == LayerPrecision.DOUBLE && layout == LayerLayout.ARRAYS && halo == 0;
+	}
+
+	/**
+	 * Creates the layer for the food levels of a run, in the precision and layout configured.
+	 */
+	public MutableGridLayer allocateFood(final int width, final int height) {
+		return foodPrecision.allocate(width, height, layout, halo);
+	}
+
+	/**
+	 * Checks whether all layers are held as by default.
+	 */
+	public boolean isDefault() {
+		return precisions.equals(defaultPrecisions()) && foodPrecision == LayerPrecision.DOUBLE
+				&& layout == LayerLayout.ARRAYS && halo == 0;
+	}
+
+	/**
+	 * Creates the layer holding the data of a file in the precision configured for the layer and the layout
+	 * configured.
+	 *
+	 * @param layer The layer the data file belongs to.
+	 * @param fileName The name of the data file.
+	 * @param data The data read from the file.
+	 * @return The layer holding the data.
+	 */
+	public GridLayer store(final Layer layer, final String fileName, final double[][] data) {
+		final LayerPrecision precision = precisions.get(layer);
+		if (precision == LayerPrecision.DOUBLE) {
+			return storeDouble(data);
+		}
+
+		final GridLayer stored;
+		try {
+			stored = precision.store(data, layout, halo);
+		} catch (IOException e) {
+			System.out.println("Unable to hold " + fileName + " as " + precision + ", holding it as DOUBLE: "
+					+ e.getMessage());
+			synchronized (this) {
+				if (!fallbacks.contains(nameOf(layer))) {
+					fallbacks.add(nameOf(layer));
+				}
+			}
+			return storeDouble(data);
+		}
+
+		final double difference = LayerPrecision.maxDifference(data, stored);
+		synchronized (this) {
+			maxDifferences.merge(nameOf(layer), difference, Math::max);
+		}
+		return stored;
+	}
+
+	private GridLayer storeDouble(final double[][] data) {
+		try {
+			return LayerPrecision.DOUBLE.store(data, layout, halo);
+		} catch (IOException e) {
+			throw new IllegalStateException("Double values can always be held", e);
+		}
+	}
+
+	/**
+	 * Prints the layout, the halo and the precision of the layers held in reduced precision, with the largest
+	 * difference to the values of the data files read so far. Nothing is printed for the default storage.
+	 */
+	public synchronized void report() {
+		if (isDefault()) {
+			return;
+		}
+
+		final List<String> layers = new ArrayList<>();
+		if (layout != LayerLayout.ARRAYS) {
+			layers.add(LAYOUT + " " + layout);
+		}
+		if (halo > 0) {
+			layers.add(HALO + " " + halo);
+		}
+		for (final Map.Entry<Layer, LayerPrecision> e : precisions.entrySet()) {
+			final String name = nameOf(e.getKey());
+			if (fallbacks.contains(name)) {
+				layers.add(name + " DOUBLE (" + e.getValue() + " not possible)");
+			} else if (maxDifferences.containsKey(name)) {
+				layers.add(name + " " + e.getValue() + " (largest difference " + maxDifferences.get(name) + ")");
+			} else if (e.getValue() != LayerPrecision.DOUBLE && e.getValue() != LayerPrecision.INT) {
+				layers.add(name + " " + e.getValue() + " (not read)");
+			}
+		}
+		if (foodPrecision != LayerPrecision.DOUBLE) {
+			layers.add(FOOD + " " + foodPrecision);
+		}
+		System.out.println("Landscape layer storage: " + String.join(", ", layers));
+	}
+
+	/**
+	 * Returns the configuration in the form accepted by {@link #parse(String)}, listing every layer.
+	 */
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		for (final Map.Entry<Layer, LayerPrecision> e : precisions.entrySet()) {
+			sb.append(nameOf(e.getKey())).append(':').append(e.getValue().name().toLowerCase(Locale.ROOT))
+					.append(';');
+		}
+		sb.append(FOOD).append(':').append(foodPrecision.name().toLowerCase(Locale.ROOT)).append(';');
+		sb.append(LAYOUT).append(':').append(layout.name().toLowerCase(Locale.ROOT)).append(';');
+		return sb.append(HALO).append(':').append(halo).toString();
+	}
+
+}
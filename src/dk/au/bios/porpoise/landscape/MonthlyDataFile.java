@@ -30,12 +30,29 @@ package dk.au.bios.porpoise.landscape;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import dk.au.bios.porpoise.Globals;
+import dk.au.bios.porpoise.util.DaemonThreadFactory;
 import dk.au.bios.porpoise.util.SimulationTime;
 
+/**
+ * A data file which changes over the course of the simulation, e.g. monthly prey or salinity maps.
+ *
+ * When a file has been loaded, the file for the following period is read on a background thread so it is ready when
+ * the simulation reaches the next month (or year). The loaded data is swapped in atomically at the boundary. Files
+ * computed by their source (see {@link CellDataSource#getProceduralLayer(String)}) are not read, the values are looked
+ * up through {@link #getValue(int, int)} instead. The data read is held in the precision configured for the layer (see
+ * {@link LayerStorage}), converted on the background thread.
+ */
 public class MonthlyDataFile extends AbstractDataFile {
 
 	private enum Mode {
@@ -44,20 +61,59 @@ public class MonthlyDataFile extends AbstractDataFile {
 
 	private static final String FILE_EXT =  LandscapeLoader.FILE_EXT;
 
-	private final String filePrefix;
+	private static final ExecutorService prefetchPool = Executors.newFixedThreadPool(2, new DaemonThreadFactory());
 
-	private int lastLoadedYear = -1;
-	private int lastLoadedMonth = -1;
+	/**
+	 * The number of times the data for a new period was not prefetched in time and the simulation had to wait.
+	 */
+	private static final AtomicInteger prefetchMissCount = new AtomicInteger();
+	private static final AtomicLong prefetchWaitNanos = new AtomicLong();
+
+	private final String filePrefix;
 
 	private final Mode mode;
-	private double[][] data = null;
+
+	/**
+	 * The data for the current period. Replaced as a whole so readers never see a partially switched state.
+	 */
+	private volatile LoadedData current = null;
+
+	/**
+	 * The data being read for the next period. Guarded by this.
+	 */
+	private Prefetch prefetch = null;
+
+	/**
+	 * Set when the data file is reused by a new run; the first switch of the run is not counted as a missed prefetch.
+	 */
+	private boolean rewound = false;
 
 	final List<CellDataSource> sources;
 	final private int startingYear;
 
+	private final CellData.Layer layer;
+	private final LayerStorage storage;
+
 	public MonthlyDataFile(final String landscape, final String filePrefix, final List<CellDataSource> sources)
 			throws IOException {
+		this(landscape, filePrefix, sources, null, LayerStorage.defaults());
+	}
+
+	/**
+	 * Creates the data file of a layer, holding the data in the precision configured for the layer.
+	 *
+	 * @param landscape The name of the landscape.
+	 * @param filePrefix The prefix of the data files.
+	 * @param sources The sources to read the data files from.
+	 * @param layer The layer of the data files, or null to hold the data as double values.
+	 * @param storage The precision of the layers.
+	 * @throws IOException Thrown if data files required by the simulation are missing.
+	 */
+	public MonthlyDataFile(final String landscape, final String filePrefix, final List<CellDataSource> sources,
+			final CellData.Layer layer, final LayerStorage storage) throws IOException {
 		super(landscape);
+		this.layer = layer;
+		this.storage = storage;
 
 		if (sources == null || sources.size() < 1) {
 			throw new IOException("Need at least one data file source.");
@@ -70,49 +126,257 @@ public class MonthlyDataFile extends AbstractDataFile {
 	}
 
 	public double[][] getData() throws IOException {
-		final int currentYear = startingYear + SimulationTime.getYearOfSimulation();
-		final int currentMonth = SimulationTime.getMonthOfYear();
-
-		if (currentYear != lastLoadedYear || currentMonth != lastLoadedMonth) {
-			final String fileName;
-			if (mode == Mode.SINGLE) {
-				if (data != null) {
-					return data;
-				}
-				fileName = String.format("%s%04d_XX" + FILE_EXT, filePrefix, startingYear);
-			} else if (mode == Mode.ANNUALLY) {
-				if (currentYear == lastLoadedYear) {
-					return data;
-				}
-				fileName = String.format("%s%04d_XX" + FILE_EXT, filePrefix, currentYear);
-			} else if (mode == Mode.MONTHLY_CYCLE) {
-				fileName = String.format("%s%04d_%02d" + FILE_EXT, filePrefix, startingYear, currentMonth);
-			} else if (mode == Mode.MONTHLY) {
-				fileName = String.format("%s%04d_%02d" + FILE_EXT, filePrefix, currentYear, currentMonth);
-			} else {
-				throw new IOException("Unknown file mode");
-			}
+		final LoadedData loaded = currentData();
+		if (loaded.data != null) {
+			return loaded.data;
+		}
+		return materialize(loaded);
+	}
+
+	/**
+	 * Returns the value of a cell for the current period.
+	 *
+	 * @throws ArrayIndexOutOfBoundsException Thrown if the cell is outside the landscape.
+	 */
+	public double getValue(final int x, final int y) throws IOException {
+		final LoadedData loaded = currentData();
+		if (loaded.data != null) {
+			return loaded.data[x][y];
+		}
+		return loaded.layer.getValue(x, y);
+	}
 
-			System.out.printf("Loading %s data for %04d-%02d from file %s (mode: %s)%n", filePrefix, currentYear,
-					currentMonth, fileName, mode);
+	/**
+	 * Returns the layer for the current period, either backed by the data read or procedural.
+	 */
+	public GridLayer getLayer() throws IOException {
+		return currentData().layer;
+	}
 
-			boolean loaded = false;
-			for (CellDataSource src : sources) {
-				if (src.hasData(fileName)) {
-					data = src.getData(fileName);
-					loaded = true;
-				}
+	/**
+	 * Switches to the data for the current period, if not already switched. Called when the month changes, reading a
+	 * cell returns the data switched to.
+	 *
+	 * @throws IOException Thrown if the data could not be read.
+	 */
+	public void switchToCurrentPeriod() throws IOException {
+		final int monthOfSimulation = SimulationTime.getMonthOfSimulation();
+		final LoadedData loaded = current;
+		if (loaded == null || loaded.period != startingYear * 12 + monthOfSimulation) {
+			switchTo(startingYear + monthOfSimulation / 12, monthOfSimulation % 12 + 1);
+		}
+	}
+
+	private LoadedData currentData() throws IOException {
+		final LoadedData loaded = current;
+		if (loaded != null) {
+			return loaded;
+		}
+
+		// Not switched yet, e.g. read before the clock started
+		final int monthOfSimulation = SimulationTime.getMonthOfSimulation();
+		return switchTo(startingYear + monthOfSimulation / 12, monthOfSimulation % 12 + 1);
+	}
+
+	/**
+	 * Creates the array for a layer not held in the array read, for callers needing all values at once.
+	 */
+	private synchronized double[][] materialize(final LoadedData loaded) {
+		final LoadedData latest = current;
+		if (latest != null && latest.fileName.equals(loaded.fileName) && latest.data != null) {
+			return latest.data;
+		}
+
+		final double[][] data = loaded.layer.toArray();
+		if (latest == loaded) {
+			current = new LoadedData(loaded.year, loaded.month, loaded.fileName, data, loaded.layer);
+		}
+		return data;
+	}
+
+	public static int getPrefetchMissCount() {
+		return prefetchMissCount.get();
+	}
+
+	public static long getPrefetchWaitMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(prefetchWaitNanos.get());
+	}
+
+	public static void resetPrefetchStats() {
+		prefetchMissCount.set(0);
+		prefetchWaitNanos.set(0);
+	}
+
+	/**
+	 * Prepares the data file for a new simulation run and switches to the data for the first period, so the run does
+	 * not start on the period the previous run ended in. The loaded data is reused if it is the same file. The
+	 * required files are verified again as the number of simulated years may differ between runs.
+	 *
+	 * @throws IOException Thrown if files required by the run are missing or the data could not be read.
+	 */
+	public synchronized void rewind() throws IOException {
+		verifyRequiredFiles(mode, filePrefix);
+		rewound = true;
+		switchTo(startingYear, 1);
+	}
+
+	/**
+	 * Starts reading the data for the first period of the simulation in the background, unless it is already loaded
+	 * or being read.
+	 *
+	 * @throws IOException Thrown if the file mode is unknown.
+	 */
+	public synchronized void prefetchFirstPeriod() throws IOException {
+		final String firstFileName = fileNameFor(startingYear, 1);
+		final LoadedData loaded = current;
+		if ((loaded != null && firstFileName.equals(loaded.fileName))
+				|| (prefetch != null && firstFileName.equals(prefetch.fileName)) || isProcedural(firstFileName)) {
+			return;
+		}
+
+		cancelPrefetch();
+		prefetch = new Prefetch(firstFileName, prefetchPool.submit(() -> readFile(firstFileName)));
+	}
+
+	/**
+	 * Cancels reading the data for the next period, e.g. because the landscape is closed.
+	 */
+	public synchronized void cancelPrefetch() {
+		if (prefetch != null) {
+			prefetch.future.cancel(false);
+			prefetch = null;
+		}
+	}
+
+	private synchronized LoadedData switchTo(final int currentYear, final int currentMonth) throws IOException {
+		final LoadedData previous = current;
+		if (previous != null && previous.year == currentYear && previous.month == currentMonth) {
+			return previous; // Switched by another thread while waiting for the lock
+		}
+		final boolean countMiss = previous != null && !rewound;
+		rewound = false;
+
+		final String fileName = fileNameFor(currentYear, currentMonth);
+		if (previous != null && fileName.equals(previous.fileName)) {
+			// Same file for the new period (SINGLE and ANNUALLY modes)
+			current = new LoadedData(currentYear, currentMonth, fileName, previous.data, previous.layer);
+			return current;
+		}
+
+		final CellDataSource src = findSource(fileName);
+		final GridLayer proceduralLayer = src != null ? src.getProceduralLayer(fileName) : null;
+		if (proceduralLayer != null) {
+			System.out.printf("Using computed %s data for %04d-%02d in place of file %s (mode: %s)%n", filePrefix,
+					currentYear, currentMonth, fileName, mode);
+			cancelPrefetch();
+			current = new LoadedData(currentYear, currentMonth, fileName, null, proceduralLayer);
+			startPrefetch(currentYear, currentMonth, fileName);
+			return current;
+		}
+
+		System.out.printf("Loading %s data for %04d-%02d from file %s (mode: %s)%n", filePrefix, currentYear,
+				currentMonth, fileName, mode);
+
+		GridLayer loadedLayer = null;
+		if (prefetch != null && prefetch.fileName.equals(fileName)) {
+			final boolean ready = prefetch.future.isDone();
+			final long waitStart = System.nanoTime();
+			try {
+				loadedLayer = prefetch.future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while loading " + fileName, e);
+			} catch (ExecutionException e) {
+				System.out.println("Prefetch of " + fileName + " failed, loading again: " + e.getCause());
 			}
-			if (!loaded) {
-				throw new IOException(String.format("Could not load %s data for %04d-%02d from file %s (mode: %s)%n",
-						filePrefix, currentYear, +currentMonth, fileName, mode));
+			if (!ready && countMiss) {
+				final long waited = System.nanoTime() - waitStart;
+				prefetchMissCount.incrementAndGet();
+				prefetchWaitNanos.addAndGet(waited);
+				System.out.printf("Prefetch of %s was not ready, waited %d ms%n", fileName,
+						TimeUnit.NANOSECONDS.toMillis(waited));
 			}
+		} else if (countMiss) {
+			prefetchMissCount.incrementAndGet();
+		}
+		cancelPrefetch();
 
-			lastLoadedYear = currentYear;
-			lastLoadedMonth = currentMonth;
+		if (loadedLayer == null) {
+			final long loadStart = System.nanoTime();
+			loadedLayer = readFile(fileName);
+			if (countMiss) {
+				prefetchWaitNanos.addAndGet(System.nanoTime() - loadStart);
+			}
 		}
 
-		return data;
+		// Layers held in the arrays read are looked up in their array directly
+		final double[][] data = layer == null || storage.isArrayBacked(layer) ? loadedLayer.toArray() : null;
+		current = new LoadedData(currentYear, currentMonth, fileName, data, loadedLayer);
+		startPrefetch(currentYear, currentMonth, fileName);
+
+		return current;
+	}
+
+	private void startPrefetch(final int year, final int month, final String loadedFileName) throws IOException {
+		final String nextFileName;
+		if (mode == Mode.SINGLE) {
+			return;
+		} else if (mode == Mode.ANNUALLY) {
+			nextFileName = fileNameFor(year + 1, month);
+		} else {
+			nextFileName = fileNameFor(month == 12 ? year + 1 : year, month % 12 + 1);
+		}
+
+		if (nextFileName.equals(loadedFileName) || findSource(nextFileName) == null || isProcedural(nextFileName)) {
+			return; // Nothing new to load, the end of the available data has been reached, or nothing to read
+		}
+
+		prefetch = new Prefetch(nextFileName, prefetchPool.submit(() -> readFile(nextFileName)));
+	}
+
+	private String fileNameFor(final int year, final int month) throws IOException {
+		if (mode == Mode.SINGLE) {
+			return String.format("%s%04d_XX" + FILE_EXT, filePrefix, startingYear);
+		} else if (mode == Mode.ANNUALLY) {
+			return String.format("%s%04d_XX" + FILE_EXT, filePrefix, year);
+		} else if (mode == Mode.MONTHLY_CYCLE) {
+			return String.format("%s%04d_%02d" + FILE_EXT, filePrefix, startingYear, month);
+		} else if (mode == Mode.MONTHLY) {
+			return String.format("%s%04d_%02d" + FILE_EXT, filePrefix, year, month);
+		} else {
+			throw new IOException("Unknown file mode");
+		}
+	}
+
+	/**
+	 * Finds the source to load a file from. If more than one source holds the file, the last one is used. Searching
+	 * from the last source finds files in a layer series archive without checking the other sources.
+	 */
+	private CellDataSource findSource(final String fileName) throws IOException {
+		for (int i = sources.size() - 1; i >= 0; i--) {
+			if (sources.get(i).hasData(fileName)) {
+				return sources.get(i);
+			}
+		}
+		return null;
+	}
+
+	private boolean isProcedural(final String fileName) throws IOException {
+		final CellDataSource src = findSource(fileName);
+		return src != null && src.getProceduralLayer(fileName) != null;
+	}
+
+	/**
+	 * Reads a data file and holds the data in the precision configured for the layer.
+	 */
+	private GridLayer readFile(final String fileName) throws IOException {
+		final CellDataSource src = findSource(fileName);
+		if (src == null) {
+			throw new IOException(String.format("Could not load %s data from file %s (mode: %s)", filePrefix,
+					fileName, mode));
+		}
+		final double[][] data = src.getData(fileName);
+		return layer != null ? storage.store(layer, fileName, data) : GridLayer.of(data);
 	}
 
 	private Mode determineMode(final String landscape, final String filePrefix) throws IOException {
@@ -212,14 +476,7 @@ public class MonthlyDataFile extends AbstractDataFile {
 
 		List<String> missingFiles = new ArrayList<>();
 		for (String file : filesToVerify) {
-			boolean found = false;
-			for (CellDataSource src : sources) {
-				if (src.hasData(file)) {
-					found = true;
-					continue;
-				}
-			}
-			if (!found) {
+			if (findSource(file) == null) {
 				missingFiles.add(file);
 			}
 		}
@@ -230,4 +487,33 @@ public class MonthlyDataFile extends AbstractDataFile {
 		}
 	}
 
+	private static final class LoadedData {
+		private final int year;
+		private final int month;
+		private final int period; // The months since year 0, compared when reading a cell
+		private final String fileName;
+		private final double[][] data; // null unless the layer is held in the array read, until requested
+		private final GridLayer layer;
+
+		private LoadedData(final int year, final int month, final String fileName, final double[][] data,
+				final GridLayer layer) {
+			this.year = year;
+			this.month = month;
+			this.period = year * 12 + month - 1;
+			this.fileName = fileName;
+			this.data = data;
+			this.layer = layer;
+		}
+	}
+
+	private static final class Prefetch {
+		private final String fileName;
+		private final Future<GridLayer> future;
+
+		private Prefetch(final String fileName, final Future<GridLayer> future) {
+			this.fileName = fileName;
+			this.future = future;
+		}
+	}
+
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise.landscape;
+
+/**
+ * The terms of the correlated random walk which depend on the depth and salinity of the cell a porpoise is in, for
+ * one salinity map. The turning angle is multiplied by the angle factor, and the log10 of the move length is offset
+ * by the bathymetry and salinity terms. The terms are computed as the porpoise computes them, so the moves are the
+ * same as with the terms computed per step.
+ *
+ * The terms are recomputed when the salinity map or the correlations change, see
+ * {@link CellData#getMovementCovariates()}.
+ */
+public final class MovementCovariates {
+
+	private static final int ANGLE_FACTOR = 0;
+	private static final int LOGMOV_BATHY = 1;
+	private static final int LOGMOV_SALINITY = 2;
+	private static final int TERMS = 3;
+
+	private final GridLayer salinity;
+	private final double[] correlations;
+	private final int height;
+
+	/** The terms of each cell next to each other, so a step reads them together. */
+	private final double[] terms;
+
+	private MovementCovariates(final GridLayer salinity, final double[] correlations, final int height,
+			final double[] terms) {
+		this.salinity = salinity;
+		this.correlations = correlations;
+		this.height = height;
+		this.terms = terms;
+	}
+
+	/**
+	 * Computes the terms of all cells.
+	 *
+	 * @param depth The depth of the landscape.
+	 * @param salinity The salinity map.
+	 * @param corrAngleBathy The correlation of the turning angle with the depth.
+	 * @param corrAngleSalinity The correlation of the turning angle with the salinity.
+	 * @param corrAngleBaseSD The base of the turning angle factor.
+	 * @param corrLogmovBathy The correlation of the log10 of the move length with the depth.
+	 * @param corrLogmovSalinity The correlation of the log10 of the move length with the salinity.
+	 * @return The terms.
+	 */
+	public static MovementCovariates compute(final GridLayer depth, final GridLayer salinity,
+			final double corrAngleBathy, final double corrAngleSalinity, final double corrAngleBaseSD,
+			final double corrLogmovBathy, final double corrLogmovSalinity) {
+		final int width = depth.getWidth();
+		final int height = depth.getHeight();
+		final double[] terms = new double[width * height * TERMS];
+
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				final double depthValue = depth.getValue(x, y);
+				final double salinityValue = salinity.getValue(x, y);
+				final int i = (x * height + y) * TERMS;
+				terms[i + ANGLE_FACTOR] = corrAngleBathy * depthValue + corrAngleSalinity * salinityValue
+						+ corrAngleBaseSD;
+				terms[i + LOGMOV_BATHY] = corrLogmovBathy * depthValue;
+				terms[i + LOGMOV_SALINITY] = corrLogmovSalinity * salinityValue;
+			}
+		}
+		final double[] correlations = { corrAngleBathy, corrAngleSalinity, corrAngleBaseSD, corrLogmovBathy,
+				corrLogmovSalinity };
+		return new MovementCovariates(salinity, correlations, height, terms);
+	}
+
+	/**
+	 * Returns whether the terms were computed for the salinity map and correlations.
+	 */
+	public boolean isFor(final GridLayer salinityMap, final double corrAngleBathy, final double corrAngleSalinity,
+			final double corrAngleBaseSD, final double corrLogmovBathy, final double corrLogmovSalinity) {
+		return this.salinity == salinityMap && correlations[0] == corrAngleBathy
+				&& correlations[1] == corrAngleSalinity && correlations[2] == corrAngleBaseSD
+				&& correlations[3] == corrLogmovBathy && correlations[4] == corrLogmovSalinity;
+	}
+
+	/**
+	 * Returns the index of the terms of a cell on the landscape.
+	 */
+	public int indexOf(final int x, final int y) {
+		return (x * height + y) * TERMS;
+	}
+
+	/**
+	 * Returns the factor the turning angle is multiplied by.
+	 */
+	public double getAngleFactor(final int index) {
+		return terms[index + ANGLE_FACTOR];
+	}
+
+	/**
+	 * Returns the bathymetry term of the log10 of the move length.
+	 */
+	public double getLogMovBathy(final int index) {
+		return terms[index + LOGMOV_BATHY];
+	}
+
+	/**
+	 * Returns the salinity term of the log10 of the move length.
+	 */
+	public double getLogMovSalinity(final int index) {
+		return terms[index + LOGMOV_SALINITY];
+	}
+
+}
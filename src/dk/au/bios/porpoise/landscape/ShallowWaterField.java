@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise.landscape;
+
+/**
+ * The distance from each cell to the nearest shallow cell, i.e. a cell whose depth is not above (or, if equal depths
+ * are allowed, below) a minimum depth. The distance is the number of cells along the x or y axis, whichever is
+ * larger, so all cells in the square of cells closer than the distance around a cell are deep enough. Cells off the
+ * grid count as shallow, so the square of a cell never reaches beyond the borders of the landscape.
+ *
+ * The field lets porpoises in open water skip checking the depth along their path, see
+ * {@link CellData#getShallowWaterField(double, boolean)}.
+ */
+public final class ShallowWaterField {
+
+	private final double minDepth;
+	private final boolean allowEqual;
+	private final int width;
+	private final int height;
+	private final short[] distances;
+
+	private ShallowWaterField(final double minDepth, final boolean allowEqual, final int width, final int height,
+			final short[] distances) {
+		this.minDepth = minDepth;
+		this.allowEqual = allowEqual;
+		this.width = width;
+		this.height = height;
+		this.distances = distances;
+	}
+
+	/**
+	 * Computes the field with a two pass distance transform.
+	 *
+	 * @param depth The depth of the landscape.
+	 * @param minDepth The minimum depth of cells which are not shallow.
+	 * @param allowEqual Whether cells of exactly the minimum depth are not shallow.
+	 * @return The field.
+	 */
+	public static ShallowWaterField compute(final GridLayer depth, final double minDepth, final boolean allowEqual) {
+		final int width = depth.getWidth();
+		final int height = depth.getHeight();
+		final int[] d = new int[width * height];
+
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				final double v = depth.getValue(x, y);
+				final boolean deep = allowEqual ? v >= minDepth : v > minDepth;
+				// The distance to the cells off the grid is the upper bound
+				d[x * height + y] = deep ? Math.min(Math.min(x + 1, y + 1), Math.min(width - x, height - y)) : 0;
+			}
+		}
+
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				int v = d[x * height + y];
+				if (x > 0) {
+					final int column = (x - 1) * height + y;
+					v = Math.min(v, d[column] + 1);
+					if (y > 0) {
+						v = Math.min(v, d[column - 1] + 1);
+					}
+					if (y < height - 1) {
+						v = Math.min(v, d[column + 1] + 1);
+					}
+				}
+				if (y > 0) {
+					v = Math.min(v, d[x * height + y - 1] + 1);
+				}
+				d[x * height + y] = v;
+			}
+		}
+
+		for (int x = width - 1; x >= 0; x--) {
+			for (int y = height - 1; y >= 0; y--) {
+				int v = d[x * height + y];
+				if (x < width - 1) {
+					final int column = (x + 1) * height + y;
+					v = Math.min(v, d[column] + 1);
+					if (y > 0) {
+						v = Math.min(v, d[column - 1] + 1);
+					}
+					if (y < height - 1) {
+						v = Math.min(v, d[column + 1] + 1);
+					}
+				}
+				if (y < height - 1) {
+					v = Math.min(v, d[x * height + y + 1] + 1);
+				}
+				d[x * height + y] = v;
+			}
+		}
+
+		final short[] distances = new short[d.length];
+		for (int i = 0; i < d.length; i++) {
+			distances[i] = (short) Math.min(d[i], Short.MAX_VALUE);
+		}
+		return new ShallowWaterField(minDepth, allowEqual, width, height, distances);
+	}
+
+	/**
+	 * Returns whether the field was computed for a minimum depth.
+	 */
+	boolean isFor(final double minDepth, final boolean allowEqual) {
+		return Double.compare(this.minDepth, minDepth) == 0 && this.allowEqual == allowEqual;
+	}
+
+	/**
+	 * Returns the distance from a cell to the nearest shallow cell, 0 for shallow cells and cells off the grid.
+	 */
+	public int getDistance(final int x, final int y) {
+		if (x < 0 || y < 0 || x >= width || y >= height) {
+			return 0;
+		}
+		return distances[x * height + y];
+	}
+
+}
@@ -30,30 +30,180 @@ package dk.au.bios.porpoise.landscape;
 import java.io.IOException;
 import java.util.List;
 
+/**
+ * A data file which does not change during the simulation. The file is read from the first source containing it the
+ * first time the data is accessed, unless {@link #load()} is called before that. The data is held in the precision
+ * and layout configured for the layer, see {@link LayerStorage}. If the source computes the values of the file, they
+ * are looked up through {@link #getValue(int, int)} without reading the file into an array.
+ */
 public class SimpleDataFile extends AbstractDataFile {
 
-	private final double[][] data;
+	private final String fileName;
+	private final List<CellDataSource> sources;
+	private final CellData.Layer layer;
+	private final LayerStorage storage;
+	private final GridLayer proceduralLayer;
+	private volatile GridLayer data;
+
+	/**
+	 * The data when held as double values, for fast access. Written before {@link #data}.
+	 */
+	private volatile double[][] array;
 
+	/**
+	 * Creates the data file, holding the data as double values. The file is not read, but it is verified that one of
+	 * the sources contains it.
+	 *
+	 * @param landscape The name of the landscape.
+	 * @param fileName The name of the data file.
+	 * @param sources The sources to read the data file from.
+	 * @throws IOException Thrown if none of the sources contain the data file.
+	 */
 	public SimpleDataFile(final String landscape, final String fileName, final List<CellDataSource> sources)
 			throws IOException {
+		this(landscape, fileName, sources, null, LayerStorage.defaults());
+	}
+
+	/**
+	 * Creates the data file of a layer, holding the data in the precision configured for the layer. The file is not
+	 * read, but it is verified that one of the sources contains it.
+	 *
+	 * @param landscape The name of the landscape.
+	 * @param fileName The name of the data file.
+	 * @param sources The sources to read the data file from.
+	 * @param layer The layer of the data file, or null to hold the data as double values.
+	 * @param storage The precision of the layers.
+	 * @throws IOException Thrown if none of the sources contain the data file.
+	 */
+	public SimpleDataFile(final String landscape, final String fileName, final List<CellDataSource> sources,
+			final CellData.Layer layer, final LayerStorage storage) throws IOException {
 		super(landscape);
+		this.fileName = fileName;
+		this.sources = sources;
+		this.layer = layer;
+		this.storage = storage;
 
-		double[][] loadedData = null;
-		for (CellDataSource src : sources) {
-			if (src.hasData(fileName)) {
-				loadedData = src.getData(fileName);
-				break;
-			}
+		final CellDataSource src = findSource();
+		if (src == null) {
+			throw new IOException("No data loaded for file " + fileName + " in landscape " + landscape);
 		}
+		this.proceduralLayer = src.getProceduralLayer(fileName);
+	}
 
+	/**
+	 * Reads the data file unless it has already been read.
+	 *
+	 * @return The layer holding the data.
+	 * @throws IOException Thrown if the data file could not be read.
+	 */
+	public GridLayer load() throws IOException {
+		GridLayer loadedData = data;
 		if (loadedData == null) {
-			throw new IOException("No data loaded for file " + fileName + " in landscape " + landscape);
+			synchronized (this) {
+				loadedData = data;
+				if (loadedData == null) {
+					final CellDataSource src = findSource();
+					if (src == null) {
+						throw new IOException("No data loaded for file " + fileName + " in landscape " + getLandscape());
+					}
+					final double[][] read = src.getData(fileName);
+					if (layer == null || storage.isArrayBacked(layer)) {
+						array = read;
+						loadedData = GridLayer.of(read);
+					} else {
+						loadedData = storage.store(layer, fileName, read);
+					}
+					data = loadedData;
+				}
+			}
+		}
+		return loadedData;
+	}
+
+	/**
+	 * Returns the layer holding the data, reading the file if needed. Procedural layers are returned as is.
+	 */
+	public GridLayer getLayer() {
+		if (proceduralLayer != null) {
+			return proceduralLayer;
+		}
+
+		final GridLayer loadedData = data;
+		if (loadedData != null) {
+			return loadedData;
+		}
+
+		try {
+			return load();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
 		}
-		this.data = loadedData;
 	}
 
+	/**
+	 * Returns the data as an array. Unless the data is held in the array read, i.e. as double values in the
+	 * ARRAYS layout, a new array is created for each call.
+	 */
 	public double[][] getData() {
-		return data;
+		final double[][] loadedArray = array;
+		if (loadedArray != null) {
+			return loadedArray;
+		}
+
+		try {
+			return load().toArray();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Returns the value of a cell. Procedural layers are not read into an array.
+	 *
+	 * @throws ArrayIndexOutOfBoundsException Thrown if the cell is outside the landscape.
+	 */
+	public double getValue(final int x, final int y) {
+		final double[][] loadedArray = array;
+		if (loadedArray != null) {
+			return loadedArray[x][y];
+		}
+		return getLayer().getValue(x, y);
+	}
+
+	/**
+	 * Returns the value of a cell, or {@link LayerPrecision#NO_DATA} if the cell is outside the landscape.
+	 */
+	public double getValueOrNoData(final int x, final int y) {
+		final double[][] loadedArray = array;
+		if (loadedArray != null) {
+			if (x < 0 || x >= loadedArray.length) {
+				return LayerPrecision.NO_DATA;
+			}
+			final double[] column = loadedArray[x];
+			return y >= 0 && y < column.length ? column[y] : LayerPrecision.NO_DATA;
+		}
+		return getLayer().getValueOrNoData(x, y);
+	}
+
+	public boolean isProcedural() {
+		return proceduralLayer != null;
+	}
+
+	public boolean isLoaded() {
+		return data != null;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	private CellDataSource findSource() throws IOException {
+		for (CellDataSource src : sources) {
+			if (src.hasData(fileName)) {
+				return src;
+			}
+		}
+		return null;
 	}
 
 }
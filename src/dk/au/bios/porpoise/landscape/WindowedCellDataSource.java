@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise.landscape;
+
+import java.io.IOException;
+import java.util.List;
+
+import dk.au.bios.porpoise.util.Pair;
+
+/**
+ * Data source restricting another source to a window of the landscape grid. The data files are read through the
+ * window, and the meta data is moved to the lower left corner of the window. The window may cover the whole grid, in
+ * which case the data files are read with the size of the grid regardless of the current landscape in Globals.
+ */
+public class WindowedCellDataSource implements CellDataSource {
+
+	private final CellDataSource source;
+	private final GridWindow window;
+
+	public WindowedCellDataSource(final CellDataSource source, final GridWindow window) {
+		this.source = source;
+		this.window = window;
+	}
+
+	@Override
+	public boolean hasData(final String fileName) throws IOException {
+		return source.hasData(fileName);
+	}
+
+	@Override
+	public List<String> getNamesMatching(final String pattern) throws IOException {
+		return source.getNamesMatching(pattern);
+	}
+
+	@Override
+	public double[][] getData(final String fileName) throws IOException {
+		return source.getData(fileName, window);
+	}
+
+	@Override
+	public DataFileMetaData getMetaData(final String fileName) throws IOException {
+		return window.applyTo(source.getMetaData(fileName));
+	}
+
+	@Override
+	public GridLayer getProceduralLayer(final String fileName) throws IOException {
+		final GridLayer layer = source.getProceduralLayer(fileName);
+		if (layer == null || window.isFullGrid()) {
+			return layer;
+		}
+		return GridLayer.procedural(window.getWidth(), window.getHeight(),
+				(x, y) -> layer.getValue(x + window.getX(), y + window.getY()));
+	}
+
+	/**
+	 * The cells precomputed by the underlying source refer to the complete grid, so unless the window covers the whole
+	 * grid they are computed from the window of the patches data instead.
+	 */
+	@Override
+	public Pair[] getFoodProbAboveZeroCells() throws IOException {
+		return window.isFullGrid() ? source.getFoodProbAboveZeroCells() : null;
+	}
+
+	@Override
+	public void close() throws IOException {
+		source.close();
+	}
+
+}
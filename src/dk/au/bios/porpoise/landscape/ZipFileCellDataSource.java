@@ -27,86 +27,109 @@
 
 package dk.au.bios.porpoise.landscape;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
 import dk.au.bios.porpoise.Globals;
-import dk.au.bios.porpoise.util.ASCUtil;
+import dk.au.bios.porpoise.util.ASCParser;
 import dk.au.bios.porpoise.util.GeoTiffUtil;
 
+/**
+ * Data source for a landscape stored in a zip file. The archive is kept open until the source is closed, and the
+ * names of the entries are indexed when the source is created.
+ */
 public class ZipFileCellDataSource implements CellDataSource {
 
 	private final Path zipFilePath;
+	private final ZipFile zipFile;
+	private final Map<String, ZipEntry> entries;
 
-	public ZipFileCellDataSource(final Path zipFilePath) {
+	public ZipFileCellDataSource(final Path zipFilePath) throws IOException {
 		this.zipFilePath = zipFilePath;
+		this.zipFile = new ZipFile(zipFilePath.toFile());
+		this.entries = new LinkedHashMap<>();
+
+		final Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+		while (zipEntries.hasMoreElements()) {
+			final ZipEntry entry = zipEntries.nextElement();
+			entries.put(entry.getName(), entry);
+		}
 	}
 
 	@Override
-	public boolean hasData(final String fileName) throws IOException {
-		try (ZipFile zipFile = new ZipFile(zipFilePath.toFile())) {
-			ZipEntry entry = zipFile.getEntry(fileName);
-			return entry != null;
-		}
+	public boolean hasData(final String fileName) {
+		return entries.containsKey(fileName);
 	}
 
 	@Override
-	public List<String> getNamesMatching(final String pattern) throws IOException {
+	public List<String> getNamesMatching(final String pattern) {
 		final List<String> matchingEntries = new ArrayList<>();
 		final Pattern p = Pattern.compile(pattern);
 
-		try (ZipFile zipFile = new ZipFile(zipFilePath.toFile())) {
-			Enumeration<? extends ZipEntry> entries = zipFile.entries();
-			while (entries.hasMoreElements()) {
-				ZipEntry entry = entries.nextElement();
-				if (p.matcher(entry.getName()).matches()) {
-					matchingEntries.add(entry.getName());
-				}
+		for (final String name : entries.keySet()) {
+			if (p.matcher(name).matches()) {
+				matchingEntries.add(name);
 			}
-
-			return matchingEntries;
 		}
+
+		return matchingEntries;
 	}
 
 	@Override
 	public double[][] getData(final String fileName) throws IOException {
-		try (ZipFile zipFile = new ZipFile(zipFilePath.toFile())) {
-			ZipEntry entry = zipFile.getEntry(fileName);
-			try (InputStream in = zipFile.getInputStream(entry)) {
-				final double[][] data;
-				if (fileName.endsWith(LandscapeLoader.FILE_EXT_ASC)) {
-					data = ASCUtil.loadDoubleAscFile(Globals.getWorldWidth(), Globals.getWorldHeight(), in, false);
-				} else {
-					data = GeoTiffUtil.loadGeotif(Globals.getWorldWidth(), Globals.getWorldHeight(), in, false);
-				}
-				return data;
+		return getData(fileName, GridWindow.full(Globals.getWorldWidth(), Globals.getWorldHeight()));
+	}
+
+	@Override
+	public double[][] getData(final String fileName, final GridWindow window) throws IOException {
+		final ZipEntry entry = getEntry(fileName);
+		try (InputStream in = zipFile.getInputStream(entry)) {
+			final double[][] data;
+			if (fileName.endsWith(LandscapeLoader.FILE_EXT_ASC)) {
+				final byte[] buf = ASCParser.readAllBytes(in, entry.getSize());
+				data = ASCParser.loadDoubleAscFile(window, buf, buf.length, false);
+			} else {
+				data = GeoTiffUtil.loadGeotif(window, in, false);
 			}
+			return data;
 		}
 	}
 
 	@Override
 	public DataFileMetaData getMetaData(String fileName) throws IOException {
-		try (ZipFile zipFile = new ZipFile(zipFilePath.toFile())) {
-			ZipEntry entry = zipFile.getEntry(fileName);
-			try (InputStream in = zipFile.getInputStream(entry)) {
-
-				DataFileMetaData metaData;
-				if (fileName.endsWith(LandscapeLoader.FILE_EXT_ASC)) {
-					metaData = ASCUtil.loadMetaData(in);
-				} else {
-					metaData = GeoTiffUtil.loadMetaData(in);
-				}
-
-				return metaData;
+		try (InputStream in = zipFile.getInputStream(getEntry(fileName))) {
+			DataFileMetaData metaData;
+			if (fileName.endsWith(LandscapeLoader.FILE_EXT_ASC)) {
+				metaData = ASCParser.loadMetaData(in);
+			} else {
+				metaData = GeoTiffUtil.loadMetaData(in);
 			}
+
+			return metaData;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		zipFile.close();
+	}
+
+	private ZipEntry getEntry(final String fileName) throws FileNotFoundException {
+		final ZipEntry entry = entries.get(fileName);
+		if (entry == null) {
+			throw new FileNotFoundException(fileName + " not found in " + zipFilePath);
 		}
+		return entry;
 	}
 
 }
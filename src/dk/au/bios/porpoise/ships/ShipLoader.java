@@ -45,6 +45,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import dk.au.bios.porpoise.Agent;
 import dk.au.bios.porpoise.Globals;
+import dk.au.bios.porpoise.SimulationParameters;
 import repast.simphony.context.Context;
 import repast.simphony.space.continuous.ContinuousSpace;
 import repast.simphony.space.continuous.NdPoint;
@@ -83,16 +84,35 @@ public class ShipLoader {
 			final Function<? super Buoy, ? extends NdPoint> mapper;
 			mapper = buoy -> new NdPoint(convertUtmXToGrid(buoy.getX()), convertUtmYToGrid(buoy.getY()));
 			List<NdPoint> route = r.getRoute().stream().map(mapper).collect(Collectors.toList());
+			if (SimulationParameters.getLandscapeWindow() != null) {
+				// Buoys outside the window cannot be placed in the space, the ships only sail between those inside it.
+				route.removeIf(p -> !isInsideSpace(p));
+			}
 			NdPoint[] routePoints = route.toArray(new NdPoint[route.size()]);
 			routes.put(name, routePoints);
 		}
 
+		int numOutsideWindow = 0;
 		for (Ship s : shipsData.getShips()) {
 			NdPoint[] route = routes.get(s.getRoute());
+			if (SimulationParameters.getLandscapeWindow() != null && route.length < 2) {
+				numOutsideWindow++;
+				continue;
+			}
 			dk.au.bios.porpoise.Ship agent = new dk.au.bios.porpoise.Ship(space, grid, route, s);
 			context.add(agent);
 			agent.initialize();
 		}
+
+		if (numOutsideWindow > 0) {
+			System.out.println(numOutsideWindow + " ships with less than two route points inside the landscape window "
+					+ "were ignored");
+		}
+	}
+
+	private boolean isInsideSpace(final NdPoint p) {
+		return p.getX() >= -0.5d && p.getY() >= -0.5d && p.getX() < Globals.getWorldWidth() - 0.5d
+				&& p.getY() < Globals.getWorldHeight() - 0.5d;
 	}
 
 	private double convertUtmXToGrid(final double utmX) {
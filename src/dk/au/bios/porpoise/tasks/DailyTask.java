@@ -32,6 +32,8 @@ import java.util.LinkedList;
 import repast.simphony.context.Context;
 import repast.simphony.engine.schedule.IAction;
 import dk.au.bios.porpoise.Agent;
+import dk.au.bios.porpoise.Globals;
+import dk.au.bios.porpoise.PopulationStore;
 import dk.au.bios.porpoise.Porpoise;
 
 /**
@@ -58,10 +60,20 @@ public class DailyTask implements IAction {
 			porpoises.add((Porpoise) a);
 		}
 
+		final PopulationStore store = Globals.getPopulationStore();
+		if (store != null) {
+			// The age and daily average energy level of all porpoises in one loop over the store
+			store.updateDailyEnergetics();
+		}
+
 		for (final Porpoise p : porpoises) {
 			// Update daily average energy level and corresponding positions for porps and use it to start/stop
 			// dispersing
-			p.performDailyStep();
+			if (store != null) {
+				p.performDailyStepInStore();
+			} else {
+				p.performDailyStep();
+			}
 		}
 	}
 
@@ -30,6 +30,8 @@ package dk.au.bios.porpoise.tasks;
 import repast.simphony.context.Context;
 import repast.simphony.engine.schedule.IAction;
 import dk.au.bios.porpoise.Agent;
+import dk.au.bios.porpoise.Globals;
+import dk.au.bios.porpoise.PopulationStore;
 import dk.au.bios.porpoise.Porpoise;
 import dk.au.bios.porpoise.SoundSource;
 import dk.au.bios.porpoise.Turbine;
@@ -47,8 +49,13 @@ public class DeterenceTask implements IAction {
 
 	@Override
 	public void execute() {
-		for (final Agent a : this.context.getObjects(Porpoise.class)) {
-			((Porpoise) a).updateDeterence();
+		final PopulationStore store = Globals.getPopulationStore();
+		if (store != null) {
+			store.updateDeterence();
+		} else {
+			for (final Agent a : this.context.getObjects(Porpoise.class)) {
+				((Porpoise) a).updateDeterence();
+			}
 		}
 
 		Turbine.activateTurbines(context);
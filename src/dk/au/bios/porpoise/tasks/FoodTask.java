@@ -40,6 +40,8 @@ import dk.au.bios.porpoise.BackgroundAgent;
 import dk.au.bios.porpoise.Globals;
 import dk.au.bios.porpoise.SimulationConstants;
 import dk.au.bios.porpoise.SimulationParameters;
+import dk.au.bios.porpoise.landscape.GridLayer;
+import dk.au.bios.porpoise.landscape.MutableGridLayer;
 import dk.au.bios.porpoise.util.DaemonThreadFactory;
 import dk.au.bios.porpoise.util.Pair;
 
@@ -55,12 +57,12 @@ public class FoodTask implements IAction {
 	 */
 	private static AtomicInteger extraGrowthCount = new AtomicInteger();
 
-	private final double[][] foodProb;
-	private final double[][] foodLevel;
-	private double[][] maxEnt;
+	private final GridLayer foodProb;
+	private final MutableGridLayer foodLevel;
+	private GridLayer maxEnt;
 
 	public FoodTask() {
-		this.foodProb = Globals.getCellData().getFoodProb();
+		this.foodProb = Globals.getCellData().getFoodProbLayer();
 		this.foodLevel = Globals.getCellData().getFoodValue();
 	}
 
@@ -73,7 +75,7 @@ public class FoodTask implements IAction {
 		extraGrowthCount.set(0);
 
 		// Get the right ent for the season
-		this.maxEnt = Globals.getCellData().getMaxEnt();
+		this.maxEnt = Globals.getCellData().getMaxEntLayer();
 
 		// executeSingleThreadBruteForce(); // (0.30 seconds per day)
 		// executeSingleThreadOptimized(); // (0.22 seconds per day)
@@ -92,29 +94,30 @@ public class FoodTask implements IAction {
 			// If we do not add food in the eat step then we need to add it before calculating the food growth
 			// - otherwise the food growth can start on really small amounts which leads to very small increases
 			// (the patch is basically dead, and the 47 extra calcs is not sufficient to restore it).
-			if (!SimulationConstants.ADD_ARTIFICIAL_FOOD && foodLevel[i][j] < 0.01) {
-				foodLevel[i][j] = 0.01;
+			if (!SimulationConstants.ADD_ARTIFICIAL_FOOD && foodLevel.getValue(i, j) < 0.01) {
+				foodLevel.setValue(i, j, 0.01);
 			}
 
-			if (foodLevel[i][j] < (SimulationParameters.getMaxU() * maxEnt[i][j])) {
-				double fLevel = foodLevel[i][j]
-						+ (SimulationParameters.getFoodGrowthRate() * foodLevel[i][j] * (1.0 - foodLevel[i][j]
-								/ (SimulationParameters.getMaxU() * maxEnt[i][j] / Globals
+			final double level = foodLevel.getValue(i, j);
+			if (level < (SimulationParameters.getMaxU() * maxEnt.getValue(i, j))) {
+				double fLevel = level
+						+ (SimulationParameters.getFoodGrowthRate() * level * (1.0 - level
+								/ (SimulationParameters.getMaxU() * maxEnt.getValue(i, j) / Globals
 										.getMeanMaxEntInCurrentQuarter())));
 
-				if (Math.abs(fLevel - foodLevel[i][j]) > SimulationParameters.getRegrowthFoodQualifier()) {
+				if (Math.abs(fLevel - level) > SimulationParameters.getRegrowthFoodQualifier()) {
 					for (int k = 0; k < 47; k++) {
 						fLevel = fLevel
 								+ (SimulationParameters.getFoodGrowthRate() * fLevel * (1.0 - fLevel
-										/ (SimulationParameters.getMaxU() * maxEnt[i][j] / Globals
+										/ (SimulationParameters.getMaxU() * maxEnt.getValue(i, j) / Globals
 												.getMeanMaxEntInCurrentQuarter())));
 					}
 
 					extraGrowthCount.incrementAndGet();
 				}
 
-				grownFood += (fLevel - foodLevel[i][j]);
-				foodLevel[i][j] = fLevel;
+				grownFood += (fLevel - level);
+				foodLevel.setValue(i, j, fLevel);
 			}
 		}
 		BackgroundAgent.setGrownFood(grownFood);
@@ -124,24 +127,26 @@ public class FoodTask implements IAction {
 		// maxent-level is patch specific, between 0 and 1 (MAXENT-based); food-growth-rate (rU) is global variable
 		double grownFood = 0;
 
-		for (int i = 0; i < foodProb.length; i++) {
-			for (int j = 0; j < foodProb[0].length; j++) {
-				if (foodProb[i][j] > 0 && foodLevel[i][j] < (SimulationParameters.getMaxU() * maxEnt[i][j])) {
-					if (!SimulationConstants.ADD_ARTIFICIAL_FOOD && foodLevel[i][j] < 0.01) {
-						foodLevel[i][j] = 0.01;
+		for (int i = 0; i < foodProb.getWidth(); i++) {
+			for (int j = 0; j < foodProb.getHeight(); j++) {
+				if (foodProb.getValue(i, j) > 0
+						&& foodLevel.getValue(i, j) < (SimulationParameters.getMaxU() * maxEnt.getValue(i, j))) {
+					if (!SimulationConstants.ADD_ARTIFICIAL_FOOD && foodLevel.getValue(i, j) < 0.01) {
+						foodLevel.setValue(i, j, 0.01);
 					}
 
-					double fLevel = foodLevel[i][j]
-							+ (SimulationParameters.getFoodGrowthRate() * foodLevel[i][j] * (1.0 - foodLevel[i][j]
-									/ (SimulationParameters.getMaxU() * maxEnt[i][j] / Globals
+					final double level = foodLevel.getValue(i, j);
+					double fLevel = level
+							+ (SimulationParameters.getFoodGrowthRate() * level * (1.0 - level
+									/ (SimulationParameters.getMaxU() * maxEnt.getValue(i, j) / Globals
 											.getMeanMaxEntInCurrentQuarter())));
 
-					if (Math.abs(fLevel - foodLevel[i][j]) > SimulationParameters.getRegrowthFoodQualifier()) {
+					if (Math.abs(fLevel - level) > SimulationParameters.getRegrowthFoodQualifier()) {
 						for (int k = 0; k < 47; k++) {
 							fLevel += SimulationParameters.getFoodGrowthRate()
 									* fLevel
 									* (1 - fLevel
-											/ (SimulationParameters.getMaxU() * maxEnt[i][j] / Globals
+											/ (SimulationParameters.getMaxU() * maxEnt.getValue(i, j) / Globals
 													.getMeanMaxEntInCurrentQuarter()));
 						}
 						extraGrowthCount.incrementAndGet();
@@ -149,9 +154,9 @@ public class FoodTask implements IAction {
 					// If the food level is really low, let food grow 48 times -- like growing every half-hour step,
 					// only faster
 
-					grownFood += (fLevel - foodLevel[i][j]);
+					grownFood += (fLevel - level);
 
-					foodLevel[i][j] = fLevel;
+					foodLevel.setValue(i, j, fLevel);
 					// here maxent-level is MAXENT prediction and food-growth-rate is a universal calibrated variable
 				}
 			}
@@ -206,28 +211,29 @@ public class FoodTask implements IAction {
 				final int i = points[idx].getFirst();
 				final int j = points[idx].getSecond();
 
-				if (!SimulationConstants.ADD_ARTIFICIAL_FOOD && foodLevel[i][j] < 0.01) {
-					foodLevel[i][j] = 0.01;
+				if (!SimulationConstants.ADD_ARTIFICIAL_FOOD && foodLevel.getValue(i, j) < 0.01) {
+					foodLevel.setValue(i, j, 0.01);
 				}
 
-				if (foodLevel[i][j] < (SimulationParameters.getMaxU() * maxEnt[i][j])) {
-					double fLevel = foodLevel[i][j]
-							+ (SimulationParameters.getFoodGrowthRate() * foodLevel[i][j] * (1.0 - foodLevel[i][j]
-									/ (SimulationParameters.getMaxU() * maxEnt[i][j] / Globals
+				final double level = foodLevel.getValue(i, j);
+				if (level < (SimulationParameters.getMaxU() * maxEnt.getValue(i, j))) {
+					double fLevel = level
+							+ (SimulationParameters.getFoodGrowthRate() * level * (1.0 - level
+									/ (SimulationParameters.getMaxU() * maxEnt.getValue(i, j) / Globals
 											.getMeanMaxEntInCurrentQuarter())));
 
-					if (Math.abs(fLevel - foodLevel[i][j]) > SimulationParameters.getRegrowthFoodQualifier()) {
+					if (Math.abs(fLevel - level) > SimulationParameters.getRegrowthFoodQualifier()) {
 						for (int k = 0; k < 47; k++) {
 							fLevel += SimulationParameters.getFoodGrowthRate()
 									* fLevel
 									* (1 - fLevel
-											/ (SimulationParameters.getMaxU() * maxEnt[i][j] / Globals
+											/ (SimulationParameters.getMaxU() * maxEnt.getValue(i, j) / Globals
 													.getMeanMaxEntInCurrentQuarter()));
 						}
 						extraGrowthCount.incrementAndGet();
 					}
 
-					foodLevel[i][j] = fLevel;
+					foodLevel.setValue(i, j, fLevel);
 				}
 			}
 			return true;
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+package dk.au.bios.porpoise.tasks;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import repast.simphony.context.Context;
+import repast.simphony.engine.schedule.IAction;
+import dk.au.bios.porpoise.Agent;
+import dk.au.bios.porpoise.Porpoise;
+import dk.au.bios.porpoise.util.DaemonThreadFactory;
+
+/**
+ * The scheduled action moving the porpoises on several threads, used instead of Porpoise.move() when moveThreads is
+ * set. Each tick is run in two phases. First the porpoises are detached from the space and their steps are run in
+ * parallel, each porpoise seeing the landscape, the food and the other porpoises as they were when the tick started.
+ * Then the porpoises are attached at their new positions and eat, one at a time in the order of their ids. As each
+ * porpoise draws from its own random source, the results are the same for any number of threads.
+ */
+public class MoveTask implements IAction {
+
+	/**
+	 * The number of porpoises moved by each job.
+	 */
+	private static final int CHUNK_SIZE = 64;
+
+	private static ExecutorService threadPool = null;
+	private static int poolThreads = 0;
+
+	private final Context<Agent> context;
+	private final ExecutorService pool;
+
+	public MoveTask(final Context<Agent> context, final int threads) {
+		this.context = context;
+		this.pool = getThreadPool(threads);
+	}
+
+	private static synchronized ExecutorService getThreadPool(final int threads) {
+		if (threads != poolThreads) {
+			if (threadPool != null) {
+				threadPool.shutdown();
+			}
+			threadPool = Executors.newFixedThreadPool(threads, new DaemonThreadFactory());
+			poolThreads = threads;
+		}
+		return threadPool;
+	}
+
+	@Override
+	public void execute() {
+		final List<Porpoise> porpoises = new ArrayList<Porpoise>();
+		for (final Agent a : this.context.getObjects(Porpoise.class)) {
+			porpoises.add((Porpoise) a);
+		}
+		porpoises.sort(Comparator.comparingLong(Porpoise::getId));
+
+		boolean moved = false;
+		try {
+			for (final Porpoise p : porpoises) {
+				p.startMove();
+				p.detach();
+			}
+			moveSteps(porpoises);
+			moved = true;
+		} finally {
+			if (!moved) {
+				// A step failed, put the porpoises back in the space and grid before the error is passed on.
+				for (final Porpoise p : porpoises) {
+					if (p.isDetached()) {
+						p.attach();
+					}
+				}
+			}
+		}
+
+		for (final Porpoise p : porpoises) {
+			p.attach();
+			p.finishMove();
+		}
+	}
+
+	/**
+	 * Runs the steps of the detached porpoises in chunks on the thread pool. All chunks are waited for, also when one
+	 * of them fails, so no porpoise is still being moved when they are attached again.
+	 */
+	private void moveSteps(final List<Porpoise> porpoises) {
+		final List<Future<?>> jobs = new ArrayList<Future<?>>();
+		for (int from = 0; from < porpoises.size(); from += CHUNK_SIZE) {
+			final List<Porpoise> chunk = porpoises.subList(from, Math.min(from + CHUNK_SIZE, porpoises.size()));
+			jobs.add(pool.submit(() -> chunk.forEach(Porpoise::moveStep)));
+		}
+
+		RuntimeException failure = null;
+		for (final Future<?> job : jobs) {
+			try {
+				job.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				for (final Future<?> j : jobs) {
+					j.cancel(false);
+				}
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				if (failure == null) {
+					failure = new RuntimeException(e.getCause());
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+}
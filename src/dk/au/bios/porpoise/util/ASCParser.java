@@ -0,0 +1,483 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import dk.au.bios.porpoise.landscape.DataFileMetaData;
+import dk.au.bios.porpoise.landscape.GridWindow;
+
+/**
+ * Fast reader for ESRI ASCII grid files.
+ *
+ * Tokens are parsed directly from the raw bytes into the primitive result array, and the rows of large files are
+ * parsed in parallel. The result is identical to {@link ASCUtil#loadDoubleAscFile(int, int, InputStream, boolean)}:
+ * numbers which cannot be converted exactly by the fast path are handed to {@link Double#parseDouble(String)}.
+ */
+public final class ASCParser {
+
+	private static final int HEADER_LINES = 6;
+	private static final int MAX_HEADER_BYTES = 4 * 1024;
+
+	/**
+	 * Do not split files with fewer rows than this into parallel jobs.
+	 */
+	private static final int MIN_ROWS_PER_JOB = 32;
+
+	/**
+	 * Maximum number of significant digits which can be held exactly in the mantissa of a double.
+	 */
+	private static final int MAX_FAST_DIGITS = 15;
+
+	private static final long[] LONG_POWERS_OF_TEN = new long[MAX_FAST_DIGITS + 1];
+	private static final double[] DOUBLE_POWERS_OF_TEN = new double[23];
+
+	static {
+		LONG_POWERS_OF_TEN[0] = 1L;
+		for (int i = 1; i < LONG_POWERS_OF_TEN.length; i++) {
+			LONG_POWERS_OF_TEN[i] = LONG_POWERS_OF_TEN[i - 1] * 10L;
+		}
+		DOUBLE_POWERS_OF_TEN[0] = 1.0;
+		for (int i = 1; i < DOUBLE_POWERS_OF_TEN.length; i++) {
+			DOUBLE_POWERS_OF_TEN[i] = DOUBLE_POWERS_OF_TEN[i - 1] * 10.0; // Exact up to 1e22
+		}
+	}
+
+	private static final int THREADS = Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors()));
+	private static final ExecutorService threadPool = Executors.newFixedThreadPool(THREADS,
+			new DaemonThreadFactory());
+
+	private ASCParser() {
+		// Utility class, prevent instances.
+	}
+
+	/**
+	 * Reads a grid of doubles from an ASC file.
+	 *
+	 * @param width The expected number of columns.
+	 * @param height The expected number of rows.
+	 * @param in The file contents. The stream is read to the end but not closed.
+	 * @param replaceNoDataWithNaN Replace cells holding the NODATA_value with NaN.
+	 * @return The data indexed as [x][y] with y = 0 being the bottom row.
+	 * @throws IOException If the file could not be read or does not have the expected dimensions.
+	 */
+	public static double[][] loadDoubleAscFile(final int width, final int height, final InputStream in,
+			final boolean replaceNoDataWithNaN) throws IOException {
+		final byte[] buf = readAllBytes(in, -1);
+		return loadDoubleAscFile(width, height, buf, buf.length, replaceNoDataWithNaN);
+	}
+
+	/**
+	 * Reads a grid of doubles from an ASC file already held in memory.
+	 *
+	 * @param width The expected number of columns.
+	 * @param height The expected number of rows.
+	 * @param buf The file contents.
+	 * @param length The number of valid bytes in buf.
+	 * @param replaceNoDataWithNaN Replace cells holding the NODATA_value with NaN.
+	 * @return The data indexed as [x][y] with y = 0 being the bottom row.
+	 * @throws IOException If the file does not have the expected dimensions.
+	 */
+	public static double[][] loadDoubleAscFile(final int width, final int height, final byte[] buf,
+			final int length, final boolean replaceNoDataWithNaN) throws IOException {
+		return loadDoubleAscFile(GridWindow.full(width, height), buf, length, replaceNoDataWithNaN);
+	}
+
+	/**
+	 * Reads a window of a grid of doubles from an ASC file already held in memory. Only the values within the window
+	 * are parsed, but the file is still checked to have the dimensions of the grid.
+	 *
+	 * @param window The window to read. The grid size of the window is the expected size of the file.
+	 * @param buf The file contents.
+	 * @param length The number of valid bytes in buf.
+	 * @param replaceNoDataWithNaN Replace cells holding the NODATA_value with NaN.
+	 * @return The data of the window indexed as [x][y] with y = 0 being the bottom row of the window.
+	 * @throws IOException If the file does not have the expected dimensions.
+	 */
+	public static double[][] loadDoubleAscFile(final GridWindow window, final byte[] buf, final int length,
+			final boolean replaceNoDataWithNaN) throws IOException {
+		final int height = window.getGridHeight();
+		byte[] noData = null;
+		int pos = 0;
+		for (int i = 0; i < HEADER_LINES; i++) {
+			final int end = lineEnd(buf, pos, length);
+			if (end == pos && end >= length) {
+				throw new IOException("Unexpected end of file in ASC header");
+			}
+			if (startsWith(buf, pos, end, "NODATA_value")) {
+				int from = pos + "NODATA_value".length();
+				int to = end;
+				while (from < to && buf[from] <= ' ') {
+					from++;
+				}
+				while (to > from && buf[to - 1] <= ' ') {
+					to--;
+				}
+				noData = Arrays.copyOfRange(buf, from, to);
+			}
+			pos = nextLine(buf, end, length);
+		}
+
+		final int[] rowStart = new int[height];
+		final int[] rowEnd = new int[height];
+		int rows = 0;
+		while (pos < length) {
+			final int end = lineEnd(buf, pos, length);
+			if (rows == height) {
+				throw new IOException("ASC file has more than the expected " + height + " rows");
+			}
+			rowStart[rows] = pos;
+			rowEnd[rows] = end;
+			rows++;
+			pos = nextLine(buf, end, length);
+		}
+		if (rows != height) {
+			throw new IOException("ASC file has " + rows + " rows, expected " + height);
+		}
+
+		final double[][] data = new double[window.getWidth()][window.getHeight()];
+		final byte[] noDataValue = replaceNoDataWithNaN ? noData : null;
+		// Rows are stored top to bottom
+		final int firstRow = height - window.getY() - window.getHeight();
+		final int windowRows = window.getHeight();
+		final int jobs = Math.min(THREADS, windowRows / MIN_ROWS_PER_JOB);
+		if (jobs <= 1) {
+			parseRows(buf, rowStart, rowEnd, firstRow, firstRow + windowRows, window, data, noDataValue);
+			return data;
+		}
+
+		final List<Future<Void>> tasks = new ArrayList<>(jobs);
+		for (int i = 0; i < jobs; i++) {
+			final int from = firstRow + (int) ((long) windowRows * i / jobs);
+			final int to = firstRow + (int) ((long) windowRows * (i + 1) / jobs);
+			tasks.add(threadPool.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					parseRows(buf, rowStart, rowEnd, from, to, window, data, noDataValue);
+					return null;
+				}
+			}));
+		}
+
+		try {
+			for (final Future<Void> f : tasks) {
+				f.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while parsing ASC file", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			} else if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+
+		return data;
+	}
+
+	/**
+	 * Reads the header of an ASC file. Only the header lines are consumed from the stream.
+	 *
+	 * @param in The file contents.
+	 * @return The meta data. The CRS is always null as ASC files do not carry one.
+	 * @throws IOException If the header could not be read.
+	 */
+	public static DataFileMetaData loadMetaData(final InputStream in) throws IOException {
+		final String[] lines = new String[5];
+		final byte[] buf = new byte[MAX_HEADER_BYTES];
+		int length = 0;
+		int pos = 0;
+		int lineNo = 0;
+		while (lineNo < lines.length) {
+			int end = pos;
+			while (end < length && buf[end] != '\n' && buf[end] != '\r') {
+				end++;
+			}
+			if (end < length) {
+				lines[lineNo++] = new String(buf, pos, end - pos, StandardCharsets.US_ASCII).trim();
+				pos = end + 1;
+				if (buf[end] == '\r' && pos < length && buf[pos] == '\n') {
+					pos++;
+				}
+				continue;
+			}
+			if (length == buf.length) {
+				throw new IOException("ASC header is larger than " + MAX_HEADER_BYTES + " bytes");
+			}
+			final int read = in.read(buf, length, buf.length - length);
+			if (read < 0) {
+				throw new IOException("Unexpected end of file in ASC header");
+			}
+			length += read;
+		}
+
+		final int ncols = Integer.parseInt(lastValue(lines[0]));
+		final int nrows = Integer.parseInt(lastValue(lines[1]));
+		final double xllcorner = Double.parseDouble(lastValue(lines[2]));
+		final double yllcorner = Double.parseDouble(lastValue(lines[3]));
+		final int cellsize = Integer.parseInt(lastValue(lines[4]));
+
+		return new DataFileMetaData(ncols, nrows, xllcorner, yllcorner, cellsize, null); // Unknown CRS in ASC files
+	}
+
+	/**
+	 * Reads the remainder of a stream into a byte array.
+	 *
+	 * @param in The stream to read.
+	 * @param sizeHint The expected size, or a negative number when unknown.
+	 * @return The contents, trimmed to the number of bytes read.
+	 * @throws IOException If the stream could not be read.
+	 */
+	public static byte[] readAllBytes(final InputStream in, final long sizeHint) throws IOException {
+		byte[] buf = new byte[sizeHint >= 0 && sizeHint < Integer.MAX_VALUE - 8 ? (int) sizeHint + 1 : 64 * 1024];
+		int length = 0;
+		int read;
+		while ((read = in.read(buf, length, buf.length - length)) >= 0) {
+			length += read;
+			if (length == buf.length) {
+				buf = Arrays.copyOf(buf, buf.length * 2);
+			}
+		}
+		return length == buf.length ? buf : Arrays.copyOf(buf, length);
+	}
+
+	private static void parseRows(final byte[] buf, final int[] rowStart, final int[] rowEnd, final int fromRow,
+			final int toRow, final GridWindow window, final double[][] data, final byte[] noData) throws IOException {
+		final int width = window.getGridWidth();
+		final int height = rowStart.length;
+		final int fromX = window.getX();
+		final int toX = fromX + window.getWidth();
+		for (int row = fromRow; row < toRow; row++) {
+			final int y = height - row - 1 - window.getY();
+			final int end = rowEnd[row];
+			int pos = rowStart[row];
+			int x = 0;
+			while (pos < end) {
+				int tokenEnd = pos;
+				while (tokenEnd < end && buf[tokenEnd] != ' ') {
+					tokenEnd++;
+				}
+				if (x == width) {
+					if (isBlank(buf, pos, end)) {
+						break; // Trailing separators are ignored
+					}
+					throw new IOException("Row " + (row + 1) + " of ASC file has more than " + width + " values");
+				}
+				if (x >= fromX && x < toX) {
+					data[x - fromX][y] = parseToken(buf, pos, tokenEnd, noData);
+				}
+				x++;
+				pos = tokenEnd + 1;
+			}
+			if (x != width) {
+				throw new IOException("Row " + (row + 1) + " of ASC file has " + x + " values, expected " + width);
+			}
+		}
+	}
+
+	private static double parseToken(final byte[] buf, final int start, final int end, final byte[] noData) {
+		int from = start;
+		int to = end;
+		while (from < to && buf[from] <= ' ') {
+			from++;
+		}
+		while (to > from && buf[to - 1] <= ' ') {
+			to--;
+		}
+
+		if (noData != null && to - from == noData.length && regionEquals(buf, from, noData)) {
+			return Double.NaN;
+		}
+
+		final double value = parseDouble(buf, from, to);
+		if (Double.isNaN(value)) {
+			// Not handled by the fast path (note that a literal "NaN" also takes this route and parses the same)
+			return Double.parseDouble(new String(buf, start, end - start, StandardCharsets.US_ASCII));
+		}
+		return value;
+	}
+
+	/**
+	 * Parses a plain decimal number. Returns NaN when the number cannot be converted exactly without rounding twice,
+	 * in which case the caller must fall back to {@link Double#parseDouble(String)}.
+	 */
+	static double parseDouble(final byte[] buf, final int start, final int end) {
+		int pos = start;
+		boolean negative = false;
+		if (pos < end && (buf[pos] == '-' || buf[pos] == '+')) {
+			negative = buf[pos] == '-';
+			pos++;
+		}
+
+		long mantissa = 0;
+		int digits = 0; // Significant digits in the mantissa
+		int pendingZeros = 0; // Zeros seen after the last non-zero digit, not yet applied to the mantissa
+		int exponent = 0;
+		boolean anyDigit = false;
+		boolean fraction = false;
+
+		for (; pos < end; pos++) {
+			final int c = buf[pos];
+			if (c >= '0' && c <= '9') {
+				anyDigit = true;
+				if (fraction) {
+					exponent--;
+				}
+				if (c == '0') {
+					if (mantissa != 0) {
+						pendingZeros++;
+					}
+				} else {
+					digits += pendingZeros + 1;
+					if (digits > MAX_FAST_DIGITS) {
+						return Double.NaN;
+					}
+					mantissa = mantissa * LONG_POWERS_OF_TEN[pendingZeros + 1] + (c - '0');
+					pendingZeros = 0;
+				}
+			} else if (c == '.' && !fraction) {
+				fraction = true;
+			} else {
+				break;
+			}
+		}
+		if (!anyDigit) {
+			return Double.NaN;
+		}
+		exponent += pendingZeros;
+
+		if (pos < end) {
+			if (buf[pos] != 'e' && buf[pos] != 'E') {
+				return Double.NaN;
+			}
+			pos++;
+			boolean negativeExponent = false;
+			if (pos < end && (buf[pos] == '-' || buf[pos] == '+')) {
+				negativeExponent = buf[pos] == '-';
+				pos++;
+			}
+			if (pos == end || end - pos > 3) {
+				return Double.NaN;
+			}
+			int exp = 0;
+			for (; pos < end; pos++) {
+				final int c = buf[pos];
+				if (c < '0' || c > '9') {
+					return Double.NaN;
+				}
+				exp = exp * 10 + (c - '0');
+			}
+			exponent += negativeExponent ? -exp : exp;
+		}
+
+		double value;
+		if (mantissa == 0) {
+			value = 0.0;
+		} else if (exponent == 0) {
+			value = mantissa;
+		} else if (exponent > 0 && exponent < DOUBLE_POWERS_OF_TEN.length) {
+			value = mantissa * DOUBLE_POWERS_OF_TEN[exponent];
+		} else if (exponent < 0 && -exponent < DOUBLE_POWERS_OF_TEN.length) {
+			value = mantissa / DOUBLE_POWERS_OF_TEN[-exponent];
+		} else if (exponent > 0 && exponent - (DOUBLE_POWERS_OF_TEN.length - 1) <= MAX_FAST_DIGITS - digits) {
+			// Move the excess exponent into the mantissa while it stays exact
+			final long shifted = mantissa * LONG_POWERS_OF_TEN[exponent - (DOUBLE_POWERS_OF_TEN.length - 1)];
+			value = shifted * DOUBLE_POWERS_OF_TEN[DOUBLE_POWERS_OF_TEN.length - 1];
+		} else {
+			return Double.NaN;
+		}
+
+		return negative ? -value : value;
+	}
+
+	private static int lineEnd(final byte[] buf, final int from, final int length) {
+		int pos = from;
+		while (pos < length && buf[pos] != '\n' && buf[pos] != '\r') {
+			pos++;
+		}
+		return pos;
+	}
+
+	private static int nextLine(final byte[] buf, final int lineEnd, final int length) {
+		if (lineEnd >= length) {
+			return length;
+		}
+		if (buf[lineEnd] == '\r' && lineEnd + 1 < length && buf[lineEnd + 1] == '\n') {
+			return lineEnd + 2;
+		}
+		return lineEnd + 1;
+	}
+
+	private static boolean startsWith(final byte[] buf, final int from, final int to, final String prefix) {
+		if (to - from < prefix.length()) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length(); i++) {
+			if (buf[from + i] != prefix.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean regionEquals(final byte[] buf, final int from, final byte[] other) {
+		for (int i = 0; i < other.length; i++) {
+			if (buf[from + i] != other[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isBlank(final byte[] buf, final int from, final int to) {
+		for (int i = from; i < to; i++) {
+			if (buf[i] > ' ') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String lastValue(final String line) {
+		return line.substring(line.lastIndexOf(' ') + 1);
+	}
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+package dk.au.bios.porpoise.util;
+
+/**
+ * Table based approximations of the functions evaluated for every porpoise in every step, used when fastMath is
+ * enabled. The tables are interpolated linearly. The relative error of {@link #pow2(double)} and the absolute error of
+ * {@link #log2(double)} are below 1e-8. Arguments outside the range of the tables are passed on to Math.
+ */
+public final class FastMath {
+
+	private static final double LN2 = Math.log(2);
+	private static final double LOG2_10 = Math.log(10) / LN2;
+	private static final double LOG10_2 = LN2 / Math.log(10);
+
+	private static final int POW2_STEPS = 4096;
+	private static final double[] POW2 = new double[POW2_STEPS + 1];
+
+	private static final int LOG2_STEPS = 8192;
+	private static final double[] LOG2 = new double[LOG2_STEPS + 1];
+	private static final long MANTISSA_MASK = (1L << 52) - 1;
+	private static final double MANTISSA_TO_STEPS = LOG2_STEPS / (double) (1L << 52);
+
+	static {
+		for (int i = 0; i <= POW2_STEPS; i++) {
+			POW2[i] = Math.pow(2, (double) i / POW2_STEPS);
+		}
+		for (int i = 0; i <= LOG2_STEPS; i++) {
+			LOG2[i] = Math.log(1 + (double) i / LOG2_STEPS) / LN2;
+		}
+	}
+
+	private FastMath() {
+		// Utility class, prevent instances.
+	}
+
+	/**
+	 * Returns 2 raised to the power of x.
+	 */
+	public static double pow2(final double x) {
+		if (!(x > -1022 && x < 1023)) {
+			return Math.pow(2, x);
+		}
+
+		final double floor = Math.floor(x);
+		final double t = (x - floor) * POW2_STEPS;
+		final int i = (int) t;
+		final double mantissa = POW2[i] + (POW2[i + 1] - POW2[i]) * (t - i);
+		return mantissa * Double.longBitsToDouble((long) ((int) floor + 1023) << 52);
+	}
+
+	/**
+	 * Returns 10 raised to the power of x.
+	 */
+	public static double pow10(final double x) {
+		return pow2(x * LOG2_10);
+	}
+
+	/**
+	 * Returns the base 2 logarithm of x.
+	 */
+	public static double log2(final double x) {
+		if (!(x >= Double.MIN_NORMAL && x < Double.POSITIVE_INFINITY)) {
+			return Math.log(x) / LN2;
+		}
+
+		final long bits = Double.doubleToRawLongBits(x);
+		final int exponent = (int) (bits >>> 52) - 1023;
+		final double t = (bits & MANTISSA_MASK) * MANTISSA_TO_STEPS;
+		final int i = (int) t;
+		return exponent + LOG2[i] + (LOG2[i + 1] - LOG2[i]) * (t - i);
+	}
+
+	/**
+	 * Returns the base 10 logarithm of x.
+	 */
+	public static double log10(final double x) {
+		return log2(x) * LOG10_2;
+	}
+
+}
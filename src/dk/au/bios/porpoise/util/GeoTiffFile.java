@@ -0,0 +1,883 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.geotools.gce.geotiff.GeoTiffReader;
+import org.geotools.referencing.CRS;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import dk.au.bios.porpoise.landscape.DataFileMetaData;
+
+/**
+ * Minimal reader for single band GeoTIFF files (classic and BigTIFF). The grid geometry is taken from the TIFF tags
+ * without decoding any pixels, and the strips or tiles of the first band are decoded one at a time directly into the
+ * target array.
+ *
+ * Supported are uncompressed, LZW, Deflate and PackBits compressed files with 8, 16 or 32 bit integer or 32/64 bit
+ * floating point samples, with or without a predictor. The file is read from the stream on demand, so reading the
+ * meta data usually only consumes the beginning of the file.
+ */
+final class GeoTiffFile {
+
+	private static final int TAG_IMAGE_WIDTH = 256;
+	private static final int TAG_IMAGE_LENGTH = 257;
+	private static final int TAG_BITS_PER_SAMPLE = 258;
+	private static final int TAG_COMPRESSION = 259;
+	private static final int TAG_STRIP_OFFSETS = 273;
+	private static final int TAG_SAMPLES_PER_PIXEL = 277;
+	private static final int TAG_ROWS_PER_STRIP = 278;
+	private static final int TAG_STRIP_BYTE_COUNTS = 279;
+	private static final int TAG_PLANAR_CONFIGURATION = 284;
+	private static final int TAG_PREDICTOR = 317;
+	private static final int TAG_TILE_WIDTH = 322;
+	private static final int TAG_TILE_LENGTH = 323;
+	private static final int TAG_TILE_OFFSETS = 324;
+	private static final int TAG_TILE_BYTE_COUNTS = 325;
+	private static final int TAG_SAMPLE_FORMAT = 339;
+	private static final int TAG_MODEL_PIXEL_SCALE = 33550;
+	private static final int TAG_MODEL_TIEPOINT = 33922;
+	private static final int TAG_MODEL_TRANSFORMATION = 34264;
+	private static final int TAG_GEO_KEY_DIRECTORY = 34735;
+	private static final int TAG_GDAL_NODATA = 42113;
+
+	private static final int COMPRESSION_NONE = 1;
+	private static final int COMPRESSION_LZW = 5;
+	private static final int COMPRESSION_DEFLATE = 8;
+	private static final int COMPRESSION_PACKBITS = 32773;
+	private static final int COMPRESSION_DEFLATE_OLD = 32946;
+
+	private static final int PREDICTOR_HORIZONTAL = 2;
+	private static final int PREDICTOR_FLOATING_POINT = 3;
+
+	private static final int SAMPLE_FORMAT_UINT = 1;
+	private static final int SAMPLE_FORMAT_INT = 2;
+	private static final int SAMPLE_FORMAT_FLOAT = 3;
+
+	private static final int GEO_KEY_RASTER_TYPE = 1025;
+	private static final int GEO_KEY_GEOGRAPHIC_TYPE = 2048;
+	private static final int GEO_KEY_PROJECTED_CS_TYPE = 3072;
+	private static final int RASTER_PIXEL_IS_POINT = 2;
+	private static final int USER_DEFINED = 32767;
+
+	private static final Map<Integer, CoordinateReferenceSystem> EPSG_CACHE = new ConcurrentHashMap<>();
+
+	private final Source source;
+	private final boolean bigTiff;
+
+	private int width;
+	private int height;
+	private int bitsPerSample;
+	private int sampleFormat = SAMPLE_FORMAT_UINT;
+	private int samplesPerPixel = 1;
+	private int compression = COMPRESSION_NONE;
+	private int predictor = 1;
+	private int planarConfiguration = 1;
+	private int chunkWidth;
+	private int chunkHeight;
+	private boolean tiled;
+	private long[] chunkOffsets;
+	private long[] chunkByteCounts;
+	private double[] pixelScale;
+	private double[] tiepoint;
+	private double[] transformation;
+	private int[] geoKeys;
+	private String noData;
+
+	private GeoTiffFile(final InputStream in) throws IOException {
+		this.source = new Source(in);
+
+		source.ensure(8);
+		if (source.data[0] == 'I' && source.data[1] == 'I') {
+			source.littleEndian = true;
+		} else if (source.data[0] != 'M' || source.data[1] != 'M') {
+			throw new IOException("Not a TIFF file");
+		}
+		final int version = source.u16(2);
+		if (version == 42) {
+			bigTiff = false;
+			readDirectory(source.u32(4));
+		} else if (version == 43) {
+			bigTiff = true;
+			source.ensure(16);
+			readDirectory(source.u64(8));
+		} else {
+			throw new IOException("Not a TIFF file, version " + version);
+		}
+	}
+
+	/**
+	 * Reads the TIFF header and the tags of the first image. No pixel data is decoded.
+	 */
+	static GeoTiffFile open(final InputStream in) throws IOException {
+		return new GeoTiffFile(in);
+	}
+
+	int getWidth() {
+		return width;
+	}
+
+	int getHeight() {
+		return height;
+	}
+
+	/**
+	 * The grid geometry and coordinate reference system of the file.
+	 */
+	DataFileMetaData getMetaData() throws IOException {
+		final double scaleX;
+		final double scaleY;
+		double originX;
+		double originY;
+		if (pixelScale != null && tiepoint != null) {
+			scaleX = pixelScale[0];
+			scaleY = pixelScale[1];
+			originX = tiepoint[3] - tiepoint[0] * scaleX;
+			originY = tiepoint[4] + tiepoint[1] * scaleY;
+		} else if (transformation != null) {
+			if (transformation[1] != 0.0 || transformation[4] != 0.0) {
+				throw new IOException("Rotated GeoTIFF grids are not supported");
+			}
+			scaleX = transformation[0];
+			scaleY = -transformation[5];
+			originX = transformation[3];
+			originY = transformation[7];
+		} else {
+			throw new IOException("GeoTIFF file has no georeferencing information");
+		}
+
+		if (getGeoKey(GEO_KEY_RASTER_TYPE) == RASTER_PIXEL_IS_POINT) {
+			// The tie point refers to the centre of the upper left cell
+			originX -= scaleX / 2.0;
+			originY += scaleY / 2.0;
+		}
+
+		if (scaleX != scaleY) {
+			throw new RuntimeException("Grid cells not square.");
+		}
+
+		final double xllcorner = originX;
+		final double yllcorner = originY - height * scaleY;
+		final int cellsize = (int) Math.round(scaleX);
+
+		return new DataFileMetaData(width, height, xllcorner, yllcorner, cellsize, getCoordinateReferenceSystem());
+	}
+
+	/**
+	 * The value marking cells without data, or NaN if the file does not define one.
+	 */
+	double getNoDataValue() {
+		if (noData == null) {
+			return Double.NaN;
+		}
+		try {
+			return Double.parseDouble(noData.trim());
+		} catch (NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+
+	/**
+	 * Decodes the first band of the image into the target, which is indexed [x][y] with y = 0 being the bottom row.
+	 *
+	 * @param target The array to fill, at least width x height.
+	 * @param noDataValue Cells holding the file's no-data value are set to this value.
+	 */
+	void readInto(final double[][] target, final double noDataValue) throws IOException {
+		readInto(target, noDataValue, 0, 0, width, height);
+	}
+
+	/**
+	 * Decodes a window of the first band of the image into the target. Only the strips/tiles overlapping the window
+	 * are decoded.
+	 *
+	 * @param target The array to fill, indexed [x][y] relative to the window with y = 0 being its bottom row.
+	 * @param noDataValue Cells holding the file's no-data value are set to this value.
+	 * @param windowX The first column of the window.
+	 * @param windowY The bottom row of the window, counted from the bottom of the image.
+	 * @param windowWidth The number of columns in the window.
+	 * @param windowHeight The number of rows in the window.
+	 */
+	void readInto(final double[][] target, final double noDataValue, final int windowX, final int windowY,
+			final int windowWidth, final int windowHeight) throws IOException {
+		final int bytesPerSample = bitsPerSample / 8;
+		final int pixelStride = planarConfiguration == 1 ? samplesPerPixel : 1;
+		final int chunksAcross = (width + chunkWidth - 1) / chunkWidth;
+		final int chunksDown = (height + chunkHeight - 1) / chunkHeight;
+		final double fileNoData = getNoDataValue();
+		final boolean hasNoData = noData != null;
+
+		if (chunkOffsets.length < chunksAcross * chunksDown) {
+			throw new IOException("GeoTIFF file has too few strips/tiles");
+		}
+
+		// The window in image rows, which are stored top to bottom
+		final int fromRow = height - windowY - windowHeight;
+		final int toRow = height - windowY;
+		final int toCol = windowX + windowWidth;
+
+		final byte[] chunk = new byte[chunkWidth * chunkHeight * pixelStride * bytesPerSample];
+		final Inflater inflater = new Inflater();
+		try {
+			// With separate planes the chunks of the first band come first
+			for (int chunkY = fromRow / chunkHeight; chunkY < chunksDown && chunkY * chunkHeight < toRow; chunkY++) {
+				for (int chunkX = windowX / chunkWidth; chunkX < chunksAcross && chunkX * chunkWidth < toCol;
+						chunkX++) {
+					final int index = chunkY * chunksAcross + chunkX;
+					final int rows = tiled ? chunkHeight : Math.min(chunkHeight, height - chunkY * chunkHeight);
+					final int rowSamples = chunkWidth * pixelStride;
+					final int expected = rows * rowSamples * bytesPerSample;
+
+					decodeChunk(index, chunk, expected, inflater);
+					undoPredictor(chunk, rows, rowSamples, pixelStride, bytesPerSample);
+
+					final int x0 = chunkX * chunkWidth;
+					final int y0 = chunkY * chunkHeight;
+					final int colStart = Math.max(0, windowX - x0);
+					final int xEnd = Math.min(chunkWidth, toCol - x0);
+					final int rowStart = Math.max(0, fromRow - y0);
+					final int yEnd = Math.min(rows, toRow - y0);
+					final boolean bigEndianFloats = predictor == PREDICTOR_FLOATING_POINT;
+					for (int row = rowStart; row < yEnd; row++) {
+						final int y = height - (y0 + row + 1) - windowY;
+						int pos = (row * rowSamples + colStart * pixelStride) * bytesPerSample;
+						for (int col = colStart; col < xEnd; col++) {
+							double val = sample(chunk, pos, bigEndianFloats);
+							if (hasNoData && (val == fileNoData || (Double.isNaN(fileNoData) && Double.isNaN(val)))) {
+								val = noDataValue;
+							}
+							target[x0 + col - windowX][y] = val;
+							pos += pixelStride * bytesPerSample;
+						}
+					}
+				}
+			}
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * Reads the remainder of the file, for use by readers needing the complete file.
+	 */
+	byte[] readAll() throws IOException {
+		source.ensure(Long.MAX_VALUE);
+		return Arrays.copyOf(source.data, source.length);
+	}
+
+	private CoordinateReferenceSystem getCoordinateReferenceSystem() throws IOException {
+		int code = getGeoKey(GEO_KEY_PROJECTED_CS_TYPE);
+		if (code <= 0) {
+			code = getGeoKey(GEO_KEY_GEOGRAPHIC_TYPE);
+		}
+
+		if (code > 0 && code != USER_DEFINED) {
+			final CoordinateReferenceSystem cached = EPSG_CACHE.get(code);
+			if (cached != null) {
+				return cached;
+			}
+			try {
+				final CoordinateReferenceSystem crs = CRS.decode("EPSG:" + code, true);
+				EPSG_CACHE.put(code, crs);
+				return crs;
+			} catch (FactoryException e) {
+				throw new IOException("Unknown coordinate reference system EPSG:" + code, e);
+			}
+		}
+
+		// User defined coordinate reference system, let GeoTools interpret the geo keys
+		final GeoTiffReader reader = new GeoTiffReader(new ByteArrayInputStream(readAll()));
+		try {
+			return reader.getCoordinateReferenceSystem();
+		} finally {
+			reader.dispose();
+		}
+	}
+
+	private int getGeoKey(final int key) {
+		if (geoKeys == null || geoKeys.length < 4) {
+			return -1;
+		}
+		final int keyCount = geoKeys[3];
+		for (int i = 0; i < keyCount && 4 + i * 4 + 3 < geoKeys.length; i++) {
+			final int base = 4 + i * 4;
+			if (geoKeys[base] == key && geoKeys[base + 1] == 0) {
+				return geoKeys[base + 3];
+			}
+		}
+		return -1;
+	}
+
+	private void readDirectory(final long offset) throws IOException {
+		final int countSize = bigTiff ? 8 : 2;
+		final int entrySize = bigTiff ? 20 : 12;
+		source.ensure(offset + countSize);
+		final long count = bigTiff ? source.u64(offset) : source.u16(offset);
+		source.ensure(offset + countSize + count * entrySize);
+
+		long[] stripOffsets = null;
+		long[] stripByteCounts = null;
+		long[] tileOffsets = null;
+		long[] tileByteCounts = null;
+		int rowsPerStrip = Integer.MAX_VALUE;
+		int tileWidth = 0;
+		int tileHeight = 0;
+
+		for (int i = 0; i < count; i++) {
+			final long entry = offset + countSize + (long) i * entrySize;
+			final int tag = source.u16(entry);
+			switch (tag) {
+			case TAG_IMAGE_WIDTH:
+				width = (int) values(entry)[0];
+				break;
+			case TAG_IMAGE_LENGTH:
+				height = (int) values(entry)[0];
+				break;
+			case TAG_BITS_PER_SAMPLE:
+				bitsPerSample = (int) values(entry)[0];
+				break;
+			case TAG_COMPRESSION:
+				compression = (int) values(entry)[0];
+				break;
+			case TAG_STRIP_OFFSETS:
+				stripOffsets = values(entry);
+				break;
+			case TAG_SAMPLES_PER_PIXEL:
+				samplesPerPixel = (int) values(entry)[0];
+				break;
+			case TAG_ROWS_PER_STRIP:
+				rowsPerStrip = (int) Math.min(Integer.MAX_VALUE, values(entry)[0]);
+				break;
+			case TAG_STRIP_BYTE_COUNTS:
+				stripByteCounts = values(entry);
+				break;
+			case TAG_PLANAR_CONFIGURATION:
+				planarConfiguration = (int) values(entry)[0];
+				break;
+			case TAG_PREDICTOR:
+				predictor = (int) values(entry)[0];
+				break;
+			case TAG_TILE_WIDTH:
+				tileWidth = (int) values(entry)[0];
+				break;
+			case TAG_TILE_LENGTH:
+				tileHeight = (int) values(entry)[0];
+				break;
+			case TAG_TILE_OFFSETS:
+				tileOffsets = values(entry);
+				break;
+			case TAG_TILE_BYTE_COUNTS:
+				tileByteCounts = values(entry);
+				break;
+			case TAG_SAMPLE_FORMAT:
+				sampleFormat = (int) values(entry)[0];
+				break;
+			case TAG_MODEL_PIXEL_SCALE:
+				pixelScale = doubleValues(entry);
+				break;
+			case TAG_MODEL_TIEPOINT:
+				tiepoint = doubleValues(entry);
+				break;
+			case TAG_MODEL_TRANSFORMATION:
+				transformation = doubleValues(entry);
+				break;
+			case TAG_GEO_KEY_DIRECTORY:
+				final long[] keys = values(entry);
+				geoKeys = new int[keys.length];
+				for (int k = 0; k < keys.length; k++) {
+					geoKeys[k] = (int) keys[k];
+				}
+				break;
+			case TAG_GDAL_NODATA:
+				noData = asciiValue(entry);
+				break;
+			default:
+				break;
+			}
+		}
+
+		if (width <= 0 || height <= 0) {
+			throw new IOException("GeoTIFF file has no image dimensions");
+		}
+		if (tileOffsets != null) {
+			tiled = true;
+			chunkWidth = tileWidth;
+			chunkHeight = tileHeight;
+			chunkOffsets = tileOffsets;
+			chunkByteCounts = tileByteCounts;
+		} else {
+			tiled = false;
+			chunkWidth = width;
+			chunkHeight = Math.min(rowsPerStrip, height);
+			chunkOffsets = stripOffsets;
+			chunkByteCounts = stripByteCounts;
+		}
+		if (chunkOffsets == null || chunkByteCounts == null || chunkWidth <= 0 || chunkHeight <= 0) {
+			throw new IOException("GeoTIFF file has no strip or tile layout");
+		}
+
+		final boolean validFormat;
+		switch (sampleFormat) {
+		case SAMPLE_FORMAT_UINT:
+		case SAMPLE_FORMAT_INT:
+			validFormat = bitsPerSample == 8 || bitsPerSample == 16 || bitsPerSample == 32;
+			break;
+		case SAMPLE_FORMAT_FLOAT:
+			validFormat = bitsPerSample == 32 || bitsPerSample == 64;
+			break;
+		default:
+			validFormat = false;
+		}
+		if (!validFormat) {
+			throw new IOException("Unsupported GeoTIFF sample type: format " + sampleFormat + ", " + bitsPerSample
+					+ " bits");
+		}
+		if (compression != COMPRESSION_NONE && compression != COMPRESSION_LZW && compression != COMPRESSION_DEFLATE
+				&& compression != COMPRESSION_DEFLATE_OLD && compression != COMPRESSION_PACKBITS) {
+			throw new IOException("Unsupported GeoTIFF compression " + compression);
+		}
+		if (predictor != 1 && predictor != PREDICTOR_HORIZONTAL && predictor != PREDICTOR_FLOATING_POINT) {
+			throw new IOException("Unsupported GeoTIFF predictor " + predictor);
+		}
+	}
+
+	private void decodeChunk(final int index, final byte[] chunk, final int expected, final Inflater inflater)
+			throws IOException {
+		final long offset = chunkOffsets[index];
+		final int byteCount = (int) chunkByteCounts[index];
+		source.ensure(offset + byteCount);
+		final byte[] data = source.data;
+		final int start = (int) offset;
+
+		Arrays.fill(chunk, 0, expected, (byte) 0);
+		switch (compression) {
+		case COMPRESSION_NONE:
+			System.arraycopy(data, start, chunk, 0, Math.min(byteCount, expected));
+			break;
+		case COMPRESSION_DEFLATE:
+		case COMPRESSION_DEFLATE_OLD:
+			inflater.reset();
+			inflater.setInput(data, start, byteCount);
+			try {
+				int produced = 0;
+				while (produced < expected && !inflater.finished()) {
+					final int n = inflater.inflate(chunk, produced, expected - produced);
+					if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+						break;
+					}
+					produced += n;
+				}
+			} catch (DataFormatException e) {
+				throw new IOException("Corrupt Deflate data in GeoTIFF strip/tile " + index, e);
+			}
+			break;
+		case COMPRESSION_LZW:
+			decodeLzw(data, start, byteCount, chunk, expected);
+			break;
+		case COMPRESSION_PACKBITS:
+			decodePackBits(data, start, byteCount, chunk, expected);
+			break;
+		default:
+			throw new IOException("Unsupported GeoTIFF compression " + compression);
+		}
+	}
+
+	private static void decodeLzw(final byte[] in, final int start, final int length, final byte[] out,
+			final int outLength) throws IOException {
+		final int clearCode = 256;
+		final int eoiCode = 257;
+		// Every table entry is a run of the output, as each new string is the previous one plus one byte
+		final int[] entryStart = new int[4096];
+		final int[] entryLength = new int[4096];
+
+		int tableSize = 258;
+		int codeLength = 9;
+		long bitPos = 0;
+		final long bitEnd = (long) length * 8;
+		int outPos = 0;
+		int prevStart = -1;
+		int prevLength = 0;
+
+		while (bitPos + codeLength <= bitEnd && outPos < outLength) {
+			int code = 0;
+			for (int i = 0; i < codeLength; i++) {
+				final long bit = bitPos + i;
+				code = (code << 1) | ((in[start + (int) (bit >>> 3)] >>> (7 - (int) (bit & 7))) & 1);
+			}
+			bitPos += codeLength;
+
+			if (code == eoiCode) {
+				break;
+			}
+			if (code == clearCode) {
+				tableSize = 258;
+				codeLength = 9;
+				prevStart = -1;
+				continue;
+			}
+
+			final int stringStart = outPos;
+			final int stringLength;
+			if (code < 256) {
+				out[outPos++] = (byte) code;
+				stringLength = 1;
+			} else if (code < tableSize) {
+				stringLength = Math.min(entryLength[code], outLength - outPos);
+				System.arraycopy(out, entryStart[code], out, outPos, stringLength);
+				outPos += stringLength;
+			} else if (code == tableSize && prevStart >= 0) {
+				final int copy = Math.min(prevLength, outLength - outPos);
+				System.arraycopy(out, prevStart, out, outPos, copy);
+				outPos += copy;
+				if (outPos < outLength) {
+					out[outPos++] = out[prevStart];
+				}
+				stringLength = outPos - stringStart;
+			} else {
+				throw new IOException("Corrupt LZW data in GeoTIFF file");
+			}
+
+			if (prevStart >= 0 && tableSize < 4096) {
+				entryStart[tableSize] = prevStart;
+				entryLength[tableSize] = prevLength + 1;
+				tableSize++;
+			}
+			prevStart = stringStart;
+			prevLength = stringLength;
+
+			if (tableSize >= (1 << codeLength) - 1 && codeLength < 12) {
+				codeLength++;
+			}
+		}
+	}
+
+	private static void decodePackBits(final byte[] in, final int start, final int length, final byte[] out,
+			final int outLength) {
+		int pos = start;
+		final int end = start + length;
+		int outPos = 0;
+		while (pos < end && outPos < outLength) {
+			final int n = in[pos++];
+			if (n >= 0) {
+				final int copy = Math.min(Math.min(n + 1, end - pos), outLength - outPos);
+				System.arraycopy(in, pos, out, outPos, copy);
+				pos += n + 1;
+				outPos += copy;
+			} else if (n != -128 && pos < end) {
+				final int repeat = Math.min(1 - n, outLength - outPos);
+				Arrays.fill(out, outPos, outPos + repeat, in[pos++]);
+				outPos += repeat;
+			}
+		}
+	}
+
+	private void undoPredictor(final byte[] chunk, final int rows, final int rowSamples, final int stride,
+			final int bytesPerSample) {
+		if (predictor == PREDICTOR_HORIZONTAL) {
+			for (int row = 0; row < rows; row++) {
+				final int base = row * rowSamples * bytesPerSample;
+				for (int i = stride; i < rowSamples; i++) {
+					final int pos = base + i * bytesPerSample;
+					final int prev = pos - stride * bytesPerSample;
+					switch (bytesPerSample) {
+					case 1:
+						chunk[pos] += chunk[prev];
+						break;
+					case 2:
+						source.put16(chunk, pos, source.get16(chunk, pos) + source.get16(chunk, prev));
+						break;
+					default:
+						source.put32(chunk, pos, source.get32(chunk, pos) + source.get32(chunk, prev));
+						break;
+					}
+				}
+			}
+		} else if (predictor == PREDICTOR_FLOATING_POINT) {
+			final int rowBytes = rowSamples * bytesPerSample;
+			final byte[] tmp = new byte[rowBytes];
+			for (int row = 0; row < rows; row++) {
+				final int base = row * rowBytes;
+				for (int i = stride; i < rowBytes; i++) {
+					chunk[base + i] += chunk[base + i - stride];
+				}
+				// The bytes are stored most significant byte of all samples first
+				System.arraycopy(chunk, base, tmp, 0, rowBytes);
+				for (int s = 0; s < rowSamples; s++) {
+					for (int b = 0; b < bytesPerSample; b++) {
+						chunk[base + s * bytesPerSample + b] = tmp[b * rowSamples + s];
+					}
+				}
+			}
+		}
+	}
+
+	private double sample(final byte[] chunk, final int pos, final boolean bigEndianFloats) {
+		switch (sampleFormat) {
+		case SAMPLE_FORMAT_FLOAT:
+			if (bitsPerSample == 32) {
+				final int bits = bigEndianFloats ? Source.get32(chunk, pos, false) : source.get32(chunk, pos);
+				return Float.intBitsToFloat(bits);
+			} else {
+				final long bits = bigEndianFloats ? Source.get64(chunk, pos, false) : source.get64(chunk, pos);
+				return Double.longBitsToDouble(bits);
+			}
+		case SAMPLE_FORMAT_INT:
+			if (bitsPerSample == 8) {
+				return chunk[pos];
+			} else if (bitsPerSample == 16) {
+				return (short) source.get16(chunk, pos);
+			} else {
+				return source.get32(chunk, pos);
+			}
+		default:
+			if (bitsPerSample == 8) {
+				return chunk[pos] & 0xff;
+			} else if (bitsPerSample == 16) {
+				return source.get16(chunk, pos) & 0xffff;
+			} else {
+				return source.get32(chunk, pos) & 0xffffffffL;
+			}
+		}
+	}
+
+	private long[] values(final long entry) throws IOException {
+		final int type = source.u16(entry + 2);
+		final long count = bigTiff ? source.u64(entry + 4) : source.u32(entry + 4);
+		final int size = typeSize(type);
+		final long valueField = entry + (bigTiff ? 12 : 8);
+		final long pos = count * size <= (bigTiff ? 8 : 4) ? valueField
+				: (bigTiff ? source.u64(valueField) : source.u32(valueField));
+		if (count > Integer.MAX_VALUE / 8) {
+			throw new IOException("Invalid TIFF tag count " + count);
+		}
+		source.ensure(pos + count * size);
+
+		final long[] values = new long[(int) count];
+		for (int i = 0; i < count; i++) {
+			final long p = pos + (long) i * size;
+			switch (type) {
+			case 1: // BYTE
+			case 7: // UNDEFINED
+				values[i] = source.data[(int) p] & 0xff;
+				break;
+			case 6: // SBYTE
+				values[i] = source.data[(int) p];
+				break;
+			case 3: // SHORT
+				values[i] = source.u16(p);
+				break;
+			case 8: // SSHORT
+				values[i] = (short) source.u16(p);
+				break;
+			case 4: // LONG
+			case 13: // IFD
+				values[i] = source.u32(p);
+				break;
+			case 9: // SLONG
+				values[i] = (int) source.u32(p);
+				break;
+			case 16: // LONG8
+			case 17: // SLONG8
+			case 18: // IFD8
+				values[i] = source.u64(p);
+				break;
+			default:
+				throw new IOException("Unexpected TIFF field type " + type + " for integer tag " + source.u16(entry));
+			}
+		}
+		return values;
+	}
+
+	private double[] doubleValues(final long entry) throws IOException {
+		final int type = source.u16(entry + 2);
+		if (type != 12) {
+			throw new IOException("Unexpected TIFF field type " + type + " for tag " + source.u16(entry));
+		}
+		final long count = bigTiff ? source.u64(entry + 4) : source.u32(entry + 4);
+		final long valueField = entry + (bigTiff ? 12 : 8);
+		final long pos = count * 8 <= (bigTiff ? 8 : 4) ? valueField
+				: (bigTiff ? source.u64(valueField) : source.u32(valueField));
+		source.ensure(pos + count * 8);
+
+		final double[] values = new double[(int) count];
+		for (int i = 0; i < count; i++) {
+			values[i] = Double.longBitsToDouble(source.u64(pos + i * 8L));
+		}
+		return values;
+	}
+
+	private String asciiValue(final long entry) throws IOException {
+		final long count = bigTiff ? source.u64(entry + 4) : source.u32(entry + 4);
+		final long valueField = entry + (bigTiff ? 12 : 8);
+		final long pos = count <= (bigTiff ? 8 : 4) ? valueField
+				: (bigTiff ? source.u64(valueField) : source.u32(valueField));
+		source.ensure(pos + count);
+
+		int length = (int) count;
+		while (length > 0 && source.data[(int) pos + length - 1] == 0) {
+			length--;
+		}
+		return new String(source.data, (int) pos, length, StandardCharsets.US_ASCII);
+	}
+
+	private static int typeSize(final int type) throws IOException {
+		switch (type) {
+		case 1:
+		case 2:
+		case 6:
+		case 7:
+			return 1;
+		case 3:
+		case 8:
+			return 2;
+		case 4:
+		case 9:
+		case 11:
+		case 13:
+			return 4;
+		case 5:
+		case 10:
+		case 12:
+		case 16:
+		case 17:
+		case 18:
+			return 8;
+		default:
+			throw new IOException("Unknown TIFF field type " + type);
+		}
+	}
+
+	/**
+	 * The file content read so far. More is read from the stream as needed.
+	 */
+	private static final class Source {
+		private final InputStream in;
+		private byte[] data = new byte[64 * 1024];
+		private int length = 0;
+		private boolean littleEndian = false;
+
+		private Source(final InputStream in) {
+			this.in = in;
+		}
+
+		private void ensure(final long end) throws IOException {
+			while (length < end) {
+				if (length == data.length) {
+					if (data.length == Integer.MAX_VALUE - 8) {
+						throw new IOException("GeoTIFF file too large");
+					}
+					final long wanted = Math.max((long) data.length * 2, Math.min(end, Integer.MAX_VALUE - 8));
+					data = Arrays.copyOf(data, (int) Math.min(wanted, Integer.MAX_VALUE - 8));
+				}
+				final int read = in.read(data, length, data.length - length);
+				if (read < 0) {
+					if (end == Long.MAX_VALUE) {
+						return;
+					}
+					throw new IOException("Unexpected end of GeoTIFF file");
+				}
+				length += read;
+			}
+		}
+
+		private int u16(final long pos) {
+			return get16(data, (int) pos) & 0xffff;
+		}
+
+		private long u32(final long pos) {
+			return get32(data, (int) pos) & 0xffffffffL;
+		}
+
+		private long u64(final long pos) {
+			return get64(data, (int) pos, littleEndian);
+		}
+
+		private int get16(final byte[] b, final int pos) {
+			if (littleEndian) {
+				return (b[pos] & 0xff) | (b[pos + 1] & 0xff) << 8;
+			}
+			return (b[pos] & 0xff) << 8 | (b[pos + 1] & 0xff);
+		}
+
+		private int get32(final byte[] b, final int pos) {
+			return get32(b, pos, littleEndian);
+		}
+
+		private static int get32(final byte[] b, final int pos, final boolean littleEndian) {
+			if (littleEndian) {
+				return (b[pos] & 0xff) | (b[pos + 1] & 0xff) << 8 | (b[pos + 2] & 0xff) << 16 | b[pos + 3] << 24;
+			}
+			return b[pos] << 24 | (b[pos + 1] & 0xff) << 16 | (b[pos + 2] & 0xff) << 8 | (b[pos + 3] & 0xff);
+		}
+
+		private long get64(final byte[] b, final int pos) {
+			return get64(b, pos, littleEndian);
+		}
+
+		private static long get64(final byte[] b, final int pos, final boolean littleEndian) {
+			final long first = get32(b, pos, littleEndian) & 0xffffffffL;
+			final long second = get32(b, pos + 4, littleEndian) & 0xffffffffL;
+			return littleEndian ? (second << 32) | first : (first << 32) | second;
+		}
+
+		private void put16(final byte[] b, final int pos, final int value) {
+			if (littleEndian) {
+				b[pos] = (byte) value;
+				b[pos + 1] = (byte) (value >>> 8);
+			} else {
+				b[pos] = (byte) (value >>> 8);
+				b[pos + 1] = (byte) value;
+			}
+		}
+
+		private void put32(final byte[] b, final int pos, final int value) {
+			if (littleEndian) {
+				b[pos] = (byte) value;
+				b[pos + 1] = (byte) (value >>> 8);
+				b[pos + 2] = (byte) (value >>> 16);
+				b[pos + 3] = (byte) (value >>> 24);
+			} else {
+				b[pos] = (byte) (value >>> 24);
+				b[pos + 1] = (byte) (value >>> 16);
+				b[pos + 2] = (byte) (value >>> 8);
+				b[pos + 3] = (byte) value;
+			}
+		}
+	}
+
+}
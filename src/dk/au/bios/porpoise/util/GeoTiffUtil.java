@@ -27,105 +27,69 @@
 
 package dk.au.bios.porpoise.util;
 
-import java.awt.image.Raster;
-import java.awt.image.RenderedImage;
 import java.io.IOException;
 import java.io.InputStream;
 
-import org.geotools.coverage.grid.GridCoverage2D;
-import org.geotools.gce.geotiff.GeoTiffReader;
-import org.geotools.resources.coverage.CoverageUtilities;
-import org.opengis.geometry.Envelope;
+import org.geotools.referencing.CRS;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
 import dk.au.bios.porpoise.Globals;
 import dk.au.bios.porpoise.landscape.DataFileMetaData;
-import it.geosolutions.jaiext.range.NoDataContainer;
+import dk.au.bios.porpoise.landscape.GridWindow;
 
+/**
+ * Loads GeoTIFF data files. The files are decoded by {@link GeoTiffFile}: the meta data is taken from the TIFF tags,
+ * and the pixels are decoded once, directly into the returned array.
+ */
 public class GeoTiffUtil {
 
+	/**
+	 * Value used for cells holding the file's no-data value, aligned with the ASC data files.
+	 */
+	private static final double NO_DATA = -9999.0;
+
 	public static double[][] loadGeotif(final int width, final int height, final InputStream in,
 			final boolean replaceNoDataWithNull) throws IOException {
+		return loadGeotif(GridWindow.full(width, height), in, replaceNoDataWithNull);
+	}
 
-		GeoTiffReader reader = new GeoTiffReader(in);
-		GridCoverage2D coverage = (GridCoverage2D) reader.read(null);
-
-		CoordinateReferenceSystem crs = coverage.getCoordinateReferenceSystem2D();
-		if (!Globals.getCoordinateReferenceSystem().equals(crs)) {
-			throw new IOException("Coordinate Reference System mismatch. Required "
-					+ Globals.getCoordinateReferenceSystem().getName().getCode() + " but found "
-					+ crs.getName().getCode());
+	/**
+	 * Loads a window of a GeoTIFF data file. Only the strips/tiles overlapping the window are decoded.
+	 *
+	 * @param window The window to load. The grid size of the window is the expected size of the file.
+	 * @param in The file contents.
+	 * @param replaceNoDataWithNull Set cells without data to NaN, like the ASC loaders do, instead of -9999.
+	 * @return The data of the window indexed as [x][y] with y = 0 being the bottom row of the window.
+	 * @throws IOException Thrown if the file cannot be read or does not match the landscape.
+	 */
+	public static double[][] loadGeotif(final GridWindow window, final InputStream in,
+			final boolean replaceNoDataWithNull) throws IOException {
+		final int width = window.getGridWidth();
+		final int height = window.getGridHeight();
+		final GeoTiffFile tiff = GeoTiffFile.open(in);
+
+		final CoordinateReferenceSystem required = Globals.getCoordinateReferenceSystem();
+		if (required != null) {
+			final CoordinateReferenceSystem crs = tiff.getMetaData().getCoordinateReferenceSystem();
+			if (!CRS.equalsIgnoreMetadata(required, crs)) {
+				throw new IOException("Coordinate Reference System mismatch. Required " + required.getName().getCode()
+						+ " but found " + (crs != null ? crs.getName().getCode() : "none"));
+			}
 		}
 
-		NoDataContainer ndc = CoverageUtilities.getNoDataProperty(coverage);
-		
-		System.err.printf("dims: %d%n", coverage.getNumSampleDimensions());
-		
-		double[] noDataValues = coverage.getSampleDimension(0).getNoDataValues();
-		if (noDataValues.length != 1) {
-			throw new RuntimeException("Invalid no-data-value in data file.");
+		if (tiff.getWidth() != width || tiff.getHeight() != height) {
+			throw new IOException("GeoTIFF size " + tiff.getWidth() + "x" + tiff.getHeight()
+					+ " does not match the landscape size " + width + "x" + height);
 		}
-		double noDataValue = noDataValues[0];
-		System.err.printf("nodata: %f%n", noDataValue);
-		System.err.printf("ndc.value: %f%n", ndc.getAsSingleValue());
-		
-		RenderedImage image = coverage.getRenderedImage();
-		Object prop = image.getProperty(NoDataContainer.GC_NODATA);
-		System.err.println("ndc.class: " + prop.getClass());
-//		NoDataContainer ndci = (NoDataContainer) prop;
-//		System.err.println("ndc: " + ndci.getAsSingleValue());
-		Raster raster = image.getData();
 
-		double[] data = new double[width * height];
-		raster.getSamples(raster.getMinX(), raster.getMinY(), raster.getWidth(), raster.getHeight(), 0, data);
-
-		double[][] tifdata = new double[width][height];
-		for (int x = 0; x < width; x++) {
-			for (int y = 0; y < height; y++) {
-				double val = data[(y * width) + x];
-				if (ndc.getAsSingleValue() == val) {
-//					System.err.println("Setting no-data value");
-					val = -9999.0; // aligned with ASC datafiles
-//				} else if (ndc.getAsRange().contains(val)) {
-//					System.err.println("Setting no-data value");
-//					val = -9999.0; // aligned with ASC datafiles
-//				} else if (val < -330000000000000000000000000000000000000f) {
-//					System.err.printf("suspecious value: %f%n", val);
-				}
-				tifdata[x][height - (y + 1)] = val;
-			}
-		}
-		System.err.printf("double.min: %f%n", Double.MIN_VALUE);
-		System.err.printf("double.max: %f%n", Double.MAX_VALUE);
+		final double[][] tifdata = new double[window.getWidth()][window.getHeight()];
+		tiff.readInto(tifdata, replaceNoDataWithNull ? Double.NaN : NO_DATA, window.getX(), window.getY(), window.getWidth(), window.getHeight());
 
 		return tifdata;
 	}
 
 	public static DataFileMetaData loadMetaData(InputStream in) throws IOException {
-		GeoTiffReader reader = new GeoTiffReader(in);
-		GridCoverage2D coverage = (GridCoverage2D) reader.read(null);
-		Raster raster = coverage.getRenderedImage().getData();
-		Envelope envelope = coverage.getEnvelope();
-		CoordinateReferenceSystem crs = coverage.getCoordinateReferenceSystem2D();
-
-		int ncols = raster.getWidth();
-		int nrows = raster.getHeight();
-		double xllcorner = envelope.getMinimum(0);
-		double yllcorner = envelope.getMinimum(1);
-
-		double dWidth = envelope.getMaximum(0) - envelope.getMinimum(0);
-		double dHeight = envelope.getMaximum(1) - envelope.getMinimum(1);
-		double cellWidth = dWidth / ncols;
-		double cellHeight = dHeight / nrows;
-
-		if (cellWidth != cellHeight) {
-			throw new RuntimeException("Grid cells not square.");
-		}
-
-		int cellsize = (int) Math.round(cellWidth);
-
-		return new DataFileMetaData(ncols, nrows, xllcorner, yllcorner, cellsize, crs);
-
+		return GeoTiffFile.open(in).getMetaData();
 	}
 
 }
@@ -70,14 +70,19 @@ public final class PSMVerificationLog {
 		}
 	}
 
+	/**
+	 * Writes a record of the step of a porpoise. While the porpoise is detached, moving in parallel with the others,
+	 * the record is kept by the porpoise and written with {@link #write(String)} when it is attached again.
+	 */
 	public static void print(final String stepType, final Porpoise porpoise, final double distanceTravelled) {
 		if (psmVerificationOutput == null) {
 			return;
 		}
 
-		psmVerificationOutput.printf("%s,", stepType);
+		final StringBuilder record = new StringBuilder();
+		record.append(String.format("%s,", stepType));
 		if (RunEnvironment.getInstance().isBatch()) {
-			psmVerificationOutput.printf("%d,", RunState.getInstance().getRunInfo().getRunNumber());
+			record.append(String.format("%d,", RunState.getInstance().getRunInfo().getRunNumber()));
 		}
 		int psmUtmX;
 		if (porpoise.getPersistentSpatialMemory() == null || !porpoise.getDispersalBehaviour().isDispersing()) {
@@ -94,11 +99,29 @@ public final class PSMVerificationLog {
 					+ Globals.getYllCorner());
 		}
 
-		psmVerificationOutput.printf("%.1f,%d,%d,%d,%d,%s,%d,%d,%.3f,%.3f,%.3f%n", SimulationTime.getTick(), porpoise
+		record.append(String.format("%.1f,%d,%d,%d,%d,%s,%d,%d,%.3f,%.3f,%.3f%n", SimulationTime.getTick(), porpoise
 				.getId(), porpoise.getUtmX(), porpoise.getUtmY(), porpoise.getDispersalMode(),
 				Boolean.toString(porpoise.getDispersalBehaviour().isDispersing()).toUpperCase(), psmUtmX, psmUtxY,
 				porpoise.getDispersalBehaviour().getTargetHeading(), distanceTravelled * 400, porpoise
-				.getDispersalBehaviour().getDistanceLeftToTravel() * 400);
+				.getDispersalBehaviour().getDistanceLeftToTravel() * 400));
+
+		if (porpoise.isDetached()) {
+			porpoise.addVerificationRecord(record);
+		} else {
+			write(record.toString());
+		}
+	}
+
+	/**
+	 * Writes whole records to the output.
+	 *
+	 * @param records The records, each ending with a line separator.
+	 */
+	public static synchronized void write(final String records) {
+		if (psmVerificationOutput == null) {
+			return;
+		}
+		psmVerificationOutput.print(records);
 		psmVerificationOutput.flush();
 	}
 
@@ -84,7 +84,11 @@ public class ReplayHelper {
 		}
 	}
 
-	private static boolean isPrintEnabled() {
+	/**
+	 * Returns whether replay output is written. Callers passing values to format check this first, to not box the
+	 * values on every step when no replay is captured.
+	 */
+	public static boolean isPrintEnabled() {
 		return replayOut != null;
 	}
 
@@ -25,38 +25,159 @@
  * this exception also makes it possible to release a modified version which carries forward this exception.
  */
 
+
 package dk.au.bios.porpoise.util;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import repast.simphony.engine.environment.RunEnvironment;
+import repast.simphony.engine.schedule.ISchedule;
 import dk.au.bios.porpoise.SimulationConstants;
 
+/**
+ * The simulation clock. The day, month, quarter and year are computed once per tick, when the ClockTask advances the
+ * clock at the start of the tick, and reading them returns the values kept. When the clock advances, the listeners
+ * are told which periods changed. Runs set up without PorpoiseSimBuilder, e.g. tests running their own schedule,
+ * start the clock with ClockTask.start().
+ */
 public final class SimulationTime {
 
+	/**
+	 * The periods of the simulation a listener is told the change of.
+	 */
+	public enum Period {
+		DAY, MONTH, QUARTER, YEAR
+	}
+
+	/**
+	 * Listens for the change of periods.
+	 */
+	public interface PeriodListener {
+
+		/**
+		 * Called when the clock has entered a new period, once for each period changed. The clock already returns the
+		 * new period. Also called for all periods at the first tick of a schedule.
+		 *
+		 * @param period The period changed.
+		 */
+		void periodChanged(Period period);
+
+	}
+
+	/**
+	 * The periods of a tick.
+	 */
+	private static final class Clock {
+
+		private final ISchedule schedule;
+		private final double tick;
+		private final int dayOfSimulation;
+		private final int monthOfYear;
+		private final int monthOfYearWithOffset;
+		private final int quarterOfYear;
+		private final int yearOfSimulation;
+
+		private Clock(final ISchedule schedule, final double tick) {
+			this.schedule = schedule;
+			this.tick = tick;
+			this.dayOfSimulation = (int) (tick / 48);
+			this.monthOfYear = getMonthOfYear(tick);
+			this.monthOfYearWithOffset = SimulationConstants.OFFSET_MONTH ? getMonthOfYear(tick - 1) : monthOfYear;
+			this.quarterOfYear = getQuarterOfYear(tick);
+			this.yearOfSimulation = (int) (tick / (360 * 48));
+		}
+
+	}
+
+	private static final List<PeriodListener> listeners = new CopyOnWriteArrayList<>();
+
+	private static volatile Clock clock = new Clock(null, 0);
+
 	private SimulationTime() {
 		// Utility class, prevent instances.
 	}
 
+	/**
+	 * Adds a listener for the change of periods.
+	 */
+	public static void addListener(final PeriodListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Removes a listener added.
+	 */
+	public static void removeListener(final PeriodListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Advances the clock to the tick of the current schedule, telling the listeners which periods changed. All
+	 * periods are changed the first time the clock is advanced on a schedule.
+	 */
+	public static synchronized void advance() {
+		final ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
+		final double tick = schedule.getTickCount();
+		final Clock previous = clock;
+		if (previous.tick == tick && previous.schedule == schedule) {
+			return;
+		}
+
+		final Clock next = new Clock(schedule, tick);
+		clock = next;
+
+		final boolean all = previous.schedule != schedule;
+		if (all || previous.dayOfSimulation != next.dayOfSimulation) {
+			fire(Period.DAY);
+		}
+		if (all || previous.monthOfYear != next.monthOfYear || previous.yearOfSimulation != next.yearOfSimulation) {
+			fire(Period.MONTH);
+		}
+		if (all || previous.quarterOfYear != next.quarterOfYear) {
+			fire(Period.QUARTER);
+		}
+		if (all || previous.yearOfSimulation != next.yearOfSimulation) {
+			fire(Period.YEAR);
+		}
+	}
+
+	private static void fire(final Period period) {
+		for (final PeriodListener listener : listeners) {
+			listener.periodChanged(period);
+		}
+	}
+
 	public static double getTick() {
-		return RunEnvironment.getInstance().getCurrentSchedule().getTickCount();
+		return clock.tick;
 	}
 
 	public static int getDayOfSimulation() {
-		return (int) (getTick() / 48);
+		return clock.dayOfSimulation;
 	}
 
 	public static int getDayOfYear() {
-		return ((int) (getTick() / 48)) % 360;
+		return clock.dayOfSimulation % 360;
 	}
 
 	public static int getYearOfSimulation() {
-		return (int) (getTick() / (360 * 48));
+		return clock.yearOfSimulation;
 	}
 
 	/**
 	 * @return The month of the year, 1 indexed, 1 = January
 	 */
 	public static int getMonthOfYear() {
-		return getMonthOfYear(getTick());
+		return clock.monthOfYear;
+	}
+
+	/**
+	 * Returns the number of months since the start of the simulation, 0 indexed. Changes whenever the month of the
+	 * year does.
+	 */
+	public static int getMonthOfSimulation() {
+		final Clock current = clock;
+		return current.yearOfSimulation * 12 + current.monthOfYear - 1;
 	}
 
 	/***
@@ -65,11 +186,7 @@ public final class SimulationTime {
 	 * @return
 	 */
 	public static int getMonthOfYearWithOffset() {
-		if (SimulationConstants.OFFSET_MONTH) {
-			return getMonthOfYear(getTick() - 1);
-		} else {
-			return getMonthOfYear();
-		}
+		return clock.monthOfYearWithOffset;
 	}
 
 	public static int getMonthOfYear(final double tick) {
@@ -77,7 +194,7 @@ public final class SimulationTime {
 	}
 
 	public static int getQuarterOfYear() {
-		return getQuarterOfYear(getTick());
+		return clock.quarterOfYear;
 	}
 
 	public static int getQuarterOfYear(final double step) {
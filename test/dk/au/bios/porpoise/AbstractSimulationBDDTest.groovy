@@ -50,6 +50,7 @@ import dk.au.bios.porpoise.behavior.FastRefMemTurn
 import dk.au.bios.porpoise.behavior.RandomSource
 import dk.au.bios.porpoise.landscape.CellDataTestData
 import dk.au.bios.porpoise.landscape.DataFileMetaData
+import dk.au.bios.porpoise.tasks.ClockTask
 
 /**
  * Abstract base class for replayed tests. Replayed tests are simulations which are captured using the
@@ -82,6 +83,7 @@ abstract class AbstractSimulationBDDTest extends Specification {
 		// Repast initialization
 		schedule = new Schedule();
 		RunEnvironment.init(schedule, null, null, true);
+		ClockTask.start(schedule);
 		context = new DefaultContext<>();
 		RunState.init().setMasterContext(context);
 
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import repast.simphony.context.Context;
+import repast.simphony.context.DefaultContext;
+import repast.simphony.engine.environment.DefaultScheduleRunner;
+import repast.simphony.engine.environment.RunEnvironment;
+import repast.simphony.engine.environment.RunState;
+import repast.simphony.engine.schedule.ISchedule;
+import repast.simphony.engine.schedule.Schedule;
+import repast.simphony.engine.schedule.ScheduleParameters;
+import repast.simphony.parameter.Parameters;
+import repast.simphony.parameter.ParametersParser;
+import repast.simphony.random.RandomHelper;
+import repast.simphony.space.continuous.NdPoint;
+
+/**
+ * Command line harness comparing a run with fastMath to the same run with the exact functions. The simulation is built
+ * twice from the parameters in DEPONS.rs/parameters.xml and the same seed, and run through the schedule for the given
+ * number of days, first with fastMath disabled and then with it enabled. For each run the population size, the mean
+ * and standard deviation of the energy levels and the mean step length are reported, followed by the distance between
+ * the final positions of the porpoises alive in both runs.
+ *
+ * Usage: <code>FastMathAccuracyHarness landscape [porpoises] [days]</code>, run from the model directory. By default
+ * 1000 porpoises are run for 5 years (1800 days), long enough for differences in mortality to show in the population
+ * size.
+ */
+public final class FastMathAccuracyHarness {
+
+	private static final int STEPS_PER_DAY = 48;
+
+	private FastMathAccuracyHarness() {
+		// Utility class, prevent instances.
+	}
+
+	public static void main(final String[] args) throws Exception {
+		if (args.length < 1) {
+			System.err.println("Usage: FastMathAccuracyHarness landscape [porpoises] [days]");
+			System.exit(1);
+		}
+		final int count = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		final int days = args.length > 2 ? Integer.parseInt(args[2]) : 5 * 360;
+
+		final Parameters params = new ParametersParser(new File("DEPONS.rs/parameters.xml")).getParameters();
+		params.setValue("landscape", args[0]);
+		params.setValue("porpoiseCount", count);
+		params.setValue("trackedPorpoiseCount", 0);
+
+		final Run exact = run(params, false, days);
+		final Run fast = run(params, true, days);
+		System.out.printf("Landscape %s, %d porpoises, %d days%n", args[0], count, days);
+		exact.print("exact");
+		fast.print("fast");
+
+		int common = 0;
+		double sumDistance = 0;
+		double maxDistance = 0;
+		for (final Map.Entry<Long, NdPoint> entry : exact.positions.entrySet()) {
+			final NdPoint other = fast.positions.get(entry.getKey());
+			if (other != null) {
+				final double distance = Math.hypot(entry.getValue().getX() - other.getX(), entry.getValue().getY()
+						- other.getY());
+				sumDistance += distance;
+				maxDistance = Math.max(maxDistance, distance);
+				common++;
+			}
+		}
+		System.out.printf("position divergence: %d porpoises alive in both, mean %.3f, max %.3f cells%n", common,
+				common > 0 ? sumDistance / common : 0, maxDistance);
+		System.out.printf("speed up: %.2f%n", (double) exact.elapsed / fast.elapsed);
+	}
+
+	private static Run run(final Parameters params, final boolean fastMath, final int days) {
+		params.setValue("fastMath", fastMath);
+		RandomHelper.setSeed(params.getInteger("randomSeed"));
+		final ISchedule schedule = new Schedule();
+		RunEnvironment.init(schedule, new DefaultScheduleRunner(), params, false);
+
+		final Context<Agent> context = new PorpoiseSimBuilder().build(new DefaultContext<>());
+		RunState.init().setMasterContext(context);
+		final Run result = new Run();
+		final Map<Long, NdPoint> lastPositions = new HashMap<>();
+		if (SimulationParameters.getMoveThreads() == 0) {
+			// Otherwise the porpoises are moved by the MoveTask scheduled by the builder
+			schedule.schedule(ScheduleParameters.createRepeating(0, 1, AgentPriority.PORP_MOVE), () -> {
+				for (final Porpoise porpoise : getPorpoises(context)) {
+					if (porpoise.isAlive()) {
+						porpoise.move();
+					}
+				}
+			});
+		}
+		schedule.schedule(ScheduleParameters.createRepeating(0, 1, ScheduleParameters.LAST_PRIORITY), () -> {
+			for (final Porpoise porpoise : getPorpoises(context)) {
+				final NdPoint pos = porpoise.getPosition();
+				final NdPoint last = lastPositions.put(porpoise.getId(), pos);
+				if (last != null) {
+					result.sumStep += Math.hypot(pos.getX() - last.getX(), pos.getY() - last.getY());
+					result.steps++;
+				}
+			}
+		});
+
+		final long start = System.nanoTime();
+		for (int tick = 0; tick < days * STEPS_PER_DAY; tick++) {
+			schedule.execute();
+		}
+		result.elapsed = System.nanoTime() - start;
+
+		double sumEnergy = 0;
+		double sumSquaredEnergy = 0;
+		for (final Porpoise porpoise : getPorpoises(context)) {
+			if (porpoise.isAlive()) {
+				result.alive++;
+				sumEnergy += porpoise.getEnergyLevel();
+				sumSquaredEnergy += porpoise.getEnergyLevel() * porpoise.getEnergyLevel();
+				result.positions.put(porpoise.getId(), porpoise.getPosition());
+			}
+		}
+		if (result.alive > 0) {
+			result.meanEnergy = sumEnergy / result.alive;
+			result.sdEnergy = Math.sqrt(Math.max(0, sumSquaredEnergy / result.alive - result.meanEnergy
+					* result.meanEnergy));
+		}
+		return result;
+	}
+
+	private static List<Porpoise> getPorpoises(final Context<Agent> context) {
+		final List<Porpoise> porpoises = new ArrayList<>();
+		for (final Object porpoise : context.getObjects(Porpoise.class)) {
+			porpoises.add((Porpoise) porpoise);
+		}
+		porpoises.sort(Comparator.comparingLong(Porpoise::getId));
+		return porpoises;
+	}
+
+	/**
+	 * The statistics of one run.
+	 */
+	private static final class Run {
+		private int alive;
+		private double meanEnergy;
+		private double sdEnergy;
+		private double sumStep;
+		private long steps;
+		private long elapsed;
+		private final Map<Long, NdPoint> positions = new HashMap<>();
+
+		private void print(final String mode) {
+			System.out.printf("%-5s: population %d, energy mean %.4f sd %.4f, mean step %.5f cells, %.1f s%n", mode,
+					alive, meanEnergy, sdEnergy, steps > 0 ? sumStep / steps : 0, elapsed / 1E9);
+		}
+	}
+
+}
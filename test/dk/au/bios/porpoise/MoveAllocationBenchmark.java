@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sun.management.ThreadMXBean;
+
+import repast.simphony.context.Context;
+import repast.simphony.context.DefaultContext;
+import repast.simphony.engine.environment.DefaultScheduleRunner;
+import repast.simphony.engine.environment.RunEnvironment;
+import repast.simphony.engine.environment.RunState;
+import repast.simphony.engine.schedule.Schedule;
+import repast.simphony.parameter.Parameters;
+import repast.simphony.parameter.ParametersParser;
+import repast.simphony.random.RandomHelper;
+
+/**
+ * Command line benchmark measuring the memory allocated by moving porpoises. The simulation is built as for a run
+ * with the parameters in DEPONS.rs/parameters.xml, and the porpoises are moved one step at a time on the main thread,
+ * outside the schedule, while the JVM counts the bytes the thread allocates.
+ *
+ * The move step is not allocation free. The new position is allocated, as the points are immutable and kept in the
+ * position list, the reference memory boxes the utility of the step and returns the attraction vector in a new array,
+ * and the spatial memory adds an entry for every new memory cell visited. Moving the porpoise in the space and grid
+ * allocates in Repast.
+ *
+ * Usage: <code>MoveAllocationBenchmark landscape [porpoises] [days]</code>, run from the model directory. By default
+ * 1000 porpoises are moved for 5 days after 2 days of warm up.
+ */
+public final class MoveAllocationBenchmark {
+
+	private static final int STEPS_PER_DAY = 48;
+	private static final int WARMUP_DAYS = 2;
+
+	private MoveAllocationBenchmark() {
+		// Utility class, prevent instances.
+	}
+
+	public static void main(final String[] args) throws Exception {
+		if (args.length < 1) {
+			System.err.println("Usage: MoveAllocationBenchmark landscape [porpoises] [days]");
+			System.exit(1);
+		}
+		final int count = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		final int days = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+		final Parameters params = new ParametersParser(new File("DEPONS.rs/parameters.xml")).getParameters();
+		params.setValue("landscape", args[0]);
+		params.setValue("porpoiseCount", count);
+		params.setValue("trackedPorpoiseCount", 0);
+		RandomHelper.setSeed(params.getInteger("randomSeed"));
+		RunEnvironment.init(new Schedule(), new DefaultScheduleRunner(), params, false);
+
+		final Context<Agent> context = new PorpoiseSimBuilder().build(new DefaultContext<>());
+		RunState.init().setMasterContext(context);
+		final List<Porpoise> porpoises = new ArrayList<>();
+		for (final Object porpoise : context.getObjects(Porpoise.class)) {
+			porpoises.add((Porpoise) porpoise);
+		}
+
+		move(porpoises, WARMUP_DAYS * STEPS_PER_DAY);
+
+		final ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+		final long thread = Thread.currentThread().getId();
+		final long allocated = threads.getThreadAllocatedBytes(thread);
+		final long start = System.nanoTime();
+		final long moves = move(porpoises, days * STEPS_PER_DAY);
+		final long elapsed = System.nanoTime() - start;
+		final long bytes = threads.getThreadAllocatedBytes(thread) - allocated;
+
+		System.out.printf("Landscape %s, %d porpoises, %d moves: %.1f bytes per move, %.1f MB/s, %.1f us per move%n",
+				args[0], porpoises.size(), moves, (double) bytes / moves, bytes / (elapsed / 1E3),
+				elapsed / 1E3 / moves);
+	}
+
+	private static long move(final List<Porpoise> porpoises, final int steps) {
+		long moves = 0;
+		for (int step = 0; step < steps; step++) {
+			for (final Porpoise porpoise : porpoises) {
+				if (porpoise.isAlive()) {
+					porpoise.move();
+					moves++;
+				}
+			}
+		}
+		return moves;
+	}
+
+}
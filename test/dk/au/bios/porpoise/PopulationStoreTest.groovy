@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+package dk.au.bios.porpoise;
+
+import repast.simphony.context.Context
+import repast.simphony.context.DefaultContext
+import repast.simphony.context.space.continuous.ContinuousSpaceFactoryFinder
+import repast.simphony.context.space.grid.GridFactoryFinder
+import repast.simphony.engine.environment.RunEnvironment
+import repast.simphony.engine.environment.RunState
+import repast.simphony.engine.schedule.Schedule
+import repast.simphony.space.continuous.BouncyBorders
+import repast.simphony.space.continuous.NdPoint
+import repast.simphony.space.continuous.RandomCartesianAdder
+import repast.simphony.space.grid.GridBuilderParameters
+import repast.simphony.space.grid.SimpleGridAdder
+import spock.lang.Specification
+import dk.au.bios.porpoise.behavior.DispersalFactory
+import dk.au.bios.porpoise.behavior.RandomSource
+import dk.au.bios.porpoise.landscape.CellDataTestData
+import dk.au.bios.porpoise.landscape.DataFileMetaData
+import dk.au.bios.porpoise.tasks.ClockTask
+
+/**
+ * Unit test for the PopulationStore, the porpoises keeping their state in the store must behave as the porpoises
+ * keeping it in their own fields.
+ */
+class PopulationStoreTest extends Specification {
+
+	private Context<Agent> context;
+	private space;
+	private grid;
+
+	def setup() {
+		Globals.landscapeMetaData = new DataFileMetaData(100, 100, 529473, 5972242, 400 , null);
+
+		// Repast initialization
+		def schedule = new Schedule();
+		RunEnvironment.init(schedule, null, null, true);
+		ClockTask.start(schedule);
+		context = new DefaultContext<>();
+		RunState.init().setMasterContext(context);
+
+		def factory = ContinuousSpaceFactoryFinder.createContinuousSpaceFactory(null)
+		space = factory.createContinuousSpace("space", context, new RandomCartesianAdder<Agent>(), new BouncyBorders(), [Globals.worldWidth, Globals.worldHeight] as double[], [0.5f, 0.5f] as double[])
+		def gridFactory = GridFactoryFinder.createGridFactory(null);
+		grid = gridFactory.createGrid("grid", context, new GridBuilderParameters<Agent>(new repast.simphony.space.grid.BouncyBorders(), new SimpleGridAdder<Agent>(), true, Globals.worldWidth, Globals.worldHeight));
+		Globals.cellData = CellDataTestData.getCellData();
+		DispersalFactory.type = "off";
+
+		def random = Mock(RandomSource)
+		random.nextEnergyNormal() >> 10.0
+		Globals.randomSource = random
+
+		SimulationParameters.deterDecay = 50;
+		SimulationParameters.deterTime = 4;
+	}
+
+	def cleanup() {
+		Globals.populationStore = null
+	}
+
+	def "store backed porpoises keep the same energy, deterrence and movement state as field backed porpoises"() {
+		given: "the same population with and without the store"
+		Globals.populationStore = null
+		def fieldBacked = createPopulation()
+		def store = new PopulationStore(4)
+		Globals.populationStore = store
+		def storeBacked = createPopulation()
+
+		def turb = new Turbine(space, grid, "Test Turbine", 64, 5.0, 5.0, 100, 150, 1);
+		context.add(turb);
+		turb.setPosition(new NdPoint(5.0, 5.0));
+
+		expect: "only the second population holds slots"
+		fieldBacked.every { it.@slot == -1 }
+		storeBacked.collect { it.@slot } == [0, 1, 2, 3]
+		store.size() == 4
+		sameState(fieldBacked, storeBacked)
+
+		when: "energy is consumed, the porpoises turn and some porpoises are deterred"
+		[fieldBacked, storeBacked].each { population ->
+			population.eachWithIndex { p, i ->
+				p.consumeEnergy(0.75 * i)
+				p.setPrevAngle(5.0 * i)
+				p.setVt(0.5 * i, -0.25 * i)
+			}
+			population[1].deter(64, turb)
+			population[2].deter(32, turb)
+		}
+
+		then:
+		sameState(fieldBacked, storeBacked)
+		storeBacked[1].deterStrength == 64.0
+		storeBacked[3].VT == "[1.5,-0.75]"
+
+		when: "a day passes, for the store backed porpoises with the store updating the daily energetics"
+		fieldBacked.each { it.performDailyStep() }
+		store.updateDailyEnergetics()
+		storeBacked.each { it.performDailyStepInStore() }
+
+		then:
+		sameState(fieldBacked, storeBacked)
+		storeBacked.every { it.age == 1 + 1.0d / 360 }
+
+		when: "the first porpoise leaves the store, moving the last porpoise into its slot"
+		store.release(storeBacked[0].@slot)
+		fieldBacked.remove(0)
+		storeBacked.remove(0)
+
+		then:
+		store.size() == 3
+		storeBacked[2].@slot == 0
+		sameState(fieldBacked, storeBacked)
+
+		when: "the deterrence decays until it has worn off, with energy consumed in between"
+		def strengths = []
+		6.times {
+			fieldBacked.each { it.updateDeterence() }
+			store.updateDeterence()
+			[fieldBacked, storeBacked].each { population -> population.each { it.consumeEnergy(0.125) } }
+			assert sameState(fieldBacked, storeBacked)
+			strengths << storeBacked[0].deterStrength
+		}
+
+		then:
+		strengths == [32.0, 16.0, 8.0, 4.0, 0.0, 0.0]
+		storeBacked.every { it.deterStrength == 0.0 && it.deterTimeLeft == 0 && it.deterVector == "[0.0,0.0]" }
+	}
+
+	private List<Porpoise> createPopulation() {
+		def population = []
+		4.times { i ->
+			def p = new Porpoise(space, grid, context, 1, null)
+			context.add(p);
+			p.setPosition(new NdPoint(10.0 + i, 10.0 + 2 * i));
+			population << p
+		}
+		return population
+	}
+
+	private static boolean sameState(List<Porpoise> expected, List<Porpoise> actual) {
+		assert expected.size() == actual.size()
+		[expected, actual].transpose().each { Porpoise e, Porpoise a ->
+			assert a.energyLevel == e.energyLevel
+			assert a.getEnergyLevelSum() == e.getEnergyLevelSum()
+			assert a.age == e.age
+			assert a.deterStrength == e.deterStrength
+			assert a.deterTimeLeft == e.deterTimeLeft
+			assert a.deterVector == e.deterVector
+			assert a.getPrevAngle() == e.getPrevAngle()
+			assert a.prevLogMov == e.prevLogMov
+			assert a.VT == e.VT
+		}
+		return true
+	}
+
+}
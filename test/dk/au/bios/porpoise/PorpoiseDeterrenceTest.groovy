@@ -46,6 +46,7 @@ import dk.au.bios.porpoise.behavior.DispersalFactory
 import dk.au.bios.porpoise.behavior.RandomSource
 import dk.au.bios.porpoise.landscape.CellDataTestData
 import dk.au.bios.porpoise.landscape.DataFileMetaData
+import dk.au.bios.porpoise.tasks.ClockTask
 
 /**
  * Unit test for Porpoise agent with focus on the deterrence behaviour.
@@ -65,6 +66,7 @@ class PorpoiseDeterrenceTest extends Specification {
 		// Repast initialization
 		this.schedule = new Schedule();
 		RunEnvironment.init(schedule, null, null, true);
+		ClockTask.start(schedule);
 		context = new DefaultContext<>();
 		//		System.out.println("Loading model");
 		//		context = new PorpoiseSimBuilder().build(context);
@@ -48,6 +48,7 @@ import dk.au.bios.porpoise.behavior.RandomSource
 import dk.au.bios.porpoise.behavior.DispersalFactory.DispersalType
 import dk.au.bios.porpoise.landscape.CellDataTestData
 import dk.au.bios.porpoise.landscape.DataFileMetaData
+import dk.au.bios.porpoise.tasks.ClockTask
 
 /**
  * Unit test for the Porpoise dispersal activation.
@@ -63,6 +64,7 @@ class PorpoiseDispersalTest extends Specification {
 		// Repast initialization
 		this.schedule = new Schedule();
 		RunEnvironment.init(schedule, null, null, true);
+		ClockTask.start(schedule);
 		context = new DefaultContext<>();
 		//		System.out.println("Loading model");
 		//		context = new PorpoiseSimBuilder().build(context);
@@ -47,6 +47,7 @@ import dk.au.bios.porpoise.behavior.FastRefMemTurn
 import dk.au.bios.porpoise.behavior.RandomSource
 import dk.au.bios.porpoise.landscape.CellDataTestData
 import dk.au.bios.porpoise.landscape.DataFileMetaData
+import dk.au.bios.porpoise.tasks.ClockTask
 
 /**
  * Unit test for the Porpoise agent.
@@ -65,6 +66,7 @@ class PorpoiseMoveTest extends Specification {
 		// Repast initialization
 		this.schedule = new Schedule();
 		RunEnvironment.init(schedule, null, null, true);
+		ClockTask.start(schedule);
 		context = new DefaultContext<>();
 		RunState.init().setMasterContext(context);
 	}
@@ -49,6 +49,7 @@ import dk.au.bios.porpoise.behavior.FastRefMemTurn
 import dk.au.bios.porpoise.behavior.RandomSource
 import dk.au.bios.porpoise.landscape.CellDataTestData
 import dk.au.bios.porpoise.landscape.DataFileMetaData
+import dk.au.bios.porpoise.tasks.ClockTask
 
 /**
  * Unit test for the Porpoise agent.
@@ -75,6 +76,7 @@ class PorpoiseMoveUnrollTest extends Specification {
 		// Repast initialization
 		this.schedule = new Schedule();
 		RunEnvironment.init(schedule, null, null, true);
+		ClockTask.start(schedule);
 		context = new DefaultContext<>();
 		RunState.init().setMasterContext(context);
 
@@ -27,6 +27,8 @@
 
 package dk.au.bios.porpoise;
 
+import java.util.function.LongFunction
+
 import static org.junit.Assert.*
 import static spock.util.matcher.HamcrestMatchers.closeTo
 import repast.simphony.context.Context
@@ -37,6 +39,7 @@ import repast.simphony.engine.environment.RunEnvironment
 import repast.simphony.engine.environment.RunState
 import repast.simphony.engine.schedule.Schedule
 import repast.simphony.engine.schedule.ScheduleParameters
+import repast.simphony.parameter.ParametersParser
 import repast.simphony.space.continuous.BouncyBorders
 import repast.simphony.space.continuous.NdPoint
 import repast.simphony.space.continuous.RandomCartesianAdder
@@ -47,8 +50,10 @@ import spock.lang.Specification
 import dk.au.bios.porpoise.behavior.DispersalFactory
 import dk.au.bios.porpoise.behavior.FastRefMemTurn
 import dk.au.bios.porpoise.behavior.RandomSource
+import dk.au.bios.porpoise.behavior.SplittableRandomSource
 import dk.au.bios.porpoise.landscape.CellDataTestData
 import dk.au.bios.porpoise.landscape.DataFileMetaData
+import dk.au.bios.porpoise.tasks.ClockTask
 
 /**
  * Unit test for the Porpoise agent.
@@ -65,6 +70,7 @@ class PorpoiseTest extends Specification {
 		// Repast initialization
 		this.schedule = new Schedule();
 		RunEnvironment.init(schedule, null, null, true);
+		ClockTask.start(schedule);
 		context = new DefaultContext<>();
 		//		System.out.println("Loading model");
 		//		context = new PorpoiseSimBuilder().build(context);
@@ -82,6 +88,25 @@ class PorpoiseTest extends Specification {
 		p2.toString() != null
 	}
 
+	def "a porpoise draws the same numbers however many porpoises are created around it"() {
+		given: "each porpoise draws from its own stream"
+		def params = new ParametersParser(new File("DEPONS.rs/parameters.xml")).getParameters()
+		def random = new SplittableRandomSource(params, 873490)
+		Globals.randomSource = random
+		Globals.porpoiseRandomSources = { long id -> random.forPorpoise(id) } as LongFunction
+
+		when:
+		def alone = drawnByPorpoise(7, 0)
+		def amongOthers = drawnByPorpoise(7, 25)
+
+		then:
+		amongOthers == alone
+		drawnByPorpoise(8, 0) != alone
+
+		cleanup:
+		Globals.porpoiseRandomSources = null
+	}
+
 	def "standard move"() {
 		given: "test has been set up"
 		def factory = ContinuousSpaceFactoryFinder.createContinuousSpaceFactory(null)
@@ -137,4 +162,19 @@ class PorpoiseTest extends Specification {
 		then:
 		schedule.tickCount == 11
 	}
+
+	/**
+	 * Creates the porpoise with the passed id between other porpoises, and returns its initial heading, preferred
+	 * PSM distance and energy level followed by the next numbers it draws.
+	 */
+	private List drawnByPorpoise(long id, int others) {
+		Porpoise.PORPOISE_ID.set(100)
+		others.times { new Porpoise(null, null, context, 1, null) }
+		Porpoise.PORPOISE_ID.set(id)
+		def p = new Porpoise(null, null, context, 1, null)
+		others.times { new Porpoise(null, null, context, 1, null) }
+
+		return [p.getHeading(), p.getPersistentSpatialMemory().getPreferredDistance(), p.getEnergyLevel(),
+			p.getRandomSource().nextCrwAngle(), p.getRandomSource().nextCrwStepLength()]
+	}
 }
@@ -43,6 +43,7 @@ import spock.lang.Specification
 import dk.au.bios.porpoise.behavior.FastRefMemTurn
 import dk.au.bios.porpoise.behavior.RandomSource
 import dk.au.bios.porpoise.landscape.CellDataTestData
+import dk.au.bios.porpoise.tasks.ClockTask
 
 public class PorpoiseTestDataGenerator extends Specification {
 
@@ -62,6 +63,7 @@ public class PorpoiseTestDataGenerator extends Specification {
 		// Repast initialization
 		def schedule = new Schedule();
 		RunEnvironment.init(schedule, null, null, true);
+		ClockTask.start(schedule);
 		def context = new DefaultContext<>();
 		RunState.init().setMasterContext(context);
 
@@ -34,23 +34,50 @@ import org.junit.runners.Suite.SuiteClasses;
 import dk.au.bios.porpoise.behaviour.DispersalPSMType2Test;
 import dk.au.bios.porpoise.behaviour.DispersalPSMType3Test;
 import dk.au.bios.porpoise.behaviour.PersistenSpatialMemoryTest;
+import dk.au.bios.porpoise.landscape.CellSamplerTest;
+import dk.au.bios.porpoise.landscape.DepthPathTest;
+import dk.au.bios.porpoise.landscape.HomogeneousCellDataSourceTest;
+import dk.au.bios.porpoise.landscape.LandscapeBundleTest;
+import dk.au.bios.porpoise.landscape.LandscapeCacheTest;
+import dk.au.bios.porpoise.landscape.LayerSeriesArchiveTest;
+import dk.au.bios.porpoise.landscape.LayerStorageTest;
+import dk.au.bios.porpoise.landscape.MovementCovariatesTest;
+import dk.au.bios.porpoise.landscape.ShallowWaterFieldTest;
 import dk.au.bios.porpoise.ships.ShipsDataTest;
+import dk.au.bios.porpoise.tasks.MoveTaskTest;
+import dk.au.bios.porpoise.util.ASCParserTest;
 import dk.au.bios.porpoise.util.CircularBufferTest;
 import dk.au.bios.porpoise.util.DebugLogTest;
+import dk.au.bios.porpoise.util.GeoTiffFileTest;
+import dk.au.bios.porpoise.util.SimulationTimeTest;
 
 @RunWith(Suite.class)
 
 @SuiteClasses({ 
 	PorpoiseDeterrenceTest.class,
+	PopulationStoreTest.class,
 	PorpoiseMoveTest.class,
 	PorpoiseMoveUnrollTest.class,
 	PorpoiseTest.class,
+	MoveTaskTest.class,
 	DispersalPSMType2Test.class,
 	DispersalPSMType3Test.class,
 	PersistenSpatialMemoryTest.class,
+	HomogeneousCellDataSourceTest.class,
+	LandscapeBundleTest.class,
+	LandscapeCacheTest.class,
+	LayerSeriesArchiveTest.class,
+	LayerStorageTest.class,
+	ShallowWaterFieldTest.class,
+	MovementCovariatesTest.class,
+	CellSamplerTest.class,
+	DepthPathTest.class,
 	ShipsDataTest.class,
+	ASCParserTest.class,
+	GeoTiffFileTest.class,
 	CircularBufferTest.class,
 	DebugLogTest.class,
+	SimulationTimeTest.class,
 	ReplayedSimulationKattegatTest.class,
 	ReplayedSimulationDanTyskTest.class,
 	ReplayedSimulationNorthSeaTest.class 
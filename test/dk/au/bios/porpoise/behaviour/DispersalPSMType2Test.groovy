@@ -50,6 +50,7 @@ import dk.au.bios.porpoise.behavior.PersistentSpatialMemory
 import dk.au.bios.porpoise.behavior.RandomSource
 import dk.au.bios.porpoise.landscape.CellDataTestData
 import dk.au.bios.porpoise.landscape.DataFileMetaData
+import dk.au.bios.porpoise.tasks.ClockTask
 
 /**
  * Unit test for the PersistentSpatialMemory.
@@ -73,6 +74,7 @@ class DispersalPSMType2Test extends Specification {
 		// Repast initialization
 		schedule = new Schedule();
 		RunEnvironment.init(schedule, null, null, true);
+		ClockTask.start(schedule);
 		context = new DefaultContext<>();
 		RunState.init().setMasterContext(context);
 	}
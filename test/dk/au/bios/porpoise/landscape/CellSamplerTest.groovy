@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise.landscape
+
+import spock.lang.Specification
+
+/**
+ * Verifies that the positions drawn round to the cells indexed.
+ */
+class CellSamplerTest extends Specification {
+
+	static long toCell(double coordinate, int size) {
+		long cell = Math.round(coordinate)
+		return cell == size ? cell - 1 : cell
+	}
+
+	def "Positions are in the cells with water and prey"() {
+		given:
+		def random = new Random(7)
+		double[][] depth = new double[20][15]
+		double[][] prey = new double[20][15]
+		for (int x = 0; x < 20; x++) {
+			for (int y = 0; y < 15; y++) {
+				depth[x][y] = random.nextDouble() < 0.2d ? 10.0d : -1.0d
+				prey[x][y] = random.nextDouble() < 0.5d ? 1.0d : 0.0d
+			}
+		}
+		def preyLayer = GridLayer.of(prey)
+
+		when:
+		def water = CellSampler.of(GridLayer.of(depth), null)
+		def food = CellSampler.of(GridLayer.of(depth), preyLayer)
+		def positions = (1..2000).collect { water.sample(random.&nextDouble) }
+		def targets = (1..2000).collect { food.sampleAnnulus(10.0d, 7.0d, 2.0d, 6.0d, random.&nextDouble) }
+
+		then:
+		water.size() == (0..<20).sum { x -> (0..<15).count { y -> depth[x][y] > 0 } }
+		food.isFor(preyLayer)
+		!water.isFor(preyLayer)
+		positions.every { p ->
+			depth[toCell(p.getX(), 20)][toCell(p.getY(), 15)] > 0
+		}
+		targets.every { p ->
+			double distance = Math.hypot(p.getX() - 10.0d, p.getY() - 7.0d)
+			int x = toCell(p.getX(), 20)
+			int y = toCell(p.getY(), 15)
+			depth[x][y] > 0 && prey[x][y] > 0 && distance >= 2.0d && distance <= 6.0d
+		}
+	}
+
+	def "No position is drawn without cells in reach"() {
+		given:
+		double[][] depth = new double[10][10]
+		depth[9][9] = 10.0d
+
+		when:
+		def sampler = CellSampler.of(GridLayer.of(depth), null)
+
+		then:
+		sampler.sampleAnnulus(1.0d, 1.0d, 0.0d, 3.0d, new Random(3).&nextDouble) == null
+		CellSampler.of(GridLayer.of(new double[4][4]), null).sample(new Random(3).&nextDouble) == null
+	}
+
+	def "Positions are inside the space and the far border cells are not over-weighted"() {
+		given:
+		def random = new Random(5)
+		double[][] depth = new double[6][5]
+		for (double[] column : depth) {
+			Arrays.fill(column, 10.0d)
+		}
+		def sampler = CellSampler.of(GridLayer.of(depth), null)
+		int[][] counts = new int[6][5]
+		int n = 300000
+
+		when:
+		def positions = (1..n).collect { sampler.sample(random.&nextDouble) }
+		def targets = (1..20000).collect { sampler.sampleAnnulus(5.0d, 4.0d, 0.0d, 3.0d, random.&nextDouble) }
+		positions.each { p -> counts[(int) toCell(p.getX(), 6)][(int) toCell(p.getY(), 5)]++ }
+
+		then:
+		// The space spans from -0.5 to width - 0.5, positions are drawn from 0
+		(positions + targets).every { p ->
+			p.getX() >= 0.0d && p.getX() < 5.5d && p.getY() >= 0.0d && p.getY() < 4.5d
+		}
+		// The cells cover an area of one, half in the first column and row, of a total area of 5.5 x 4.5
+		(0..<6).every { x ->
+			(0..<5).every { y ->
+				double expected = n * (x == 0 ? 0.5d : 1.0d) * (y == 0 ? 0.5d : 1.0d) / (5.5d * 4.5d)
+				Math.abs(counts[x][y] - expected) < 5 * Math.sqrt(expected)
+			}
+		}
+	}
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise.landscape
+
+import repast.simphony.context.DefaultContext
+import repast.simphony.context.space.continuous.ContinuousSpaceFactoryFinder
+import repast.simphony.space.continuous.BouncyBorders
+import repast.simphony.space.continuous.NdPoint
+import repast.simphony.space.continuous.PointTranslator
+import repast.simphony.space.continuous.RandomCartesianAdder
+import repast.simphony.space.continuous.WrapAroundBorders
+import spock.lang.Specification
+import spock.lang.Unroll
+import dk.au.bios.porpoise.Agent
+
+/**
+ * Verifies the cell by cell traversal of the path ahead, and the probe of the points one at a time, against the
+ * depth check of Porpoise.checkDepth before the traversal: each point is translated, rounded to its grid point and its
+ * depth looked up in the CellData.
+ */
+class DepthPathTest extends Specification {
+
+	@Unroll
+	def "Traversal agrees with the points probed on #landscape, wrap #wrap"() {
+		given:
+		double[][] bathy = new LandscapeLoader(landscape).readDataFile("bathy\\.asc")
+		def depth = GridLayer.of(bathy)
+		def cellData = new CellData(landscape, [new BathyCellDataSource(bathy)])
+		int width = depth.getWidth()
+		int height = depth.getHeight()
+		def factory = ContinuousSpaceFactoryFinder.createContinuousSpaceFactory(null)
+		def borders = wrap ? new WrapAroundBorders() : new BouncyBorders()
+		def space = factory.createContinuousSpace("space", new DefaultContext<Agent>(),
+				new RandomCartesianAdder<Agent>(), borders, [width, height] as double[], [0.5f, 0.5f] as double[])
+		def translator = space.getPointTranslator()
+		def random = new Random(landscape.hashCode())
+		double[] coords = new double[2]
+		double[] step = new double[2]
+
+		when:
+		int wrong = 0
+		int shallow = 0
+		for (int i = 0; i < 100000; i++) {
+			// Half of the positions on the edges of cells, and half of the headings along the axes or diagonals
+			double x = coordinate(random, width)
+			double y = coordinate(random, height)
+			double heading = random.nextBoolean() ? random.nextDouble() * 360 : 45 * random.nextInt(8)
+			double stepX = 0.1d * Math.cos(Math.PI / 2 - Math.toRadians(heading))
+			double stepY = 0.1d * Math.sin(Math.PI / 2 - Math.toRadians(heading))
+			int samples = (int) Math.ceil(Math.pow(10, random.nextDouble() * 2.7d - 1.5d) / 0.1d)
+			boolean expected = isDeepBaseline(cellData, translator, x, y, stepX, stepY, samples)
+			boolean traversed = DepthPath.isDeep(depth, translator, x, y, stepX, stepY, samples, coords, step)
+			boolean sampled = DepthPath.isDeepSampled(depth, translator, x, y, stepX, stepY, samples, coords, step)
+			if (traversed != expected || sampled != expected) {
+				wrong++
+			}
+			if (!expected) {
+				shallow++
+			}
+		}
+
+		then:
+		wrong == 0
+		shallow > 0
+
+		cleanup:
+		cellData?.close()
+
+		where:
+		// The Homogeneous landscape has water in every cell, so it has no shallow path to check
+		[landscape, wrap] << [["DanTysk", "Gemini", "UserDefined"], [false, true]].combinations()
+	}
+
+	/**
+	 * The depth check of Porpoise.checkDepth before DepthPath, probing the points at 1 to samples steps ahead.
+	 */
+	private static boolean isDeepBaseline(CellData cellData, PointTranslator translator, double x, double y,
+			double stepX, double stepY, int samples) {
+		for (int i = 0; i < samples; i++) {
+			double[] movedCoords = [x, y] as double[]
+			translator.translate(movedCoords, stepX * (i + 1), stepY * (i + 1))
+			if (!(cellData.getDepth(Agent.ndPointToGridPoint(new NdPoint(movedCoords))) > 0)) {
+				return false
+			}
+		}
+		return true
+	}
+
+	private static double coordinate(Random random, int size) {
+		if (random.nextBoolean()) {
+			return random.nextDouble() * size - 0.5d
+		}
+		return random.nextInt(size) + 0.5d - 0.1d * random.nextInt(10)
+	}
+
+	/**
+	 * The unit test landscape with the bathymetry of a bundled landscape.
+	 */
+	static class BathyCellDataSource extends UnitTestCellDataSource {
+
+		private final double[][] bathy
+
+		BathyCellDataSource(double[][] bathy) {
+			this.bathy = bathy
+		}
+
+		@Override
+		double[][] getData(String fileName) throws IOException {
+			return fileName == LandscapeLoader.BATHY_FILE ? bathy : super.getData(fileName)
+		}
+
+	}
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise.landscape
+
+import java.nio.file.Paths
+
+import dk.au.bios.porpoise.Globals
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.lang.Unroll
+
+/**
+ * Verifies that the computed layers of the homogeneous landscape hold exactly the values of its data files.
+ */
+class HomogeneousCellDataSourceTest extends Specification {
+
+	@Shared
+	ZipFileCellDataSource files
+
+	@Shared
+	HomogeneousCellDataSource homogeneous
+
+	def setupSpec() {
+		files = new ZipFileCellDataSource(Paths.get("data", "Homogeneous.zip"))
+		homogeneous = new HomogeneousCellDataSource([files])
+		Globals.setLandscapeMetadata(files.getMetaData(LandscapeLoader.BATHY_FILE))
+	}
+
+	def cleanupSpec() {
+		homogeneous.close()
+	}
+
+	@Unroll
+	def "Computed #fileName identical to the data file"() {
+		given:
+		double[][] expected = files.getData(fileName)
+
+		when:
+		GridLayer layer = homogeneous.getProceduralLayer(fileName)
+
+		then:
+		layer != null
+		layer.width == expected.length
+		layer.height == expected[0].length
+		(0..<layer.width).every { x ->
+			(0..<layer.height).every { y ->
+				Double.doubleToRawLongBits(layer.getValue(x, y)) == Double.doubleToRawLongBits(expected[x][y])
+			}
+		}
+
+		where:
+		fileName << ["bathy.asc", "disttocoast.asc", "blocks.asc", "prey0000_XX.asc", "salinity0000_XX.asc"]
+	}
+
+	def "Patches are read from the data files"() {
+		expect:
+		homogeneous.getProceduralLayer(LandscapeLoader.PATCHES_FILE) == null
+		homogeneous.getData(LandscapeLoader.PATCHES_FILE) == files.getData(LandscapeLoader.PATCHES_FILE)
+	}
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise.landscape
+
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.nio.file.StandardOpenOption
+
+import dk.au.bios.porpoise.Globals
+import spock.lang.Specification
+import spock.lang.Unroll
+
+/**
+ * Verifies that a landscape bundle written from the data files reads back the same layers, and that damaged content
+ * is detected when it is read.
+ */
+class LandscapeBundleTest extends Specification {
+
+	Path bundlePath
+
+	def setup() {
+		bundlePath = Files.createTempFile("landscape", LandscapeLoader.FILE_EXT_BUNDLE)
+	}
+
+	def cleanup() {
+		Files.deleteIfExists(bundlePath)
+	}
+
+	@Unroll
+	def "Layers of #landscape read back exactly"() {
+		given:
+		def files = source()
+		Globals.setLandscapeMetadata(files.getMetaData(LandscapeLoader.BATHY_FILE))
+		def window = new GridWindow(10, 20, 30, 40, Globals.worldWidth, Globals.worldHeight)
+
+		when:
+		LandscapeBundle.write(bundlePath, [files], 42)
+		def bundle = LandscapeBundle.open(bundlePath)
+		def names = bundle.getNames()
+
+		then:
+		bundle.sourceFingerprint == 42
+		names == files.getNamesMatching(".*\\.asc").sort()
+		names.every { sameMetaData(bundle.getMetaData(it), files.getMetaData(it)) }
+		names.every { identical(bundle.getData(it), files.getData(it)) }
+		identical(bundle.getData(LandscapeLoader.BATHY_FILE, window),
+				window.crop(files.getData(LandscapeLoader.BATHY_FILE)))
+		bundle.foodProbAboveZeroCells.collect { [it.first, it.second] } == foodCells(files)
+
+		cleanup:
+		bundle?.close()
+		files.close()
+
+		where:
+		landscape     | source
+		"DanTysk"     | { new ZipFileCellDataSource(Paths.get("data", "DanTysk" + LandscapeLoader.FILE_EXT_ZIP)) }
+		"UserDefined" | { new DirectoryCellDataSource(Paths.get("data", "UserDefined")) }
+	}
+
+	def "Damaged content detected on first read"() {
+		given:
+		def files = new ZipFileCellDataSource(Paths.get("data", "DanTysk" + LandscapeLoader.FILE_EXT_ZIP))
+		Globals.setLandscapeMetadata(files.getMetaData(LandscapeLoader.BATHY_FILE))
+		LandscapeBundle.write(bundlePath, [files], 42)
+
+		// The food patch cells are stored last
+		FileChannel.open(bundlePath, StandardOpenOption.READ, StandardOpenOption.WRITE).withCloseable { channel ->
+			def last = ByteBuffer.allocate(1)
+			channel.read(last, channel.size() - 1)
+			last.put(0, (byte) ~last.get(0))
+			last.rewind()
+			channel.write(last, channel.size() - 1)
+		}
+
+		when:
+		def bundle = LandscapeBundle.open(bundlePath)
+
+		then:
+		identical(bundle.getData(LandscapeLoader.BATHY_FILE), files.getData(LandscapeLoader.BATHY_FILE))
+
+		when:
+		bundle.foodProbAboveZeroCells
+
+		then:
+		def e = thrown(IOException)
+		e.message.startsWith("Checksum mismatch for food patch cells")
+
+		cleanup:
+		bundle?.close()
+		files.close()
+	}
+
+	private static boolean sameMetaData(DataFileMetaData a, DataFileMetaData b) {
+		return a.ncols == b.ncols && a.nrows == b.nrows && a.xllcorner == b.xllcorner && a.yllcorner == b.yllcorner
+				&& a.cellsize == b.cellsize
+	}
+
+	private static List foodCells(CellDataSource files) {
+		double[][] patches = files.getData(LandscapeLoader.PATCHES_FILE)
+		def cells = []
+		for (int x = 0; x < patches.length; x++) {
+			for (int y = 0; y < patches[x].length; y++) {
+				if (patches[x][y] > 0) {
+					cells << [x, y]
+				}
+			}
+		}
+		return cells
+	}
+
+	private static boolean identical(double[][] a, double[][] b) {
+		if (a.length != b.length) {
+			return false
+		}
+		for (int x = 0; x < a.length; x++) {
+			for (int y = 0; y < a[x].length; y++) {
+				if (Double.doubleToRawLongBits(a[x][y]) != Double.doubleToRawLongBits(b[x][y])) {
+					return false
+				}
+			}
+		}
+		return true
+	}
+}
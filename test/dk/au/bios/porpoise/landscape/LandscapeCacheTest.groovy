@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+package dk.au.bios.porpoise.landscape
+
+import dk.au.bios.porpoise.Globals
+import dk.au.bios.porpoise.SimulationParameters
+import dk.au.bios.porpoise.tasks.ClockTask
+import dk.au.bios.porpoise.util.SimulationTime
+import repast.simphony.engine.environment.RunEnvironment
+import repast.simphony.engine.schedule.Schedule
+import spock.lang.Specification
+
+/**
+ * Verifies that the landscape cache reuses loaded landscapes, starting each run on the first month, and closes the
+ * least recently used landscapes when it is full.
+ */
+class LandscapeCacheTest extends Specification {
+
+	def closed = []
+	Schedule schedule
+
+	def setup() {
+		Globals.landscapeMetaData = new DataFileMetaData(100, 100, 529473, 5972242, 400, null)
+		LandscapeCache.clear()
+		SimulationParameters.landscapeCacheSize = 2
+	}
+
+	def cleanup() {
+		LandscapeCache.clear()
+		SimulationParameters.landscapeCacheSize = 2
+	}
+
+	def "A cached landscape is reused until its files change"() {
+		given:
+		LandscapeCache.put("A", 1, Globals.landscapeMetadata, loaded("A"))
+
+		when:
+		def run = LandscapeCache.newRunData("A", 1)
+
+		then:
+		run != null
+		closed.isEmpty()
+
+		when:
+		run.close()
+		def changed = LandscapeCache.newRunData("A", 2)
+
+		then:
+		changed == null
+		closed == ["A"]
+		!LandscapeCache.contains("A")
+	}
+
+	def "The least recently used landscape is closed when the cache is full"() {
+		given:
+		LandscapeCache.put("A", 1, Globals.landscapeMetadata, loaded("A"))
+		LandscapeCache.put("B", 1, Globals.landscapeMetadata, loaded("B"))
+
+		when: "A is used again and a third landscape is added"
+		LandscapeCache.newRunData("A", 1).close()
+		LandscapeCache.put("C", 1, Globals.landscapeMetadata, loaded("C"))
+
+		then: "B is evicted"
+		closed == ["B"]
+		!LandscapeCache.contains("B")
+		LandscapeCache.contains("A")
+		LandscapeCache.contains("C")
+
+		when: "the cache is made smaller"
+		SimulationParameters.landscapeCacheSize = 0
+		LandscapeCache.put("D", 1, Globals.landscapeMetadata, loaded("D"))
+
+		then: "only the added landscape is kept"
+		closed == ["B", "A", "C"]
+		LandscapeCache.contains("D")
+	}
+
+	def "Each run on a reused landscape seeds the food from the prey of the first month"() {
+		given:
+		LandscapeCache.put("Monthly", 1, Globals.landscapeMetadata,
+				new CellData("Monthly", [new MonthlyPreyCellDataSource()]))
+
+		when: "the first run starts and runs until May"
+		def first = startRun("Monthly")
+		def firstFood = foodOf(first)
+		while (SimulationTime.monthOfYear < 5) {
+			schedule.execute()
+		}
+
+		then:
+		firstFood.every { it == 0.1 }
+		first.getMaxEntLayer().getValue(0, 0) == 0.5
+
+		when: "the second run starts"
+		first.close()
+		def second = startRun("Monthly")
+
+		then:
+		SimulationTime.monthOfYear == 1
+		second.getMaxEntLayer().getValue(0, 0) == 0.1
+		foodOf(second) == firstFood
+
+		cleanup:
+		second?.close()
+	}
+
+	/**
+	 * Starts a run as PorpoiseSimBuilder does, the clock is started on a new schedule before the landscape is loaded.
+	 */
+	private CellData startRun(final String landscape) {
+		schedule = new Schedule()
+		RunEnvironment.init(schedule, null, null, true)
+		ClockTask.start(schedule)
+		def run = LandscapeCache.newRunData(landscape, 1)
+		run.initializeFoodPatches()
+		return run
+	}
+
+	private static List<Double> foodOf(final CellData run) {
+		def food = []
+		for (int x = 0; x < 100; x++) {
+			for (int y = 0; y < 100; y++) {
+				food << run.getFoodLevel(x, y)
+			}
+		}
+		return food
+	}
+
+	private CellData loaded(final String name) {
+		def source = new UnitTestCellDataSource() {
+			@Override
+			void close() {
+				closed << name
+			}
+		}
+		return new CellData(name, [source])
+	}
+
+	/**
+	 * The unit test landscape with prey files for each month, the prey level being a tenth of the month.
+	 */
+	static class MonthlyPreyCellDataSource extends UnitTestCellDataSource {
+
+		@Override
+		double[][] getData(final String fileName) throws IOException {
+			if (!fileName.startsWith(LandscapeLoader.PREY_FILE_PREFIX)) {
+				return super.getData(fileName)
+			}
+			def month = Integer.parseInt(fileName.substring(fileName.indexOf('_') + 1, fileName.indexOf('_') + 3))
+			def data = new double[100][100]
+			data.each { Arrays.fill(it, month / 10.0d) }
+			return data
+		}
+
+	}
+
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise.landscape;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import dk.au.bios.porpoise.landscape.CellData.Layer;
+
+/**
+ * Command line benchmark comparing the {@link LayerLayout}s on the lookups made by moving porpoises. Porpoises are
+ * placed at random in the water of a landscape and moved with a simplified standard move: depth and salinity are
+ * looked up at the position of each porpoise, the depth along the path ahead is checked in steps of 0.1 cell, the
+ * porpoise turns if there is land ahead and otherwise moves and eats from the food level of its new cell. The moves
+ * only depend on the seed, so all layouts make the same lookups, which is checked.
+ *
+ * Usage: <code>LayerLayoutBenchmark landscape [arrays|flat|all] [porpoises...]</code>, run from the model
+ * directory. By default all layouts are measured with 10000 and 100000 porpoises. The layouts are measured in the
+ * same JVM one after the other; measuring each layout in a separate JVM avoids the layouts measured first affecting
+ * the compilation of the later ones, and allows the cache misses to be counted, e.g. with
+ * <code>perf stat -e cache-references,cache-misses</code>.
+ */
+public final class LayerLayoutBenchmark {
+
+	private static final long SEED = 42;
+	private static final int STEPS_PER_DAY = 48;
+	private static final int WARMUP_DAYS = 2;
+	private static final int MEASURED_DAYS = 5;
+	private static final double MIN_DEPTH = 1.0;
+	private static final double PATH_STEP = 0.1;
+
+	private LayerLayoutBenchmark() {
+		// Utility class, prevent instances.
+	}
+
+	public static void main(final String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("Usage: LayerLayoutBenchmark landscape [arrays|flat|all] [porpoises...]");
+			System.exit(1);
+		}
+
+		final LandscapeLoader loader = new LandscapeLoader(args[0]);
+		final double[][] depth = loader.readDataFile(LandscapeLoader.BATHY_FILE.replace(".", "\\."));
+		final double[][] salinity = loader.readDataFile(LandscapeLoader.SALINITY_FILE_PREFIX + ".*\\.asc");
+
+		final List<LayerLayout> layouts = new ArrayList<>();
+		final List<Integer> counts = new ArrayList<>();
+		for (int i = 1; i < args.length; i++) {
+			if ("all".equals(args[i])) {
+				continue;
+			} else if (Character.isDigit(args[i].charAt(0))) {
+				counts.add(Integer.valueOf(args[i]));
+			} else {
+				layouts.add(LayerLayout.valueOf(args[i].toUpperCase(Locale.ROOT)));
+			}
+		}
+		if (layouts.isEmpty()) {
+			for (final LayerLayout layout : LayerLayout.values()) {
+				layouts.add(layout);
+			}
+		}
+		if (counts.isEmpty()) {
+			counts.add(10000);
+			counts.add(100000);
+		}
+
+		System.out.printf("Landscape %s, %d x %d cells, %d steps per day%n", args[0], depth.length, depth[0].length,
+				STEPS_PER_DAY);
+		for (final int count : counts) {
+			long expected = 0;
+			for (final LayerLayout layout : layouts) {
+				final LayerStorage storage = LayerStorage.parse(LayerStorage.LAYOUT + ":" + layout);
+				final Walk walk = new Walk(storage.store(Layer.BATHY, LandscapeLoader.BATHY_FILE, depth),
+						storage.store(Layer.SALINITY, LandscapeLoader.SALINITY_FILE_PREFIX, salinity),
+						storage.allocateFood(depth.length, depth[0].length), count);
+
+				for (int day = 0; day < WARMUP_DAYS; day++) {
+					walk.run(STEPS_PER_DAY);
+				}
+				final long lookups = walk.getLookups();
+				final long start = System.nanoTime();
+				for (int day = 0; day < MEASURED_DAYS; day++) {
+					walk.run(STEPS_PER_DAY);
+				}
+				final long elapsed = System.nanoTime() - start;
+
+				final long checksum = walk.checksum();
+				if (layout == layouts.get(0)) {
+					expected = checksum;
+				} else if (checksum != expected) {
+					throw new IllegalStateException("The porpoises moved differently with layout " + layout);
+				}
+
+				final double steps = (double) count * STEPS_PER_DAY * MEASURED_DAYS;
+				System.out.printf("%-7s %7d porpoises: %6.1f ns per porpoise step, %8.1f ms per day, "
+						+ "%.1f M lookups/s%n", layout, count, elapsed / steps, elapsed / 1E6 / MEASURED_DAYS,
+						(walk.getLookups() - lookups) / (elapsed / 1E3));
+			}
+		}
+	}
+
+	/**
+	 * The porpoises moving in a landscape.
+	 */
+	private static final class Walk {
+		private final GridLayer depth;
+		private final GridLayer salinity;
+		private final MutableGridLayer food;
+		private final int width;
+		private final int height;
+		private final double[] x;
+		private final double[] y;
+		private final double[] heading;
+		private final Random random = new Random(SEED);
+		private double sum;
+		private long lookups;
+
+		private Walk(final GridLayer depth, final GridLayer salinity, final MutableGridLayer food, final int count) {
+			this.depth = depth;
+			this.salinity = salinity;
+			this.food = food;
+			this.width = depth.getWidth();
+			this.height = depth.getHeight();
+			this.x = new double[count];
+			this.y = new double[count];
+			this.heading = new double[count];
+
+			for (int i = 0; i < width; i++) {
+				for (int j = 0; j < height; j++) {
+					food.setValue(i, j, depth.getValue(i, j) > 0 ? 1.0 : 0.0);
+				}
+			}
+			for (int p = 0; p < count; p++) {
+				do {
+					x[p] = random.nextDouble() * width;
+					y[p] = random.nextDouble() * height;
+				} while (depthAt(x[p], y[p]) < MIN_DEPTH);
+				heading[p] = random.nextDouble() * 2 * Math.PI;
+			}
+		}
+
+		private double depthAt(final double px, final double py) {
+			final int cx = (int) px;
+			final int cy = (int) py;
+			if (px < 0 || py < 0 || cx >= width || cy >= height) {
+				return LayerPrecision.NO_DATA;
+			}
+			lookups++;
+			return depth.getValue(cx, cy);
+		}
+
+		private void run(final int steps) {
+			for (int step = 0; step < steps; step++) {
+				for (int p = 0; p < x.length; p++) {
+					move(p);
+				}
+			}
+		}
+
+		private void move(final int p) {
+			final int cx = (int) x[p];
+			final int cy = (int) y[p];
+			final double turn = 0.001 * depth.getValue(cx, cy) + 0.01 * salinity.getValue(cx, cy);
+			lookups += 2;
+			heading[p] += (random.nextDouble() - 0.5) * (1 + turn);
+
+			final double length = 0.5 + 1.5 * random.nextDouble();
+			final double dx = Math.cos(heading[p]);
+			final double dy = Math.sin(heading[p]);
+			double d = 0;
+			do {
+				d = Math.min(d + PATH_STEP, length);
+				if (depthAt(x[p] + d * dx, y[p] + d * dy) < MIN_DEPTH) {
+					heading[p] += Math.PI / 2 + random.nextDouble();
+					return;
+				}
+			} while (d < length);
+
+			x[p] += length * dx;
+			y[p] += length * dy;
+			final int nx = (int) x[p];
+			final int ny = (int) y[p];
+			final double level = food.getValue(nx, ny);
+			food.setValue(nx, ny, level * 0.9);
+			sum += level;
+			lookups += 2;
+		}
+
+		private long checksum() {
+			long checksum = Double.doubleToLongBits(sum);
+			for (int p = 0; p < x.length; p++) {
+				checksum = 31 * checksum + Double.doubleToLongBits(x[p]) + Double.doubleToLongBits(y[p]);
+			}
+			return checksum;
+		}
+
+		private long getLookups() {
+			return lookups;
+		}
+	}
+
+}
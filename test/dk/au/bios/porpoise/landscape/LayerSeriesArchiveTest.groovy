@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise.landscape
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+
+import dk.au.bios.porpoise.Globals
+import spock.lang.Specification
+import spock.lang.Unroll
+
+/**
+ * Verifies that the files of a layer series archive are restored exactly, whatever the order they are read in.
+ */
+class LayerSeriesArchiveTest extends Specification {
+
+	Path archivePath
+
+	def setup() {
+		archivePath = Files.createTempFile("series", LandscapeLoader.FILE_EXT_SERIES)
+	}
+
+	def cleanup() {
+		Files.deleteIfExists(archivePath)
+	}
+
+	@Unroll
+	def "Monthly files of #landscape restored exactly"() {
+		given:
+		def files = new ZipFileCellDataSource(Paths.get("data", landscape + LandscapeLoader.FILE_EXT_ZIP))
+		Globals.setLandscapeMetadata(files.getMetaData(LandscapeLoader.BATHY_FILE))
+
+		when:
+		LayerSeriesArchive.write(archivePath, [files])
+		def archive = LayerSeriesArchive.open(archivePath)
+		def names = archive.getNames()
+
+		then:
+		names == files.getNamesMatching(LayerSeriesArchive.SERIES_FILE_PATTERN.pattern()).sort()
+		(names + names.reverse()).every { identical(archive.getData(it), files.getData(it)) }
+
+		cleanup:
+		archive?.close()
+		files.close()
+
+		where:
+		landscape << ["DanTysk", "Gemini"]
+	}
+
+	def "Long series with few changes restored exactly"() {
+		given:
+		def random = new Random(7)
+		def grids = [:]
+		double[][] grid = new double[50][40]
+		for (int year = 2000; year < 2004; year++) {
+			for (int month = 1; month <= 12; month++) {
+				grid = grid.collect { it.clone() } as double[][]
+				(month == 6 ? 1000 : 20).times { grid[random.nextInt(50)][random.nextInt(40)] = random.nextDouble() }
+				grids[String.format("prey%04d_%02d.asc", year, month)] = grid
+			}
+		}
+		def source = [
+			hasData: { String name -> grids.containsKey(name) },
+			getNamesMatching: { String pattern -> grids.keySet().findAll { it ==~ pattern } as List },
+			getData: { String name -> grids[name] },
+			getMetaData: { String name -> new DataFileMetaData(50, 40, 0, 0, 400, null) }
+		] as CellDataSource
+
+		when:
+		def written = LayerSeriesArchive.write(archivePath, [source])
+		def archive = LayerSeriesArchive.open(archivePath)
+		def shuffled = new ArrayList(grids.keySet())
+		Collections.shuffle(shuffled, random)
+
+		then:
+		written == 48
+		Files.size(archivePath) < 48 * 50 * 40 * 8 / 4
+		(grids.keySet() + shuffled).every { identical(archive.getData(it), grids[it]) }
+
+		cleanup:
+		archive?.close()
+	}
+
+	def "Damaged archive rejected"() {
+		given:
+		def files = new ZipFileCellDataSource(Paths.get("data", "DanTysk" + LandscapeLoader.FILE_EXT_ZIP))
+		Globals.setLandscapeMetadata(files.getMetaData(LandscapeLoader.BATHY_FILE))
+		LayerSeriesArchive.write(archivePath, [files])
+		files.close()
+		byte[] content = Files.readAllBytes(archivePath)
+		content[content.length - 10] = (byte) (content[content.length - 10] ^ 0x55)
+		Files.write(archivePath, content)
+		def archive = LayerSeriesArchive.open(archivePath)
+
+		when:
+		archive.getNames().each { archive.getData(it) }
+
+		then:
+		thrown(IOException)
+
+		cleanup:
+		archive.close()
+	}
+
+	private static boolean identical(double[][] a, double[][] b) {
+		if (a.length != b.length) {
+			return false
+		}
+		for (int x = 0; x < a.length; x++) {
+			for (int y = 0; y < a[x].length; y++) {
+				if (Double.doubleToRawLongBits(a[x][y]) != Double.doubleToRawLongBits(b[x][y])) {
+					return false
+				}
+			}
+		}
+		return true
+	}
+
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise.landscape
+
+import dk.au.bios.porpoise.landscape.CellData.Layer
+import spock.lang.Specification
+import spock.lang.Unroll
+
+/**
+ * Verifies the layers held in reduced precision and the parsing of the layer storage configuration.
+ */
+class LayerStorageTest extends Specification {
+
+	def "Short keeps whole numbers and cells without data exactly"() {
+		given:
+		double[][] data = [[0.0, 18.0, -9999.0], [52.362509751081, -3.0, 1.5]] as double[][]
+
+		when:
+		def layer = LayerPrecision.SHORT.store(data)
+
+		then:
+		layer.getValue(0, 0) == 0.0
+		layer.getValue(0, 1) == 18.0
+		layer.getValue(0, 2) == LayerPrecision.NO_DATA
+		layer.getValue(1, 1) == -3.0
+		layer.getValue(1, 2) == 1.5
+		Math.abs(layer.getValue(1, 0) - 52.362509751081) <= 52.362509751081 / Short.MAX_VALUE
+		LayerPrecision.maxDifference(data, layer) <= 52.362509751081 / Short.MAX_VALUE
+	}
+
+	@Unroll
+	def "#precision rejects #value"() {
+		when:
+		precision.store([[value]] as double[][])
+
+		then:
+		thrown(IOException)
+
+		where:
+		precision            | value
+		LayerPrecision.BYTE  | 128.0
+		LayerPrecision.BYTE  | 0.5
+		LayerPrecision.INT   | 1.0E10
+		LayerPrecision.SHORT | Double.NaN
+	}
+
+	def "Values which cannot be held as configured are held as double"() {
+		given:
+		def storage = LayerStorage.parse("blocks:byte")
+		double[][] data = [[1.0, 300.0]] as double[][]
+
+		expect:
+		storage.store(Layer.BLOCKS, "blocks.asc", data).getValue(0, 1) == 300.0
+	}
+
+	def "Food levels are rounded to the precision of the layer"() {
+		given:
+		def food = LayerPrecision.FLOAT.allocate(2, 2)
+
+		when:
+		food.setValue(1, 1, 0.1d)
+
+		then:
+		food.getValue(1, 1) == (double) 0.1f
+		food.getValue(0, 0) == 0.0
+	}
+
+	def "Reduced storage can be overridden per layer"() {
+		when:
+		def storage = LayerStorage.parse("reduced; bathy:double")
+
+		then:
+		storage.getPrecision(Layer.PREY) == LayerPrecision.FLOAT
+		storage.getPrecision(Layer.SALINITY) == LayerPrecision.FLOAT
+		storage.getPrecision(Layer.BATHY) == LayerPrecision.DOUBLE
+		storage.getPrecision(Layer.BLOCKS) == LayerPrecision.BYTE
+		storage.getPrecision(Layer.PATCHES) == LayerPrecision.BYTE
+		storage.getPrecision(Layer.DISTTOCOAST) == LayerPrecision.DOUBLE
+		storage.foodPrecision == LayerPrecision.FLOAT
+		!storage.isDefault()
+		LayerStorage.parse(storage.toString()).toString() == storage.toString()
+		LayerStorage.parse("double").isDefault()
+	}
+
+	@Unroll
+	def "#layout layout holds the same values as the arrays read"() {
+		given:
+		double[][] data = new double[11][19]
+		for (int x = 0; x < 11; x++) {
+			for (int y = 0; y < 19; y++) {
+				data[x][y] = x * 100 + y
+			}
+		}
+
+		when:
+		def layer = LayerPrecision.DOUBLE.store(data, layout)
+		def food = LayerPrecision.FLOAT.allocate(11, 19, layout)
+		food.setValue(10, 18, 2.5d)
+
+		then:
+		(0..<11).every { x -> (0..<19).every { y -> layer.getValue(x, y) == data[x][y] } }
+		food.getValue(10, 18) == 2.5d
+		food.getValue(9, 18) == 0.0d
+
+		when:
+		layer.getValue(11, 0)
+
+		then:
+		thrown(ArrayIndexOutOfBoundsException)
+
+		where:
+		layout << LayerLayout.values()
+	}
+
+	def "Layout is part of the storage"() {
+		when:
+		def storage = LayerStorage.parse("layout:flat")
+
+		then:
+		storage.layout == LayerLayout.FLAT
+		!storage.isDefault()
+		!storage.isArrayBacked(Layer.BATHY)
+		LayerStorage.parse(storage.toString()).layout == LayerLayout.FLAT
+		LayerStorage.parse("layout:arrays").isDefault()
+	}
+
+	@Unroll
+	def "Cells off a #precision layer with a halo in #layout layout have no data"() {
+		given:
+		double[][] data = [[1.0, 2.0], [3.0, 4.0], [5.0, 6.0]] as double[][]
+		def layer = precision.store(data, layout, 2)
+
+		expect:
+		layer.getValueOrNoData(2, 1) == 6.0
+		layer.getValueOrNoData(-1, 0) == LayerPrecision.NO_DATA
+		layer.getValueOrNoData(4, 3) == LayerPrecision.NO_DATA
+		layer.getValueOrNoData(-3, 0) == LayerPrecision.NO_DATA
+		layer.getValueOrNoData(0, 40) == LayerPrecision.NO_DATA
+
+		when:
+		layer.getValue(-1, 0)
+
+		then:
+		thrown(ArrayIndexOutOfBoundsException)
+
+		where:
+		[precision, layout] << [LayerPrecision.values(), LayerLayout.values()].combinations()
+	}
+
+	def "Cells off the arrays read have no data"() {
+		given:
+		def layer = GridLayer.of([[1.0, 2.0]] as double[][])
+
+		expect:
+		layer.getValueOrNoData(0, 1) == 2.0
+		layer.getValueOrNoData(1, 0) == LayerPrecision.NO_DATA
+		layer.getValueOrNoData(0, -1) == LayerPrecision.NO_DATA
+	}
+
+	def "Halo is part of the storage"() {
+		when:
+		def storage = LayerStorage.parse("halo:4")
+
+		then:
+		storage.halo == 4
+		!storage.isDefault()
+		!storage.isArrayBacked(Layer.BATHY)
+		LayerStorage.parse(storage.toString()).halo == 4
+		storage.allocateFood(3, 3).getValueOrNoData(-4, -4) == LayerPrecision.NO_DATA
+		storage.allocateFood(3, 3).getValueOrNoData(2, 2) == 0.0
+	}
+
+	@Unroll
+	def "Invalid storage '#spec' rejected"() {
+		when:
+		LayerStorage.parse(spec)
+
+		then:
+		thrown(IOException)
+
+		where:
+		spec << ["bathy", "bathy:tiny", "moon:float", "food:byte", "layout:round", "halo:-1", "halo:wide"]
+	}
+
+}
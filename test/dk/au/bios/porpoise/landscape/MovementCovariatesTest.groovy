@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise.landscape
+
+import spock.lang.Specification
+
+/**
+ * Verifies the movement terms against the terms computed per step.
+ */
+class MovementCovariatesTest extends Specification {
+
+	def "Terms are those computed per step"() {
+		given:
+		def random = new Random(5)
+		double[][] depth = new double[13][9]
+		double[][] salinity = new double[13][9]
+		for (int x = 0; x < 13; x++) {
+			for (int y = 0; y < 9; y++) {
+				depth[x][y] = random.nextDouble() * 40 - 5
+				salinity[x][y] = random.nextDouble() * 35
+			}
+		}
+		def salinityLayer = GridLayer.of(salinity)
+		double angleBathy = -0.008d
+		double angleSalinity = -0.024d
+		double angleBaseSD = 0.93d
+		double logmovBathy = 5.0E-4d
+		double logmovSalinity = -0.02d
+
+		when:
+		def covariates = MovementCovariates.compute(GridLayer.of(depth), salinityLayer, angleBathy, angleSalinity,
+				angleBaseSD, logmovBathy, logmovSalinity)
+
+		then:
+		(0..<13).every { x ->
+			(0..<9).every { y ->
+				int i = covariates.indexOf(x, y)
+				double angleFactor = angleBathy * depth[x][y] + angleSalinity * salinity[x][y] + angleBaseSD
+				covariates.getAngleFactor(i) == angleFactor &&
+						covariates.getLogMovBathy(i) == logmovBathy * depth[x][y] &&
+						covariates.getLogMovSalinity(i) == logmovSalinity * salinity[x][y]
+			}
+		}
+		covariates.isFor(salinityLayer, angleBathy, angleSalinity, angleBaseSD, logmovBathy, logmovSalinity)
+		!covariates.isFor(GridLayer.of(salinity), angleBathy, angleSalinity, angleBaseSD, logmovBathy, logmovSalinity)
+		!covariates.isFor(salinityLayer, angleBathy, angleSalinity, angleBaseSD, logmovBathy, -0.03d)
+	}
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise.landscape
+
+import spock.lang.Specification
+
+/**
+ * Verifies the distances to shallow water against a search of all cells.
+ */
+class ShallowWaterFieldTest extends Specification {
+
+	def "Distances are those to the nearest shallow cell or the border"() {
+		given:
+		def random = new Random(7)
+		double[][] depth = new double[23][17]
+		for (int x = 0; x < 23; x++) {
+			for (int y = 0; y < 17; y++) {
+				depth[x][y] = random.nextInt(30) == 0 ? -1.0 : 5.0 + random.nextInt(3)
+			}
+		}
+		depth[12][8] = 0.0
+
+		when:
+		def strict = ShallowWaterField.compute(GridLayer.of(depth), 0, false)
+		def deep = ShallowWaterField.compute(GridLayer.of(depth), 6, true)
+
+		then:
+		(0..<23).every { x -> (0..<17).every { y -> strict.getDistance(x, y) == nearest(depth, x, y, { it > 0 }) } }
+		(0..<23).every { x -> (0..<17).every { y -> deep.getDistance(x, y) == nearest(depth, x, y, { it >= 6 }) } }
+		strict.getDistance(12, 8) == 0
+		strict.getDistance(-1, 3) == 0
+		strict.getDistance(23, 3) == 0
+	}
+
+	private static int nearest(double[][] depth, int x, int y, Closure<Boolean> deep) {
+		int best = Integer.MAX_VALUE
+		for (int fx = -1; fx <= depth.length; fx++) {
+			for (int fy = -1; fy <= depth[0].length; fy++) {
+				boolean offGrid = fx < 0 || fy < 0 || fx >= depth.length || fy >= depth[0].length
+				if (offGrid || !deep(depth[fx][fy])) {
+					best = Math.min(best, Math.max(Math.abs(fx - x), Math.abs(fy - y)))
+				}
+			}
+		}
+		return best
+	}
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise.tasks
+
+import repast.simphony.context.DefaultContext
+import repast.simphony.engine.environment.DefaultScheduleRunner
+import repast.simphony.engine.environment.RunEnvironment
+import repast.simphony.engine.environment.RunState
+import repast.simphony.engine.schedule.Schedule
+import repast.simphony.parameter.ParametersParser
+import repast.simphony.random.RandomHelper
+import spock.lang.Specification
+import dk.au.bios.porpoise.Porpoise
+import dk.au.bios.porpoise.PorpoiseSimBuilder
+
+/**
+ * Verifies that the porpoises move the same whether moved one by one or by MoveTask on any number of threads.
+ */
+class MoveTaskTest extends Specification {
+
+	static final int TICKS = 96
+
+	def "Positions and energy are the same for any number of threads"() {
+		when:
+		def oneByOne = run(0)
+		def oneThread = run(1)
+		def fourThreads = run(4)
+
+		then:
+		oneThread.size() == 20
+		fourThreads == oneThread
+		// The porpoises are far apart, so moving one by one they do not see each other eat either
+		oneByOne == oneThread
+	}
+
+	/**
+	 * Runs the homogeneous landscape with each porpoise drawing from its own stream, and returns the id, position
+	 * and energy level of each porpoise.
+	 */
+	private static List run(int threads) {
+		def params = new ParametersParser(new File("DEPONS.rs/parameters.xml")).getParameters()
+		params.setValue("randomSeed", 873490)
+		params.setValue("landscape", "Homogeneous")
+		params.setValue("porpoiseCount", 20)
+		params.setValue("trackedPorpoiseCount", 0)
+		params.setValue("randomStreams", true)
+		params.setValue("moveThreads", threads)
+
+		RandomHelper.setSeed(params.getInteger("randomSeed"))
+		def schedule = new Schedule()
+		RunEnvironment.init(schedule, new DefaultScheduleRunner(), params, false)
+		def context = new PorpoiseSimBuilder().build(new DefaultContext<>())
+		RunState.init().setMasterContext(context)
+
+		// The @ScheduledMethod annotation on Porpoise is not automatically processed
+		context.getObjects(Porpoise.class).each {
+			schedule.schedule(it)
+		}
+		TICKS.times {
+			schedule.execute()
+		}
+
+		return context.getObjects(Porpoise.class).collect { Porpoise p ->
+			[p.getId(), p.getPosition().getX(), p.getPosition().getY(), p.getEnergyLevel()]
+		}.sort { it[0] }
+	}
+
+}
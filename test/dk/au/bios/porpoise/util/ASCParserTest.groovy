@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise.util
+
+import java.nio.file.Files
+import java.util.zip.ZipFile
+
+import dk.au.bios.porpoise.landscape.GridWindow
+import spock.lang.Specification
+import spock.lang.Unroll
+
+/**
+ * Verifies that the ASCParser produces exactly the same result as ASCUtil for all landscapes in the data folder.
+ */
+class ASCParserTest extends Specification {
+
+	@Unroll
+	def "Parse #name identical to ASCUtil"() {
+		given:
+		byte[] contents = loader()
+		def expectedMeta = ASCUtil.loadMetaData(new ByteArrayInputStream(contents))
+
+		when:
+		def meta = ASCParser.loadMetaData(new ByteArrayInputStream(contents))
+
+		then:
+		meta.ncols == expectedMeta.ncols
+		meta.nrows == expectedMeta.nrows
+		meta.xllcorner == expectedMeta.xllcorner
+		meta.yllcorner == expectedMeta.yllcorner
+		meta.cellsize == expectedMeta.cellsize
+
+		when:
+		double[][] expected = ASCUtil.loadDoubleAscFile(meta.ncols, meta.nrows, new ByteArrayInputStream(contents), false)
+		double[][] actual = ASCParser.loadDoubleAscFile(meta.ncols, meta.nrows, new ByteArrayInputStream(contents), false)
+
+		then:
+		sameBits(expected, actual)
+
+		where:
+		[name, loader] << ascFiles()
+	}
+
+	def "Parse numbers outside the fast path"() {
+		given:
+		def text = "ncols 4\nnrows 2\nxllcorner 0\nyllcorner 0\ncellsize 400\nNODATA_value -9999\n" +
+				"-3.4e+38 0.12345678901234567 1E-30 -0.0\r\n" +
+				"-9999 7 NaN 123456789012345678901234567890 \r\n"
+		byte[] contents = text.getBytes("US-ASCII")
+
+		when:
+		double[][] expected = ASCUtil.loadDoubleAscFile(4, 2, new ByteArrayInputStream(contents), replaceNoData)
+		double[][] actual = ASCParser.loadDoubleAscFile(4, 2, new ByteArrayInputStream(contents), replaceNoData)
+
+		then:
+		sameBits(expected, actual)
+
+		where:
+		replaceNoData << [false, true]
+	}
+
+	def "Parse a window of the grid"() {
+		given:
+		def text = "ncols 4\nnrows 3\nxllcorner 0\nyllcorner 0\ncellsize 400\nNODATA_value -9999\n" +
+				"1 2 3 4\n5 6 7 8\n9 10 11 12\n"
+		byte[] contents = text.getBytes("US-ASCII")
+		def window = new GridWindow(x, y, width, height, 4, 3)
+
+		when:
+		double[][] full = ASCParser.loadDoubleAscFile(4, 3, new ByteArrayInputStream(contents), false)
+		double[][] actual = ASCParser.loadDoubleAscFile(window, contents, contents.length, false)
+
+		then:
+		sameBits(window.crop(full), actual)
+
+		where:
+		x | y | width | height
+		0 | 0 | 4     | 3
+		1 | 0 | 2     | 2
+		3 | 2 | 1     | 1
+		0 | 1 | 4     | 2
+	}
+
+	def "Reject files with unexpected dimensions"() {
+		given:
+		def text = "ncols 2\nnrows 2\nxllcorner 0\nyllcorner 0\ncellsize 400\nNODATA_value -9999\n1 2\n3 4\n"
+
+		when:
+		ASCParser.loadDoubleAscFile(width, height, new ByteArrayInputStream(text.getBytes("US-ASCII")), false)
+
+		then:
+		thrown(IOException)
+
+		where:
+		width | height
+		2     | 3
+		2     | 1
+		1     | 2
+		3     | 2
+	}
+
+	private static boolean sameBits(double[][] expected, double[][] actual) {
+		assert expected.length == actual.length
+		for (int x = 0; x < expected.length; x++) {
+			assert expected[x].length == actual[x].length
+			for (int y = 0; y < expected[x].length; y++) {
+				assert Double.doubleToRawLongBits(expected[x][y]) == Double.doubleToRawLongBits(actual[x][y]), "Differs at $x,$y"
+			}
+		}
+		return true
+	}
+
+	private static List ascFiles() {
+		def files = []
+		new File("data").eachFile { File f ->
+			if (f.name.endsWith(".zip")) {
+				ZipFile zip = new ZipFile(f)
+				try {
+					Collections.list(zip.entries()).findAll { it.name.endsWith(".asc") }.each { entry ->
+						files << ["${f.name}/${entry.name}", { readZipEntry(f, entry.name) }]
+					}
+				} finally {
+					zip.close()
+				}
+			} else if (f.isDirectory()) {
+				f.eachFileMatch(~/.*\.asc/) { File asc ->
+					files << ["${f.name}/${asc.name}", { Files.readAllBytes(asc.toPath()) }]
+				}
+			}
+		}
+		return files
+	}
+
+	private static byte[] readZipEntry(File file, String name) {
+		ZipFile zip = new ZipFile(file)
+		try {
+			return zip.getInputStream(zip.getEntry(name)).bytes
+		} finally {
+			zip.close()
+		}
+	}
+}
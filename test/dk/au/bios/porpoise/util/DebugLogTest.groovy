@@ -33,6 +33,7 @@ import dk.au.bios.porpoise.Agent;
 import dk.au.bios.porpoise.Globals
 import dk.au.bios.porpoise.behavior.DispersalFactory
 import dk.au.bios.porpoise.landscape.DataFileMetaData
+import dk.au.bios.porpoise.tasks.ClockTask;
 import repast.simphony.context.Context;
 import repast.simphony.context.DefaultContext
 import repast.simphony.engine.environment.RunEnvironment
@@ -54,6 +55,7 @@ class DebugLogTest extends Specification {
 		// Repast initialization
 		this.schedule = new Schedule();
 		RunEnvironment.init(schedule, null, null, true);
+		ClockTask.start(schedule);
 		context = new DefaultContext<>();
 		//		System.out.println("Loading model");
 		//		context = new PorpoiseSimBuilder().build(context);
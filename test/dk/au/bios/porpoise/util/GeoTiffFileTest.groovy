@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise.util
+
+import org.geotools.referencing.CRS
+
+import dk.au.bios.porpoise.Globals
+import dk.au.bios.porpoise.landscape.GridWindow
+import spock.lang.Specification
+import spock.lang.Unroll
+
+/**
+ * Verifies the GeoTIFF decoder against small fixtures holding the same grid as an ASC file. The fixtures cover every
+ * supported compression, predictor and sample format, big endian files, BigTIFF, tiles and the three ways of
+ * georeferencing the grid. Cells without data hold the no-data value of the file's sample type.
+ */
+class GeoTiffFileTest extends Specification {
+
+	@Unroll
+	def "Decode #file like #asc"() {
+		given:
+		def expectedMeta = ASCParser.loadMetaData(resource(asc))
+		double[][] expected = ASCParser.loadDoubleAscFile(expectedMeta.ncols, expectedMeta.nrows, resource(asc), false)
+
+		when:
+		def tiff = GeoTiffFile.open(resource(file))
+		def meta = tiff.metaData
+		double[][] actual = new double[tiff.width][tiff.height]
+		tiff.readInto(actual, -9999.0d)
+
+		then:
+		meta.ncols == expectedMeta.ncols
+		meta.nrows == expectedMeta.nrows
+		meta.xllcorner == expectedMeta.xllcorner
+		meta.yllcorner == expectedMeta.yllcorner
+		meta.cellsize == expectedMeta.cellsize
+		CRS.equalsIgnoreMetadata(meta.coordinateReferenceSystem, CRS.decode("EPSG:3035", true))
+		actual == expected
+
+		where:
+		file                                | asc
+		"uint8.tif"                         | "int.asc"
+		"int8-packbits.tif"                 | "int.asc"
+		"uint16-packbits.tif"               | "int.asc"
+		"int16-lzw-predictor.tif"           | "int.asc"
+		"int16-deflate-old-predictor.tif"   | "int.asc"
+		"uint32-lzw.tif"                    | "int.asc"
+		"int32-deflate.tif"                 | "int.asc"
+		"float32-deflate-predictor.tif"     | "float.asc"
+		"float32-lzw-tiled.tif"             | "float.asc"
+		"float64-bigendian.tif"             | "float.asc"
+		"float64-lzw-predictor-bigtiff.tif" | "float.asc"
+	}
+
+	@Unroll
+	def "Decode a window of #file"() {
+		given:
+		def window = new GridWindow(13, 11, 5, 4, 20, 18)
+		double[][] expected = window.crop(ASCParser.loadDoubleAscFile(20, 18, resource(asc), false))
+
+		when:
+		double[][] actual = new double[window.width][window.height]
+		GeoTiffFile.open(resource(file)).readInto(actual, -9999.0d, window.x, window.y, window.width, window.height)
+
+		then:
+		actual == expected
+
+		where:
+		file                            | asc
+		"int16-lzw-predictor.tif"       | "int.asc"
+		"float32-deflate-predictor.tif" | "float.asc"
+		"float32-lzw-tiled.tif"         | "float.asc"
+	}
+
+	def "Replace cells without data with NaN"() {
+		given:
+		def previous = Globals.landscapeMetadata
+		def meta = GeoTiffUtil.loadMetaData(resource("float32-lzw-tiled.tif"))
+		Globals.landscapeMetadata = meta
+		double[][] expected = ASCParser.loadDoubleAscFile(20, 18, resource("float.asc"), true)
+
+		when:
+		double[][] withNaN = GeoTiffUtil.loadGeotif(20, 18, resource("float32-lzw-tiled.tif"), true)
+		double[][] withNoData = GeoTiffUtil.loadGeotif(20, 18, resource("float32-lzw-tiled.tif"), false)
+
+		then:
+		sameBits(expected, withNaN)
+		withNoData.flatten().count { it == -9999.0d } == expected.flatten().count { Double.isNaN(it) }
+		withNoData.flatten().count { it == -9999.0d } > 0
+
+		cleanup:
+		Globals.landscapeMetadata = previous
+	}
+
+	private static InputStream resource(String name) {
+		return GeoTiffFileTest.class.getResourceAsStream("geotiff/" + name)
+	}
+
+	private static boolean sameBits(double[][] expected, double[][] actual) {
+		assert expected.length == actual.length
+		for (int x = 0; x < expected.length; x++) {
+			assert expected[x].length == actual[x].length
+			for (int y = 0; y < expected[x].length; y++) {
+				assert Double.doubleToRawLongBits(expected[x][y]) == Double.doubleToRawLongBits(actual[x][y]), "Differs at $x,$y"
+			}
+		}
+		return true
+	}
+}
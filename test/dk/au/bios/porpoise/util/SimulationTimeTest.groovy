@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2021 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+package dk.au.bios.porpoise.util
+
+import repast.simphony.engine.environment.RunEnvironment
+import repast.simphony.engine.schedule.Schedule
+import spock.lang.Specification
+import dk.au.bios.porpoise.tasks.ClockTask
+
+/**
+ * Verifies the periods kept by the clock and the changes of period told to the listeners as the clock advances.
+ */
+class SimulationTimeTest extends Specification {
+
+	def "Days, months, quarters and years change at their first tick"() {
+		given:
+		def schedule = new Schedule()
+		RunEnvironment.init(schedule, null, null, true)
+		def changes = []
+		SimulationTime.PeriodListener listener = { SimulationTime.Period period ->
+			changes << [(int) SimulationTime.getTick(), period]
+		}
+		SimulationTime.addListener(listener)
+
+		when:
+		ClockTask.start(schedule)
+		def started = new ArrayList(changes)
+		changes.clear()
+		int mismatches = 0
+		for (int tick = 0; tick <= 360 * 48; tick++) {
+			schedule.execute()
+			if (SimulationTime.getTick() != tick || SimulationTime.getDayOfSimulation() != tick.intdiv(48)
+					|| SimulationTime.getMonthOfYear() != SimulationTime.getMonthOfYear(tick)
+					|| SimulationTime.getQuarterOfYear() != SimulationTime.getQuarterOfYear(tick)
+					|| SimulationTime.getYearOfSimulation() != tick.intdiv(360 * 48)) {
+				mismatches++
+			}
+		}
+
+		then:
+		started*.get(1) == SimulationTime.Period.values().toList()
+		mismatches == 0
+		changes.findAll { it[1] == SimulationTime.Period.DAY }*.get(0) == (1..360).collect { it * 48 }
+		changes.findAll { it[1] == SimulationTime.Period.MONTH }*.get(0) == (1..12).collect { it * 30 * 48 }
+		changes.findAll { it[1] == SimulationTime.Period.QUARTER }*.get(0) == (1..(360 * 48)).findAll {
+			SimulationTime.getQuarterOfYear(it) != SimulationTime.getQuarterOfYear(it - 1)
+		}
+		changes.findAll { it[1] == SimulationTime.Period.YEAR }*.get(0) == [360 * 48]
+		SimulationTime.getMonthOfSimulation() == 12
+
+		cleanup:
+		SimulationTime.removeListener(listener)
+	}
+
+}